@@ -0,0 +1,89 @@
+package org.example.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * throughput and latency of the two execution modes on a blocking remote call (simulated with a sleep), without
+ * the app or the remote services:
+ * mvn -Pjmh test-compile exec:java -Dexec.mainClass=org.example.config.ExecutionModeComparison -Dexec.classpathScope=test [-Dexec.args="2000 200 100"]
+ * --------
+ * args: concurrent callers, platform pool size (execution.command.pool-size), remote latency in ms. Every caller
+ * makes calls back to back for 20 seconds. The virtual mode needs a Java 21 runtime and is skipped before it.
+ */
+public final class ExecutionModeComparison {
+    private static final long RUN_NANOS = TimeUnit.SECONDS.toNanos(20);
+
+    private ExecutionModeComparison() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int callers = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int poolSize = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        long latencyMs = args.length > 2 ? Long.parseLong(args[2]) : 100;
+
+        System.out.println("mode       calls/s   p50 ms   p99 ms");
+        run("platform", Executors.newFixedThreadPool(poolSize), callers, latencyMs);
+        ExecutorService virtual = virtualThreadPerTask();
+        if (virtual == null) System.out.println("virtual    needs Java 21, running on " + Runtime.version().feature());
+        else run("virtual", virtual, callers, latencyMs);
+    }
+
+    // each caller submits a call and waits for it, like a request thread handing work to the executor
+    private static void run(String mode, ExecutorService executor, int callers, long latencyMs) throws Exception {
+        long end = System.nanoTime() + RUN_NANOS;
+        List<Thread> threads = new ArrayList<>();
+        List<long[]> latencies = new ArrayList<>();
+        for (int c = 0; c < callers; c++) {
+            long[] samples = new long[(int) (RUN_NANOS / TimeUnit.MILLISECONDS.toNanos(latencyMs)) + 1];
+            latencies.add(samples);
+            Thread thread = new Thread(() -> {
+                int n = 0;
+                while (System.nanoTime() < end && n < samples.length) {
+                    long start = System.nanoTime();
+                    try {
+                        Future<?> call = executor.submit(() -> sleep(latencyMs));
+                        call.get();
+                    } catch (Exception e) {
+                        return;
+                    }
+                    samples[n++] = System.nanoTime() - start;
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) thread.join();
+        executor.shutdown();
+
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).filter(l -> l > 0).sorted().toArray();
+        System.out.printf("%-9s %8.0f %8.1f %8.1f%n", mode, all.length / (RUN_NANOS / 1e9),
+                percentile(all, 0.5), percentile(all, 0.99));
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))] / 1e6;
+    }
+
+    private static ExecutorService virtualThreadPerTask() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
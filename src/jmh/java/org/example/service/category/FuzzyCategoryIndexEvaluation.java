@@ -0,0 +1,101 @@
+package org.example.service.category;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.SplittableRandom;
+
+/**
+ * precision and recall of {@link FuzzyCategoryIndex} on bench/categories.txt per threshold, and its memory
+ * and lookup time with a million synthetic products:
+ * mvn -Pjmh test-compile exec:java -Dexec.mainClass=org.example.service.category.FuzzyCategoryIndexEvaluation -Dexec.classpathScope=test
+ * --------
+ * precision: right prefixes among the answered variant and unseen products. Recall: variants answered with
+ * the right prefix. An unseen product has no related known one, any answer with another prefix is a false
+ * positive.
+ */
+public final class FuzzyCategoryIndexEvaluation {
+    private record Row(String kind, String product, String category) {
+    }
+
+    private static final String[] SYLLABLES = {"ba", "ko", "ri", "mel", "sta", "pen", "lo", "tri", "cu", "van",
+            "do", "ne", "sil", "ga", "rop", "fu", "chi", "al", "mo", "ter", "bri", "xo", "pa", "len"};
+
+    private FuzzyCategoryIndexEvaluation() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<Row> rows = corpus();
+        System.out.println("threshold  precision  recall  false-positives");
+        for (double threshold : new double[]{0.4, 0.5, 0.6, 0.7, 0.8}) {
+            FuzzyCategoryIndex index = new FuzzyCategoryIndex(Integer.MAX_VALUE, threshold);
+            rows.stream().filter(r -> r.kind().equals("known")).forEach(r -> index.put(r.product(), r.category()));
+
+            int answered = 0, right = 0, variants = 0, variantsRight = 0, falsePositives = 0;
+            for (Row row : rows) {
+                if (row.kind().equals("known")) continue;
+                FuzzyCategoryIndex.Match match = index.find(row.product());
+                boolean isRight = match != null && match.prefix().equals(row.category());
+                if (row.kind().equals("variant")) variants++;
+                if (match == null) continue;
+                answered++;
+                if (isRight) right++;
+                if (isRight && row.kind().equals("variant")) variantsRight++;
+                if (!isRight && row.kind().equals("unseen")) falsePositives++;
+            }
+            System.out.printf("%9.1f  %9.3f  %6.3f  %15d%n", threshold,
+                    answered == 0 ? 0 : (double) right / answered, (double) variantsRight / variants, falsePositives);
+        }
+
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        SplittableRandom random = new SplittableRandom(1);
+        System.gc();
+        long before = usedHeap();
+        FuzzyCategoryIndex index = new FuzzyCategoryIndex(entries, 0.6);
+        for (int i = 0; i < entries; i++) {
+            index.put(word(random) + " " + word(random), "Category " + random.nextInt(200) + "->Sub->x");
+        }
+        System.gc();
+        long after = usedHeap();
+        System.out.printf("%d products: %d MB heap (%d MB of it arrays), %d bytes per product%n", index.size(),
+                (after - before) >> 20, index.arrayBytes() >> 20, (after - before) / index.size());
+
+        int lookups = 100_000;
+        long start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < lookups; i++) {
+            if (index.find(word(random) + " " + word(random)) != null) found++;
+        }
+        System.out.printf("lookup: %.1f us (%d of %d matched)%n", (System.nanoTime() - start) / 1000.0 / lookups, found, lookups);
+    }
+
+    private static List<Row> corpus() throws IOException {
+        List<Row> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(Objects.requireNonNull(
+                FuzzyCategoryIndexEvaluation.class.getResourceAsStream("/bench/categories.txt")), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) continue;
+                String[] parts = line.split("\\|");
+                rows.add(new Row(parts[0], parts[1], parts[2]));
+            }
+        }
+        return rows;
+    }
+
+    // 2..4 random syllables, products share words the way real ones do
+    private static String word(SplittableRandom random) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 2 + random.nextInt(3); i > 0; i--) word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        return word.toString();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,151 @@
+package org.example.service.extraction;
+
+import edu.stanford.nlp.pipeline.CoreDocument;
+import edu.stanford.nlp.pipeline.CoreSentence;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.domain.request.ExpenseRequest;
+import org.example.service.VoiceCommandService;
+import org.example.service.nlp.InProcessNlpExtractor;
+import org.example.service.nlp.LanguageDetector;
+import org.example.service.nlp.NlpAnnotationService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * cost of the extraction pipeline per transcript, on bench/transcripts.txt.
+ * --------
+ * one op is one transcript (or one sentence for the engine benchmarks), taken round-robin from the corpus
+ * of the selected length. The extraction cache is off (size 0), every op does the real work.
+ * Run with the gc profiler (the default jmh.args of the jmh profile) to get gc.alloc.rate.norm, the bytes
+ * allocated per op:
+ * mvn -Pjmh test-compile exec:exec
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="ExtractionBenchmark.extractWithNlp -p length=long -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class ExtractionBenchmark {
+    @Param({"short", "medium", "long"})
+    public String length;
+
+    private ThreadPoolExecutor nlpExecutor;
+    private VoiceCommandService voiceCommandService;
+    private FastPathExtractor fastPath;
+    private final ExtractionEngine engine = new ExtractionEngine();
+
+    private List<String> transcripts;
+    private List<CoreSentence> verbSentences;
+    private List<CoreSentence> nounSentences;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        transcripts = corpus(length);
+
+        nlpExecutor = new ThreadPoolExecutor(Runtime.getRuntime().availableProcessors(),
+                Runtime.getRuntime().availableProcessors(), 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "nlp-bench");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        NlpAnnotationService nlp = new NlpAnnotationService(nlpExecutor, meterRegistry, "pos, lemma, depparse", null);
+        nlp.load();
+        fastPath = new FastPathExtractor(meterRegistry);
+        voiceCommandService = new VoiceCommandService(null, null, null,
+                new InProcessNlpExtractor(nlp, new LanguageDetector(List.of("en"))), fastPath,
+                new ExtractionCache(0, meterRegistry), null, Runnable::run);
+
+        // the engine benchmarks get sentences annotated once, they measure the extraction only
+        verbSentences = new ArrayList<>();
+        nounSentences = new ArrayList<>();
+        for (String transcript : transcripts) {
+            CoreDocument document = nlp.annotate(transcript);
+            for (CoreSentence sentence : document.sentences()) {
+                (engine.hasVerbs(sentence) ? verbSentences : nounSentences).add(sentence);
+            }
+        }
+        if (nounSentences.isEmpty()) nounSentences = verbSentences;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        nlpExecutor.shutdownNow();
+    }
+
+    /**
+     * what a request pays: cache lookup, fast path, CoreNLP annotation and extraction when the fast path declines.
+     */
+    @Benchmark
+    public List<ExpenseRequest> extractProductInfo() {
+        return voiceCommandService.extractProductInfo(nextTranscript());
+    }
+
+    /**
+     * annotation and extraction without the fast path.
+     */
+    @Benchmark
+    public List<ExpenseRequest> extractWithNlp() {
+        return voiceCommandService.extractWithNlp(nextTranscript());
+    }
+
+    @Benchmark
+    public Optional<List<ExpenseRequest>> fastPath() {
+        return fastPath.tryExtract(nextTranscript());
+    }
+
+    @Benchmark
+    public List<ExpenseRequest> extractFromVerbSentence() {
+        CoreSentence sentence = verbSentences.get(next++ % verbSentences.size());
+        List<ExpenseRequest> out = new ArrayList<>();
+        engine.extractFromVerbSentence(sentence.dependencyParse(), SpanIndex.of(sentence.tokens(), sentence.text()), out);
+        return out;
+    }
+
+    @Benchmark
+    public List<ExpenseRequest> extractFromNounPhrase() {
+        CoreSentence sentence = nounSentences.get(next++ % nounSentences.size());
+        List<ExpenseRequest> out = new ArrayList<>();
+        engine.extractFromNounPhrase(sentence.dependencyParse(), SpanIndex.of(sentence.tokens(), sentence.text()), out);
+        return out;
+    }
+
+    @Benchmark
+    public String extractQuantity() {
+        return ExtractionLexicon.quantityOf(nextTranscript());
+    }
+
+    @Benchmark
+    public String extractPrice() {
+        return ExtractionLexicon.priceOf(nextTranscript());
+    }
+
+    private String nextTranscript() {
+        return transcripts.get(next++ % transcripts.size());
+    }
+
+    private static List<String> corpus(String length) throws IOException {
+        String content = new ClassPathResource("bench/transcripts.txt").getContentAsString(StandardCharsets.UTF_8);
+        List<String> transcripts = new ArrayList<>();
+        for (String line : content.lines().toList()) {
+            if (line.isBlank() || line.startsWith("#")) continue;
+            int separator = line.indexOf('|');
+            if (line.substring(0, separator).equals(length)) transcripts.add(line.substring(separator + 1));
+        }
+        if (transcripts.isEmpty()) throw new IllegalArgumentException("No transcripts of length " + length);
+        return transcripts;
+    }
+}
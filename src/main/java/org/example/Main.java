@@ -2,10 +2,19 @@ package org.example;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.Map;
 
 @SpringBootApplication
+@EnableScheduling
 public class Main {
     public static void main(String[] args) {
-        SpringApplication.run(Main.class, args);
+        SpringApplication application = new SpringApplication(Main.class);
+        // /actuator/health/readiness outside Kubernetes too, it stays OUT_OF_SERVICE until the NLP models are warm
+        application.setDefaultProperties(Map.of(
+                "management.endpoint.health.probes.enabled", "true",
+                "management.endpoints.web.exposure.include", "health,metrics"));
+        application.run(args);
     }
-}
\ No newline at end of file
+}
@@ -4,11 +4,14 @@ import com.assemblyai.api.AssemblyAI;
 import com.google.auth.oauth2.ServiceAccountCredentials;
 import com.google.cloud.storage.Storage;
 import com.google.cloud.storage.StorageOptions;
-import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import jakarta.servlet.MultipartConfigElement;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import org.example.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.MultipartConfigFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -19,11 +22,12 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.util.unit.DataSize;
 
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.http.HttpClient;
-import java.util.Properties;
+import java.util.concurrent.ExecutorService;
 
 @Configuration
 @RequiredArgsConstructor
@@ -61,8 +65,26 @@ public class BeanConfig {
     }
 
     @Bean
-    public HttpClient httpClient() {
-        return HttpClient.newHttpClient();
+    public HttpClient httpClient(@Qualifier("outboundExecutor") ExecutorService outboundExecutor) {
+        return HttpClient.newBuilder()
+                .executor(outboundExecutor)
+                .build();
+    }
+
+    /**
+     * parts bigger than the threshold are spooled to disk by Tomcat instead of being kept in memory,
+     * so the upload path can stream them from there.
+     */
+    @Bean
+    public MultipartConfigElement multipartConfigElement(
+            @Value("${audio.upload.spool-threshold:256KB}") DataSize spoolThreshold,
+            @Value("${audio.upload.max-file-size:200MB}") DataSize maxFileSize,
+            @Value("${audio.upload.max-request-size:210MB}") DataSize maxRequestSize) {
+        MultipartConfigFactory factory = new MultipartConfigFactory();
+        factory.setFileSizeThreshold(spoolThreshold);
+        factory.setMaxFileSize(maxFileSize);
+        factory.setMaxRequestSize(maxRequestSize);
+        return factory.createMultipartConfig();
     }
 
     @Bean
@@ -71,6 +93,7 @@ public class BeanConfig {
     }
 
     @Bean
+    @ConditionalOnProperty(name = "storage.provider", havingValue = "gcs", matchIfMissing = true)
     public Storage getStorage() {
         Storage storage;
         try {
@@ -86,12 +109,4 @@ public class BeanConfig {
 
         return storage;
     }
-
-    @Bean
-    public StanfordCoreNLP config() {
-        Properties properties = new Properties();
-        properties.setProperty("annotators", "tokenize, ssplit, pos, lemma, depparse");
-        properties.setProperty("sutime.binders", "0");
-        return new StanfordCoreNLP(properties);
-    }
 }
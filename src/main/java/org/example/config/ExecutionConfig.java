@@ -0,0 +1,107 @@
+package org.example.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * executors for the blocking parts of the app (outbound HTTP, GCS, AssemblyAI, the voice pipeline)
+ * and for the CPU-bound NLP annotation.
+ * <p>
+ * With spring.threads.virtual.enabled=true Spring Boot already moves Tomcat's request handling onto
+ * virtual threads, and the same switch makes these executors spawn one virtual thread per task.
+ * Otherwise they are bounded platform-thread pools, which is the old thread-per-request behaviour.
+ * Virtual threads need a Java 21 runtime; the code still compiles for 17 and falls back to platform threads.
+ */
+@Slf4j
+@Configuration
+public class ExecutionConfig {
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+    @Value("${execution.outbound.pool-size:32}")
+    private int outboundPoolSize;
+    @Value("${voice.jobs.workers:4}")
+    private int pipelinePoolSize;
+    @Value("${execution.command.pool-size:200}")
+    private int commandPoolSize;
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService outboundExecutor() {
+        ExecutorService virtual = virtualThreads ? newVirtualThreadPerTaskExecutor() : null;
+        if (virtual != null) return virtual;
+        return Executors.newFixedThreadPool(outboundPoolSize, new CustomizableThreadFactory("outbound-"));
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService pipelineExecutor() {
+        ExecutorService virtual = virtualThreads ? newVirtualThreadPerTaskExecutor() : null;
+        if (virtual != null) return virtual;
+        return Executors.newFixedThreadPool(pipelinePoolSize, new CustomizableThreadFactory("pipeline-"));
+    }
+
+    /**
+     * what runs after a transcript arrives (extraction, categorization, saving) for the request paths
+     * (/command/input, /command/batch, the WebSocket stream). It blocks on CoreNLP, the LLM and the database,
+     * so it gets a pool of its own, as large as Tomcat's request pool it replaces, instead of sharing the
+     * job workers' one. Callers wrap it with the request's SecurityContext.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService commandExecutor() {
+        ExecutorService virtual = virtualThreads ? newVirtualThreadPerTaskExecutor() : null;
+        if (virtual != null) return virtual;
+        return Executors.newFixedThreadPool(commandPoolSize, new CustomizableThreadFactory("command-"));
+    }
+
+    /**
+     * the @Scheduled pollers (voice jobs, categorization, transcripts) and the NLP housekeeping would otherwise
+     * share Spring's single scheduler thread, where one slow task delays all the others. Named taskScheduler so
+     * @Scheduled picks it over the WebSocket support's scheduler.
+     */
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(@Value("${execution.scheduler.pool-size:8}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("scheduled-");
+        return scheduler;
+    }
+
+    /**
+     * CoreNLP annotation is CPU-bound, so it gets platform threads sized to the cores in both modes.
+     * A plain ThreadPoolExecutor (not the Executors wrapper) so the queue depth can be reported.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor nlpExecutor(@Value("${nlp.threads:0}") int threads) {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                new CustomizableThreadFactory("nlp-"));
+    }
+
+    /**
+     * the category model's training: seconds of CPU and a large read every retrain interval, one at a time,
+     * kept off the scheduler threads so the pollers aren't delayed by it.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService trainingExecutor() {
+        return Executors.newSingleThreadExecutor(new CustomizableThreadFactory("training-"));
+    }
+
+    // looked up reflectively so the project keeps compiling with --release 17
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.warn("Virtual threads are not available on Java {}, using platform threads",
+                    Runtime.version().feature());
+            return null;
+        }
+    }
+}
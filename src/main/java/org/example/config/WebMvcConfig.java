@@ -0,0 +1,26 @@
+package org.example.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+    @Value("${transcription.assemblyai.timeout-minutes:15}")
+    private long transcriptionTimeoutMinutes = 15;
+    @Value("${voice.command.after-transcription-minutes:1}")
+    private long afterTranscriptionMinutes = 1;
+
+    /**
+     * /command/input answers with a CompletableFuture that completes when the transcript is extracted and saved.
+     * Tomcat's default async timeout (30 s) would end the request long before a transcription may time out,
+     * so the request is given the transcription timeout plus the time extraction and saving take.
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(Duration.ofMinutes(transcriptionTimeoutMinutes + afterTranscriptionMinutes).toMillis());
+    }
+}
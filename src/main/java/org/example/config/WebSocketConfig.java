@@ -0,0 +1,26 @@
+package org.example.config;
+
+import lombok.RequiredArgsConstructor;
+import org.example.controller.VoiceStreamHandler;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.support.HttpSessionHandshakeInterceptor;
+
+@Configuration
+@EnableWebSocket
+@RequiredArgsConstructor
+public class WebSocketConfig implements WebSocketConfigurer {
+    private final VoiceStreamHandler voiceStreamHandler;
+
+    /**
+     * the handshake is an ordinary authenticated request, the HttpSession attributes (userId) are
+     * copied onto the WebSocket session.
+     */
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(voiceStreamHandler, "/command/stream")
+                .addInterceptors(new HttpSessionHandshakeInterceptor());
+    }
+}
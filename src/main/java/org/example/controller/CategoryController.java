@@ -0,0 +1,80 @@
+package org.example.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.example.domain.response.BaseResponse;
+import org.example.service.category.CategorizationService;
+import org.example.service.category.CategoryClassifier;
+import org.example.service.category.CategoryDictionary;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/category")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+public class CategoryController {
+    private final CategoryDictionary categoryDictionary;
+    private final CategoryClassifier categoryClassifier;
+    private final CategorizationService categorizationService;
+
+    @PutMapping("/override")
+    @PreAuthorize("hasAuthority('admin:update')")
+    public BaseResponse<String> override(@RequestParam("product") String product,
+                                         @RequestParam("category") String category) {
+        try {
+            categoryDictionary.override(product, category);
+        } catch (RuntimeException e) {
+            return BaseResponse.<String>builder().status(400).message(e.getMessage()).build();
+        }
+        return BaseResponse.<String>builder()
+                .message("Category overridden")
+                .data(category.trim())
+                .status(200)
+                .build();
+    }
+
+    @DeleteMapping("/override")
+    @PreAuthorize("hasAuthority('admin:delete')")
+    public BaseResponse<String> remove(@RequestParam("product") String product) {
+        categoryDictionary.remove(product);
+        return BaseResponse.<String>builder()
+                .message("Category removed, it will be looked up again")
+                .status(200)
+                .build();
+    }
+
+    @GetMapping("/classifier/report")
+    @PreAuthorize("hasAuthority('admin:read')")
+    public BaseResponse<CategoryClassifier.Report> report() {
+        CategoryClassifier.Report report = categoryClassifier.report();
+        if (report == null) {
+            return BaseResponse.<CategoryClassifier.Report>builder().status(404).message("The model isn't trained yet").build();
+        }
+        return BaseResponse.<CategoryClassifier.Report>builder()
+                .message("Evaluation of the latest training")
+                .data(report)
+                .status(200)
+                .build();
+    }
+
+    @PostMapping("/classifier/train")
+    @PreAuthorize("hasAuthority('admin:create')")
+    public BaseResponse<CategoryClassifier.Report> train() {
+        categoryClassifier.retrain();
+        return BaseResponse.<CategoryClassifier.Report>builder()
+                .message("Category model retrained")
+                .data(categoryClassifier.report())
+                .status(200)
+                .build();
+    }
+
+    @PostMapping("/backfill")
+    @PreAuthorize("hasAuthority('admin:update')")
+    public BaseResponse<Integer> backfill(@RequestParam(value = "includeUnknown", defaultValue = "false") boolean includeUnknown) {
+        return BaseResponse.<Integer>builder()
+                .message("Expenses queued for categorization")
+                .data(categorizationService.backfill(includeUnknown))
+                .status(200)
+                .build();
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.example.domain.response.BaseResponse;
+import org.example.service.extraction.LexiconChangedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/extraction")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+public class ExtractionController {
+    private final ApplicationEventPublisher publisher;
+
+    /**
+     * clears this node's cached extraction results, e.g. after the lexicon or the models were swapped
+     * without a restart. The other nodes keep theirs.
+     */
+    @PostMapping("/cache/invalidate")
+    @PreAuthorize("hasAuthority('admin:update')")
+    public BaseResponse<String> invalidateCache(@RequestParam(value = "reason", defaultValue = "cleared by an admin") String reason) {
+        publisher.publishEvent(new LexiconChangedEvent(reason));
+        return BaseResponse.<String>builder()
+                .message("Extraction cache cleared")
+                .status(200)
+                .build();
+    }
+}
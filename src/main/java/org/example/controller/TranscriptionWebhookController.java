@@ -0,0 +1,30 @@
+package org.example.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.example.domain.response.BaseResponse;
+import org.example.service.transcription.AssemblyAITranscriptionEngine;
+import org.example.service.transcription.PendingTranscripts;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * AssemblyAI calls this when a submitted transcript is completed or has failed.
+ */
+@RestController
+@RequestMapping("/transcription")
+@RequiredArgsConstructor
+public class TranscriptionWebhookController {
+    private final PendingTranscripts pendingTranscripts;
+
+    @PostMapping("/webhook")
+    public ResponseEntity<BaseResponse<String>> onTranscriptDone(
+            @RequestHeader(value = AssemblyAITranscriptionEngine.WEBHOOK_SECRET_HEADER, required = false) String secret,
+            @RequestBody Map<String, Object> body) {
+        Object transcriptId = body.get("transcript_id");
+        BaseResponse<String> response = pendingTranscripts.onWebhook(secret,
+                transcriptId == null ? null : transcriptId.toString());
+        return ResponseEntity.status(response.getStatus()).body(response);
+    }
+}
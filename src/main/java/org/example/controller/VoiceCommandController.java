@@ -3,9 +3,15 @@ package org.example.controller;
 import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
 import org.example.domain.response.BaseResponse;
+import org.example.domain.response.VoiceBatchItemResponse;
 import org.example.domain.response.VoiceCommandResponse;
+import org.example.domain.response.UploadTicketResponse;
+import org.example.domain.response.VoiceJobResponse;
+import org.example.service.VoiceBatchService;
 import org.example.service.VoiceCommandService;
+import org.example.service.VoiceJobService;
 import org.springframework.data.domain.Page;
+import org.springframework.http.ResponseEntity;
 import org.springframework.data.repository.query.Param;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -13,6 +19,7 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/command")
@@ -20,14 +27,60 @@ import java.util.UUID;
 @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
 public class VoiceCommandController {
     private final VoiceCommandService service;
+    private final VoiceJobService jobService;
+    private final VoiceBatchService batchService;
 
     @PostMapping("/input")
     @PreAuthorize("hasAnyAuthority('user:create', 'admin:create')")
-    public BaseResponse<VoiceCommandResponse> inputVoice(HttpSession session, @RequestParam("audio") MultipartFile file) {
+    public CompletableFuture<BaseResponse<VoiceCommandResponse>> inputVoice(HttpSession session,
+                                                                          @RequestParam("audio") MultipartFile file) {
         UUID userId = (UUID) session.getAttribute("userId");
         return service.comprehend(userId, file);
     }
 
+    @PostMapping("/batch")
+    @PreAuthorize("hasAnyAuthority('user:create', 'admin:create')")
+    public BaseResponse<List<VoiceBatchItemResponse>> inputBatch(HttpSession session,
+                                                                 @RequestParam("audio") List<MultipartFile> files) {
+        UUID userId = (UUID) session.getAttribute("userId");
+        return batchService.comprehendBatch(userId, files);
+    }
+
+    @PostMapping("/jobs")
+    @PreAuthorize("hasAnyAuthority('user:create', 'admin:create')")
+    public ResponseEntity<BaseResponse<VoiceJobResponse>> submitJob(HttpSession session,
+                                                                    @RequestParam("audio") MultipartFile file) {
+        UUID userId = (UUID) session.getAttribute("userId");
+        BaseResponse<VoiceJobResponse> response = jobService.submit(userId, file);
+        return ResponseEntity.status(response.getStatus()).body(response);
+    }
+
+    @GetMapping("/jobs/{id}")
+    @PreAuthorize("hasAnyAuthority('user:read', 'admin:read')")
+    public ResponseEntity<BaseResponse<VoiceJobResponse>> getJob(HttpSession session, @PathVariable("id") UUID jobId) {
+        UUID userId = (UUID) session.getAttribute("userId");
+        BaseResponse<VoiceJobResponse> response = jobService.getStatus(userId, jobId);
+        return ResponseEntity.status(response.getStatus()).body(response);
+    }
+
+    @PostMapping("/uploads")
+    @PreAuthorize("hasAnyAuthority('user:create', 'admin:create')")
+    public ResponseEntity<BaseResponse<UploadTicketResponse>> requestUpload(HttpSession session,
+                                                                            @RequestParam("contentType") String contentType) {
+        UUID userId = (UUID) session.getAttribute("userId");
+        BaseResponse<UploadTicketResponse> response = jobService.requestUpload(userId, contentType);
+        return ResponseEntity.status(response.getStatus()).body(response);
+    }
+
+    @PostMapping("/uploads/{id}/complete")
+    @PreAuthorize("hasAnyAuthority('user:create', 'admin:create')")
+    public ResponseEntity<BaseResponse<VoiceJobResponse>> completeUpload(HttpSession session,
+                                                                         @PathVariable("id") UUID jobId) {
+        UUID userId = (UUID) session.getAttribute("userId");
+        BaseResponse<VoiceJobResponse> response = jobService.completeUpload(userId, jobId);
+        return ResponseEntity.status(response.getStatus()).body(response);
+    }
+
     @GetMapping("/get-commands")
     @PreAuthorize("hasAnyAuthority('user:read', 'admin:read')")
     public Page<VoiceCommandResponse> getAll(HttpSession session,
@@ -0,0 +1,177 @@
+package org.example.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.example.domain.entity.user.UserEntity;
+import org.example.domain.request.ExpenseRequest;
+import org.example.domain.response.VoiceStreamEvent;
+import org.example.repository.UserRepository;
+import org.example.service.VoiceCommandService;
+import org.example.service.transcription.StreamingTranscriber;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutor;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.*;
+import org.springframework.web.socket.handler.BinaryWebSocketHandler;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * ws /command/stream: the client sends raw 16-bit mono PCM frames while the user is still talking
+ * (?sampleRate=16000 by default) and a "stop" text message when the recording ends.
+ * --------
+ * every utterance the streaming transcriber finalizes is extracted and saved on the command executor
+ * and pushed back right away as an "expenses" event, so the first result doesn't wait for the end of a
+ * long shopping list. Utterances of one connection are handled in order; "done" comes after the last one.
+ */
+@Slf4j
+@Component
+public class VoiceStreamHandler extends BinaryWebSocketHandler {
+    private final VoiceCommandService voiceCommandService;
+    private final UserRepository userRepository;
+    private final StreamingTranscriber transcriber;
+    private final ObjectMapper objectMapper;
+    private final Executor executor;
+    private final Map<String, Stream> streams = new ConcurrentHashMap<>();
+
+    @Value("${voice.stream.default-sample-rate:16000}")
+    private int defaultSampleRate = 16000;
+    @Value("${voice.stream.send-time-limit-ms:5000}")
+    private int sendTimeLimitMs = 5000;
+    @Value("${voice.stream.send-buffer-limit:65536}")
+    private int sendBufferLimit = 64 * 1024;
+
+    public VoiceStreamHandler(VoiceCommandService voiceCommandService,
+                              UserRepository userRepository,
+                              StreamingTranscriber transcriber,
+                              ObjectMapper objectMapper,
+                              @Qualifier("commandExecutor") Executor executor) {
+        this.voiceCommandService = voiceCommandService;
+        this.userRepository = userRepository;
+        this.transcriber = transcriber;
+        this.objectMapper = objectMapper;
+        this.executor = executor;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        UUID userId = (UUID) session.getAttributes().get("userId");
+        Optional<UserEntity> user = userId == null ? Optional.empty() : userRepository.findById(userId);
+        if (user.isEmpty()) {
+            session.close(CloseStatus.POLICY_VIOLATION.withReason("User not found"));
+            return;
+        }
+
+        Stream stream = new Stream(new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMs, sendBufferLimit),
+                user.get(), new DelegatingSecurityContextExecutor(executor, contextOf(session)));
+        stream.transcription = transcriber.open(sampleRateOf(session),
+                text -> stream.then(() -> onUtterance(stream, text)),
+                error -> stream.then(() -> send(stream, VoiceStreamEvent.builder()
+                        .type("error").message(error.getMessage()).build())));
+        streams.put(session.getId(), stream);
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) {
+        Stream stream = streams.get(session.getId());
+        if (stream == null) return;
+
+        ByteBuffer payload = message.getPayload();
+        byte[] pcm = new byte[payload.remaining()];
+        payload.get(pcm);
+        stream.transcription.sendAudio(pcm);
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        if (!"stop".equalsIgnoreCase(message.getPayload().trim())) return;
+
+        Stream stream = streams.remove(session.getId());
+        if (stream == null) return;
+
+        // closing flushes the last utterance into the queue before "done" is queued behind it
+        stream.transcription.close();
+        stream.then(() -> {
+            send(stream, VoiceStreamEvent.builder().type("done").build());
+            try {
+                stream.out.close(CloseStatus.NORMAL);
+            } catch (IOException ignored) {
+            }
+        });
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Stream stream = streams.remove(session.getId());
+        if (stream != null) stream.transcription.close();
+    }
+
+    private void onUtterance(Stream stream, String text) {
+        try {
+            List<ExpenseRequest> expenses = voiceCommandService.extractProductInfo(text);
+            if (!expenses.isEmpty()) voiceCommandService.save(expenses, stream.user, text);
+            send(stream, VoiceStreamEvent.builder().type("expenses").text(text).expenses(expenses).build());
+        } catch (RuntimeException e) {
+            send(stream, VoiceStreamEvent.builder().type("error").text(text).message(e.getMessage()).build());
+        }
+    }
+
+    private void send(Stream stream, VoiceStreamEvent event) {
+        try {
+            stream.out.sendMessage(new TextMessage(objectMapper.writeValueAsString(event)));
+        } catch (IOException e) {
+            log.warn("Failed to push a stream event to {}", stream.out.getId(), e);
+        }
+    }
+
+    // the handshake's authentication, utterances are saved as the user who opened the stream
+    private static SecurityContext contextOf(WebSocketSession session) {
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        if (session.getPrincipal() instanceof Authentication authentication) context.setAuthentication(authentication);
+        return context;
+    }
+
+    private int sampleRateOf(WebSocketSession session) {
+        if (session.getUri() == null) return defaultSampleRate;
+        String sampleRate = UriComponentsBuilder.fromUri(session.getUri()).build()
+                .getQueryParams().getFirst("sampleRate");
+        try {
+            return sampleRate == null ? defaultSampleRate : Integer.parseInt(sampleRate);
+        } catch (NumberFormatException e) {
+            return defaultSampleRate;
+        }
+    }
+
+    private class Stream {
+        private final WebSocketSession out;
+        private final UserEntity user;
+        private final Executor executor;
+        private StreamingTranscriber.Session transcription;
+        private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+
+        private Stream(WebSocketSession out, UserEntity user, Executor executor) {
+            this.out = out;
+            this.user = user;
+            this.executor = executor;
+        }
+
+        private synchronized void then(Runnable task) {
+            // a failed event must not stop the ones queued after it
+            tail = tail.exceptionally(error -> null).thenRunAsync(task, executor);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.example.domain.entity.category;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import lombok.*;
+import org.example.domain.entity.BaseEntity;
+
+import java.time.LocalDateTime;
+
+@Entity(name = "categories")
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CategoryEntity extends BaseEntity {
+    // CategoryDictionary.normalize(product)
+    @Column(unique = true, nullable = false)
+    private String product;
+    @Column(length = 1024)
+    private String category;
+    @Enumerated(EnumType.STRING)
+    private CategorySource source;
+    // null: never (manual overrides)
+    private LocalDateTime expiresAt;
+}
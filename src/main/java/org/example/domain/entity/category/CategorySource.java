@@ -0,0 +1,8 @@
+package org.example.domain.entity.category;
+
+/**
+ * where a dictionary entry came from. MANUAL entries never expire and aren't replaced by the others.
+ */
+public enum CategorySource {
+    LLM, EXPENSE, MANUAL
+}
@@ -0,0 +1,9 @@
+package org.example.domain.entity.category;
+
+/**
+ * where an expense's background category lookup is (CategorizationWorker). RUNNING while a node has it claimed,
+ * FAILED once the lookups ran out and the expense was left "unknown".
+ */
+public enum CategoryStatus {
+    PENDING, RUNNING, DONE, FAILED
+}
@@ -9,7 +9,8 @@ import java.util.Map;
 public enum Currency {
     DOLLAR("USD", "$", "dollar", "dollars"),
     EURO("EUR", "€", "euro", "euros"),
-    POUND("GBP", "£", "pound", "pounds");
+    POUND("GBP", "£", "pound", "pounds"),
+    YEN("JPY", "¥", "yen");
 
     private final String code;
     private final String symbol;
@@ -20,6 +21,7 @@ public enum Currency {
     static {
         for (Currency currency : Currency.values()) {
             LOOKUP_MAP.put(currency.symbol, currency.code);
+            LOOKUP_MAP.put(currency.code.toLowerCase(), currency.code);
             for (String name : currency.names) {
                 LOOKUP_MAP.put(name.toLowerCase(), currency.code);
             }
@@ -33,6 +35,6 @@ public enum Currency {
     }
 
     public static String fromString(String input) {
-        return LOOKUP_MAP.get(input.toLowerCase());
+        return LOOKUP_MAP.get(input.trim().toLowerCase());
     }
 }
@@ -2,15 +2,27 @@ package org.example.domain.entity.expense;
 
 import jakarta.persistence.Entity;
 
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToOne;
+import jakarta.persistence.Table;
 import lombok.*;
 import org.example.domain.entity.BaseEntity;
 import org.example.domain.entity.user.UserEntity;
 import org.example.domain.entity.VoiceCommandEntity;
+import org.example.domain.entity.category.CategoryStatus;
+
+import java.time.LocalDateTime;
 
 @Entity(name = "expenses")
+@Table(indexes = {
+        @Index(name = "idx_expenses_product_key", columnList = "productKey, createdDate"),
+        // the categorization claim: pending rows, oldest first
+        @Index(name = "idx_expenses_category_status", columnList = "categoryStatus, createdDate")
+})
 @Getter
 @Setter
 @Builder
@@ -18,10 +30,18 @@ import org.example.domain.entity.VoiceCommandEntity;
 @NoArgsConstructor
 public class ExpenseEntity extends BaseEntity {
     private String product;
+    // the product as CategoryDictionary keys it (normalized), the category lookup by product goes through its index
+    private String productKey;
     private String quantity;
     private String price;
     private String currency;
     private String category;
+    // set when the category is looked up in the background (CategorizationWorker), null when it was found on save
+    @Enumerated(EnumType.STRING)
+    private CategoryStatus categoryStatus;
+    private Integer categoryAttempts;
+    private LocalDateTime categoryLockedAt;
+    private LocalDateTime categoryRetryAt;
     @ManyToOne
     @JoinColumn(name = "user_id")
     private UserEntity user;
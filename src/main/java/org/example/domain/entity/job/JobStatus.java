@@ -0,0 +1,5 @@
+package org.example.domain.entity.job;
+
+public enum JobStatus {
+    AWAITING_UPLOAD, PENDING, RUNNING, DONE, FAILED, EXPIRED
+}
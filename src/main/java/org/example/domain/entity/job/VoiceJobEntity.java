@@ -0,0 +1,39 @@
+package org.example.domain.entity.job;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.example.domain.entity.BaseEntity;
+import org.example.domain.entity.user.UserEntity;
+
+import java.time.LocalDateTime;
+
+/**
+ * a voice command that is processed in the background. Rows are claimed by worker nodes with
+ * "select ... for update skip locked", so any number of nodes can drain the same table.
+ * Jobs created for a direct client upload start as AWAITING_UPLOAD and only become PENDING
+ * once the client confirms the upload and the object has been checked.
+ */
+@Entity(name = "voice_jobs")
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class VoiceJobEntity extends BaseEntity {
+    @Enumerated(EnumType.STRING)
+    private JobStatus status;
+    // object name in audio storage, not a URL, so jobs survive switching buckets or providers
+    private String audioObject;
+    @Column(length = 64)
+    private String audioHash;
+    @Column(length = 4096)
+    private String rawText;
+    private String message;
+    private Integer attempts;
+    private String lockedBy;
+    private LocalDateTime lockedAt;
+    private LocalDateTime finishedAt;
+    @ManyToOne
+    @JoinColumn(name = "user_id")
+    private UserEntity user;
+}
@@ -0,0 +1,20 @@
+package org.example.domain.entity.transcript;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import lombok.*;
+import org.example.domain.entity.BaseEntity;
+
+@Entity(name = "transcripts")
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TranscriptEntity extends BaseEntity {
+    // sha-256 of the audio bytes, hex encoded
+    @Column(unique = true, length = 64)
+    private String audioHash;
+    @Column(length = 8192)
+    private String text;
+}
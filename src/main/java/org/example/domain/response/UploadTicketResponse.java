@@ -0,0 +1,21 @@
+package org.example.domain.response;
+
+import lombok.*;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UploadTicketResponse {
+    private UUID jobId;
+    private String uploadUrl;
+    private String method;
+    private String contentType;
+    private Map<String, String> headers;
+    private Instant expiresAt;
+}
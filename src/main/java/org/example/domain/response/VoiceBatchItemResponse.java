@@ -0,0 +1,19 @@
+package org.example.domain.response;
+
+import lombok.*;
+import org.example.domain.request.ExpenseRequest;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class VoiceBatchItemResponse {
+    private String fileName;
+    private Integer status;
+    private String message;
+    private String rawText;
+    private List<ExpenseRequest> expenses;
+}
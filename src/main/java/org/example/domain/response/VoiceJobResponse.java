@@ -0,0 +1,21 @@
+package org.example.domain.response;
+
+import lombok.*;
+import org.example.domain.entity.job.JobStatus;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class VoiceJobResponse {
+    private UUID id;
+    private JobStatus status;
+    private String rawText;
+    private String message;
+    private LocalDateTime createdDate;
+    private LocalDateTime finishedAt;
+}
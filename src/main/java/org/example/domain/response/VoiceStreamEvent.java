@@ -0,0 +1,22 @@
+package org.example.domain.response;
+
+import lombok.*;
+import org.example.domain.request.ExpenseRequest;
+
+import java.util.List;
+
+/**
+ * one message pushed to a streaming client: "expenses" for every finalized utterance, "error" on failure,
+ * "done" after the last utterance of the recording.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class VoiceStreamEvent {
+    private String type;
+    private String text;
+    private List<ExpenseRequest> expenses;
+    private String message;
+}
@@ -0,0 +1,13 @@
+package org.example.repository;
+
+import org.example.domain.entity.category.CategoryEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface CategoryRepository extends JpaRepository<CategoryEntity, UUID> {
+    Optional<CategoryEntity> findByProduct(String product);
+}
@@ -1,16 +1,72 @@
 package org.example.repository;
 
 import org.example.domain.entity.expense.ExpenseEntity;
+import org.example.domain.entity.category.CategoryStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface ExpenseRepository extends JpaRepository<ExpenseEntity, UUID> {
     @Query("select e from expenses e where e.user.id = :id")
     Page<ExpenseEntity> getAll(@Param("id") UUID id, Pageable pageable);
+
+    // categories saved before for the product (normalized, as productKey), latest first
+    @Query("select e.category from expenses e where e.productKey = :product and e.category is not null " +
+            "and e.category <> 'unknown' order by e.createdDate desc")
+    List<String> findCategoriesByProduct(@Param("product") String product, Pageable pageable);
+
+    // product and category of the categorized expenses, latest first (training data of the category model)
+    @Query("select e.product, e.category from expenses e where e.category is not null and e.category <> 'unknown' " +
+            "and e.product <> 'not provided' order by e.createdDate desc")
+    List<Object[]> findCategorized(Pageable pageable);
+
+    // rows waiting for their category, rows locked by another node are skipped instead of waited on
+    @Query(value = "select * from expenses where category_status = 'PENDING' " +
+            "and (category_retry_at is null or category_retry_at <= :now) " +
+            "order by created_date limit :limit for update skip locked", nativeQuery = true)
+    List<ExpenseEntity> claimUncategorized(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("update expenses e set e.category = :category, e.categoryStatus = :status, e.categoryLockedAt = null, " +
+            "e.categoryRetryAt = null where e.id in :ids")
+    int finishCategory(@Param("category") String category,
+                       @Param("status") CategoryStatus status,
+                       @Param("ids") Collection<UUID> ids);
+
+    @Modifying
+    @Query("update expenses e set e.categoryStatus = :pending, e.categoryLockedAt = null, e.categoryRetryAt = :retryAt " +
+            "where e.id in :ids")
+    int retryCategory(@Param("pending") CategoryStatus pending,
+                      @Param("retryAt") LocalDateTime retryAt,
+                      @Param("ids") Collection<UUID> ids);
+
+    @Modifying
+    @Query("update expenses e set e.categoryStatus = :pending, e.categoryLockedAt = null " +
+            "where e.categoryStatus = :running and e.categoryLockedAt < :threshold")
+    int releaseStaleCategories(@Param("pending") CategoryStatus pending,
+                               @Param("running") CategoryStatus running,
+                               @Param("threshold") LocalDateTime threshold);
+
+    // expenses saved before categorization was deferred, or given up on, go back to the queue
+    @Modifying
+    @Query("update expenses e set e.categoryStatus = :pending, e.categoryAttempts = 0, e.categoryRetryAt = null " +
+            "where e.product <> 'not provided' and (e.categoryStatus = :failed or (e.categoryStatus is null " +
+            "and (e.category is null or (:includeUnknown = true and e.category = 'unknown'))))")
+    int backfillCategories(@Param("pending") CategoryStatus pending,
+                           @Param("failed") CategoryStatus failed,
+                           @Param("includeUnknown") boolean includeUnknown);
+
+    @Query("select min(e.createdDate) from expenses e where e.categoryStatus = :status")
+    LocalDateTime findOldestByCategoryStatus(@Param("status") CategoryStatus status);
+
+    long countByCategoryStatus(CategoryStatus status);
 }
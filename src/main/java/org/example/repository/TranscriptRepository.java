@@ -0,0 +1,13 @@
+package org.example.repository;
+
+import org.example.domain.entity.transcript.TranscriptEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface TranscriptRepository extends JpaRepository<TranscriptEntity, UUID> {
+    Optional<TranscriptEntity> findByAudioHash(String audioHash);
+}
@@ -0,0 +1,60 @@
+package org.example.repository;
+
+import org.example.domain.entity.job.JobStatus;
+import org.example.domain.entity.job.VoiceJobEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface VoiceJobRepository extends JpaRepository<VoiceJobEntity, UUID> {
+
+    // rows locked by another node are skipped instead of waited on
+    @Query(value = "select * from voice_jobs where status = 'PENDING' " +
+            "order by created_date limit :limit for update skip locked", nativeQuery = true)
+    List<VoiceJobEntity> claimPending(@Param("limit") int limit);
+
+    @Modifying
+    @Query("update voice_jobs j set j.status = :pending, j.lockedBy = null, j.lockedAt = null " +
+            "where j.status = :running and j.lockedAt < :threshold")
+    int releaseStale(@Param("pending") JobStatus pending,
+                     @Param("running") JobStatus running,
+                     @Param("threshold") LocalDateTime threshold);
+
+    // the node is still working on its running jobs, releaseStale() leaves them alone
+    @Modifying
+    @Query("update voice_jobs j set j.lockedAt = :now where j.status = :running and j.lockedBy = :worker")
+    int heartbeat(@Param("running") JobStatus running,
+                  @Param("worker") String worker,
+                  @Param("now") LocalDateTime now);
+
+    boolean existsByIdAndLockedBy(UUID id, String lockedBy);
+
+    // only while the job is still the worker's, a job released and claimed again belongs to its new owner
+    @Modifying
+    @Query("update voice_jobs j set j.status = :status, j.rawText = :rawText, j.message = :message, " +
+            "j.finishedAt = :finishedAt, j.lockedBy = null, j.lockedAt = null where j.id = :id and j.lockedBy = :worker")
+    int finish(@Param("id") UUID id,
+               @Param("worker") String worker,
+               @Param("status") JobStatus status,
+               @Param("rawText") String rawText,
+               @Param("message") String message,
+               @Param("finishedAt") LocalDateTime finishedAt);
+
+    List<VoiceJobEntity> findByStatusAndCreatedDateBefore(JobStatus status, LocalDateTime threshold);
+
+    // only while the client still hasn't completed the upload
+    @Modifying
+    @Query("update voice_jobs j set j.status = :expired, j.finishedAt = :now " +
+            "where j.id = :id and j.status = :awaiting")
+    int expireUpload(@Param("id") UUID id,
+                     @Param("expired") JobStatus expired,
+                     @Param("awaiting") JobStatus awaiting,
+                     @Param("now") LocalDateTime now);
+}
@@ -1,13 +1,16 @@
 package org.example.service;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.example.domain.entity.user.UserEntity;
-import org.example.domain.entity.expense.Currency;
 import org.example.domain.entity.expense.ExpenseEntity;
+import org.example.domain.entity.category.CategoryStatus;
 import org.example.domain.request.ExpenseRequest;
 import org.example.domain.response.BaseResponse;
 import org.example.domain.response.ExpenseResponse;
 import org.example.repository.ExpenseRepository;
+import org.example.service.cache.SingleFlight;
+import org.example.service.category.CategoryDictionary;
+import org.example.service.extraction.ExtractionLexicon;
 import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
@@ -17,6 +20,7 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
@@ -24,31 +28,32 @@ import java.net.http.HttpResponse;
 import java.util.*;
 
 @Service
-@RequiredArgsConstructor
 public class ExpenseService {
     private final ExpenseRepository expenseRepository;
-    private final MistralAIService mistralAIService;
+    private final CategoryDictionary categoryDictionary;
     private final HttpClient httpClient;
+    // base currency -> its conversion rates, concurrent conversions from the same currency share one fetch
+    private final SingleFlight<String, JSONObject> rates;
     private static final String BASE_URL = "https://v6.exchangerate-api.com/v6/";
     @Value("${exchange.api}")
     private String API;
+    @Value("${category.async.enabled:true}")
+    private boolean deferCategories = true;
+
+    public ExpenseService(ExpenseRepository expenseRepository,
+                          CategoryDictionary categoryDictionary,
+                          HttpClient httpClient,
+                          MeterRegistry meterRegistry) {
+        this.expenseRepository = expenseRepository;
+        this.categoryDictionary = categoryDictionary;
+        this.httpClient = httpClient;
+        this.rates = new SingleFlight<>("exchange-rate", meterRegistry);
+    }
 
     public BaseResponse<List<ExpenseResponse>> save(List<ExpenseRequest> expenses, UserEntity user) {
         List<ExpenseResponse> responses = new ArrayList<>();
 
-        for (ExpenseRequest exp : expenses) {
-            String category = "unknown";
-            if (exp.getProduct() != null) {
-                String res = mistralAIService.findCategory(exp.getProduct());
-                category = res == null ? category : res;
-            }
-            ExpenseEntity expense = ExpenseEntity.builder()
-                    .product(exp.getProduct() == null ? "not provided" : exp.getProduct())
-                    .currency(extractCurrency(exp.getPrice()) == null ? "not provided" : extractCurrency(exp.getPrice()))
-                    .price(extractPrice(exp.getPrice()) == null ? "not provided" : extractPrice(exp.getPrice()))
-                    .quantity(exp.getQuantity().isEmpty() ? "not provided" : exp.getQuantity())
-                    .category(category)
-                    .user(user).build();
+        for (ExpenseEntity expense : prepare(expenses, user)) {
             expenseRepository.save(expense);
 
             Optional<ExpenseEntity> expenseEntity = findById(expense.getId());
@@ -72,28 +77,44 @@ public class ExpenseService {
                 .build();
     }
 
-    private String extractPrice(String s) {
-        if (s == null || s.isEmpty()) return null;
+    /**
+     * builds the entities (including the category lookup) without saving them, so callers can do the
+     * slow remote part in parallel and persist many commands in one transaction afterwards.
+     * With category.async.enabled the category isn't looked up here: the expenses are saved as PENDING and
+     * categorized by CategorizationWorker, acknowledging a command doesn't wait for the LLM.
+     */
+    public List<ExpenseEntity> prepare(List<ExpenseRequest> expenses, UserEntity user) {
+        List<ExpenseEntity> entities = new ArrayList<>();
+        // one lookup (and at most one LLM prompt) for all the products of the command
+        Map<String, String> categories = deferCategories ? Map.of() : categoryDictionary.findAll(expenses.stream()
+                .map(ExpenseRequest::getProduct)
+                .filter(Objects::nonNull)
+                .toList());
 
-        StringBuilder sb = new StringBuilder();
-
-        for (char c : s.toCharArray()) {
-            if (Character.isDigit(c) || c == '.' || c == ',') sb.append(c);
+        for (ExpenseRequest exp : expenses) {
+            Optional<ExtractionLexicon.Price> price = ExtractionLexicon.parsePrice(exp.getPrice());
+            String category = "unknown";
+            boolean pending = deferCategories && exp.getProduct() != null;
+            if (exp.getProduct() != null && !pending) {
+                String res = categories.get(exp.getProduct());
+                category = res == null ? category : res;
+            }
+            entities.add(ExpenseEntity.builder()
+                    .product(exp.getProduct() == null ? "not provided" : exp.getProduct())
+                    .productKey(exp.getProduct() == null ? null : CategoryDictionary.normalize(exp.getProduct()))
+                    .currency(price.map(ExtractionLexicon.Price::currency).orElse("not provided"))
+                    .price(price.map(ExtractionLexicon.Price::amount).orElse("not provided"))
+                    .quantity(exp.getQuantity() == null || exp.getQuantity().isEmpty() ? "not provided" : exp.getQuantity())
+                    .category(pending ? null : category)
+                    .categoryStatus(pending ? CategoryStatus.PENDING : null)
+                    .categoryAttempts(pending ? 0 : null)
+                    .user(user).build());
         }
-
-        return sb.toString();
+        return entities;
     }
 
-    private String extractCurrency(String s) {
-        if (s == null || s.isEmpty()) return null;
-
-        StringBuilder sb = new StringBuilder();
-
-        for (char c : s.toCharArray()) {
-            if (!Character.isDigit(c)) sb.append(c);
-        }
-
-        return Currency.fromString(sb.toString());
+    public List<ExpenseEntity> saveAll(List<ExpenseEntity> expenses) {
+        return expenseRepository.saveAll(expenses);
     }
 
     public Optional<ExpenseEntity> findById(UUID id) {
@@ -138,6 +159,21 @@ public class ExpenseService {
     }
 
     public String exchangeRate(Double price, String from, String to) {
+        try {
+            JSONObject conversionRates = rates.get(from.trim().toUpperCase(Locale.ROOT), () -> latestRates(from));
+
+            if (!conversionRates.has(to)) {
+                throw new RuntimeException("Target currency not found in conversion rates: " + to);
+            }
+
+            double rate = conversionRates.getDouble(to);
+            return "" + price * rate;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private JSONObject latestRates(String from) {
         String url = BASE_URL + API + "/latest/" + from;
         HttpRequest request = HttpRequest.newBuilder()
                 .uri(URI.create(url))
@@ -152,17 +188,12 @@ public class ExpenseService {
             if (!json.has("conversion_rates")) {
                 throw new RuntimeException("conversion_rates not found");
             }
-
-            JSONObject conversionRates = json.getJSONObject("conversion_rates");
-
-            if (!conversionRates.has(to)) {
-                throw new RuntimeException("Target currency not found in conversion rates: " + to);
-            }
-
-            double rate = conversionRates.getDouble(to);
-            return "" + price * rate;
-        } catch (Exception e) {
-            return null;
+            return json.getJSONObject("conversion_rates");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while fetching exchange rates");
         }
     }
 
@@ -193,4 +224,8 @@ public class ExpenseService {
                 .message("Deleted successfully")
                 .build();
     }
+
+    public void setDeferCategories_OnlyForTesting(boolean deferCategories) {
+        this.deferCategories = deferCategories;
+    }
 }
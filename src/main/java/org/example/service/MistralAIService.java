@@ -1,6 +1,10 @@
 package org.example.service;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.service.cache.SingleFlight;
+import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -10,24 +14,39 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.util.*;
 
+@Slf4j
 @Service
-@RequiredArgsConstructor
 public class MistralAIService {
     @Value("${together.api}")
     private String TOGETHER_API;
     private final HttpClient httpClient;
+    // a popular product asked by many requests at once is asked once
+    private final SingleFlight<String, String> categoryCalls;
     String MODEL = "mistralai/Mistral-7B-Instruct-v0.3";
+    // a "main->sub->product" path is about 15 tokens, with the JSON around it about 30
+    private static final int TOKENS_PER_CATEGORY = 40;
+    private static final int MAX_BATCH_TOKENS = 2048;
+
+    public MistralAIService(HttpClient httpClient, MeterRegistry meterRegistry) {
+        this.httpClient = httpClient;
+        this.categoryCalls = new SingleFlight<>("category", meterRegistry);
+    }
 
     public String getAnswerToPrompt (String prompt) {
+        return getAnswerToPrompt(prompt, 256, 0.7);
+    }
+
+    public String getAnswerToPrompt(String prompt, int maxTokens, double temperature) {
         JSONObject payload = new JSONObject();
         JSONObject message = new JSONObject();
         payload.put("model", MODEL);
         message.put("role", "user");
         message.put("content", prompt);
         payload.put("messages", new JSONObject[]{message});
-        payload.put("max_tokens", 256);
-        payload.put("temperature", 0.7);
+        payload.put("max_tokens", maxTokens);
+        payload.put("temperature", temperature);
 
         HttpRequest request = HttpRequest.newBuilder()
                 .uri(URI.create("https://api.together.xyz/v1/chat/completions"))
@@ -46,8 +65,11 @@ public class MistralAIService {
                         .getJSONObject("message")
                         .getString("content");
             }
-        } catch (IOException | InterruptedException e) {
-            System.out.println(e.getMessage());
+        } catch (IOException e) {
+            log.warn("The LLM request failed: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for the LLM");
         }
         return null;
     }
@@ -56,7 +78,95 @@ public class MistralAIService {
         String prompt = "categorize this product \"" + product + "\" with this format (main category->sub category->product)without any additional comments" +
                 ", if it's not the exact name of a product just return unknown";
 
-        return getAnswerToPrompt(prompt);
+        return categoryCalls.get(product == null ? "" : product.trim().toLowerCase(Locale.ROOT), () -> getAnswerToPrompt(prompt));
+    }
+
+    /**
+     * the categories of all the products of an utterance with one prompt, the answer is a JSON array of
+     * {"product", "category"} objects. A product the answer misses or garbles is asked alone with
+     * {@link #findCategory(String)}; when the batch call itself fails, nothing is retried.
+     * --------
+     * max_tokens grows with the number of products instead of 256 per product.
+     * @return product -> category (null when it couldn't be found) for every distinct product
+     */
+    public Map<String, String> findCategories(List<String> products) {
+        List<String> distinct = products.stream().filter(Objects::nonNull).distinct().toList();
+        Map<String, String> categories = new LinkedHashMap<>();
+        if (distinct.size() == 1) categories.put(distinct.get(0), findCategory(distinct.get(0)));
+        if (distinct.size() <= 1) return categories;
+
+        String prompt = "categorize each product of this JSON array " + new JSONArray(distinct) +
+                " with this format (main category->sub category->product), if it's not the exact name of a product" +
+                " use unknown. Answer only with a JSON array of objects {\"product\": \"...\", \"category\": \"...\"}," +
+                " one per product in the same order, without any additional comments";
+        String answer = getAnswerToPrompt(prompt,
+                Math.min(MAX_BATCH_TOKENS, 32 + TOKENS_PER_CATEGORY * distinct.size()), 0.2);
+        if (answer == null) {
+            distinct.forEach(product -> categories.put(product, null));
+            return categories;
+        }
+
+        Map<String, String> parsed = parseCategories(answer, distinct);
+        for (String product : distinct) {
+            String category = parsed.get(product);
+            categories.put(product, category != null ? category : findCategory(product));
+        }
+        return categories;
+    }
+
+    /**
+     * the categories in a batch answer, matched to the products by name or, for entries without one, by
+     * position. Tolerates code fences and text around the array, and a {"product": "category"} object.
+     */
+    static Map<String, String> parseCategories(String answer, List<String> products) {
+        Map<String, String> categories = new HashMap<>();
+        Map<String, String> byName = new HashMap<>();
+        for (String product : products) {
+            byName.putIfAbsent(product.trim().toLowerCase(Locale.ROOT), product);
+        }
+
+        int arrayStart = answer.indexOf('[');
+        int arrayEnd = answer.lastIndexOf(']');
+        if (arrayStart >= 0 && arrayEnd > arrayStart) {
+            try {
+                JSONArray array = new JSONArray(answer.substring(arrayStart, arrayEnd + 1));
+                for (int i = 0; i < array.length(); i++) {
+                    Object item = array.get(i);
+                    String product = i < products.size() ? products.get(i) : null;
+                    String category = null;
+                    if (item instanceof JSONObject object) {
+                        // a name that isn't one of the products (eggs for egg) is not trusted, it's asked alone
+                        if (object.has("product")) product = byName.get(object.optString("product").trim().toLowerCase(Locale.ROOT));
+                        category = object.optString("category", null);
+                    } else if (item instanceof String text && array.length() == products.size()) {
+                        category = text;
+                    }
+                    putCategory(categories, product, category);
+                }
+                return categories;
+            } catch (JSONException ignored) {
+                // not an array after all, maybe an object
+            }
+        }
+
+        int objectStart = answer.indexOf('{');
+        int objectEnd = answer.lastIndexOf('}');
+        if (objectStart >= 0 && objectEnd > objectStart) {
+            try {
+                JSONObject object = new JSONObject(answer.substring(objectStart, objectEnd + 1));
+                for (String key : object.keySet()) {
+                    putCategory(categories, byName.get(key.trim().toLowerCase(Locale.ROOT)), object.optString(key, null));
+                }
+            } catch (JSONException ignored) {
+                // unusable, every product is asked alone
+            }
+        }
+        return categories;
+    }
+
+    private static void putCategory(Map<String, String> categories, String product, String category) {
+        if (product == null || category == null || category.isBlank() || categories.containsKey(product)) return;
+        categories.put(product, category.trim());
     }
 
     public String getContentsFromReminderAudio(String rawText) {
@@ -0,0 +1,11 @@
+package org.example.service;
+
+import org.example.domain.entity.expense.ExpenseEntity;
+
+import java.util.List;
+
+/**
+ * a transcribed and extracted voice command whose expenses are built but not saved yet.
+ */
+public record PreparedCommand(String rawText, List<ExpenseEntity> expenses) {
+}
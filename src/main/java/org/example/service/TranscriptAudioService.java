@@ -1,55 +1,230 @@
 package org.example.service;
 
-import com.assemblyai.api.AssemblyAI;
-import com.assemblyai.api.resources.transcripts.types.Transcript;
-import com.google.cloud.storage.BlobId;
-import com.google.cloud.storage.BlobInfo;
-import com.google.cloud.storage.Storage;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.service.audio.AudioPreprocessor;
+import org.example.service.audio.PreprocessedAudio;
+import org.example.service.cache.SingleFlight;
+import org.example.service.storage.AudioStorage;
+import org.example.service.transcription.AudioSource;
+import org.example.service.transcription.TranscriptionEngine;
+import org.example.service.transcription.TranscriptionRouter;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 @Service
-@RequiredArgsConstructor
 public class TranscriptAudioService {
-    private final Storage storage;
-    private final AssemblyAI assembly;
+    private final AudioStorage audioStorage;
+    private final TranscriptCacheService transcriptCache;
+    private final TranscriptionRouter router;
+    private final AudioPreprocessor preprocessor;
+    private final Executor executor;
+    // audio hash -> transcript, a recording uploaded again while it is still being transcribed waits for it
+    private final SingleFlight<String, String> transcriptions;
 
-    @Value("${google.cloud.bucket.name}")
-    private String BUCKET_NAME;
+    @Value("${audio.upload.buffer-size:65536}")
+    private int bufferSize = 64 * 1024;
+
+    public TranscriptAudioService(AudioStorage audioStorage,
+                                  TranscriptCacheService transcriptCache,
+                                  TranscriptionRouter router,
+                                  AudioPreprocessor preprocessor,
+                                  @Qualifier("pipelineExecutor") Executor executor,
+                                  MeterRegistry meterRegistry) {
+        this.audioStorage = audioStorage;
+        this.transcriptCache = transcriptCache;
+        this.router = router;
+        this.preprocessor = preprocessor;
+        this.executor = executor;
+        this.transcriptions = new SingleFlight<>("transcript", meterRegistry);
+    }
 
     public String uploadAudioIntoCloud(MultipartFile file) throws IOException {
         if (file == null || file.getOriginalFilename() == null) return "";
-        String fileName = "audio/" + file.getOriginalFilename();
-        BlobId blobId = BlobId.of(BUCKET_NAME, fileName);
-        BlobInfo blobInfo = BlobInfo.newBuilder(blobId).build();
-        storage.create(blobInfo, file.getBytes());
+        return uploadAudioIntoCloud(file, hashOf(file));
+    }
 
-        return String.format("https://storage.googleapis.com/%s/%s", BUCKET_NAME, fileName);
+    public String uploadAudioIntoCloud(MultipartFile file, String audioHash) throws IOException {
+        if (file == null || file.getOriginalFilename() == null) return "";
+        return audioStorage.publicUrl(storeAudio(file, file.getOriginalFilename(), file.getContentType(), audioHash));
     }
 
+    /**
+     * audio is stored under its content hash ("audio/<sha-256>.<ext>"), so retries of the same recording
+     * land on the same object and are not uploaded twice, and two users' "recording.m4a" can't overwrite each other.
+     * @return the object name
+     */
+    public String storeAudio(InputStreamSource content, String originalName, String contentType, String audioHash)
+            throws IOException {
+        String extension = StringUtils.getFilenameExtension(originalName);
+        String objectName = "audio/" + audioHash + (extension == null ? "" : "." + extension);
+
+        if (!audioStorage.exists(objectName)) {
+            try (InputStream in = content.getInputStream()) {
+                audioStorage.write(objectName, contentType, in);
+            }
+        }
+        return objectName;
+    }
+
+    /**
+     * sha-256 of the audio, computed by streaming the part (Tomcat has it spooled on disk for anything
+     * bigger than the spool threshold), so it costs a local read and no heap copy.
+     */
+    public String hashOf(InputStreamSource content) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        try (InputStream in = content.getInputStream()) {
+            byte[] buffer = new byte[bufferSize];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * blocks until the transcript is ready, only for callers that can't continue asynchronously.
+     */
     public String getTheText(MultipartFile file) {
-        String url;
         try {
-            // temporary saving the audio in order to have url for AAI to access the audio
-            url = uploadAudioIntoCloud(file);
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to upload audio");
+            return getTheTextAsync(file).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
         }
+    }
+
+    /**
+     * the multipart file is fully read (sniffed, hashed, preprocessed and uploaded or handed to the engine)
+     * before this returns, only the wait for the engine is asynchronous.
+     */
+    public CompletableFuture<String> getTheTextAsync(MultipartFile file) {
+        if (file == null || file.getOriginalFilename() == null) return CompletableFuture.completedFuture(null);
+
+        try {
+            // empty files and anything that isn't audio are rejected before we hash, upload or transcribe
+            preprocessor.sniff(file, file.getSize());
 
-        if (url.isEmpty()) return null;
+            String audioHash;
+            try {
+                audioHash = hashOf(file);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read audio");
+            }
 
-        Transcript transcript = assembly.transcripts().transcribe(url);
+            AudioSource original = AudioSource.builder()
+                    .content(file)
+                    .name(file.getOriginalFilename())
+                    .contentType(file.getContentType())
+                    .size(file.getSize())
+                    .hash(audioHash)
+                    .build();
 
-        if (transcript.getText().isEmpty()) return null;
+            return transcriptions.getAsync(audioHash, () -> {
+                Optional<String> cached = transcriptCache.get(audioHash);
+                if (cached.isPresent()) return CompletableFuture.completedFuture(cached.get());
 
-        return transcript.getText().get();
+                return prepareAndTranscribe(original);
+            });
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
     }
 
-    public void setBUCKET_NAME_OnlyForTesting(String BUCKET_NAME) {
-        this.BUCKET_NAME = BUCKET_NAME;
+    /**
+     * for audio that is already in storage (voice jobs, direct client uploads). It was checked when it was
+     * stored, it is converted here like an upload to /command/input.
+     */
+    public CompletableFuture<String> transcribeStored(String audioHash, String objectName) {
+        try {
+            return transcribe(AudioSource.builder()
+                    .content(() -> audioStorage.open(objectName))
+                    .name(objectName)
+                    .size(audioStorage.sizeOf(objectName))
+                    .hash(audioHash)
+                    .url(audioStorage.publicUrl(objectName))
+                    .build());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * audio we have already seen is answered from the transcript cache without touching GCS or any engine,
+     * audio that is being transcribed right now waits for that transcription. Otherwise the router picks an
+     * engine, and the audio is preprocessed and uploaded only if that engine needs a URL.
+     */
+    public CompletableFuture<String> transcribe(AudioSource audio) {
+        if (audio.getHash() == null) return prepareAndTranscribe(audio);
+        return transcriptions.getAsync(audio.getHash(), () -> {
+            Optional<String> cached = transcriptCache.get(audio.getHash());
+            if (cached.isPresent()) return CompletableFuture.completedFuture(cached.get());
+            return prepareAndTranscribe(audio);
+        });
+    }
+
+    // engines consume the audio before transcribe() returns, so the temp file can go right away
+    private CompletableFuture<String> prepareAndTranscribe(AudioSource original) {
+        try (PreprocessedAudio prepared = preprocessor.process(original)) {
+            return transcribeUncached(prepared.getAudio(), original.getHash());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * the returned future completes on the pipeline executor, never on an engine's own thread
+     * (AssemblyAI poller, process reaper), so the rest of the pipeline can be chained on it directly.
+     * --------
+     * the transcript is cached under {@code audioHash}, the hash of the audio as it was uploaded. Converted
+     * audio has no hash of its own yet, it is hashed before it is stored so "audio/<sha-256>" keeps naming
+     * exactly the bytes in the object.
+     */
+    private CompletableFuture<String> transcribeUncached(AudioSource audio, String audioHash) {
+        TranscriptionEngine engine = router.choose(audio);
+
+        if (engine.requiresUrl() && audio.getUrl() == null) {
+            try {
+                String contentHash = audio.getHash() != null ? audio.getHash() : hashOf(audio.getContent());
+                // temporary saving the audio in order to have url for AAI to access the audio
+                String objectName = storeAudio(audio.getContent(), audio.getName(), audio.getContentType(), contentHash);
+                audio = audio.toBuilder().hash(contentHash).url(audioStorage.publicUrl(objectName)).build();
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to upload audio");
+            }
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<String> text;
+        try {
+            text = engine.transcribe(audio);
+        } catch (RuntimeException e) {
+            text = CompletableFuture.failedFuture(e);
+        }
+
+        return text.whenCompleteAsync((result, error) -> {
+            router.record(engine, System.nanoTime() - start, error == null);
+            if (error == null && result != null && audioHash != null) transcriptCache.put(audioHash, result);
+        }, executor);
     }
 }
@@ -0,0 +1,45 @@
+package org.example.service;
+
+import org.example.domain.entity.transcript.TranscriptEntity;
+import org.example.repository.TranscriptRepository;
+import org.example.service.cache.BoundedLruCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+/**
+ * audio hash -> transcript. The in-memory tier absorbs client retries on the same node,
+ * the transcripts table makes the answer survive restarts and be shared between nodes.
+ */
+@Service
+public class TranscriptCacheService {
+    private final TranscriptRepository repository;
+    private final BoundedLruCache<String, String> memory;
+
+    public TranscriptCacheService(TranscriptRepository repository,
+                                  @Value("${transcripts.cache.size:10000}") int size) {
+        this.repository = repository;
+        this.memory = new BoundedLruCache<>(size);
+    }
+
+    public Optional<String> get(String audioHash) {
+        String text = memory.get(audioHash);
+        if (text != null) return Optional.of(text);
+
+        Optional<String> stored = repository.findByAudioHash(audioHash).map(TranscriptEntity::getText);
+        stored.ifPresent(t -> memory.put(audioHash, t));
+        return stored;
+    }
+
+    public void put(String audioHash, String text) {
+        memory.put(audioHash, text);
+        if (repository.findByAudioHash(audioHash).isPresent()) return;
+        try {
+            repository.save(TranscriptEntity.builder().audioHash(audioHash).text(text).build());
+        } catch (DataIntegrityViolationException ignored) {
+            // another node stored the same audio in the meantime
+        }
+    }
+}
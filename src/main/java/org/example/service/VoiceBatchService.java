@@ -0,0 +1,144 @@
+package org.example.service;
+
+import org.example.domain.entity.expense.ExpenseEntity;
+import org.example.domain.entity.user.UserEntity;
+import org.example.domain.request.ExpenseRequest;
+import org.example.domain.response.BaseResponse;
+import org.example.domain.response.VoiceBatchItemResponse;
+import org.example.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutor;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * many recordings in one request (a mobile client replaying what it queued offline).
+ * --------
+ * transcription, extraction and categorization are remote-bound, so each file runs them on the command
+ * executor (as the caller, for the audit fields) with at most voice.batch.parallelism files in flight. Only
+ * the files that succeeded are then persisted, all in one transaction.
+ */
+@Service
+public class VoiceBatchService {
+    private final UserRepository userRepository;
+    private final TranscriptAudioService transcriptService;
+    private final VoiceCommandService voiceCommandService;
+    private final ExpenseService expenseService;
+    private final ExecutorService executor;
+    private final int parallelism;
+
+    @Value("${voice.batch.max-files:20}")
+    private int maxFiles = 20;
+
+    public VoiceBatchService(UserRepository userRepository,
+                             TranscriptAudioService transcriptService,
+                             VoiceCommandService voiceCommandService,
+                             ExpenseService expenseService,
+                             @Qualifier("commandExecutor") ExecutorService executor,
+                             @Value("${voice.batch.parallelism:4}") int parallelism) {
+        this.userRepository = userRepository;
+        this.transcriptService = transcriptService;
+        this.voiceCommandService = voiceCommandService;
+        this.expenseService = expenseService;
+        this.executor = executor;
+        this.parallelism = parallelism;
+    }
+
+    public BaseResponse<List<VoiceBatchItemResponse>> comprehendBatch(UUID userId, List<MultipartFile> files) {
+        Optional<UserEntity> user = userRepository.findById(userId);
+        if (user.isEmpty()) return BaseResponse.<List<VoiceBatchItemResponse>>builder()
+                .message("User not found").status(400).build();
+
+        if (files == null || files.isEmpty()) return BaseResponse.<List<VoiceBatchItemResponse>>builder()
+                .message("No audio provided").status(400).build();
+
+        if (files.size() > maxFiles) return BaseResponse.<List<VoiceBatchItemResponse>>builder()
+                .message("Too many files, the limit is " + maxFiles).status(400).build();
+
+        // files are spread over `parallelism` lanes and each lane starts its next file when the previous one
+        // is done, so at most `parallelism` files are in flight and no thread waits while a transcript is pending
+        Executor executor = new DelegatingSecurityContextExecutor(this.executor, SecurityContextHolder.getContext());
+        List<CompletableFuture<FileResult>> futures = new ArrayList<>(Collections.nCopies(files.size(), null));
+        int lanes = Math.min(parallelism, files.size());
+        for (int lane = 0; lane < lanes; lane++) {
+            CompletableFuture<FileResult> previous = CompletableFuture.completedFuture(null);
+            for (int i = lane; i < files.size(); i += lanes) {
+                MultipartFile file = files.get(i);
+                previous = previous.thenComposeAsync(ignored -> process(file, user.get(), executor), executor);
+                futures.set(i, previous);
+            }
+        }
+
+        List<FileResult> results = futures.stream().map(CompletableFuture::join).toList();
+
+        List<PreparedCommand> prepared = results.stream()
+                .filter(result -> result.command != null)
+                .map(result -> result.command)
+                .toList();
+
+        try {
+            if (!prepared.isEmpty()) voiceCommandService.persistBatch(user.get(), prepared);
+        } catch (RuntimeException e) {
+            return BaseResponse.<List<VoiceBatchItemResponse>>builder()
+                    .message("Failed to save the batch")
+                    .status(500)
+                    .data(results.stream()
+                            .map(result -> result.command == null ? result.response
+                                    : failed(result.response.getFileName(), "Failed to save the batch"))
+                            .toList())
+                    .build();
+        }
+
+        return BaseResponse.<List<VoiceBatchItemResponse>>builder()
+                .message(prepared.size() + " of " + files.size() + " commands saved")
+                .status(200)
+                .data(results.stream().map(result -> result.response).toList())
+                .build();
+    }
+
+    private CompletableFuture<FileResult> process(MultipartFile file, UserEntity user, Executor executor) {
+        String fileName = file.getOriginalFilename();
+        return transcriptService.getTheTextAsync(file).handleAsync((rawText, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                return new FileResult(failed(fileName, cause.getMessage()), null);
+            }
+            if (rawText == null) return new FileResult(failed(fileName, "The audio couldn't be recognized"), null);
+
+            try {
+                List<ExpenseRequest> extracted = voiceCommandService.extractProductInfo(rawText);
+                List<ExpenseEntity> expenses = expenseService.prepare(extracted, user);
+
+                VoiceBatchItemResponse response = VoiceBatchItemResponse.builder()
+                        .fileName(fileName)
+                        .status(200)
+                        .message("Expenses saved successfully")
+                        .rawText(rawText)
+                        .expenses(extracted)
+                        .build();
+                return new FileResult(response, new PreparedCommand(rawText, expenses));
+            } catch (RuntimeException e) {
+                return new FileResult(failed(fileName, e.getMessage()), null);
+            }
+        }, executor);
+    }
+
+    private static VoiceBatchItemResponse failed(String fileName, String message) {
+        return VoiceBatchItemResponse.builder().fileName(fileName).status(400).message(message).build();
+    }
+
+    private record FileResult(VoiceBatchItemResponse response, PreparedCommand command) {
+    }
+}
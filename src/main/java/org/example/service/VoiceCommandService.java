@@ -1,74 +1,92 @@
 package org.example.service;
 
-import edu.stanford.nlp.ling.CoreAnnotations;
-import edu.stanford.nlp.ling.CoreLabel;
-import edu.stanford.nlp.ling.IndexedWord;
-import edu.stanford.nlp.pipeline.CoreDocument;
-import edu.stanford.nlp.pipeline.CoreSentence;
-import edu.stanford.nlp.pipeline.StanfordCoreNLP;
-import edu.stanford.nlp.semgraph.SemanticGraph;
-import edu.stanford.nlp.semgraph.SemanticGraphEdge;
-import lombok.RequiredArgsConstructor;
 import org.example.domain.entity.ReminderExpenseEntity;
 import org.example.domain.entity.user.UserEntity;
 import org.example.domain.entity.VoiceCommandEntity;
+import org.example.domain.entity.expense.ExpenseEntity;
 import org.example.domain.request.ExpenseRequest;
 import org.example.domain.response.BaseResponse;
 import org.example.domain.response.ExpenseResponse;
 import org.example.domain.response.VoiceCommandResponse;
 import org.example.repository.UserRepository;
 import org.example.repository.VoiceCommandRepository;
-import org.springframework.beans.factory.annotation.Value;
+import org.example.service.extraction.ExtractionCache;
+import org.example.service.extraction.ExtractionEngine;
+import org.example.service.extraction.FastPathExtractor;
+import org.example.service.nlp.NlpExtractor;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutor;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 @Service
-@RequiredArgsConstructor
 public class VoiceCommandService {
     private final UserRepository userRepository;
     private final VoiceCommandRepository voiceCommandRepository;
     private final ExpenseService expenseService;
-    private final StanfordCoreNLP pipeline;
+    private final NlpExtractor nlpExtractor;
+    private final FastPathExtractor fastPath;
+    private final ExtractionCache extractionCache;
     private final TranscriptAudioService transcriptService;
+    private final Executor commandExecutor;
+
+    public VoiceCommandService(UserRepository userRepository,
+                               VoiceCommandRepository voiceCommandRepository,
+                               ExpenseService expenseService,
+                               NlpExtractor nlpExtractor,
+                               FastPathExtractor fastPath,
+                               ExtractionCache extractionCache,
+                               TranscriptAudioService transcriptService,
+                               @Qualifier("commandExecutor") Executor commandExecutor) {
+        this.userRepository = userRepository;
+        this.voiceCommandRepository = voiceCommandRepository;
+        this.expenseService = expenseService;
+        this.nlpExtractor = nlpExtractor;
+        this.fastPath = fastPath;
+        this.extractionCache = extractionCache;
+        this.transcriptService = transcriptService;
+        this.commandExecutor = commandExecutor;
+    }
 
-    @Value("${google.cloud.bucket.name}")
-    private String BUCKET_NAME;
-
-    private final Set<String> productVerbs = Set.of( "buy", "purchase", "take", "get", "review", "use");
-    private final Pattern quantityPattern = Pattern.compile(
-            "\\b(\\d+(?:[.,]\\d+)?)\\s*(tonne|tonnes|unit|piece|pieces|units|pound|pounds|kilogram|gram|milligram|kg|kilograms|g|grams|mg|milligrams|l|liter|liters|ml|milliliters)\\b",
-            Pattern.CASE_INSENSITIVE
-    );
-    private final Pattern pricePattern = Pattern.compile(
-            "([$€£¥])\\s*(\\d+(?:[.,]\\d+)?)|(\\d+(?:[.,]\\d+)?)\\s*(dollars|grands|bucks|euros|pounds|yen)",
-            Pattern.CASE_INSENSITIVE
-    );
-
-    public BaseResponse<VoiceCommandResponse> comprehend(UUID userId, MultipartFile file) {
+    /**
+     * no thread waits for the transcript, extraction and saving resume on the command executor when the
+     * transcription engine is done, with the caller's SecurityContext so the audit fields name the user.
+     */
+    public CompletableFuture<BaseResponse<VoiceCommandResponse>> comprehend(UUID userId, MultipartFile file) {
         Optional<UserEntity> user = userRepository.findById(userId);
         if (user.isEmpty()) {
-            return BaseResponse.<VoiceCommandResponse>builder()
+            return CompletableFuture.completedFuture(BaseResponse.<VoiceCommandResponse>builder()
                     .status(400)
                     .message("User not found")
-                    .build();
+                    .build());
         }
 
-        String rawText;
-        try {
-            rawText = transcriptService.getTheText(file);
-        } catch (RuntimeException e) {
-            return BaseResponse.<VoiceCommandResponse>builder()
-                    .message(e.getMessage()).status(400).build();
-        }
+        Executor executor = new DelegatingSecurityContextExecutor(commandExecutor, SecurityContextHolder.getContext());
+        return transcriptService.getTheTextAsync(file).handleAsync((rawText, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                return BaseResponse.<VoiceCommandResponse>builder()
+                        .message(cause.getMessage()).status(400).build();
+            }
+            return comprehendText(user.get(), rawText);
+        }, executor);
+    }
 
+    /**
+     * the part of the pipeline that runs after transcription for the synchronous endpoint. Voice jobs
+     * extract first and save with {@link #persistBatch} in the transaction that finishes the job.
+     */
+    public BaseResponse<VoiceCommandResponse> comprehendText(UserEntity user, String rawText) {
         if (rawText == null) return BaseResponse.<VoiceCommandResponse>builder()
                 .message("The audio couldn't be recognized")
                 .status(400)
@@ -76,7 +94,7 @@ public class VoiceCommandService {
 
         List<ExpenseRequest> extracted = extractProductInfo(rawText);
 
-        return save(extracted, user.get(), rawText);
+        return save(extracted, user, rawText);
     }
 
     public BaseResponse<VoiceCommandResponse> saveForReminder(UserEntity user, ReminderExpenseEntity reminder, String rawText) {
@@ -109,181 +127,40 @@ public class VoiceCommandService {
                 .build();
     }
 
-    // ---EXTRACTION LOGIC---
-
-    public List<ExpenseRequest> extractProductInfo(String text) {
-        List<ExpenseRequest> productInfoList = new ArrayList<>();
-        CoreDocument document = new CoreDocument(text);
-        pipeline.annotate(document);
-
-        for (CoreSentence sentence : document.sentences()) {
-            if (hasVerbs(sentence)) {
-                productInfoList.addAll(extractFromVerbSentence(sentence));
-            } else {
-                productInfoList.addAll(extractFromNounPhrase(sentence));
-            }
-        }
-        return productInfoList;
-    }
-
     /**
-     * this method is for finding a verb from a text,
-     * it uses CoreLabel class which represents a single word with its annotation e.g.(NN-noun, VB-verb)
-     * @param sentence
-     * @return
+     * saves the expenses and commands of a whole batch in one transaction, either all of them or none.
      */
-    public boolean hasVerbs(CoreSentence sentence) {
-        for (CoreLabel token : sentence.tokens()) {
-            if (token.get(CoreAnnotations.PartOfSpeechAnnotation.class).startsWith("VB")) {
-                return true;
+    @Transactional
+    public void persistBatch(UserEntity user, List<PreparedCommand> commands) {
+        List<VoiceCommandEntity> entities = new ArrayList<>();
+        for (PreparedCommand prepared : commands) {
+            for (ExpenseEntity expense : expenseService.saveAll(prepared.expenses())) {
+                entities.add(VoiceCommandEntity.builder()
+                        .rawText(prepared.rawText())
+                        .user(user)
+                        .expense(expense)
+                        .build());
             }
         }
-        return false;
+        voiceCommandRepository.saveAll(entities);
     }
 
-    /**
-     * this method helps to extract some key information such as product name, quantity, price.
-     * --------
-     * sentence.dependencyParse(); -> represents the grammatical structure of a sentence (e.g. subject-verb, verb-object).
-     * --------
-     * sentence.text() -> just a raw text for the extraction of quantity and price.
-     * --------
-     * edge.getRelation() -> type of dependency ("nsubj" - subject, "obj" - object), if the relation is "obj", it
-     * connects a verb to its object ("bought" -> "laptop" in "I bought a laptop"). In brief, it focuses on verb-obj
-     * relationships to easily find product names.
-     * --------
-     * IndexedWord verb = edge.getGovernor() -> governor is the verb we are looking for, and the lemma helps to get
-     * the base form of a verb, for example if the verb is "bought" it becomes "buy" and we check this verb from the set "productVerbs"
-     * which includes shopping related verbs.
-     * --------
-     * IndexedWord obj = edge.getDependent(); -> dependent is the object (e.g. "laptop").
-     * --------
-     * getConjoinedNouns(obj, dependencies); -> that finds all object-related nouns (e.g. "logitech mouse" or "mouse and laptop")
-     * --------
-     * extractModifiers(head, dependencies); -> gets words with their modifiers if they exist (e.g. "red apple", "new laptop")
-     * and after that the result list is sorted to get the right order of product name
-     * --------
-     * in the end, found modifiers and nouns are merged together.
-     * @param sentence
-     * @return
-     */
-    public List<ExpenseRequest> extractFromVerbSentence(CoreSentence sentence) {
-        List<ExpenseRequest> productInfoList = new ArrayList<>();
-        SemanticGraph dependencies = sentence.dependencyParse();
-        String sentenceText = sentence.text();
-
-        for (SemanticGraphEdge edge : dependencies.edgeListSorted()) {
-            if (edge.getRelation().toString().equals("obj")) {
-                IndexedWord verb = edge.getGovernor();
-                if (productVerbs.contains(verb.lemma())) {
-                    IndexedWord obj = edge.getDependent();
-                    List<IndexedWord> heads = getConjoinedNouns(obj, dependencies);
-                    for (IndexedWord head : heads) {
-                        List<IndexedWord> productWords = extractModifiers(head, dependencies);
-                        productWords.sort(Comparator.comparing(IndexedWord::index));
-                        String productName = productWords.stream()
-                                .map(IndexedWord::word)
-                                .collect(Collectors.joining(" "));
-                        String quantity = extractQuantity(sentenceText);
-                        String price = extractPrice(sentenceText);
-                        productInfoList.add(new ExpenseRequest(productName, price, quantity));
-                    }
-                }
-            }
-        }
-        return productInfoList;
-    }
-
-    /**
-     * if an input doesn't have any verbs for example -> "5kg rice for $20", this method will get invoked.
-     * --------
-     * IndexedWord root = dependencies.getFirstRoot(); -> is the noun (e.g. rice) in a noun-based sentence
-     * @param sentence
-     * @return
-     */
-    public List<ExpenseRequest> extractFromNounPhrase(CoreSentence sentence) {
-        List<ExpenseRequest> productInfoList = new ArrayList<>();
-        SemanticGraph dependencies = sentence.dependencyParse();
-        IndexedWord root = dependencies.getFirstRoot();
-        String sentenceText = sentence.text();
-
-        if (root != null) {
-            List<IndexedWord> heads = getConjoinedNouns(root, dependencies);
-            for (IndexedWord head : heads) {
-                List<IndexedWord> productWords = extractModifiers(head, dependencies);
-                productWords.sort(Comparator.comparing(IndexedWord::index));
-                String productName = productWords.stream()
-                        .map(IndexedWord::word)
-                        .collect(Collectors.joining(" "));
-                String quantity = extractQuantity(sentenceText);
-                String price = extractPrice(sentenceText);
-                productInfoList.add(new ExpenseRequest(productName, price, quantity));
-            }
-        }
-        return productInfoList;
-    }
+    // ---EXTRACTION LOGIC---
 
     /**
-     * "amod" -> checks for adjectives, "compound" -> checks for noun (e.g. "laptop" in "laptop bag")
-     * @param head
-     * @param dependencies
-     * @return
+     * phrases seen before come from the extraction cache, simple utterances ("5kg rice for $20") are handled
+     * by the fast path from tokens and the lexicon, everything else is annotated by CoreNLP and goes through
+     * the {@link ExtractionEngine}.
      */
-    public List<IndexedWord> extractModifiers(IndexedWord head, SemanticGraph dependencies) {
-        List<IndexedWord> modifiers = new ArrayList<>();
-        Set<String> relations = new HashSet<>(Arrays.asList("amod", "compound"));
-        Set<String> quantityWords = Set.of(
-                "tonne","tonnes","unit","piece","pieces","units","kilogram",
-                "gram","milligram","kg","kilograms","g","grams","mg","milligrams",
-                "l","liter","liters","ml","milliliters");
-
-        modifiers.add(head);
-
-        for (SemanticGraphEdge edge : dependencies.outgoingEdgeList(head)) {
-            String relation = edge.getRelation().toString();
-            if (relations.contains(relation)) {
-                IndexedWord dependent = edge.getDependent();
-                if (!modifiers.contains(dependent) && !quantityWords.contains(dependent.word().toLowerCase())) {
-                    modifiers.add(dependent);
-                }
-            }
-        }
-
-        return modifiers;
+    public List<ExpenseRequest> extractProductInfo(String text) {
+        return extractionCache.get(text, t -> fastPath.extract(t, this::extractWithNlp));
     }
 
     /**
-     * helps to get nouns like -> "mouse and laptop"
-     * @param noun
-     * @param dependencies
-     * @return
+     * CoreNLP in this JVM or in the NLP worker processes, depending on nlp.mode.
      */
-    public List<IndexedWord> getConjoinedNouns(IndexedWord noun, SemanticGraph dependencies) {
-        List<IndexedWord> conjoined = new ArrayList<>();
-        Set<String> tags = Set.of("NN", "NNS", "NNP", "NNPS");
-        conjoined.add(noun);
-        for (SemanticGraphEdge edge : dependencies.outgoingEdgeList(noun)) {
-            if (edge.getRelation().toString().equals("conj") && tags.contains(edge.getDependent().tag())) {
-                conjoined.add(edge.getDependent());
-            }
-        }
-        return conjoined;
-    }
-
-    public String extractQuantity(String text) {
-        Matcher matcher = quantityPattern.matcher(text);
-        if (matcher.find()) {
-            return matcher.group();
-        }
-        return null;
-    }
-
-    public String extractPrice(String text) {
-        Matcher matcher = pricePattern.matcher(text);
-        if (matcher.find()) {
-            return matcher.group();
-        }
-        return null;
+    public List<ExpenseRequest> extractWithNlp(String text) {
+        return nlpExtractor.extract(text);
     }
 
     public Page<VoiceCommandResponse> getAll(UUID userId, int page, int size) {
@@ -310,8 +187,4 @@ public class VoiceCommandService {
         return BaseResponse.<VoiceCommandResponse>builder()
                 .message("Deleted successfully").status(200).build();
     }
-
-    public void setBUCKET_NAME_OnlyForTesting(String BUCKET_NAME) {
-        this.BUCKET_NAME = BUCKET_NAME;
-    }
 }
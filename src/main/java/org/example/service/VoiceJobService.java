@@ -0,0 +1,357 @@
+package org.example.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.domain.entity.job.JobStatus;
+import org.example.domain.entity.expense.ExpenseEntity;
+import org.example.domain.entity.job.VoiceJobEntity;
+import org.example.domain.entity.user.UserEntity;
+import org.example.domain.response.BaseResponse;
+import org.example.domain.response.UploadTicketResponse;
+import org.example.domain.response.VoiceJobResponse;
+import org.example.repository.UserRepository;
+import org.example.repository.VoiceJobRepository;
+import org.example.service.audio.AudioPreprocessor;
+import org.example.service.storage.AudioStorage;
+import org.example.service.storage.SignedUpload;
+import org.example.service.transcription.AudioSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class VoiceJobService {
+    private final VoiceJobRepository jobRepository;
+    private final UserRepository userRepository;
+    private final TranscriptAudioService transcriptService;
+    private final VoiceCommandService voiceCommandService;
+    private final ExpenseService expenseService;
+    private final AudioPreprocessor preprocessor;
+    private final AudioStorage audioStorage;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${voice.jobs.max-attempts:3}")
+    private int maxAttempts = 3;
+    @Value("${audio.direct-upload.ttl-minutes:15}")
+    private long uploadTtlMinutes = 15;
+    @Value("${audio.upload.max-file-size:200MB}")
+    private DataSize maxUploadSize = DataSize.ofMegabytes(200);
+
+    /**
+     * only the upload happens on the request thread, transcription and extraction are left
+     * to whichever node claims the job first.
+     */
+    public BaseResponse<VoiceJobResponse> submit(UUID userId, MultipartFile file) {
+        Optional<UserEntity> user = userRepository.findById(userId);
+        if (user.isEmpty()) return BaseResponse.<VoiceJobResponse>builder()
+                .message("User not found").status(400).build();
+
+        if (file == null || file.getOriginalFilename() == null) return BaseResponse.<VoiceJobResponse>builder()
+                .message("The audio couldn't be recognized").status(400).build();
+
+        try {
+            // too long, too short or silent audio is rejected before it is stored and queued
+            preprocessor.check(AudioSource.builder()
+                    .content(file)
+                    .name(file.getOriginalFilename())
+                    .size(file.getSize())
+                    .build());
+        } catch (RuntimeException e) {
+            return BaseResponse.<VoiceJobResponse>builder()
+                    .message(e.getMessage()).status(400).build();
+        }
+
+        String audioHash, objectName;
+        try {
+            audioHash = transcriptService.hashOf(file);
+            objectName = transcriptService.storeAudio(file, file.getOriginalFilename(), file.getContentType(), audioHash);
+        } catch (IOException e) {
+            return BaseResponse.<VoiceJobResponse>builder()
+                    .message("Failed to upload audio").status(400).build();
+        }
+
+        VoiceJobEntity job = jobRepository.save(VoiceJobEntity.builder()
+                .status(JobStatus.PENDING)
+                .audioObject(objectName)
+                .audioHash(audioHash)
+                .attempts(0)
+                .user(user.get())
+                .build());
+
+        return BaseResponse.<VoiceJobResponse>builder()
+                .message("Voice command accepted")
+                .status(202)
+                .data(toResponse(job))
+                .build();
+    }
+
+    /**
+     * first half of a direct upload: the client gets a short-lived signed URL and PUTs the audio
+     * straight into storage, so the bytes never pass through this server.
+     */
+    public BaseResponse<UploadTicketResponse> requestUpload(UUID userId, String contentType) {
+        Optional<UserEntity> user = userRepository.findById(userId);
+        if (user.isEmpty()) return BaseResponse.<UploadTicketResponse>builder()
+                .message("User not found").status(400).build();
+
+        if (contentType == null || !contentType.startsWith("audio/")) return BaseResponse.<UploadTicketResponse>builder()
+                .message("Unsupported audio format").status(400).build();
+
+        String objectName = "uploads/" + UUID.randomUUID();
+        SignedUpload signed = audioStorage.signUpload(objectName, contentType, maxUploadSize.toBytes(),
+                Duration.ofMinutes(uploadTtlMinutes));
+
+        VoiceJobEntity job = jobRepository.save(VoiceJobEntity.builder()
+                .status(JobStatus.AWAITING_UPLOAD)
+                .audioObject(objectName)
+                .attempts(0)
+                .user(user.get())
+                .build());
+
+        return BaseResponse.<UploadTicketResponse>builder()
+                .message("Upload the audio to the given url")
+                .status(200)
+                .data(UploadTicketResponse.builder()
+                        .jobId(job.getId())
+                        .uploadUrl(signed.url())
+                        .method(signed.method())
+                        .contentType(signed.contentType())
+                        .headers(signed.headers())
+                        .expiresAt(signed.expiresAt())
+                        .build())
+                .build();
+    }
+
+    /**
+     * second half of a direct upload: nothing the client says is trusted, the object itself is checked
+     * (present, within the size limit, actually audio of an accepted length) before the job is queued.
+     */
+    public BaseResponse<VoiceJobResponse> completeUpload(UUID userId, UUID jobId) {
+        Optional<VoiceJobEntity> found = jobRepository.findById(jobId);
+        if (found.isEmpty() || found.get().getUser() == null || !found.get().getUser().getId().equals(userId)) {
+            return BaseResponse.<VoiceJobResponse>builder()
+                    .message("Job not found").status(404).build();
+        }
+
+        VoiceJobEntity job = found.get();
+        if (job.getStatus() != JobStatus.AWAITING_UPLOAD) return BaseResponse.<VoiceJobResponse>builder()
+                .message("Upload is already " + job.getStatus().name()).status(409).build();
+
+        String objectName = job.getAudioObject();
+        long size = audioStorage.sizeOf(objectName);
+        if (size < 0) return BaseResponse.<VoiceJobResponse>builder()
+                .message("The audio hasn't been uploaded").status(400).build();
+
+        if (size > maxUploadSize.toBytes()) {
+            return rejectUpload(job, "The audio is too large");
+        }
+
+        try {
+            preprocessor.check(AudioSource.builder()
+                    .content(() -> audioStorage.open(objectName))
+                    .name(objectName)
+                    .size(size)
+                    .build());
+            job.setAudioHash(transcriptService.hashOf(() -> audioStorage.open(objectName)));
+        } catch (IOException e) {
+            return BaseResponse.<VoiceJobResponse>builder()
+                    .message("Failed to read audio").status(400).build();
+        } catch (RuntimeException e) {
+            return rejectUpload(job, e.getMessage());
+        }
+
+        job.setStatus(JobStatus.PENDING);
+        jobRepository.save(job);
+
+        return BaseResponse.<VoiceJobResponse>builder()
+                .message("Voice command accepted")
+                .status(202)
+                .data(toResponse(job))
+                .build();
+    }
+
+    private BaseResponse<VoiceJobResponse> rejectUpload(VoiceJobEntity job, String message) {
+        job.setStatus(JobStatus.FAILED);
+        job.setMessage(message);
+        job.setFinishedAt(LocalDateTime.now());
+        jobRepository.save(job);
+        deleteUpload(job.getAudioObject());
+        return BaseResponse.<VoiceJobResponse>builder()
+                .message(message).status(400).build();
+    }
+
+    public BaseResponse<VoiceJobResponse> getStatus(UUID userId, UUID jobId) {
+        Optional<VoiceJobEntity> job = jobRepository.findById(jobId);
+        if (job.isEmpty() || job.get().getUser() == null || !job.get().getUser().getId().equals(userId)) {
+            return BaseResponse.<VoiceJobResponse>builder()
+                    .message("Job not found").status(404).build();
+        }
+
+        return BaseResponse.<VoiceJobResponse>builder()
+                .message(job.get().getStatus().name())
+                .status(200)
+                .data(toResponse(job.get()))
+                .build();
+    }
+
+    /**
+     * locks up to {@code limit} pending rows and flips them to RUNNING inside one transaction,
+     * so once it commits no other node can pick the same jobs.
+     */
+    @Transactional
+    public List<VoiceJobEntity> claim(String workerId, int limit) {
+        List<VoiceJobEntity> jobs = jobRepository.claimPending(limit);
+        LocalDateTime now = LocalDateTime.now();
+        for (VoiceJobEntity job : jobs) {
+            job.setStatus(JobStatus.RUNNING);
+            job.setLockedBy(workerId);
+            job.setLockedAt(now);
+            job.setAttempts(job.getAttempts() == null ? 1 : job.getAttempts() + 1);
+        }
+        return jobRepository.saveAll(jobs);
+    }
+
+    /**
+     * jobs of a node that died mid-run stay RUNNING forever unless they are handed back to the queue.
+     */
+    @Transactional
+    public int releaseStale(LocalDateTime threshold) {
+        return jobRepository.releaseStale(JobStatus.PENDING, JobStatus.RUNNING, threshold);
+    }
+
+    /**
+     * refreshes lockedAt of the jobs the worker is running, a job waiting minutes for its transcript
+     * mustn't look like one of a dead node.
+     */
+    @Transactional
+    public int heartbeat(String workerId) {
+        return jobRepository.heartbeat(JobStatus.RUNNING, workerId, LocalDateTime.now());
+    }
+
+    /**
+     * upload tickets the client never completed. Each one is expired on its own, so the object of an upload
+     * completed meanwhile isn't deleted.
+     */
+    @Transactional
+    public int expireUploads(LocalDateTime threshold) {
+        LocalDateTime now = LocalDateTime.now();
+        int expired = 0;
+        for (VoiceJobEntity job : jobRepository.findByStatusAndCreatedDateBefore(JobStatus.AWAITING_UPLOAD, threshold)) {
+            if (jobRepository.expireUpload(job.getId(), JobStatus.EXPIRED, JobStatus.AWAITING_UPLOAD, now) == 0) continue;
+            deleteUpload(job.getAudioObject());
+            expired++;
+        }
+        return expired;
+    }
+
+    // whatever the client uploaded for a job that won't run, a failed delete is only logged
+    private void deleteUpload(String objectName) {
+        if (objectName == null) return;
+        try {
+            audioStorage.delete(objectName);
+        } catch (RuntimeException e) {
+            log.warn("Couldn't delete upload {}", objectName, e);
+        }
+    }
+
+    /**
+     * returns as soon as the transcription is submitted, the rest of the job runs when the transcript arrives.
+     * A job that was released and claimed by another node meanwhile is left to that node.
+     */
+    public CompletableFuture<Void> process(VoiceJobEntity job) {
+        String workerId = job.getLockedBy();
+        return transcriptService.transcribeStored(job.getAudioHash(), job.getAudioObject())
+                .handle((rawText, error) -> {
+                    if (!jobRepository.existsByIdAndLockedBy(job.getId(), workerId)) {
+                        log.warn("Voice job {} is no longer locked by {}, leaving it", job.getId(), workerId);
+                        return null;
+                    }
+
+                    if (error != null) {
+                        retryOrFail(job, error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error);
+                        finish(job, workerId, () -> { });
+                    } else {
+                        comprehend(job, rawText, workerId);
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * extraction and categorization (CoreNLP, the LLM) run first and save nothing. The expenses are then
+     * saved in the transaction that marks the job DONE, so a job sent back for a retry has saved none of
+     * them and the retry can't duplicate any.
+     */
+    private void comprehend(VoiceJobEntity job, String rawText, String workerId) {
+        job.setRawText(rawText);
+        if (rawText == null) {
+            job.setStatus(JobStatus.FAILED);
+            job.setMessage("The audio couldn't be recognized");
+            finish(job, workerId, () -> { });
+            return;
+        }
+
+        try {
+            List<ExpenseEntity> expenses = expenseService.prepare(voiceCommandService.extractProductInfo(rawText), job.getUser());
+            job.setStatus(JobStatus.DONE);
+            job.setMessage("Expenses saved successfully");
+            finish(job, workerId, () -> voiceCommandService.persistBatch(job.getUser(),
+                    List.of(new PreparedCommand(rawText, expenses))));
+        } catch (RuntimeException e) {
+            retryOrFail(job, e);
+            finish(job, workerId, () -> { });
+        }
+    }
+
+    /**
+     * writes the job's state and runs {@code alongside} in one transaction, nothing is written if the job
+     * was claimed by another node meanwhile.
+     */
+    private void finish(VoiceJobEntity job, String workerId, Runnable alongside) {
+        job.setLockedBy(null);
+        job.setLockedAt(null);
+        job.setFinishedAt(job.getStatus() == JobStatus.PENDING ? null : LocalDateTime.now());
+        Boolean finished = transactionTemplate.execute(tx -> {
+            if (jobRepository.finish(job.getId(), workerId, job.getStatus(), job.getRawText(), job.getMessage(),
+                    job.getFinishedAt()) == 0) {
+                tx.setRollbackOnly();
+                return false;
+            }
+            alongside.run();
+            return true;
+        });
+        if (!Boolean.TRUE.equals(finished)) log.warn("Voice job {} is no longer locked by {}, leaving it", job.getId(), workerId);
+    }
+
+    private void retryOrFail(VoiceJobEntity job, Throwable error) {
+        boolean retry = job.getAttempts() != null && job.getAttempts() < maxAttempts;
+        job.setStatus(retry ? JobStatus.PENDING : JobStatus.FAILED);
+        job.setMessage(error.getMessage());
+    }
+
+    private VoiceJobResponse toResponse(VoiceJobEntity job) {
+        return VoiceJobResponse.builder()
+                .id(job.getId())
+                .status(job.getStatus())
+                .rawText(job.getRawText())
+                .message(job.getMessage())
+                .createdDate(job.getCreatedDate())
+                .finishedAt(job.getFinishedAt())
+                .build();
+    }
+}
@@ -0,0 +1,72 @@
+package org.example.service;
+
+import org.example.domain.entity.job.VoiceJobEntity;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+/**
+ * polls the voice_jobs table and runs claimed jobs on the pipeline executor, at most voice.jobs.workers
+ * in flight per node. Throughput grows with the number of nodes and workers, not with servlet threads.
+ * --------
+ * running jobs are heartbeated every voice.jobs.heartbeat-interval-ms, only the jobs of a node that stopped
+ * heartbeating for voice.jobs.stale-after-minutes go back to the queue, however long a transcript takes.
+ */
+@Component
+public class VoiceJobWorker {
+    private final VoiceJobService jobService;
+    private final ExecutorService executor;
+    private final Semaphore slots;
+    private final int workers;
+    private final String workerId = UUID.randomUUID().toString();
+
+    @Value("${voice.jobs.stale-after-minutes:10}")
+    private long staleAfterMinutes;
+    @Value("${audio.direct-upload.ttl-minutes:15}")
+    private long uploadTtlMinutes;
+
+    public VoiceJobWorker(VoiceJobService jobService,
+                          @Qualifier("pipelineExecutor") ExecutorService executor,
+                          @Value("${voice.jobs.workers:4}") int workers) {
+        this.jobService = jobService;
+        this.executor = executor;
+        this.slots = new Semaphore(workers);
+        this.workers = workers;
+    }
+
+    @Scheduled(fixedDelayString = "${voice.jobs.poll-interval-ms:500}")
+    public void poll() {
+        int free = slots.availablePermits();
+        if (free == 0) return;
+
+        List<VoiceJobEntity> jobs = jobService.claim(workerId, free);
+        for (VoiceJobEntity job : jobs) {
+            slots.acquireUninterruptibly();
+            // a slot is held until the job is finished, not while a thread runs it:
+            // jobs waiting for their transcript don't occupy pipeline threads
+            CompletableFuture.supplyAsync(() -> jobService.process(job), executor)
+                    .thenCompose(done -> done)
+                    .whenComplete((done, error) -> slots.release());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${voice.jobs.heartbeat-interval-ms:60000}")
+    public void heartbeat() {
+        if (slots.availablePermits() == workers) return;
+        jobService.heartbeat(workerId);
+    }
+
+    @Scheduled(fixedDelayString = "${voice.jobs.stale-check-interval-ms:60000}")
+    public void releaseStale() {
+        jobService.releaseStale(LocalDateTime.now().minusMinutes(staleAfterMinutes));
+        jobService.expireUploads(LocalDateTime.now().minusMinutes(uploadTtlMinutes));
+    }
+}
@@ -0,0 +1,41 @@
+package org.example.service.audio;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum AudioFormat {
+    WAV("audio/wav"),
+    MP3("audio/mpeg"),
+    FLAC("audio/flac"),
+    OGG("audio/ogg"),
+    MP4("audio/mp4"),
+    WEBM("audio/webm"),
+    AMR("audio/amr");
+
+    private final String contentType;
+
+    /**
+     * identifies the container from its first bytes, null when it isn't audio we can transcribe.
+     */
+    public static AudioFormat sniff(byte[] h, int length) {
+        if (length >= 12 && ascii(h, 0, "RIFF") && ascii(h, 8, "WAVE")) return WAV;
+        if (length >= 3 && ascii(h, 0, "ID3")) return MP3;
+        if (length >= 2 && (h[0] & 0xFF) == 0xFF && (h[1] & 0xE0) == 0xE0) return MP3;
+        if (length >= 4 && ascii(h, 0, "fLaC")) return FLAC;
+        if (length >= 4 && ascii(h, 0, "OggS")) return OGG;
+        if (length >= 8 && ascii(h, 4, "ftyp")) return MP4;
+        if (length >= 4 && (h[0] & 0xFF) == 0x1A && (h[1] & 0xFF) == 0x45
+                && (h[2] & 0xFF) == 0xDF && (h[3] & 0xFF) == 0xA3) return WEBM;
+        if (length >= 5 && ascii(h, 0, "#!AMR")) return AMR;
+        return null;
+    }
+
+    private static boolean ascii(byte[] bytes, int offset, String expected) {
+        for (int i = 0; i < expected.length(); i++) {
+            if (bytes[offset + i] != expected.charAt(i)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,358 @@
+package org.example.service.audio;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.example.service.transcription.AudioSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * runs before anything is uploaded or transcribed.
+ * --------
+ * sniff() rejects empty files and anything that isn't a known audio container from the magic bytes.
+ * check() adds the duration and silence checks below, for audio that is stored now and transcribed later.
+ * process() reads the duration from the header where the container allows it (WAV) and rejects recordings
+ * that are too short, too long or silent. 16-bit PCM WAV is then downmixed to mono, resampled down to 16kHz and
+ * trimmed of leading and trailing silence into a temp file; that is what speech engines work at internally,
+ * so the extra channels and samples were only upload bytes and transcription time. A recording at 16kHz or
+ * less keeps its rate (upsampling adds bytes, not speech), a mono one with nothing to trim is passed through.
+ * Compressed formats can't be decoded without native codecs and are passed through after the checks.
+ */
+@Slf4j
+@Component
+public class AudioPreprocessor {
+    private static final int TARGET_RATE = 16000;
+    private static final int BLOCK_FRAMES = 4096;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${audio.preprocess.enabled:true}")
+    private boolean enabled = true;
+    @Value("${audio.preprocess.min-seconds:0.3}")
+    private double minSeconds = 0.3;
+    @Value("${audio.preprocess.max-seconds:900}")
+    private double maxSeconds = 900;
+    // fraction of full scale under which a frame counts as silence
+    @Value("${audio.preprocess.silence-threshold:0.02}")
+    private double silenceThreshold = 0.02;
+    // silence kept around the speech so the first and last words aren't clipped
+    @Value("${audio.preprocess.padding-ms:200}")
+    private int paddingMs = 200;
+
+    public AudioPreprocessor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public AudioFormat sniff(InputStreamSource content, long size) {
+        if (size == 0) throw new RuntimeException("The audio is empty");
+
+        byte[] header = new byte[12];
+        int read;
+        try (InputStream in = content.getInputStream()) {
+            read = in.readNBytes(header, 0, header.length);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read audio");
+        }
+
+        if (read == 0) throw new RuntimeException("The audio is empty");
+        AudioFormat format = AudioFormat.sniff(header, read);
+        if (format == null) throw new RuntimeException("Unsupported audio format");
+        return format;
+    }
+
+    /**
+     * the checks of process() without the conversion: format, and for WAV the duration and silence.
+     */
+    public AudioFormat check(AudioSource audio) {
+        AudioFormat format = sniff(audio.getContent(), audio.getSize());
+        if (format == AudioFormat.WAV) {
+            try {
+                inspectWav(audio);
+            } catch (IOException e) {
+                throw new RuntimeException("The audio is corrupt");
+            }
+        }
+        return format;
+    }
+
+    public PreprocessedAudio process(AudioSource audio) {
+        long start = System.nanoTime();
+        AudioFormat format = sniff(audio.getContent(), audio.getSize());
+
+        PreprocessedAudio result;
+        if (format != AudioFormat.WAV) {
+            result = PreprocessedAudio.passThrough(audio, format, null, System.nanoTime() - start);
+        } else {
+            result = processWav(audio, start);
+        }
+
+        record(result);
+        return result;
+    }
+
+    private PreprocessedAudio processWav(AudioSource audio, long start) {
+        try {
+            Wav wav = inspectWav(audio);
+            WavHeader header = wav.header();
+            double seconds = header.durationSeconds();
+            long[] speech = wav.speech();
+            if (speech == null) {
+                return PreprocessedAudio.passThrough(audio, AudioFormat.WAV, seconds, System.nanoTime() - start);
+            }
+
+            int rate = Math.min(TARGET_RATE, header.sampleRate);
+            if (header.channels == 1 && rate == header.sampleRate && speech[0] == 0 && speech[1] == header.frames() - 1) {
+                return PreprocessedAudio.passThrough(audio, AudioFormat.WAV, seconds, System.nanoTime() - start);
+            }
+
+            Path out = Files.createTempFile("spendy-preprocessed-", ".wav");
+            long outFrames;
+            try {
+                outFrames = convert(audio, header, speech[0], speech[1], rate, out);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(out);
+                throw e;
+            }
+
+            long bytesOut = Files.size(out);
+            double secondsOut = (double) outFrames / rate;
+            String name = audio.getName() == null ? "audio.wav" : audio.getName().replaceAll("\\.[^.]*$", "") + ".wav";
+            // the hash names the original bytes, the converted audio gets its own if it is ever stored
+            AudioSource converted = audio.toBuilder()
+                    .content(new FileSystemResource(out))
+                    .hash(null)
+                    .name(name)
+                    .contentType(AudioFormat.WAV.getContentType())
+                    .size(bytesOut)
+                    .durationSeconds(secondsOut)
+                    .url(null)
+                    .build();
+
+            return new PreprocessedAudio(converted, AudioFormat.WAV, audio.getSize(), bytesOut,
+                    seconds, secondsOut, System.nanoTime() - start, out);
+        } catch (IOException e) {
+            throw new RuntimeException("The audio is corrupt");
+        }
+    }
+
+    /**
+     * the header with the duration checked, and the speech found in it when the audio will be converted
+     * (null otherwise).
+     */
+    private Wav inspectWav(AudioSource audio) throws IOException {
+        WavHeader header;
+        try (DataInputStream in = open(audio)) {
+            header = WavHeader.read(in);
+        }
+
+        double seconds = header.durationSeconds();
+        if (seconds < minSeconds) throw new RuntimeException("The audio is too short");
+        if (seconds > maxSeconds) throw new RuntimeException("The audio is too long");
+        if (!enabled || !header.isPcm16()) return new Wav(header, null);
+
+        long[] speech = findSpeech(audio, header);
+        if (speech == null) throw new RuntimeException("The audio is silent");
+        return new Wav(header, speech);
+    }
+
+    /**
+     * first pass: index of the first and last frame louder than the threshold, padded, or null when all is silence.
+     */
+    private long[] findSpeech(AudioSource audio, WavHeader header) throws IOException {
+        int threshold = (int) (silenceThreshold * Short.MAX_VALUE);
+        long first = -1, last = -1;
+        byte[] block = new byte[BLOCK_FRAMES * header.blockAlign];
+
+        try (DataInputStream in = open(audio)) {
+            WavHeader.read(in);
+            long frame = 0;
+            long remaining = header.frames();
+            while (remaining > 0) {
+                int frames = (int) Math.min(BLOCK_FRAMES, remaining);
+                in.readFully(block, 0, frames * header.blockAlign);
+                for (int f = 0; f < frames; f++) {
+                    if (Math.abs(mono(block, f, header)) > threshold) {
+                        if (first < 0) first = frame + f;
+                        last = frame + f;
+                    }
+                }
+                frame += frames;
+                remaining -= frames;
+            }
+        }
+
+        if (first < 0) return null;
+        long padding = (long) header.sampleRate * paddingMs / 1000;
+        return new long[]{Math.max(0, first - padding), Math.min(header.frames() - 1, last + padding)};
+    }
+
+    /**
+     * second pass: downmix, low-pass (when downsampling) and linear-interpolation resample of frames
+     * [from, to] into a mono 16-bit WAV at {@code rate}, the frames are copied as they are when it is the
+     * recording's own. Memory is one block regardless of the recording length.
+     */
+    private long convert(AudioSource audio, WavHeader header, long from, long to, int rate, Path out) throws IOException {
+        double step = (double) header.sampleRate / rate;
+        double alpha = header.sampleRate > rate
+                ? 1 - Math.exp(-2 * Math.PI * 0.45 * rate / header.sampleRate) : 1;
+        byte[] block = new byte[BLOCK_FRAMES * header.blockAlign];
+        long written = 0;
+
+        try (DataInputStream in = open(audio);
+             DataOutputStream wav = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(out)))) {
+            WavHeader.read(in);
+            WavHeader.writeMono16(wav, rate, 0);
+            in.skipNBytes(from * header.blockAlign);
+
+            double t = 0, filtered = 0, prev = 0;
+            long index = -1;
+            long remaining = to - from + 1;
+            while (remaining > 0) {
+                int frames = (int) Math.min(BLOCK_FRAMES, remaining);
+                in.readFully(block, 0, frames * header.blockAlign);
+                for (int f = 0; f < frames; f++) {
+                    int sample = mono(block, f, header);
+                    filtered = index < 0 ? sample : filtered + alpha * (sample - filtered);
+                    index++;
+                    if (index == 0) {
+                        prev = filtered;
+                    }
+                    while (t <= index) {
+                        double value = index == 0 ? filtered : prev + (filtered - prev) * (t - (index - 1));
+                        short pcm = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(value)));
+                        wav.write(pcm & 0xFF);
+                        wav.write((pcm >> 8) & 0xFF);
+                        written++;
+                        t += step;
+                    }
+                    prev = filtered;
+                }
+                remaining -= frames;
+            }
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(out.toFile(), "rw")) {
+            WavHeader.patchSizes(file, written * 2);
+        }
+        return written;
+    }
+
+    private static int mono(byte[] block, int frame, WavHeader header) {
+        int offset = frame * header.blockAlign;
+        int sum = 0;
+        for (int c = 0; c < header.channels; c++) {
+            int i = offset + c * 2;
+            sum += (short) ((block[i] & 0xFF) | (block[i + 1] << 8));
+        }
+        return sum / header.channels;
+    }
+
+    private static DataInputStream open(AudioSource audio) throws IOException {
+        return new DataInputStream(new BufferedInputStream(audio.getContent().getInputStream()));
+    }
+
+    private void record(PreprocessedAudio result) {
+        Timer.builder("audio.preprocess")
+                .tag("format", result.getFormat().name())
+                .tag("converted", String.valueOf(result.isConverted()))
+                .register(meterRegistry)
+                .record(result.getNanos(), TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("audio.preprocess.bytes.saved")
+                .baseUnit("bytes")
+                .register(meterRegistry)
+                .record(Math.max(0, result.getBytesIn() - result.getBytesOut()));
+
+        log.debug("preprocessed {} audio: {} -> {} bytes, {} -> {} s in {} ms", result.getFormat(),
+                result.getBytesIn(), result.getBytesOut(), result.getSecondsIn(), result.getSecondsOut(),
+                result.getNanos() / 1_000_000);
+    }
+
+    private record Wav(WavHeader header, long[] speech) {
+    }
+
+    /**
+     * the fields of a RIFF/WAVE header we need, read up to the start of the data chunk.
+     */
+    static class WavHeader {
+        int formatTag;
+        int channels;
+        int sampleRate;
+        int blockAlign;
+        int bitsPerSample;
+        long dataSize;
+
+        static WavHeader read(DataInputStream in) throws IOException {
+            in.skipNBytes(12);
+            WavHeader header = new WavHeader();
+            boolean hasFormat = false;
+            while (true) {
+                String id = new String(in.readNBytes(4), StandardCharsets.US_ASCII);
+                long size = Integer.toUnsignedLong(Integer.reverseBytes(in.readInt()));
+                if (id.equals("fmt ")) {
+                    header.formatTag = Short.toUnsignedInt(Short.reverseBytes(in.readShort()));
+                    header.channels = Short.toUnsignedInt(Short.reverseBytes(in.readShort()));
+                    header.sampleRate = Integer.reverseBytes(in.readInt());
+                    in.skipNBytes(4);
+                    header.blockAlign = Short.toUnsignedInt(Short.reverseBytes(in.readShort()));
+                    header.bitsPerSample = Short.toUnsignedInt(Short.reverseBytes(in.readShort()));
+                    in.skipNBytes(size - 16 + (size & 1));
+                    hasFormat = true;
+                } else if (id.equals("data")) {
+                    if (!hasFormat || header.channels == 0 || header.sampleRate <= 0 || header.blockAlign == 0) {
+                        throw new IOException("data chunk before a valid fmt chunk");
+                    }
+                    header.dataSize = size;
+                    return header;
+                } else {
+                    in.skipNBytes(size + (size & 1));
+                }
+            }
+        }
+
+        // 1 = PCM, 0xFFFE = WAVE_FORMAT_EXTENSIBLE (PCM in practice for 16 bit)
+        boolean isPcm16() {
+            return (formatTag == 1 || formatTag == 0xFFFE) && bitsPerSample == 16;
+        }
+
+        long frames() {
+            return dataSize / blockAlign;
+        }
+
+        double durationSeconds() {
+            return (double) frames() / sampleRate;
+        }
+
+        static void writeMono16(DataOutputStream out, int sampleRate, long dataSize) throws IOException {
+            out.writeBytes("RIFF");
+            out.writeInt(Integer.reverseBytes((int) (36 + dataSize)));
+            out.writeBytes("WAVE");
+            out.writeBytes("fmt ");
+            out.writeInt(Integer.reverseBytes(16));
+            out.writeShort(Short.reverseBytes((short) 1));
+            out.writeShort(Short.reverseBytes((short) 1));
+            out.writeInt(Integer.reverseBytes(sampleRate));
+            out.writeInt(Integer.reverseBytes(sampleRate * 2));
+            out.writeShort(Short.reverseBytes((short) 2));
+            out.writeShort(Short.reverseBytes((short) 16));
+            out.writeBytes("data");
+            out.writeInt(Integer.reverseBytes((int) dataSize));
+        }
+
+        static void patchSizes(RandomAccessFile file, long dataSize) throws IOException {
+            file.seek(4);
+            file.writeInt(Integer.reverseBytes((int) (36 + dataSize)));
+            file.seek(40);
+            file.writeInt(Integer.reverseBytes((int) dataSize));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.example.service.audio;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.example.service.transcription.AudioSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * the audio that goes to transcription plus what preprocessing did to it. Closing it deletes the
+ * temp file holding the converted audio, if there is one.
+ */
+@Getter
+@AllArgsConstructor
+public class PreprocessedAudio implements AutoCloseable {
+    private final AudioSource audio;
+    private final AudioFormat format;
+    private final long bytesIn;
+    private final long bytesOut;
+    private final Double secondsIn;
+    private final Double secondsOut;
+    private final long nanos;
+    private final Path tempFile;
+
+    public static PreprocessedAudio passThrough(AudioSource audio, AudioFormat format, Double seconds, long nanos) {
+        return new PreprocessedAudio(audio, format, audio.getSize(), audio.getSize(), seconds, seconds, nanos, null);
+    }
+
+    public boolean isConverted() {
+        return tempFile != null;
+    }
+
+    @Override
+    public void close() {
+        if (tempFile == null) return;
+        try {
+            Files.deleteIfExists(tempFile);
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.example.service.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * coalesces concurrent identical lookups: while a call for a key is in flight, callers with the same key
+ * get its result (or its failure) instead of making their own. Nothing is kept once the call completes,
+ * caching the answer is the caller's business.
+ * --------
+ * keys should be normalized by the caller (case, whitespace), only equal keys are merged.
+ * --------
+ * metrics: single-flight.calls (calls made), single-flight.merged (callers that shared another one's call)
+ * and single-flight.in-flight, tagged name=X.
+ */
+public class SingleFlight<K, V> {
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder merged = new LongAdder();
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        FunctionCounter.builder("single-flight.calls", calls, LongAdder::sum)
+                .description("lookups actually made")
+                .tag("name", name)
+                .register(meterRegistry);
+        FunctionCounter.builder("single-flight.merged", merged, LongAdder::sum)
+                .description("lookups answered by a concurrent identical one")
+                .tag("name", name)
+                .register(meterRegistry);
+        Gauge.builder("single-flight.in-flight", inFlight, Map::size)
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * runs {@code loader} on the calling thread unless the same key is already in flight, then waits for
+     * that call instead. A failure is rethrown to every caller that shared the call.
+     */
+    public V get(K key, Supplier<V> loader) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, call);
+        if (running != null) {
+            merged.increment();
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) throw cause;
+                if (e.getCause() instanceof Error cause) throw cause;
+                throw e;
+            }
+        }
+
+        calls.increment();
+        try {
+            V value = loader.get();
+            call.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    /**
+     * {@link #get} for lookups that complete asynchronously: the key is in flight until the loader's future
+     * completes. Every caller gets its own copy, cancelling it doesn't affect the others.
+     */
+    public CompletableFuture<V> getAsync(K key, Supplier<CompletableFuture<V>> loader) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, call);
+        if (running != null) {
+            merged.increment();
+            return running.copy();
+        }
+
+        calls.increment();
+        try {
+            loader.get().whenComplete((value, error) -> {
+                inFlight.remove(key, call);
+                if (error != null) call.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+                else call.complete(value);
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, call);
+            call.completeExceptionally(e);
+        }
+        return call.copy();
+    }
+
+    public long calls() {
+        return calls.sum();
+    }
+
+    public long merged() {
+        return merged.sum();
+    }
+}
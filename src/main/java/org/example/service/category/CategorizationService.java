@@ -0,0 +1,130 @@
+package org.example.service.category;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.domain.entity.category.CategoryStatus;
+import org.example.domain.entity.expense.ExpenseEntity;
+import org.example.repository.ExpenseRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * the queue of expenses saved without a category (category_status PENDING), drained by
+ * {@link CategorizationWorker}.
+ * --------
+ * rows are claimed with "select ... for update skip locked" and flipped to RUNNING, so any number of nodes
+ * drain the same table; the lookup itself runs outside of any transaction. A row whose category can't be
+ * found is retried after category.async.retry-delay-seconds, doubled on every attempt, and after
+ * category.async.max-attempts it is given up on: FAILED with category "unknown" (the dead letters, see
+ * {@link #backfill(boolean)}). Results are written with one update per distinct category.
+ */
+@Slf4j
+@Service
+public class CategorizationService {
+    private final ExpenseRepository expenseRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${category.async.max-attempts:5}")
+    private int maxAttempts = 5;
+    @Value("${category.async.retry-delay-seconds:30}")
+    private long retryDelaySeconds = 30;
+
+    public CategorizationService(ExpenseRepository expenseRepository, MeterRegistry meterRegistry) {
+        this.expenseRepository = expenseRepository;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Transactional
+    public List<ExpenseEntity> claim(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<ExpenseEntity> expenses = expenseRepository.claimUncategorized(now, limit);
+        for (ExpenseEntity expense : expenses) {
+            expense.setCategoryStatus(CategoryStatus.RUNNING);
+            expense.setCategoryLockedAt(now);
+            expense.setCategoryAttempts(expense.getCategoryAttempts() == null ? 1 : expense.getCategoryAttempts() + 1);
+        }
+        return expenseRepository.saveAll(expenses);
+    }
+
+    /**
+     * writes the categories found for claimed rows back, rows without one (missing or null) are retried.
+     */
+    @Transactional
+    public void complete(List<ExpenseEntity> claimed, Map<String, String> categories) {
+        Map<String, List<UUID>> done = new HashMap<>();
+        List<UUID> failed = new ArrayList<>();
+        // retry time -> rows, rows with the same attempt count wait equally long
+        Map<LocalDateTime, List<UUID>> retries = new HashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+
+        for (ExpenseEntity expense : claimed) {
+            String category = expense.getProduct() == null ? null : categories.get(expense.getProduct());
+            int attempts = expense.getCategoryAttempts() == null ? 1 : expense.getCategoryAttempts();
+            if (category != null) {
+                done.computeIfAbsent(category, c -> new ArrayList<>()).add(expense.getId());
+            } else if (attempts >= maxAttempts) {
+                failed.add(expense.getId());
+            } else {
+                long delay = retryDelaySeconds << Math.min(attempts - 1, 20);
+                retries.computeIfAbsent(now.plusSeconds(delay), t -> new ArrayList<>()).add(expense.getId());
+            }
+        }
+
+        done.forEach((category, ids) -> expenseRepository.finishCategory(category, CategoryStatus.DONE, ids));
+        if (!failed.isEmpty()) {
+            expenseRepository.finishCategory(CategoryDictionary.UNKNOWN, CategoryStatus.FAILED, failed);
+            log.warn("Gave up categorizing {} expenses after {} attempts", failed.size(), maxAttempts);
+        }
+        retries.forEach((retryAt, ids) -> expenseRepository.retryCategory(CategoryStatus.PENDING, retryAt, ids));
+
+        count("done", done.values().stream().mapToInt(List::size).sum());
+        count("retried", retries.values().stream().mapToInt(List::size).sum());
+        count("failed", failed.size());
+    }
+
+    /**
+     * rows of a node that died mid-batch stay RUNNING unless they are handed back to the queue.
+     */
+    @Transactional
+    public int releaseStale(LocalDateTime threshold) {
+        return expenseRepository.releaseStaleCategories(CategoryStatus.PENDING, CategoryStatus.RUNNING, threshold);
+    }
+
+    /**
+     * queues the expenses without a category (saved before categorization was deferred) and the dead
+     * letters, with {@code includeUnknown} the ones categorized as "unknown" too.
+     * @return the number of queued expenses
+     */
+    @Transactional
+    public int backfill(boolean includeUnknown) {
+        int queued = expenseRepository.backfillCategories(CategoryStatus.PENDING, CategoryStatus.FAILED, includeUnknown);
+        log.info("Queued {} expenses for categorization", queued);
+        return queued;
+    }
+
+    public long pending() {
+        return expenseRepository.countByCategoryStatus(CategoryStatus.PENDING);
+    }
+
+    /**
+     * @return seconds since the oldest pending expense was saved, 0 when none is pending
+     */
+    public long lagSeconds() {
+        LocalDateTime oldest = expenseRepository.findOldestByCategoryStatus(CategoryStatus.PENDING);
+        return oldest == null ? 0 : Math.max(0, Duration.between(oldest, LocalDateTime.now()).toSeconds());
+    }
+
+    private void count(String outcome, int amount) {
+        if (amount > 0) meterRegistry.counter("category.async", "outcome", outcome).increment(amount);
+    }
+
+    public void setRetry_OnlyForTesting(int maxAttempts, long retryDelaySeconds) {
+        this.maxAttempts = maxAttempts;
+        this.retryDelaySeconds = retryDelaySeconds;
+    }
+}
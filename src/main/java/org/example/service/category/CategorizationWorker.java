@@ -0,0 +1,116 @@
+package org.example.service.category;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.domain.entity.expense.ExpenseEntity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * categorizes the expenses saved as PENDING in the background, category.async.workers batches in flight per
+ * node. A batch is category.async.batch-size rows, its products are looked up together
+ * ({@link CategoryDictionary#findAll}, at most one LLM prompt); a worker keeps claiming while it gets full
+ * batches.
+ * --------
+ * metrics: category.async.lag (seconds since the oldest pending expense was saved), category.async.pending,
+ * category.async tagged outcome=done|retried|failed.
+ */
+@Slf4j
+@Component
+public class CategorizationWorker {
+    private final CategorizationService categorizationService;
+    private final CategoryDictionary categoryDictionary;
+    private final ExecutorService executor;
+    private final Semaphore slots;
+    private final AtomicLong lagSeconds = new AtomicLong();
+    private final AtomicLong pending = new AtomicLong();
+
+    @Value("${category.async.batch-size:20}")
+    private int batchSize = 20;
+    @Value("${category.async.stale-after-minutes:10}")
+    private long staleAfterMinutes = 10;
+
+    public CategorizationWorker(CategorizationService categorizationService,
+                                CategoryDictionary categoryDictionary,
+                                MeterRegistry meterRegistry,
+                                @Value("${category.async.workers:2}") int workers) {
+        this.categorizationService = categorizationService;
+        this.categoryDictionary = categoryDictionary;
+        this.executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "categorization");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.slots = new Semaphore(workers);
+        Gauge.builder("category.async.lag", lagSeconds, AtomicLong::get)
+                .description("seconds since the oldest expense waiting for its category was saved")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("category.async.pending", pending, AtomicLong::get)
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${category.async.poll-interval-ms:1000}")
+    public void poll() {
+        lagSeconds.set(categorizationService.lagSeconds());
+        while (slots.tryAcquire()) {
+            executor.execute(() -> {
+                try {
+                    drain();
+                } finally {
+                    slots.release();
+                }
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${category.async.stale-check-interval-ms:60000}")
+    public void releaseStale() {
+        categorizationService.releaseStale(LocalDateTime.now().minusMinutes(staleAfterMinutes));
+        pending.set(categorizationService.pending());
+    }
+
+    void drain() {
+        while (true) {
+            List<ExpenseEntity> batch = categorizationService.claim(batchSize);
+            if (batch.isEmpty()) return;
+            categorize(batch);
+            if (batch.size() < batchSize) return;
+        }
+    }
+
+    private void categorize(List<ExpenseEntity> batch) {
+        Map<String, String> categories;
+        try {
+            categories = categoryDictionary.findAll(batch.stream()
+                    .map(ExpenseEntity::getProduct)
+                    .filter(Objects::nonNull)
+                    .toList());
+        } catch (RuntimeException e) {
+            log.warn("Categorizing {} expenses failed, they are retried", batch.size(), e);
+            categories = Map.of();
+        }
+        categorizationService.complete(batch, categories);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    public void setBatchSize_OnlyForTesting(int batchSize) {
+        this.batchSize = batchSize;
+    }
+}
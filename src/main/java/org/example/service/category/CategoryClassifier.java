@@ -0,0 +1,204 @@
+package org.example.service.category;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.example.repository.ExpenseRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * a local category model trained from the saved expenses, asked by {@link CategoryDictionary} before the
+ * LLM (category.mode=tiered|local).
+ * --------
+ * retrained every category.classifier.retrain-interval-ms from the latest category.classifier.max-samples
+ * categorized expenses, on the training executor and not while category.mode=llm (nothing asks the model then,
+ * POST /category/classifier/train still trains it). Every training also evaluates: a fifth of the products
+ * (picked by their hash, so a product is never on both sides) is held out from a first model, the report has
+ * its accuracy and, per confidence threshold, the share of products it would answer and how many of those
+ * right. The model that serves is then trained on everything.
+ * --------
+ * metrics: category.classifier.classes, category.classifier.samples, category.classifier.training.
+ */
+@Slf4j
+@Service
+public class CategoryClassifier {
+    public record Category(String category, double confidence) {
+    }
+
+    public record ThresholdReport(double threshold, double coverage, double accuracy) {
+    }
+
+    public record Report(LocalDateTime trainedAt, int samples, int classes, int heldOut, double accuracy,
+                         List<ThresholdReport> thresholds) {
+    }
+
+    private static final double[] THRESHOLDS = {0.5, 0.7, 0.8, 0.9, 0.95, 0.99};
+    private static final int PAGE_SIZE = 10000;
+    private static final int HOLD_OUT = 5;
+
+    private final ExpenseRepository expenseRepository;
+    private final Executor trainingExecutor;
+    private final Timer training;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile CategoryModel model;
+    private volatile Report report;
+
+    @Value("${category.mode:llm}")
+    private String mode = "llm";
+    @Value("${category.classifier.max-samples:200000}")
+    private int maxSamples = 200000;
+    @Value("${category.classifier.buckets:65536}")
+    private int buckets = 65536;
+    @Value("${category.classifier.smoothing:0.1}")
+    private double smoothing = 0.1;
+
+    public CategoryClassifier(ExpenseRepository expenseRepository,
+                              @Qualifier("trainingExecutor") Executor trainingExecutor,
+                              MeterRegistry meterRegistry) {
+        this.expenseRepository = expenseRepository;
+        this.trainingExecutor = trainingExecutor;
+        this.training = Timer.builder("category.classifier.training")
+                .description("time to train and evaluate the local category model")
+                .register(meterRegistry);
+        Gauge.builder("category.classifier.classes", this, c -> c.model == null ? 0 : c.model.classes())
+                .register(meterRegistry);
+        Gauge.builder("category.classifier.samples", this, c -> c.report == null ? 0 : c.report.samples())
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return the best category for the product with the model's confidence in it, null without a model
+     */
+    public Category classify(String product) {
+        CategoryModel current = model;
+        String key = CategoryDictionary.normalize(product);
+        if (current == null || key.isEmpty()) return null;
+        CategoryModel.Prediction prediction = current.predict(key);
+        if (prediction == null) return null;
+        return new Category(prediction.label() + "->" + product.trim(), prediction.confidence());
+    }
+
+    @Scheduled(initialDelayString = "${category.classifier.initial-delay-ms:60000}",
+            fixedDelayString = "${category.classifier.retrain-interval-ms:3600000}")
+    public void scheduledRetrain() {
+        if ("llm".equals(mode) || !scheduled.compareAndSet(false, true)) return;
+        try {
+            trainingExecutor.execute(() -> {
+                try {
+                    retrain();
+                } finally {
+                    scheduled.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            scheduled.set(false);
+        }
+    }
+
+    public void retrain() {
+        try {
+            training.record(() -> train(load()));
+        } catch (RuntimeException e) {
+            log.warn("Training the category model failed, keeping the previous one", e);
+        }
+    }
+
+    /**
+     * the evaluation of the latest training, null before the first one.
+     */
+    public Report report() {
+        return report;
+    }
+
+    void train(List<CategoryModel.Sample> samples) {
+        if (samples.isEmpty()) {
+            log.info("No categorized expenses to train the category model with");
+            return;
+        }
+        List<CategoryModel.Sample> trainSet = new ArrayList<>();
+        List<CategoryModel.Sample> testSet = new ArrayList<>();
+        for (CategoryModel.Sample sample : samples) {
+            (Math.floorMod(sample.product().hashCode(), HOLD_OUT) == 0 ? testSet : trainSet).add(sample);
+        }
+        Report evaluated = evaluate(trainSet.isEmpty() ? null : CategoryModel.train(trainSet, buckets, smoothing), testSet);
+
+        CategoryModel trained = CategoryModel.train(samples, buckets, smoothing);
+        model = trained;
+        report = new Report(LocalDateTime.now(), samples.size(), trained.classes(), evaluated.heldOut(),
+                evaluated.accuracy(), evaluated.thresholds());
+        log.info("Category model trained: {}", report);
+    }
+
+    private static Report evaluate(CategoryModel candidate, List<CategoryModel.Sample> testSet) {
+        int correct = 0;
+        int[] answered = new int[THRESHOLDS.length];
+        int[] answeredCorrect = new int[THRESHOLDS.length];
+        for (CategoryModel.Sample sample : testSet) {
+            CategoryModel.Prediction prediction = candidate == null ? null : candidate.predict(sample.product());
+            if (prediction == null) continue;
+            boolean right = prediction.label().equals(sample.label());
+            if (right) correct++;
+            for (int t = 0; t < THRESHOLDS.length; t++) {
+                if (prediction.confidence() < THRESHOLDS[t]) continue;
+                answered[t]++;
+                if (right) answeredCorrect[t]++;
+            }
+        }
+        List<ThresholdReport> thresholds = new ArrayList<>();
+        for (int t = 0; t < THRESHOLDS.length; t++) {
+            thresholds.add(new ThresholdReport(THRESHOLDS[t], ratio(answered[t], testSet.size()),
+                    ratio(answeredCorrect[t], answered[t])));
+        }
+        return new Report(null, 0, 0, testSet.size(), ratio(correct, testSet.size()), thresholds);
+    }
+
+    private List<CategoryModel.Sample> load() {
+        List<CategoryModel.Sample> samples = new ArrayList<>();
+        for (int page = 0; samples.size() < maxSamples; page++) {
+            List<Object[]> rows = expenseRepository.findCategorized(PageRequest.of(page, PAGE_SIZE));
+            for (Object[] row : rows) {
+                CategoryModel.Sample sample = sample((String) row[0], (String) row[1]);
+                if (sample != null && samples.size() < maxSamples) samples.add(sample);
+            }
+            if (rows.size() < PAGE_SIZE) break;
+        }
+        return samples;
+    }
+
+    /**
+     * a product with the prefix of its category ("Food->Dairy" of "Food->Dairy->Milk") as label, null when
+     * the category has no prefix.
+     */
+    static CategoryModel.Sample sample(String product, String category) {
+        String key = CategoryDictionary.normalize(product);
+        if (key.isEmpty() || category == null) return null;
+        int last = category.lastIndexOf("->");
+        if (last <= 0) return null;
+        return new CategoryModel.Sample(key, category.substring(0, last).trim());
+    }
+
+    private static double ratio(int part, int whole) {
+        return whole == 0 ? 0 : (double) part / whole;
+    }
+
+    public void setMode_OnlyForTesting(String mode) {
+        this.mode = mode;
+    }
+
+    public void setModel_OnlyForTesting(int buckets, double smoothing) {
+        this.buckets = buckets;
+        this.smoothing = smoothing;
+    }
+}
@@ -0,0 +1,340 @@
+package org.example.service.category;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.domain.entity.category.CategoryEntity;
+import org.example.domain.entity.category.CategorySource;
+import org.example.repository.CategoryRepository;
+import org.example.repository.ExpenseRepository;
+import org.example.service.MistralAIService;
+import org.example.service.cache.BoundedLruCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * product -> category in front of the LLM. Every extracted product needs a category and most of them
+ * ("milk", "coffee") have been categorized many times before, the LLM is only asked on a true miss.
+ * --------
+ * tiers, the first answer wins: a bounded LRU per node, the categories table (shared between nodes, survives
+ * restarts), the category of the latest saved expense with the same product (only for a product the table has
+ * never seen, an expired entry isn't seeded from the expenses again), a similar known product
+ * ({@link FuzzyCategoryIndex}, "red apples" for a known "apples"), the local model ({@link CategoryClassifier})
+ * when it is confident enough, and only then the LLM.
+ * An answer from a lower tier is written to the ones above it. Keys are normalized products (case, whitespace,
+ * quotes). The products of one utterance are looked up together, the misses of all of them go to the LLM in
+ * one prompt.
+ * --------
+ * entries from the LLM and from expenses expire after category.ttl-days (an "unknown" after
+ * category.unknown-ttl-days) and are looked up again. Manual overrides never expire and aren't replaced.
+ * The LRU keeps an entry at most category.cache.ttl-minutes and then reads the table again, so an override or
+ * a remove made on another node reaches this one within that time.
+ * --------
+ * the fuzzy and the local model's answers aren't stored, they are approximate and answer again in
+ * microseconds. The fuzzy index is per node and in memory, it learns the products stored or found in the
+ * table (category.fuzzy.max-entries of them, 0 turns it off). A known product is checked against the table
+ * again before it answers for a similar one.
+ * --------
+ * category.mode: llm (the local model isn't asked), tiered (the local model above
+ * category.classifier.threshold, the LLM below it) or local (the local model's best guess, never the LLM).
+ * --------
+ * metrics: category.lookups tagged source=memory|table|expenses|fuzzy|classifier|llm|failed,
+ * category.llm.avoided (lookups answered without the LLM), category.fuzzy.size, cache.hits, cache.misses,
+ * cache.evictions and cache.size tagged cache=category.
+ */
+@Slf4j
+@Service
+public class CategoryDictionary {
+    static final String UNKNOWN = "unknown";
+    private static final int MAX_CATEGORY_LENGTH = 1024;
+
+    private final CategoryRepository categoryRepository;
+    private final ExpenseRepository expenseRepository;
+    private final MistralAIService mistralAIService;
+    private final CategoryClassifier classifier;
+    private final MeterRegistry meterRegistry;
+    private final BoundedLruCache<String, Cached> memory;
+    private final FuzzyCategoryIndex similar;
+    private final Counter llmAvoided;
+
+    @Value("${category.ttl-days:90}")
+    private long ttlDays = 90;
+    @Value("${category.unknown-ttl-days:7}")
+    private long unknownTtlDays = 7;
+    @Value("${category.cache.ttl-minutes:5}")
+    private long memoryTtlMinutes = 5;
+    @Value("${category.mode:llm}")
+    private String mode = "llm";
+    @Value("${category.classifier.threshold:0.9}")
+    private double threshold = 0.9;
+
+    public CategoryDictionary(CategoryRepository categoryRepository,
+                              ExpenseRepository expenseRepository,
+                              MistralAIService mistralAIService,
+                              CategoryClassifier classifier,
+                              MeterRegistry meterRegistry,
+                              @Value("${category.cache.size:10000}") int size,
+                              @Value("${category.fuzzy.max-entries:100000}") int fuzzyEntries,
+                              @Value("${category.fuzzy.threshold:0.7}") double fuzzyThreshold) {
+        this.categoryRepository = categoryRepository;
+        this.expenseRepository = expenseRepository;
+        this.mistralAIService = mistralAIService;
+        this.classifier = classifier;
+        this.meterRegistry = meterRegistry;
+        this.memory = new BoundedLruCache<>(size);
+        this.similar = new FuzzyCategoryIndex(fuzzyEntries, fuzzyThreshold);
+        this.llmAvoided = Counter.builder("category.llm.avoided")
+                .description("category lookups answered without calling the LLM")
+                .register(meterRegistry);
+        counter(meterRegistry, "cache.hits", BoundedLruCache::hits);
+        counter(meterRegistry, "cache.misses", BoundedLruCache::misses);
+        counter(meterRegistry, "cache.evictions", BoundedLruCache::evictions);
+        Gauge.builder("cache.size", memory, BoundedLruCache::size)
+                .tag("cache", "category")
+                .register(meterRegistry);
+        Gauge.builder("category.fuzzy.size", similar, FuzzyCategoryIndex::size)
+                .description("products in the fuzzy category index")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return the product's category, "unknown" for what the LLM doesn't take for a product, null when the
+     * LLM couldn't be asked (nothing is stored then)
+     */
+    public String find(String product) {
+        if (product == null) return UNKNOWN;
+        return findAll(List.of(product)).get(product);
+    }
+
+    /**
+     * {@link #find(String)} for all the products of an utterance: the ones no tier knows are sent to the LLM
+     * together, a single miss with the one-product prompt.
+     * @return product (as given) -> category, null values as in find
+     */
+    public Map<String, String> findAll(Collection<String> products) {
+        Map<String, String> categories = new HashMap<>();
+        // normalized key -> the product as given, for the prompt
+        Map<String, String> misses = new LinkedHashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (String product : products) {
+            if (product == null || categories.containsKey(product)) continue;
+            String key = normalize(product);
+            if (key.isEmpty()) {
+                categories.put(product, UNKNOWN);
+                continue;
+            }
+            if (misses.containsKey(key)) continue;
+            String known = known(product, key, now);
+            if (known != null) categories.put(product, known);
+            else misses.put(key, product);
+        }
+        if (misses.isEmpty()) return categories;
+
+        Map<String, String> answers = askLlm(new ArrayList<>(misses.values()));
+        Map<String, String> resolved = new HashMap<>();
+        misses.forEach((key, product) -> resolved.put(key, fromLlm(key, answers.get(product))));
+        for (String product : products) {
+            if (product != null && !categories.containsKey(product)) {
+                categories.put(product, resolved.get(normalize(product)));
+            }
+        }
+        return categories;
+    }
+
+    // the first tiers, null when none of them knows the product
+    private String known(String product, String key, LocalDateTime now) {
+        Cached cached = memory.get(key);
+        if (cached != null && !cached.isExpired(now)) return answered("memory", cached.category());
+
+        Optional<CategoryEntity> stored = categoryRepository.findByProduct(key);
+        if (stored.isPresent() && !isExpired(stored.get(), now)) {
+            memory.put(key, cached(stored.get().getCategory(), stored.get().getExpiresAt()));
+            learn(key, stored.get().getCategory());
+            return answered("table", stored.get().getCategory());
+        }
+
+        // an expired entry is looked up again, the expenses would mostly hand back the category it expired with
+        if (stored.isEmpty()) {
+            List<String> saved = expenseRepository.findCategoriesByProduct(key, PageRequest.of(0, 1));
+            if (!saved.isEmpty()) {
+                store(key, saved.get(0), CategorySource.EXPENSE);
+                return answered("expenses", saved.get(0));
+            }
+        }
+
+        FuzzyCategoryIndex.Match match = similar(key, now);
+        if (match != null) return answered("fuzzy", match.category(product));
+
+        if (!"llm".equals(mode)) {
+            CategoryClassifier.Category local = classifier.classify(product);
+            if (local != null && ("local".equals(mode) || local.confidence() >= threshold)) {
+                return answered("classifier", local.category());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * the most similar known product, checked against the table before it answers for another one: the index
+     * only hears about this node's stores and removes, so a neighbour removed, expired or recategorized on
+     * another node is dropped or indexed again with its current category.
+     */
+    private FuzzyCategoryIndex.Match similar(String key, LocalDateTime now) {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            FuzzyCategoryIndex.Match match = similar.find(key);
+            // the product itself is the exact tiers' business, an expired entry has to be looked up again
+            if (match == null || match.product().equals(key)) return null;
+
+            String current = current(match.product(), now);
+            int last = current == null ? -1 : current.lastIndexOf("->");
+            if (last > 0 && current.substring(0, last).trim().equals(match.prefix())) return match;
+            similar.remove(match.product());
+            if (current != null) learn(match.product(), current);
+        }
+        return null;
+    }
+
+    // the product's category as the exact tiers see it, null when it is gone or expired
+    private String current(String key, LocalDateTime now) {
+        Cached cached = memory.get(key);
+        if (cached != null && !cached.isExpired(now)) return cached.category();
+
+        Optional<CategoryEntity> stored = categoryRepository.findByProduct(key);
+        if (stored.isEmpty() || isExpired(stored.get(), now)) return null;
+        memory.put(key, cached(stored.get().getCategory(), stored.get().getExpiresAt()));
+        return stored.get().getCategory();
+    }
+
+    // local mode never asks, every miss fails
+    private Map<String, String> askLlm(List<String> products) {
+        if ("local".equals(mode)) return Map.of();
+        if (products.size() == 1) {
+            return Collections.singletonMap(products.get(0), mistralAIService.findCategory(products.get(0)));
+        }
+        return mistralAIService.findCategories(products);
+    }
+
+    private String fromLlm(String key, String answer) {
+        if (answer == null || answer.isBlank()) {
+            lookup("failed");
+            return null;
+        }
+        String category = answer.trim();
+        if (category.length() > MAX_CATEGORY_LENGTH) category = category.substring(0, MAX_CATEGORY_LENGTH);
+        store(key, category, CategorySource.LLM);
+        lookup("llm");
+        return category;
+    }
+
+    /**
+     * sets the product's category for good, the LLM and the expenses are no longer consulted for it.
+     */
+    public void override(String product, String category) {
+        String key = normalize(product);
+        if (key.isEmpty()) throw new RuntimeException("Product is empty");
+        if (category == null || category.isBlank()) throw new RuntimeException("Category is empty");
+        store(key, category.trim(), CategorySource.MANUAL);
+        log.info("Category of '{}' overridden with '{}'", key, category.trim());
+    }
+
+    /**
+     * forgets the product (an override too), the next lookup starts over.
+     */
+    public void remove(String product) {
+        String key = normalize(product);
+        memory.remove(key);
+        similar.remove(key);
+        categoryRepository.findByProduct(key).ifPresent(categoryRepository::delete);
+    }
+
+    public static String normalize(String product) {
+        if (product == null) return "";
+        return product.toLowerCase(Locale.ROOT)
+                .replaceAll("[\"“”‘’`]", "")
+                .replaceAll("\\s+", " ")
+                .trim();
+    }
+
+    private void store(String key, String category, CategorySource source) {
+        LocalDateTime expiresAt = source == CategorySource.MANUAL ? null
+                : LocalDateTime.now().plusDays(UNKNOWN.equalsIgnoreCase(category) ? unknownTtlDays : ttlDays);
+
+        Optional<CategoryEntity> existing = categoryRepository.findByProduct(key);
+        if (existing.isPresent() && source != CategorySource.MANUAL
+                && existing.get().getSource() == CategorySource.MANUAL) {
+            // overridden meanwhile on another node
+            memory.put(key, cached(existing.get().getCategory(), null));
+            return;
+        }
+        memory.put(key, cached(category, expiresAt));
+        learn(key, category);
+
+        CategoryEntity entity = existing.orElseGet(() -> CategoryEntity.builder().product(key).build());
+        entity.setCategory(category);
+        entity.setSource(source);
+        entity.setExpiresAt(expiresAt);
+        try {
+            categoryRepository.save(entity);
+        } catch (DataIntegrityViolationException ignored) {
+            // another node stored the product in the meantime
+        }
+    }
+
+    // the node's copy expires before the entry does, the table is where other nodes' changes show up
+    private Cached cached(String category, LocalDateTime expiresAt) {
+        LocalDateTime local = LocalDateTime.now().plusMinutes(memoryTtlMinutes);
+        return new Cached(category, expiresAt != null && expiresAt.isBefore(local) ? expiresAt : local);
+    }
+
+    private void learn(String key, String category) {
+        if (!UNKNOWN.equalsIgnoreCase(category)) similar.put(key, category);
+    }
+
+    private String answered(String source, String category) {
+        lookup(source);
+        llmAvoided.increment();
+        return category;
+    }
+
+    private void lookup(String source) {
+        meterRegistry.counter("category.lookups", "source", source).increment();
+    }
+
+    private static boolean isExpired(CategoryEntity entity, LocalDateTime now) {
+        return entity.getExpiresAt() != null && entity.getExpiresAt().isBefore(now);
+    }
+
+    private void counter(MeterRegistry meterRegistry, String name, ToDoubleFunction<BoundedLruCache<String, Cached>> count) {
+        FunctionCounter.builder(name, memory, count)
+                .tag("cache", "category")
+                .register(meterRegistry);
+    }
+
+    public void setMode_OnlyForTesting(String mode, double threshold) {
+        this.mode = mode;
+        this.threshold = threshold;
+    }
+
+    public void setTtl_OnlyForTesting(long ttlDays, long unknownTtlDays) {
+        this.ttlDays = ttlDays;
+        this.unknownTtlDays = unknownTtlDays;
+    }
+
+    public void setMemoryTtl_OnlyForTesting(long minutes) {
+        this.memoryTtlMinutes = minutes;
+    }
+
+    private record Cached(String category, LocalDateTime expiresAt) {
+        boolean isExpired(LocalDateTime now) {
+            return !expiresAt.isAfter(now);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package org.example.service.category;
+
+import java.util.*;
+
+/**
+ * multinomial naive Bayes over hashed character n-grams of the product, immutable once trained.
+ * --------
+ * classes are category prefixes ("Food->Dairy" of "Food->Dairy->Milk"), the product is the last part of
+ * every category anyway. Features are the 2..4-grams of " product " and its whole words, hashed into
+ * {@code buckets} slots, so nothing but primitive arrays is kept: for every bucket the classes seen with it
+ * and the log-likelihood over the unseen one (CSR layout). Scoring a product allocates nothing but the
+ * score array.
+ */
+final class CategoryModel {
+    record Sample(String product, String label) {
+    }
+
+    record Prediction(String label, double confidence) {
+    }
+
+    private static final int MIN_GRAM = 2;
+    private static final int MAX_GRAM = 4;
+    private static final int WORD_SEED = 0x9E3779B9;
+
+    private final String[] labels;
+    private final int buckets;
+    // per class: log prior, log-likelihood of a feature not seen with it
+    private final double[] logPrior;
+    private final double[] logUnseen;
+    // bucket b's classes are classIds[offsets[b] .. offsets[b + 1]), with their log-likelihood minus logUnseen
+    private final int[] offsets;
+    private final int[] classIds;
+    private final float[] weights;
+
+    private CategoryModel(String[] labels, int buckets, double[] logPrior, double[] logUnseen,
+                          int[] offsets, int[] classIds, float[] weights) {
+        this.labels = labels;
+        this.buckets = buckets;
+        this.logPrior = logPrior;
+        this.logUnseen = logUnseen;
+        this.offsets = offsets;
+        this.classIds = classIds;
+        this.weights = weights;
+    }
+
+    /**
+     * @param alpha additive smoothing of the feature counts
+     */
+    static CategoryModel train(List<Sample> samples, int buckets, double alpha) {
+        Map<String, Integer> classOf = new HashMap<>();
+        List<String> labels = new ArrayList<>();
+        int[] documents = new int[0];
+        double[] features = new double[0];
+        // bucket -> class -> count, sparse while training
+        Map<Integer, Map<Integer, Integer>> counts = new HashMap<>();
+
+        for (Sample sample : samples) {
+            Integer id = classOf.get(sample.label());
+            if (id == null) {
+                id = labels.size();
+                classOf.put(sample.label(), id);
+                labels.add(sample.label());
+                documents = Arrays.copyOf(documents, labels.size());
+                features = Arrays.copyOf(features, labels.size());
+            }
+            int classId = id;
+            documents[classId]++;
+            for (int bucket : features(sample.product(), buckets)) {
+                counts.computeIfAbsent(bucket, b -> new HashMap<>()).merge(classId, 1, Integer::sum);
+                features[classId]++;
+            }
+        }
+
+        int classes = labels.size();
+        double[] logPrior = new double[classes];
+        double[] logUnseen = new double[classes];
+        for (int c = 0; c < classes; c++) {
+            logPrior[c] = Math.log((double) documents[c] / samples.size());
+            logUnseen[c] = Math.log(alpha / (features[c] + alpha * buckets));
+        }
+
+        int[] offsets = new int[buckets + 1];
+        int pairs = 0;
+        for (Map<Integer, Integer> byClass : counts.values()) pairs += byClass.size();
+        int[] classIds = new int[pairs];
+        float[] weights = new float[pairs];
+        int next = 0;
+        for (int b = 0; b < buckets; b++) {
+            offsets[b] = next;
+            Map<Integer, Integer> byClass = counts.get(b);
+            if (byClass == null) continue;
+            for (Map.Entry<Integer, Integer> count : byClass.entrySet()) {
+                int c = count.getKey();
+                classIds[next] = c;
+                weights[next] = (float) (Math.log((count.getValue() + alpha) / (features[c] + alpha * buckets)) - logUnseen[c]);
+                next++;
+            }
+        }
+        offsets[buckets] = next;
+        return new CategoryModel(labels.toArray(String[]::new), buckets, logPrior, logUnseen, offsets, classIds, weights);
+    }
+
+    /**
+     * @return the most likely label with its posterior probability, null for an empty model or product
+     */
+    Prediction predict(String product) {
+        if (labels.length == 0 || product == null || product.isBlank()) return null;
+        int[] features = features(product, buckets);
+        double[] scores = new double[labels.length];
+        for (int c = 0; c < scores.length; c++) {
+            scores[c] = logPrior[c] + features.length * logUnseen[c];
+        }
+        for (int bucket : features) {
+            for (int i = offsets[bucket]; i < offsets[bucket + 1]; i++) {
+                scores[classIds[i]] += weights[i];
+            }
+        }
+
+        int best = 0;
+        for (int c = 1; c < scores.length; c++) {
+            if (scores[c] > scores[best]) best = c;
+        }
+        double sum = 0;
+        for (double score : scores) sum += Math.exp(score - scores[best]);
+        return new Prediction(labels[best], 1 / sum);
+    }
+
+    int classes() {
+        return labels.length;
+    }
+
+    /**
+     * the buckets of a normalized product's n-grams and words, hashed without building substrings.
+     */
+    static int[] features(String product, int buckets) {
+        int length = product.length() + 2;
+        int[] features = new int[length * (MAX_GRAM - MIN_GRAM + 1) + length];
+        int count = 0;
+        for (int start = 0; start < length; start++) {
+            int hash = 0;
+            for (int n = 1; n <= MAX_GRAM && start + n <= length; n++) {
+                hash = 31 * hash + charAt(product, start + n - 1);
+                if (n >= MIN_GRAM) features[count++] = bucket(hash * 17 + n, buckets);
+            }
+        }
+        int hash = WORD_SEED;
+        for (int i = 0; i <= product.length(); i++) {
+            char c = i < product.length() ? product.charAt(i) : ' ';
+            if (c != ' ') {
+                hash = 31 * hash + c;
+            } else if (hash != WORD_SEED) {
+                features[count++] = bucket(hash, buckets);
+                hash = WORD_SEED;
+            }
+        }
+        return Arrays.copyOf(features, count);
+    }
+
+    // the product padded with a space on both sides
+    private static char charAt(String product, int index) {
+        return index == 0 || index > product.length() ? ' ' : product.charAt(index - 1);
+    }
+
+    private static int bucket(int hash, int buckets) {
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        return Math.floorMod(hash, buckets);
+    }
+}
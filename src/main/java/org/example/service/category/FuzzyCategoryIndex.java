@@ -0,0 +1,251 @@
+package org.example.service.category;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * approximate product -> category index for the modifier variants an exact key misses ("red apples",
+ * "green apple" for a known "apples"). Products are compared by the Jaccard similarity of their character
+ * 3-grams, estimated with MinHash signatures; LSH banding finds the candidates without a scan.
+ * --------
+ * a lookup tries the whole product, then its last and its first word (the head noun in English and in the
+ * Romance languages, modifiers come from "amod"/"compound"). The best candidate at or above
+ * {@code threshold} wins, its category prefix ("Food->Fruit") is what the asked product inherits.
+ * --------
+ * {@value #HASHES} hashes in {@value #BANDS} bands of {@value #ROWS} rows: pairs at similarity 0.6 become
+ * candidates with probability 0.7, at 0.3 with 0.06. Everything is kept in primitive arrays (signatures,
+ * bucket chains), plus one String per product and one per distinct prefix. Once {@code maxEntries} products
+ * are indexed new ones are dropped, known ones are still updated.
+ */
+public class FuzzyCategoryIndex {
+    public record Match(String product, String prefix, double similarity) {
+        /**
+         * @return the category for the asked product, "Food->Fruit->red apples"
+         */
+        public String category(String asked) {
+            return prefix + "->" + asked;
+        }
+    }
+
+    static final int HASHES = 32;
+    static final int BANDS = 8;
+    static final int ROWS = HASHES / BANDS;
+    private static final int SHINGLE = 3;
+    // candidates compared per band, the newest first: a crowded bucket (many products sharing a word) costs
+    // a bounded amount
+    private static final int MAX_CANDIDATES = 16;
+    private static final int[] SEEDS_A = new int[HASHES];
+    private static final int[] SEEDS_B = new int[HASHES];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED);
+        for (int i = 0; i < HASHES; i++) {
+            SEEDS_A[i] = random.nextInt() | 1;
+            SEEDS_B[i] = random.nextInt();
+        }
+    }
+
+    private final int maxEntries;
+    private final double threshold;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final Map<String, String> prefixes = new HashMap<>();
+
+    private int size;
+    private String[] products = new String[16];
+    private String[] categories = new String[16];
+    // entry e's signature is signatures[e * HASHES .. (e + 1) * HASHES)
+    private int[] signatures = new int[16 * HASHES];
+    // slot e * BANDS + b is entry e in band b's bucket, next[slot] the next slot in the same bucket (-1: end)
+    private int[] next = new int[16 * BANDS];
+    private int[] heads = newHeads(64);
+
+    public FuzzyCategoryIndex(int maxEntries, double threshold) {
+        this.maxEntries = maxEntries;
+        this.threshold = threshold;
+    }
+
+    /**
+     * indexes a normalized product with its category ("main->sub->product"), categories without a prefix
+     * are ignored.
+     */
+    public void put(String product, String category) {
+        int last = category == null ? -1 : category.lastIndexOf("->");
+        if (product == null || product.isEmpty() || last <= 0) return;
+        String prefix = category.substring(0, last).trim();
+
+        lock.writeLock().lock();
+        try {
+            String shared = prefixes.computeIfAbsent(prefix, p -> p);
+            Integer id = ids.get(product);
+            if (id != null) {
+                categories[id] = shared;
+                return;
+            }
+            if (size >= maxEntries) return;
+
+            grow();
+            int entry = size++;
+            ids.put(product, entry);
+            products[entry] = product;
+            categories[entry] = shared;
+            signature(product, signatures, entry * HASHES);
+            link(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String product) {
+        lock.writeLock().lock();
+        try {
+            Integer id = ids.get(product);
+            // the slot stays in its buckets, a category no lookup accepts takes it out
+            if (id != null) categories[id] = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the most similar known product at or above the threshold (the whole product, else its last or
+     * first word), null if there is none
+     */
+    public Match find(String product) {
+        if (product == null || product.isEmpty()) return null;
+        int[] query = new int[HASHES];
+        lock.readLock().lock();
+        try {
+            if (size == 0) return null;
+            Match match = best(product, query);
+            int space = product.lastIndexOf(' ');
+            if (match == null && space > 0) match = best(product.substring(space + 1), query);
+            if (match == null && space > 0) match = best(product.substring(0, product.indexOf(' ')), query);
+            return match;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * bytes held by the arrays (allocated capacity, not only the used part), without the product strings.
+     */
+    public long arrayBytes() {
+        lock.readLock().lock();
+        try {
+            return 4L * (signatures.length + next.length + heads.length) + 8L * (products.length + categories.length);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Match best(String product, int[] query) {
+        signature(product, query, 0);
+        int bestEntry = -1;
+        int bestEqual = 0;
+        for (int band = 0; band < BANDS; band++) {
+            int hash = bandHash(query, 0, band);
+            int candidates = 0;
+            for (int slot = heads[bucket(hash, band)]; slot >= 0 && candidates < MAX_CANDIDATES; slot = next[slot]) {
+                if (slot % BANDS != band) continue;
+                candidates++;
+                int entry = slot / BANDS;
+                if (entry == bestEntry || categories[entry] == null) continue;
+                int equal = 0;
+                int offset = entry * HASHES;
+                for (int i = 0; i < HASHES; i++) {
+                    if (signatures[offset + i] == query[i]) equal++;
+                }
+                if (equal > bestEqual) {
+                    bestEqual = equal;
+                    bestEntry = entry;
+                }
+            }
+        }
+        double similarity = (double) bestEqual / HASHES;
+        if (bestEntry < 0 || similarity < threshold) return null;
+        return new Match(products[bestEntry], categories[bestEntry], similarity);
+    }
+
+    private void grow() {
+        if (size == products.length) {
+            int capacity = products.length * 2;
+            products = Arrays.copyOf(products, capacity);
+            categories = Arrays.copyOf(categories, capacity);
+            signatures = Arrays.copyOf(signatures, capacity * HASHES);
+            next = Arrays.copyOf(next, capacity * BANDS);
+        }
+        // about one slot per bucket
+        if ((size + 1) * BANDS > heads.length) {
+            heads = newHeads(heads.length * 2);
+            for (int entry = 0; entry < size; entry++) link(entry);
+        }
+    }
+
+    private void link(int entry) {
+        for (int band = 0; band < BANDS; band++) {
+            int slot = entry * BANDS + band;
+            int bucket = bucket(bandHash(signatures, entry * HASHES, band), band);
+            next[slot] = heads[bucket];
+            heads[bucket] = slot;
+        }
+    }
+
+    private int bucket(int bandHash, int band) {
+        return mix(bandHash + band * 0x9E3779B9) & (heads.length - 1);
+    }
+
+    private static int bandHash(int[] signature, int offset, int band) {
+        int hash = 1;
+        for (int row = 0; row < ROWS; row++) {
+            hash = 31 * hash + signature[offset + band * ROWS + row];
+        }
+        return hash;
+    }
+
+    /**
+     * the MinHash signature of the 3-grams of " product ", written to {@code target} at {@code offset}.
+     */
+    static void signature(String product, int[] target, int offset) {
+        Arrays.fill(target, offset, offset + HASHES, Integer.MAX_VALUE);
+        int length = product.length() + 2;
+        for (int start = 0; start + SHINGLE <= length; start++) {
+            int shingle = 0;
+            for (int i = start; i < start + SHINGLE; i++) {
+                shingle = 31 * shingle + (i == 0 || i > product.length() ? ' ' : product.charAt(i - 1));
+            }
+            for (int h = 0; h < HASHES; h++) {
+                int value = mix(shingle * SEEDS_A[h] + SEEDS_B[h]);
+                if (value < target[offset + h]) target[offset + h] = value;
+            }
+        }
+    }
+
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    private static int[] newHeads(int capacity) {
+        int[] heads = new int[capacity];
+        Arrays.fill(heads, -1);
+        return heads;
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.service.extraction;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.domain.request.ExpenseRequest;
+import org.example.service.cache.BoundedLruCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * normalized transcript -> extracted expenses. Short phrases ("coffee for 3 dollars") recur across users
+ * all day, they are annotated once per node instead of once per request.
+ * --------
+ * the key ignores case, runs of whitespace, quotes and trailing punctuation but keeps what can change the
+ * parse: sentence ends, commas and decimal points. Entries are immutable snapshots, every caller gets its
+ * own ExpenseRequest copies (they are mutable and get passed on to the persistence layer).
+ * Cleared on a {@link LexiconChangedEvent}.
+ * --------
+ * metrics: cache.hits, cache.misses, cache.evictions and cache.size tagged cache=extraction.
+ */
+@Slf4j
+@Component
+public class ExtractionCache {
+    private final BoundedLruCache<String, List<Extracted>> entries;
+
+    public ExtractionCache(@Value("${extraction.cache.size:20000}") int size, MeterRegistry meterRegistry) {
+        this.entries = new BoundedLruCache<>(size);
+        counter(meterRegistry, "cache.hits", BoundedLruCache::hits);
+        counter(meterRegistry, "cache.misses", BoundedLruCache::misses);
+        counter(meterRegistry, "cache.evictions", BoundedLruCache::evictions);
+        Gauge.builder("cache.size", entries, BoundedLruCache::size)
+                .tag("cache", "extraction")
+                .register(meterRegistry);
+    }
+
+    /**
+     * the cached expenses for {@code text}, otherwise the result of {@code extractor} (cached for next time).
+     */
+    public List<ExpenseRequest> get(String text, Function<String, List<ExpenseRequest>> extractor) {
+        if (text == null) return extractor.apply(null);
+
+        String key = normalize(text);
+        List<Extracted> cached = entries.get(key);
+        if (cached == null) {
+            cached = snapshot(extractor.apply(text));
+            entries.put(key, cached);
+        }
+        return cached.stream().map(Extracted::toRequest).toList();
+    }
+
+    @EventListener(LexiconChangedEvent.class)
+    public void invalidateAll(LexiconChangedEvent event) {
+        log.info("Extraction cache cleared: {}", event.reason());
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT)
+                .replaceAll("[!?]+", ".")
+                .replaceAll("[\"“”‘’`]", "")
+                .replaceAll("\\s+([.,])", "$1")
+                .replaceAll("\\s+", " ")
+                .replaceAll("[.,\\s]+$", "")
+                .trim();
+    }
+
+    private static List<Extracted> snapshot(List<ExpenseRequest> expenses) {
+        return expenses.stream()
+                .map(e -> new Extracted(e.getProduct(), e.getPrice(), e.getQuantity()))
+                .toList();
+    }
+
+    private void counter(MeterRegistry meterRegistry, String name, ToDoubleFunction<BoundedLruCache<String, List<Extracted>>> count) {
+        FunctionCounter.builder(name, entries, count)
+                .tag("cache", "extraction")
+                .register(meterRegistry);
+    }
+
+    private record Extracted(String product, String price, String quantity) {
+        ExpenseRequest toRequest() {
+            return new ExpenseRequest(product, price, quantity);
+        }
+    }
+}
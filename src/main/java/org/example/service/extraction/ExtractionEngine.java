@@ -0,0 +1,171 @@
+package org.example.service.extraction;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.pipeline.CoreDocument;
+import edu.stanford.nlp.pipeline.CoreSentence;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.semgraph.SemanticGraphEdge;
+import org.example.domain.request.ExpenseRequest;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * the CoreNLP extraction: product names from the dependency parse, quantity and price from the sentence's
+ * {@link SpanIndex}, each product gets the spans closest to it.
+ * --------
+ * it runs for every sentence that misses the cache and the fast path, so the per-sentence work is kept to
+ * one pass over the tokens (spans), one pass over the edges (objects of shopping verbs) and the outgoing
+ * edges of each product head. Lookup sets are constants, relations are compared by their short name (no
+ * toString per edge) and a product without modifiers is just its head word. No Spring, no state: one
+ * instance per language is shared by all threads.
+ * --------
+ * the Spanish, French, German and Italian models tag with universal POS tags (NOUN, VERB) where English
+ * uses Penn tags (NN, VBD), both are accepted.
+ */
+public class ExtractionEngine {
+    private static final Set<String> NOUN_TAGS = Set.of("NN", "NNS", "NNP", "NNPS", "NOUN", "PROPN");
+    private static final Set<String> MODIFIER_RELATIONS = Set.of("amod", "compound");
+    private static final Comparator<IndexedWord> BY_INDEX = Comparator.comparingInt(IndexedWord::index);
+
+    private final Set<String> productVerbs;
+
+    public ExtractionEngine() {
+        this(ExtractionLexicon.PRODUCT_VERBS);
+    }
+
+    /**
+     * @param productVerbs the shopping verbs of the sentences' language, lemmas and inflected forms
+     */
+    public ExtractionEngine(Set<String> productVerbs) {
+        this.productVerbs = productVerbs;
+    }
+
+    public List<ExpenseRequest> extract(CoreDocument document) {
+        List<ExpenseRequest> productInfoList = new ArrayList<>();
+        for (CoreSentence sentence : document.sentences()) {
+            extract(sentence, productInfoList);
+        }
+        return productInfoList;
+    }
+
+    /**
+     * adds the products of one sentence to {@code out}.
+     */
+    public void extract(CoreSentence sentence, List<ExpenseRequest> out) {
+        SemanticGraph dependencies = sentence.dependencyParse();
+        if (dependencies == null) return;
+        SpanIndex spans = SpanIndex.of(sentence.tokens(), sentence.text());
+
+        if (hasVerbs(sentence)) {
+            extractFromVerbSentence(dependencies, spans, out);
+        } else {
+            extractFromNounPhrase(dependencies, spans, out);
+        }
+    }
+
+    /**
+     * a verb is any token with a VB* or VERB tag (CoreLabel represents a single word with its annotation,
+     * e.g. NN-noun, VB-verb).
+     */
+    boolean hasVerbs(CoreSentence sentence) {
+        for (CoreLabel token : sentence.tokens()) {
+            String tag = token.get(CoreAnnotations.PartOfSpeechAnnotation.class);
+            if (tag != null && (tag.startsWith("VB") || tag.equals("VERB"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * "obj" edges connect a verb to its object ("bought" -> "laptop" in "I bought a laptop"). The governor's
+     * lemma ("bought" -> "buy") is checked against the shopping verbs, the dependent and the nouns conjoined
+     * with it ("mouse and laptop") are the products. Objects are taken in sentence order.
+     */
+    void extractFromVerbSentence(SemanticGraph dependencies, SpanIndex spans, List<ExpenseRequest> out) {
+        List<IndexedWord> objects = null;
+        for (SemanticGraphEdge edge : dependencies.edgeIterable()) {
+            if ("obj".equals(edge.getRelation().getShortName())
+                    && isProductVerb(edge.getGovernor())) {
+                if (objects == null) objects = new ArrayList<>(2);
+                objects.add(edge.getDependent());
+            }
+        }
+        if (objects == null) return;
+        if (objects.size() > 1) objects.sort(BY_INDEX);
+
+        for (IndexedWord obj : objects) {
+            addConjoined(obj, dependencies, spans, out);
+        }
+    }
+
+    // pipelines without a lemmatizer leave the lemma unset, the inflected form is looked up then
+    private boolean isProductVerb(IndexedWord verb) {
+        String lemma = verb.lemma();
+        if (lemma != null) return productVerbs.contains(lemma);
+        return verb.word() != null && productVerbs.contains(verb.word().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * a sentence without verbs ("5kg rice for $20"): the root is the noun (e.g. rice).
+     */
+    void extractFromNounPhrase(SemanticGraph dependencies, SpanIndex spans, List<ExpenseRequest> out) {
+        // getFirstRoot() throws on a graph without roots
+        if (dependencies.getRoots().isEmpty()) return;
+        addConjoined(dependencies.getFirstRoot(), dependencies, spans, out);
+    }
+
+    /**
+     * the noun and the nouns joined to it by "conj" (e.g. "mouse and laptop"). The short name matters,
+     * the enhanced dependencies CoreSentence returns name the relation "conj:and".
+     */
+    void addConjoined(IndexedWord noun, SemanticGraph dependencies, SpanIndex spans, List<ExpenseRequest> out) {
+        out.add(product(noun, dependencies, spans));
+        for (SemanticGraphEdge edge : dependencies.outgoingEdgeIterable(noun)) {
+            IndexedWord dependent = edge.getDependent();
+            if ("conj".equals(edge.getRelation().getShortName()) && NOUN_TAGS.contains(dependent.tag())) {
+                out.add(product(dependent, dependencies, spans));
+            }
+        }
+    }
+
+    ExpenseRequest product(IndexedWord head, SemanticGraph dependencies, SpanIndex spans) {
+        return new ExpenseRequest(productName(head, dependencies),
+                spans.nearestPrice(head.index()),
+                spans.nearestQuantity(head.index()));
+    }
+
+    /**
+     * the head with its "amod" (adjective, "red apple") and "compound" (noun, "laptop bag") modifiers in
+     * sentence order, units ("5 kg rice") are not part of the name.
+     */
+    String productName(IndexedWord head, SemanticGraph dependencies) {
+        List<IndexedWord> words = null;
+        for (SemanticGraphEdge edge : dependencies.outgoingEdgeIterable(head)) {
+            IndexedWord dependent = edge.getDependent();
+            if (MODIFIER_RELATIONS.contains(edge.getRelation().getShortName())
+                    && !ExtractionLexicon.isUnit(dependent.word())) {
+                if (words == null) {
+                    words = new ArrayList<>(4);
+                    words.add(head);
+                }
+                if (!words.contains(dependent)) words.add(dependent);
+            }
+        }
+        if (words == null) return head.word();
+
+        words.sort(BY_INDEX);
+        StringBuilder name = new StringBuilder();
+        for (IndexedWord word : words) {
+            if (!name.isEmpty()) name.append(' ');
+            name.append(word.word());
+        }
+        return name.toString();
+    }
+}
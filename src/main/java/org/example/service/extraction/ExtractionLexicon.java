@@ -0,0 +1,127 @@
+package org.example.service.extraction;
+
+import org.example.service.nlp.Language;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * the words the extraction knows about: shopping verbs here, quantity units and currency terms in
+ * extraction/lexicon.tsv (through {@link LexiconMatcher}).
+ * Shared by the CoreNLP extraction, {@link FastPathExtractor} and ExpenseService, so all of them read the
+ * same quantity, price and currency from the same text.
+ */
+public final class ExtractionLexicon {
+    // lemmas, the CoreNLP path compares them with IndexedWord.lemma()
+    public static final Set<String> PRODUCT_VERBS = Set.of("buy", "purchase", "take", "get", "review", "use");
+    // the inflected forms, the fast path has no lemmatizer
+    public static final Set<String> PRODUCT_VERB_FORMS = Set.of(
+            "buy", "buys", "buying", "bought",
+            "purchase", "purchases", "purchasing", "purchased",
+            "take", "takes", "taking", "took", "taken",
+            "get", "gets", "getting", "got", "gotten",
+            "review", "reviews", "reviewing", "reviewed",
+            "use", "uses", "using", "used");
+
+    public static final LexiconMatcher MATCHER = LexiconMatcher.load("extraction/lexicon.tsv");
+
+    private static volatile Map<Language, Set<String>> otherLanguageVerbs;
+
+    /**
+     * a price as stored with an expense: the amount and the ISO currency code.
+     */
+    public record Price(String amount, String currency) {
+    }
+
+    private ExtractionLexicon() {
+    }
+
+    /**
+     * the shopping verbs of a language, lemmas and inflected forms (extraction/verbs.tsv, read on first use)
+     */
+    public static Set<String> productVerbs(Language language) {
+        if (language == Language.ENGLISH) return PRODUCT_VERBS;
+        if (otherLanguageVerbs == null) otherLanguageVerbs = loadVerbs();
+        return otherLanguageVerbs.getOrDefault(language, Set.of());
+    }
+
+    public static String quantityOf(String text) {
+        return MATCHER.first(text, LexiconMatcher.SpanType.QUANTITY).map(span -> span.text(text)).orElse(null);
+    }
+
+    public static String priceOf(String text) {
+        return MATCHER.first(text, LexiconMatcher.SpanType.PRICE).map(span -> span.text(text)).orElse(null);
+    }
+
+    /**
+     * "$20" -> 20 USD, "2 grand" -> 2000 USD, empty when the text has no price.
+     */
+    public static Optional<Price> parsePrice(String text) {
+        if (text == null || text.isEmpty()) return Optional.empty();
+        return MATCHER.first(text, LexiconMatcher.SpanType.PRICE)
+                .map(span -> new Price(span.amount(text), span.entry().value()));
+    }
+
+    /**
+     * the whole text is one price ("$20", "3 dollars", "20€")
+     */
+    public static boolean isPrice(String text) {
+        return MATCHER.first(text, LexiconMatcher.SpanType.PRICE)
+                .filter(span -> span.start() == 0 && span.end() == text.length())
+                .isPresent();
+    }
+
+    /**
+     * the whole token is a number with a unit ("5kg")
+     */
+    public static boolean isQuantity(String token) {
+        return MATCHER.first(token, LexiconMatcher.SpanType.QUANTITY)
+                .filter(span -> span.start() == 0 && span.end() == token.length())
+                .isPresent();
+    }
+
+    public static boolean isUnit(String word) {
+        return MATCHER.unit(word) != null;
+    }
+
+    public static boolean isCurrencyWord(String word) {
+        return MATCHER.currency(word) != null;
+    }
+
+    /**
+     * a currency term that comes before the amount ("$", "USD")
+     */
+    public static boolean isCurrencyBefore(String word) {
+        LexiconMatcher.Entry currency = MATCHER.currency(word);
+        return currency != null && currency.before();
+    }
+
+    /**
+     * a currency term that comes after the amount ("dollars", "USD", "€")
+     */
+    public static boolean isCurrencyAfter(String word) {
+        LexiconMatcher.Entry currency = MATCHER.currency(word);
+        return currency != null && currency.after();
+    }
+
+    private static Map<Language, Set<String>> loadVerbs() {
+        String content;
+        try {
+            content = new ClassPathResource("extraction/verbs.tsv").getContentAsString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't read extraction/verbs.tsv", e);
+        }
+
+        Map<Language, Set<String>> verbs = new EnumMap<>(Language.class);
+        for (String line : content.lines().toList()) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+            String[] columns = trimmed.split("\\s+");
+            Set<String> words = new HashSet<>(Arrays.asList(columns).subList(1, columns.length));
+            verbs.put(Language.fromCode(columns[0]), Set.copyOf(words));
+        }
+        return verbs;
+    }
+}
@@ -0,0 +1,206 @@
+package org.example.service.extraction;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.example.domain.request.ExpenseRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * extraction for the utterances most traffic looks like, from tokens and {@link ExtractionLexicon} only
+ * (no tagging, no dependency parse).
+ * --------
+ * the grammar it accepts, one sentence:
+ * [I|we] [shopping verb] item (("and"|",") item)* "for" price
+ * item  -> [a|an|the|some] [quantity|count] word{1,3}
+ * price -> "$20" | "$ 20" | "3 dollars" | "20 USD", any price of the lexicon
+ * e.g. "5kg rice for $20", "bought milk and bread for 3 dollars",
+ * "I purchased a new laptop and a logitech mouse for 1200 euros".
+ * The product is the item's words ("new laptop") and its quantity the item's own leading one ("2 liters milk"),
+ * an item without one takes the quantity closest to its last word, by the rule of {@link SpanIndex} (a tie goes
+ * to the one after it), so both paths give a product the same quantity. Quantity and price come from the same
+ * lexicon the CoreNLP path uses. Anything else (another verb, a preposition,
+ * several sentences, an unknown token) falls through to CoreNLP.
+ * --------
+ * metrics: extraction timer tagged path=fast|nlp, its count is the share of traffic per path and its
+ * percentiles compare the latency of the two.
+ */
+@Component
+public class FastPathExtractor {
+    private static final Set<String> SUBJECTS = Set.of("i", "we");
+    private static final Set<String> DETERMINERS = Set.of("a", "an", "the", "some");
+    // words that mean the sentence has more structure than the grammar above
+    private static final Set<String> FUNCTION_WORDS = Set.of(
+            "i", "we", "you", "he", "she", "it", "they", "me", "us", "him", "her", "them", "my", "our", "your", "their",
+            "to", "at", "in", "on", "from", "with", "of", "by", "about", "into", "for", "per", "each",
+            "and", "or", "but", "not", "no", "then", "also", "just", "only", "too", "very",
+            "yesterday", "today", "tonight", "tomorrow", "morning", "evening", "week", "month", "year",
+            "is", "was", "were", "are", "be", "been", "have", "has", "had", "do", "did", "paid", "spent", "cost");
+    private static final Pattern NUMBER = Pattern.compile("\\d+(?:[.,]\\d+)?");
+    private static final Pattern WORD = Pattern.compile("[A-Za-z][A-Za-z'-]*");
+
+    private final Timer fastTimer;
+    private final Timer nlpTimer;
+
+    public FastPathExtractor(MeterRegistry meterRegistry) {
+        this.fastTimer = timer(meterRegistry, "fast");
+        this.nlpTimer = timer(meterRegistry, "nlp");
+    }
+
+    /**
+     * the fast path when the grammar matches, otherwise {@code fallback} (the CoreNLP extraction).
+     */
+    public List<ExpenseRequest> extract(String text, Function<String, List<ExpenseRequest>> fallback) {
+        long start = System.nanoTime();
+        Optional<List<ExpenseRequest>> fast = tryExtract(text);
+        if (fast.isPresent()) {
+            fastTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return fast.get();
+        }
+
+        List<ExpenseRequest> result = fallback.apply(text);
+        nlpTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    /**
+     * @return empty when the text doesn't fit the grammar
+     */
+    public Optional<List<ExpenseRequest>> tryExtract(String text) {
+        if (text == null) return Optional.empty();
+        String sentence = text.trim().replaceAll("[.!?]+$", "");
+        if (sentence.isEmpty() || sentence.matches(".*[.!?;:]\\s.*")) return Optional.empty();
+
+        List<String> tokens = tokenize(sentence);
+        int forIndex = tokens.lastIndexOf("for");
+        if (forIndex <= 0 || !isPrice(tokens.subList(forIndex + 1, tokens.size()))) return Optional.empty();
+
+        int i = 0;
+        boolean subject = SUBJECTS.contains(tokens.get(0));
+        if (subject) i++;
+        if (i < forIndex && ExtractionLexicon.PRODUCT_VERB_FORMS.contains(tokens.get(i))) {
+            i++;
+        } else if (subject) {
+            return Optional.empty();
+        }
+
+        List<String> originalTokens = tokenize(sentence, false);
+        List<Item> items = new ArrayList<>();
+        int itemStart = i;
+        for (int j = i; j <= forIndex; j++) {
+            if (j == forIndex || tokens.get(j).equals("and") || tokens.get(j).equals(",")) {
+                // "milk, eggs, and bread"
+                boolean serialComma = j == itemStart && j > 0 && tokens.get(j).equals("and") && tokens.get(j - 1).equals(",");
+                if (serialComma) {
+                    itemStart = j + 1;
+                    continue;
+                }
+                Item item = item(tokens.subList(itemStart, j), originalTokens.subList(itemStart, j), itemStart);
+                if (item == null) return Optional.empty();
+                items.add(item);
+                itemStart = j + 1;
+            }
+        }
+
+        String price = ExtractionLexicon.priceOf(sentence);
+        List<ExpenseRequest> expenses = new ArrayList<>();
+        for (Item item : items) {
+            String quantity = item.quantity() != null ? item.quantity() : nearestQuantity(items, item.head());
+            expenses.add(new ExpenseRequest(item.product(), price, quantity));
+        }
+        return Optional.of(expenses);
+    }
+
+    // the quantities are the items' own (the price follows "for"), same distance as SpanIndex.nearest
+    private static String nearestQuantity(List<Item> items, int head) {
+        String best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        for (Item item : items) {
+            if (item.quantity() == null) continue;
+            int distance = head < item.quantityFirst() ? item.quantityFirst() - head
+                    : head > item.quantityLast() ? head - item.quantityLast() : 0;
+            boolean after = item.quantityFirst() >= head;
+            if (distance < bestDistance || distance == bestDistance && after) {
+                best = item.quantity();
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @param tokens lower-cased, {@code original} the same tokens as spoken (the product keeps its case),
+     *               {@code offset} the index of the first one in the sentence
+     * @return the item's product and its own quantity (null without one), null when it isn't an item
+     */
+    private static Item item(List<String> tokens, List<String> original, int offset) {
+        int i = 0;
+        if (i < tokens.size() && DETERMINERS.contains(tokens.get(i))) i++;
+        int quantityStart = i;
+        if (i < tokens.size() && ExtractionLexicon.isQuantity(tokens.get(i))) {
+            i++;
+        } else if (i < tokens.size() && NUMBER.matcher(tokens.get(i)).matches()) {
+            i++;
+            if (i < tokens.size() && ExtractionLexicon.isUnit(tokens.get(i))) i++;
+        }
+
+        int words = tokens.size() - i;
+        if (words < 1 || words > 3) return null;
+        for (int j = i; j < tokens.size(); j++) {
+            String token = tokens.get(j);
+            if (!WORD.matcher(token).matches()
+                    || FUNCTION_WORDS.contains(token)
+                    || DETERMINERS.contains(token)
+                    || ExtractionLexicon.isUnit(token)
+                    || ExtractionLexicon.isCurrencyWord(token)
+                    || ExtractionLexicon.PRODUCT_VERB_FORMS.contains(token)) {
+                return null;
+            }
+        }
+        String quantity = i == quantityStart ? null
+                : ExtractionLexicon.quantityOf(String.join(" ", original.subList(quantityStart, i)));
+        return new Item(String.join(" ", original.subList(i, tokens.size())), quantity,
+                offset + quantityStart, offset + i - 1, offset + tokens.size() - 1);
+    }
+
+    private static boolean isPrice(List<String> tokens) {
+        return !tokens.isEmpty() && tokens.size() <= 2 && ExtractionLexicon.isPrice(String.join(" ", tokens));
+    }
+
+    private static List<String> tokenize(String sentence) {
+        return tokenize(sentence, true);
+    }
+
+    // whitespace tokens, a trailing comma becomes its own token
+    private static List<String> tokenize(String sentence, boolean lowerCase) {
+        List<String> tokens = new ArrayList<>();
+        for (String part : sentence.trim().split("\\s+")) {
+            String token = lowerCase ? part.toLowerCase() : part;
+            if (token.length() > 1 && token.endsWith(",")) {
+                tokens.add(token.substring(0, token.length() - 1));
+                tokens.add(",");
+            } else {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // token positions in the sentence, quantityFirst..quantityLast is the quantity's span and head the last word
+    private record Item(String product, String quantity, int quantityFirst, int quantityLast, int head) {
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, String path) {
+        return Timer.builder("extraction")
+                .tag("path", path)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,7 @@
+package org.example.service.extraction;
+
+/**
+ * published when the words the extraction relies on change, cached extraction results are stale after it.
+ */
+public record LexiconChangedEvent(String reason) {
+}
@@ -0,0 +1,281 @@
+package org.example.service.extraction;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * finds quantities ("5kg", "2 liters") and prices ("$20", "3 dollars", "20 USD", "2 grand") in a transcript
+ * in one pass, with an Aho-Corasick automaton over the unit and currency terms of a lexicon file and a
+ * number scanner running on the same characters.
+ * --------
+ * the automaton is a full transition table (state x character class), so scanning costs one array lookup
+ * per character however many terms the lexicon has; adding currencies to the file doesn't slow it down.
+ * Terms match case-insensitively and only on word boundaries ("l" doesn't match in "liters", "usd" not in
+ * "usda"). Immutable after construction, one instance is shared by all threads.
+ * --------
+ * lexicon format: see src/main/resources/extraction/lexicon.tsv.
+ */
+public final class LexiconMatcher {
+    public enum Kind {UNIT, CURRENCY}
+
+    public enum SpanType {QUANTITY, PRICE}
+
+    /**
+     * a term of the lexicon, {@code value} is the canonical unit or the ISO currency code.
+     */
+    public record Entry(Kind kind, String term, String value, boolean before, boolean after, BigDecimal multiplier) {
+    }
+
+    /**
+     * a quantity or price in the scanned text: [start, end) is the whole span ("$ 20"),
+     * [numberStart, numberEnd) the number in it.
+     */
+    public record Span(SpanType type, int start, int end, int numberStart, int numberEnd, Entry entry) {
+        public String text(CharSequence source) {
+            return source.subSequence(start, end).toString();
+        }
+
+        /**
+         * the number as spoken, multiplied when the currency term has a multiplier ("2 grand" -> "2000").
+         */
+        public String amount(CharSequence source) {
+            String number = source.subSequence(numberStart, numberEnd).toString();
+            if (entry.multiplier().compareTo(BigDecimal.ONE) == 0) return number;
+            return new BigDecimal(number.replace(",", "")).multiply(entry.multiplier())
+                    .stripTrailingZeros().toPlainString();
+        }
+    }
+
+    private final Map<String, Entry> units = new HashMap<>();
+    private final Map<String, Entry> currencies = new HashMap<>();
+
+    // automaton: termOf a state that ends a term, outputLink to the next shorter term ending in that state
+    private final int[] asciiClass = new int[128];
+    private final Map<Character, Integer> otherClass = new HashMap<>();
+    private final int[][] transitions;
+    private final String[] termOf;
+    private final int[] outputLink;
+
+    public LexiconMatcher(Collection<Entry> entries) {
+        for (Entry entry : entries) {
+            (entry.kind() == Kind.UNIT ? units : currencies).put(entry.term(), entry);
+        }
+
+        Set<String> terms = new TreeSet<>(units.keySet());
+        terms.addAll(currencies.keySet());
+
+        Arrays.fill(asciiClass, -1);
+        int classes = 0;
+        for (String term : terms) {
+            for (char c : term.toCharArray()) {
+                if (classOf(c) < 0) {
+                    if (c < 128) asciiClass[c] = classes++;
+                    else otherClass.put(c, classes++);
+                }
+            }
+        }
+
+        // trie
+        List<int[]> children = new ArrayList<>();
+        List<String> terminal = new ArrayList<>();
+        children.add(newRow(classes));
+        terminal.add(null);
+        for (String term : terms) {
+            int state = 0;
+            for (char c : term.toCharArray()) {
+                int cls = classOf(c);
+                if (children.get(state)[cls] < 0) {
+                    children.get(state)[cls] = children.size();
+                    children.add(newRow(classes));
+                    terminal.add(null);
+                }
+                state = children.get(state)[cls];
+            }
+            terminal.set(state, term);
+        }
+
+        // failure links turned into a full transition table, breadth first
+        int states = children.size();
+        transitions = new int[states][];
+        termOf = terminal.toArray(new String[0]);
+        outputLink = new int[states];
+        int[] fail = new int[states];
+        Arrays.fill(outputLink, -1);
+
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        transitions[0] = children.get(0).clone();
+        for (int cls = 0; cls < classes; cls++) {
+            int child = transitions[0][cls];
+            if (child < 0) {
+                transitions[0][cls] = 0;
+            } else {
+                fail[child] = 0;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            outputLink[state] = termOf[fail[state]] != null ? fail[state] : outputLink[fail[state]];
+            transitions[state] = children.get(state).clone();
+            for (int cls = 0; cls < classes; cls++) {
+                int child = transitions[state][cls];
+                if (child < 0) {
+                    transitions[state][cls] = transitions[fail[state]][cls];
+                } else {
+                    fail[child] = transitions[fail[state]][cls];
+                    queue.add(child);
+                }
+            }
+        }
+    }
+
+    public static LexiconMatcher load(Resource resource) {
+        try {
+            return new LexiconMatcher(parse(resource.getContentAsString(StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't read the lexicon " + resource.getDescription(), e);
+        }
+    }
+
+    public static LexiconMatcher load(String classpathLocation) {
+        return load(new ClassPathResource(classpathLocation));
+    }
+
+    static List<Entry> parse(String content) {
+        List<Entry> entries = new ArrayList<>();
+        for (String line : content.lines().toList()) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+
+            String[] columns = trimmed.split("\\s+");
+            if (columns.length < 3) throw new RuntimeException("Bad lexicon line: " + line);
+            Kind kind = Kind.valueOf(columns[0].toUpperCase(Locale.ROOT));
+            String term = columns[1].toLowerCase(Locale.ROOT);
+            String position = columns.length > 3 ? columns[3] : "after";
+            BigDecimal multiplier = columns.length > 4 ? new BigDecimal(columns[4]) : BigDecimal.ONE;
+            entries.add(new Entry(kind, term, columns[2],
+                    kind == Kind.CURRENCY && !position.equals("after"),
+                    kind == Kind.UNIT || !position.equals("before"),
+                    multiplier));
+        }
+        return entries;
+    }
+
+    /**
+     * every quantity and price in the text, in order. A term that is both a unit and a currency
+     * ("5 pounds") gives a span of each type.
+     */
+    public List<Span> scan(CharSequence text) {
+        List<Span> spans = new ArrayList<>(2);
+        int n = text.length();
+
+        // the last number and the last term seen, for pairing them up
+        int numberStart = -1;
+        int lastNumberStart = -1;
+        int lastNumberEnd = -1;
+        String lastTerm = null;
+        int lastTermStart = -1;
+        int lastTermEnd = -1;
+
+        int state = 0;
+        for (int i = 0; i <= n; i++) {
+            char c = i < n ? Character.toLowerCase(text.charAt(i)) : ' ';
+
+            // numbers: digits with '.' or ',' between digits, not glued to a preceding letter ("mp3")
+            if (isDigit(c)) {
+                if (numberStart < 0 && (i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1)))) numberStart = i;
+            } else if (numberStart >= 0 && !((c == '.' || c == ',') && i + 1 < n && isDigit(text.charAt(i + 1))
+                    && isDigit(text.charAt(i - 1)))) {
+                lastNumberStart = numberStart;
+                lastNumberEnd = i;
+                numberStart = -1;
+                // a currency term right before the number ("$20", "USD 20")
+                if (lastTerm != null && onlySpaces(text, lastTermEnd, lastNumberStart)) {
+                    Entry currency = currencies.get(lastTerm);
+                    if (currency != null && currency.before()) {
+                        spans.add(new Span(SpanType.PRICE, lastTermStart, lastNumberEnd, lastNumberStart, lastNumberEnd, currency));
+                    }
+                }
+            }
+            if (i == n) break;
+
+            int cls = classOf(c);
+            state = cls < 0 ? 0 : transitions[state][cls];
+            for (int s = termOf[state] != null ? state : outputLink[state]; s >= 0; s = outputLink[s]) {
+                String term = termOf[s];
+                int start = i - term.length() + 1;
+                if (!atBoundary(text, start, i + 1, term)) continue;
+
+                lastTerm = term;
+                lastTermStart = start;
+                lastTermEnd = i + 1;
+                // the number right before the term ("3 dollars", "5kg", "20€")
+                if (lastNumberEnd >= 0 && onlySpaces(text, lastNumberEnd, start)) {
+                    Entry unit = units.get(term);
+                    Entry currency = currencies.get(term);
+                    if (unit != null) {
+                        spans.add(new Span(SpanType.QUANTITY, lastNumberStart, i + 1, lastNumberStart, lastNumberEnd, unit));
+                    }
+                    if (currency != null && currency.after()) {
+                        spans.add(new Span(SpanType.PRICE, lastNumberStart, i + 1, lastNumberStart, lastNumberEnd, currency));
+                    }
+                }
+                break;
+            }
+        }
+        return spans;
+    }
+
+    public Optional<Span> first(CharSequence text, SpanType type) {
+        for (Span span : scan(text)) {
+            if (span.type() == type) return Optional.of(span);
+        }
+        return Optional.empty();
+    }
+
+    public Entry unit(String word) {
+        return units.get(word.toLowerCase(Locale.ROOT));
+    }
+
+    public Entry currency(String word) {
+        return currencies.get(word.toLowerCase(Locale.ROOT));
+    }
+
+    private int classOf(char c) {
+        if (c < 128) return asciiClass[c];
+        Integer cls = otherClass.get(c);
+        return cls == null ? -1 : cls;
+    }
+
+    // a term made of letters must not continue a word on either side, symbols can touch anything
+    private static boolean atBoundary(CharSequence text, int start, int end, String term) {
+        if (start < 0) return false;
+        boolean letters = Character.isLetter(term.charAt(0));
+        if (!letters) return true;
+        return (start == 0 || !Character.isLetter(text.charAt(start - 1)))
+                && (end == text.length() || !Character.isLetterOrDigit(text.charAt(end)));
+    }
+
+    private static boolean onlySpaces(CharSequence text, int from, int to) {
+        if (from > to) return false;
+        for (int i = from; i < to; i++) {
+            if (!Character.isWhitespace(text.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int[] newRow(int classes) {
+        int[] row = new int[classes];
+        Arrays.fill(row, -1);
+        return row;
+    }
+}
@@ -0,0 +1,145 @@
+package org.example.service.extraction;
+
+import edu.stanford.nlp.ling.CoreLabel;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * the quantity and price spans of one sentence, found in a single pass over its tokens, so that every
+ * product of the sentence can take the span closest to it instead of the first one in the text
+ * ("rice for $5 and milk for $3").
+ * --------
+ * spans are kept as token ranges (CoreNLP token indexes, 1-based like IndexedWord.index()) in a few int
+ * arrays, the text is cut from the sentence only when a span is attached to a product.
+ */
+final class SpanIndex {
+    private static final int QUANTITY = 0;
+    private static final int PRICE = 1;
+
+    private final String sentenceText;
+    private final int sentenceBegin;
+    private int size;
+    private int[] kind = new int[4];
+    private int[] firstToken = new int[4];
+    private int[] lastToken = new int[4];
+    private int[] beginChar = new int[4];
+    private int[] endChar = new int[4];
+    private String[] text = new String[4];
+
+    private SpanIndex(String sentenceText, int sentenceBegin) {
+        this.sentenceText = sentenceText;
+        this.sentenceBegin = sentenceBegin;
+    }
+
+    static SpanIndex of(List<CoreLabel> tokens, String sentenceText) {
+        SpanIndex spans = new SpanIndex(sentenceText, tokens.isEmpty() ? 0 : tokens.get(0).beginPosition());
+        int n = tokens.size();
+        for (int i = 0; i < n; i++) {
+            CoreLabel token = tokens.get(i);
+            String word = token.word();
+            CoreLabel next = i + 1 < n ? tokens.get(i + 1) : null;
+
+            if (ExtractionLexicon.isCurrencyBefore(word) && next != null && isNumber(next.word(), 0)) {
+                // "$ 20", CoreNLP splits "$20" this way too
+                spans.add(PRICE, token, next);
+                i++;
+            } else if (isNumber(word, 0) && next != null && ExtractionLexicon.isCurrencyAfter(next.word())) {
+                spans.add(PRICE, token, next);
+                i++;
+            } else if (isNumber(word, 0) && next != null && ExtractionLexicon.isUnit(next.word())) {
+                spans.add(QUANTITY, token, next);
+                i++;
+            } else if (hasDigitAndMore(word)) {
+                // "5kg", "20€"
+                if (ExtractionLexicon.isPrice(word)) spans.add(PRICE, token, token);
+                else if (ExtractionLexicon.isQuantity(word)) spans.add(QUANTITY, token, token);
+            }
+        }
+        return spans;
+    }
+
+    /**
+     * @return the quantity closest to the token, null when the sentence has none
+     */
+    String nearestQuantity(int tokenIndex) {
+        return nearest(QUANTITY, tokenIndex);
+    }
+
+    /**
+     * @return the price closest to the token, null when the sentence has none
+     */
+    String nearestPrice(int tokenIndex) {
+        return nearest(PRICE, tokenIndex);
+    }
+
+    int size() {
+        return size;
+    }
+
+    // a tie goes to the span after the token, people say the price after the product
+    private String nearest(int wanted, int tokenIndex) {
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int s = 0; s < size; s++) {
+            if (kind[s] != wanted) continue;
+            int distance = tokenIndex < firstToken[s] ? firstToken[s] - tokenIndex
+                    : tokenIndex > lastToken[s] ? tokenIndex - lastToken[s] : 0;
+            boolean after = firstToken[s] >= tokenIndex;
+            if (distance < bestDistance || distance == bestDistance && after) {
+                best = s;
+                bestDistance = distance;
+            }
+        }
+        if (best < 0) return null;
+        if (text[best] == null) {
+            text[best] = sentenceText.substring(beginChar[best] - sentenceBegin, endChar[best] - sentenceBegin);
+        }
+        return text[best];
+    }
+
+    private void add(int spanKind, CoreLabel first, CoreLabel last) {
+        if (size == kind.length) {
+            int capacity = size * 2;
+            kind = Arrays.copyOf(kind, capacity);
+            firstToken = Arrays.copyOf(firstToken, capacity);
+            lastToken = Arrays.copyOf(lastToken, capacity);
+            beginChar = Arrays.copyOf(beginChar, capacity);
+            endChar = Arrays.copyOf(endChar, capacity);
+            text = Arrays.copyOf(text, capacity);
+        }
+        kind[size] = spanKind;
+        firstToken[size] = first.index();
+        lastToken[size] = last.index();
+        beginChar[size] = first.beginPosition();
+        endChar[size] = last.endPosition();
+        size++;
+    }
+
+    // digits with at most one '.' or ',' group separator after a digit, from {@code from} to the end
+    private static boolean isNumber(String word, int from) {
+        int length = word.length();
+        if (from >= length) return false;
+        boolean separator = false;
+        for (int i = from; i < length; i++) {
+            char c = word.charAt(i);
+            if (c >= '0' && c <= '9') continue;
+            if ((c == '.' || c == ',') && !separator && i > from && i < length - 1) {
+                separator = true;
+                continue;
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean hasDigitAndMore(String word) {
+        boolean digit = false;
+        boolean other = false;
+        for (int i = 0; i < word.length(); i++) {
+            if (Character.isDigit(word.charAt(i))) digit = true;
+            else other = true;
+        }
+        return digit && other;
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.service.nlp;
+
+import org.example.domain.request.ExpenseRequest;
+import org.example.service.extraction.ExtractionEngine;
+import org.example.service.extraction.ExtractionLexicon;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * annotation and extraction in this JVM. English goes through the pipeline loaded at startup, other
+ * languages (nlp.languages) through their own pipeline and shopping verbs, loaded the first time they are heard.
+ * --------
+ * the NLP worker processes run this same class (NlpWorkerMain), without Spring.
+ */
+@Component
+@ConditionalOnProperty(name = "nlp.mode", havingValue = "in-process", matchIfMissing = true)
+public class InProcessNlpExtractor implements NlpExtractor {
+    private final NlpAnnotationService nlp;
+    private final LanguageDetector languageDetector;
+    private final ExtractionEngine extractionEngine = new ExtractionEngine();
+    private final Map<Language, ExtractionEngine> otherLanguageEngines = new ConcurrentHashMap<>();
+
+    public InProcessNlpExtractor(NlpAnnotationService nlp, LanguageDetector languageDetector) {
+        this.nlp = nlp;
+        this.languageDetector = languageDetector;
+    }
+
+    @Override
+    public List<ExpenseRequest> extract(String text) {
+        Language language = languageDetector.detect(text);
+        if (language == Language.ENGLISH) return extractionEngine.extract(nlp.annotate(text));
+
+        ExtractionEngine engine = otherLanguageEngines.computeIfAbsent(language,
+                l -> new ExtractionEngine(ExtractionLexicon.productVerbs(l)));
+        return engine.extract(nlp.annotate(text, language));
+    }
+
+    @Override
+    public void load() {
+        nlp.load();
+    }
+}
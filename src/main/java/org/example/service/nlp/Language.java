@@ -0,0 +1,42 @@
+package org.example.service.nlp;
+
+import lombok.Getter;
+
+import java.util.Locale;
+
+/**
+ * the languages the extraction can parse. English is built into the default CoreNLP models, the others
+ * need their models jar on the classpath (the nlp-languages Maven profile) and are loaded on first use
+ * by {@link NlpPipelineRegistry}.
+ * --------
+ * memoryMb is a rough resident size of the pipeline (tokenizer, tagger, dependency parser), the registry
+ * budgets with it.
+ */
+@Getter
+public enum Language {
+    ENGLISH("en", null, "tokenize, ssplit", 0),
+    SPANISH("es", "StanfordCoreNLP-spanish.properties", "tokenize, ssplit, mwt", 450),
+    FRENCH("fr", "StanfordCoreNLP-french.properties", "tokenize, ssplit, mwt", 450),
+    GERMAN("de", "StanfordCoreNLP-german.properties", "tokenize, ssplit, mwt", 500),
+    ITALIAN("it", "StanfordCoreNLP-italian.properties", "tokenize, ssplit, mwt", 400);
+
+    private final String code;
+    private final String properties;
+    private final String splitAnnotators;
+    private final int memoryMb;
+
+    Language(String code, String properties, String splitAnnotators, int memoryMb) {
+        this.code = code;
+        this.properties = properties;
+        this.splitAnnotators = splitAnnotators;
+        this.memoryMb = memoryMb;
+    }
+
+    public static Language fromCode(String code) {
+        String normalized = code.trim().toLowerCase(Locale.ROOT);
+        for (Language language : values()) {
+            if (language.code.equals(normalized)) return language;
+        }
+        throw new RuntimeException("Unsupported language: " + code);
+    }
+}
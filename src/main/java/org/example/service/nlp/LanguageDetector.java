@@ -0,0 +1,64 @@
+package org.example.service.nlp;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * guesses the language of a transcript from its function words ("the", "de", "und", ...), which make up a
+ * large share of any sentence, so a short dictation is enough. Only the languages in nlp.languages are
+ * candidates; with the default (English only) it returns ENGLISH without looking at the text.
+ * Anything without a clear winner is English.
+ */
+@Component
+public class LanguageDetector {
+    private static final Map<Language, Set<String>> FUNCTION_WORDS = Map.of(
+            Language.ENGLISH, Set.of("the", "and", "for", "i", "a", "of", "to", "with", "bought", "some", "my", "at",
+                    "in", "then", "also", "was", "dollars", "got"),
+            Language.SPANISH, Set.of("el", "la", "los", "las", "y", "por", "de", "un", "una", "con", "compré", "para",
+                    "del", "en", "también", "unos", "unas", "dólares"),
+            Language.FRENCH, Set.of("le", "la", "les", "et", "pour", "de", "un", "une", "des", "du", "avec", "j'ai",
+                    "acheté", "au", "aussi", "en", "puis"),
+            Language.GERMAN, Set.of("der", "die", "das", "und", "für", "ich", "ein", "eine", "einen", "mit", "habe",
+                    "gekauft", "auch", "von", "im", "dann", "zu"),
+            Language.ITALIAN, Set.of("il", "lo", "la", "gli", "le", "e", "per", "di", "un", "una", "con", "ho",
+                    "comprato", "anche", "del", "della", "poi"));
+
+    private final List<Language> languages;
+
+    public LanguageDetector(@Value("${nlp.languages:en}") List<String> languages) {
+        List<Language> enabled = new ArrayList<>();
+        for (String code : languages) {
+            if (!code.isBlank()) enabled.add(Language.fromCode(code));
+        }
+        if (!enabled.contains(Language.ENGLISH)) enabled.add(0, Language.ENGLISH);
+        this.languages = List.copyOf(enabled);
+    }
+
+    public Language detect(String text) {
+        if (languages.size() == 1 || text == null) return Language.ENGLISH;
+
+        Map<Language, Integer> hits = new EnumMap<>(Language.class);
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}']+")) {
+            if (word.isEmpty()) continue;
+            for (Language language : languages) {
+                if (FUNCTION_WORDS.get(language).contains(word)) hits.merge(language, 1, Integer::sum);
+            }
+        }
+
+        Language best = Language.ENGLISH;
+        int bestHits = hits.getOrDefault(Language.ENGLISH, 0);
+        for (Map.Entry<Language, Integer> entry : hits.entrySet()) {
+            if (entry.getValue() > bestHits) {
+                best = entry.getKey();
+                bestHits = entry.getValue();
+            }
+        }
+        return best;
+    }
+
+    public List<Language> languages() {
+        return languages;
+    }
+}
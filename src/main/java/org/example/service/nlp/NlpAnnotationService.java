@@ -0,0 +1,157 @@
+package org.example.service.nlp;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.CoreDocument;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.util.CoreMap;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the only place that runs CoreNLP.
+ * --------
+ * a transcript is tokenized and split into sentences first (cheap), then every sentence is tagged, lemmatized
+ * and dependency-parsed as its own task on the nlp executor, so a long shopping list uses all cores and
+ * concurrent requests queue for the same bounded pool instead of fighting over the CPU.
+ * The annotators are stateless after loading and StanfordCoreNLP keeps one instance of each per
+ * configuration (its annotator pool), so extra pipeline copies would share the same models anyway.
+ * Sharing them between threads is the supported way to run CoreNLP concurrently, the pool bounds how many.
+ * --------
+ * metrics: nlp.queue.depth (sentences waiting for a thread), nlp.annotate.wait (time a sentence waited)
+ * and nlp.annotate (whole transcript).
+ */
+@Service
+public class NlpAnnotationService {
+    private final String sentenceAnnotators;
+    private volatile StanfordCoreNLP splitter;
+    private volatile StanfordCoreNLP sentenceAnnotator;
+    private final ThreadPoolExecutor executor;
+    private final NlpPipelineRegistry registry;
+    private final Timer waitTimer;
+    private final Timer annotateTimer;
+
+    @Autowired
+    public NlpAnnotationService(@Qualifier("nlpExecutor") ThreadPoolExecutor executor,
+                                MeterRegistry meterRegistry,
+                                @Value("${nlp.sentence-annotators:pos, lemma, depparse}") String sentenceAnnotators,
+                                NlpPipelineRegistry registry) {
+        this(null, null, sentenceAnnotators, executor, meterRegistry, registry);
+    }
+
+    public NlpAnnotationService(StanfordCoreNLP splitter, StanfordCoreNLP sentenceAnnotator,
+                                ThreadPoolExecutor executor, MeterRegistry meterRegistry, NlpPipelineRegistry registry) {
+        this(splitter, sentenceAnnotator, null, executor, meterRegistry, registry);
+    }
+
+    private NlpAnnotationService(StanfordCoreNLP splitter, StanfordCoreNLP sentenceAnnotator, String sentenceAnnotators,
+                                 ThreadPoolExecutor executor, MeterRegistry meterRegistry, NlpPipelineRegistry registry) {
+        this.splitter = splitter;
+        this.sentenceAnnotator = sentenceAnnotator;
+        this.sentenceAnnotators = sentenceAnnotators;
+        this.executor = executor;
+        this.registry = registry;
+        this.waitTimer = Timer.builder("nlp.annotate.wait")
+                .description("time a sentence waited for an nlp thread")
+                .register(meterRegistry);
+        this.annotateTimer = Timer.builder("nlp.annotate")
+                .description("time to annotate a whole transcript")
+                .register(meterRegistry);
+        Gauge.builder("nlp.queue.depth", executor, pool -> pool.getQueue().size())
+                .description("sentences waiting for an nlp thread")
+                .register(meterRegistry);
+    }
+
+    /**
+     * the same result as {@code pipeline.annotate(new CoreDocument(text))} with the full
+     * "tokenize, ssplit, pos, lemma, depparse" pipeline.
+     */
+    public CoreDocument annotate(String text) {
+        if (!isLoaded()) load();
+        return annotate(text, splitter, sentenceAnnotator);
+    }
+
+    /**
+     * the same for a transcript in another language, with that language's pipeline from the registry
+     * (loaded on first use).
+     */
+    public CoreDocument annotate(String text, Language language) {
+        if (language == Language.ENGLISH) return annotate(text);
+        NlpPipelineRegistry.Pipeline pipeline = registry.acquire(language);
+        return annotate(text, pipeline.splitter(), pipeline.sentenceAnnotator());
+    }
+
+    private CoreDocument annotate(String text, StanfordCoreNLP splitter, StanfordCoreNLP sentenceAnnotator) {
+        long start = System.nanoTime();
+
+        Annotation document = new Annotation(text);
+        splitter.annotate(document);
+
+        List<CoreMap> sentences = document.get(CoreAnnotations.SentencesAnnotation.class);
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (CoreMap sentence : sentences) {
+            long queuedAt = System.nanoTime();
+            tasks.add(CompletableFuture.runAsync(() -> {
+                waitTimer.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                annotateSentence(sentence, sentenceAnnotator);
+            }, executor));
+        }
+
+        try {
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+
+        annotateTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return new CoreDocument(document);
+    }
+
+    /**
+     * loads the models (several seconds, a few hundred MB). Not done in the constructor so that startup
+     * doesn't wait for it: {@link NlpWarmup} calls this on a background thread, and a request that comes
+     * earlier waits here for the load in progress.
+     */
+    public synchronized void load() {
+        if (splitter != null && sentenceAnnotator != null) return;
+        splitter = new StanfordCoreNLP(properties("tokenize, ssplit", true));
+        sentenceAnnotator = new StanfordCoreNLP(properties(sentenceAnnotators, false));
+    }
+
+    public boolean isLoaded() {
+        return splitter != null && sentenceAnnotator != null;
+    }
+
+    /**
+     * the sentence annotators only look at SentencesAnnotation and the tokens in it, so a one-sentence
+     * annotation that shares the sentence's CoreMap annotates it in place.
+     */
+    private static void annotateSentence(CoreMap sentence, StanfordCoreNLP sentenceAnnotator) {
+        Annotation single = new Annotation(sentence.get(CoreAnnotations.TextAnnotation.class));
+        single.set(CoreAnnotations.TokensAnnotation.class, sentence.get(CoreAnnotations.TokensAnnotation.class));
+        single.set(CoreAnnotations.SentencesAnnotation.class, List.of(sentence));
+        sentenceAnnotator.annotate(single);
+    }
+
+    private static Properties properties(String annotators, boolean enforceRequirements) {
+        Properties properties = new Properties();
+        properties.setProperty("annotators", annotators);
+        properties.setProperty("enforceRequirements", String.valueOf(enforceRequirements));
+        properties.setProperty("sutime.binders", "0");
+        return properties;
+    }
+}
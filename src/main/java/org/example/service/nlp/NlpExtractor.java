@@ -0,0 +1,21 @@
+package org.example.service.nlp;
+
+import org.example.domain.request.ExpenseRequest;
+
+import java.util.List;
+
+/**
+ * the CoreNLP extraction of a transcript, for everything the cache and the fast path don't answer.
+ * In the web JVM by default ({@link InProcessNlpExtractor}), in a pool of local worker processes with
+ * nlp.mode=workers ({@link org.example.service.nlp.worker.NlpWorkerPool}).
+ */
+public interface NlpExtractor {
+
+    List<ExpenseRequest> extract(String text);
+
+    /**
+     * loads the models or starts the workers, returns when extractions can be served. Called by
+     * {@link NlpWarmup}; extract() does it too when it comes first.
+     */
+    void load();
+}
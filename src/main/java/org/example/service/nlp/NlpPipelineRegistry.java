@@ -0,0 +1,239 @@
+package org.example.service.nlp;
+
+import edu.stanford.nlp.pipeline.Annotator;
+import edu.stanford.nlp.pipeline.AnnotatorImplementations;
+import edu.stanford.nlp.pipeline.AnnotatorPool;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.util.Lazy;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Supplier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * the CoreNLP pipelines of the languages other than English (English stays in {@link NlpAnnotationService},
+ * loaded at startup as before, so an English-only deployment loads nothing here).
+ * --------
+ * a language's pipeline is built the first time a transcript in it arrives and dropped again after
+ * nlp.pipelines.idle-minutes without use. Pipelines are accounted by their estimated size
+ * ({@link Language#getMemoryMb()}): loading one that doesn't fit in nlp.pipelines.memory-budget-mb or
+ * nlp.pipelines.max-resident first evicts the least recently used ones. Requests still holding an evicted
+ * pipeline finish with it, it is garbage collected afterwards.
+ * --------
+ * each pipeline gets annotator pools of its own. CoreNLP's default pool shares annotators through a static,
+ * softly referenced cache, where an evicted language's models would stay until the heap runs short.
+ * --------
+ * metrics: nlp.pipelines.resident, nlp.pipelines.memory (estimated MB), nlp.pipelines.loads and
+ * nlp.pipelines.evictions tagged with the language.
+ */
+@Slf4j
+@Component
+public class NlpPipelineRegistry {
+    /**
+     * the two halves NlpAnnotationService runs: sentence splitting on the calling thread, the rest per sentence.
+     */
+    public record Pipeline(Language language, StanfordCoreNLP splitter, StanfordCoreNLP sentenceAnnotator) {
+    }
+
+    private final Function<Language, Pipeline> loader;
+    private final MeterRegistry meterRegistry;
+    private final Map<Language, Entry> entries = new ConcurrentHashMap<>();
+
+    @Value("${nlp.pipelines.memory-budget-mb:1500}")
+    private int memoryBudgetMb = 1500;
+    @Value("${nlp.pipelines.max-resident:2}")
+    private int maxResident = 2;
+    @Value("${nlp.pipelines.idle-minutes:30}")
+    private long idleMinutes = 30;
+
+    @Autowired
+    public NlpPipelineRegistry(MeterRegistry meterRegistry,
+                               @Value("${nlp.sentence-annotators.other-languages:pos, depparse}") String sentenceAnnotators) {
+        this(language -> load(language, sentenceAnnotators), meterRegistry);
+    }
+
+    public NlpPipelineRegistry(Function<Language, Pipeline> loader, MeterRegistry meterRegistry) {
+        this.loader = loader;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("nlp.pipelines.resident", this, NlpPipelineRegistry::resident)
+                .description("non-English NLP pipelines in memory")
+                .register(meterRegistry);
+        Gauge.builder("nlp.pipelines.memory", this, NlpPipelineRegistry::residentMemoryMb)
+                .description("estimated size of the non-English NLP pipelines in memory")
+                .baseUnit("megabytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * the language's pipeline, loaded now if it isn't resident (several seconds, other languages keep working).
+     */
+    public Pipeline acquire(Language language) {
+        if (language == Language.ENGLISH) throw new RuntimeException("English is served by NlpAnnotationService");
+
+        Entry entry = entries.computeIfAbsent(language, Entry::new);
+        entry.lastUsed = System.nanoTime();
+        Pipeline pipeline = entry.pipeline;
+        if (pipeline != null) return pipeline;
+
+        synchronized (entry) {
+            if (entry.pipeline == null) {
+                entry.pipeline = loadWithinBudget(language);
+                entry.lastUsed = System.nanoTime();
+            }
+            return entry.pipeline;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${nlp.pipelines.evict-interval-ms:60000}")
+    public void evictIdle() {
+        long idleNanos = TimeUnit.MINUTES.toNanos(idleMinutes);
+        long now = System.nanoTime();
+        for (Entry entry : entries.values()) {
+            if (entry.pipeline != null && now - entry.lastUsed >= idleNanos) {
+                evict(entry, "idle");
+            }
+        }
+    }
+
+    public boolean isResident(Language language) {
+        Entry entry = entries.get(language);
+        return entry != null && entry.pipeline != null;
+    }
+
+    public int resident() {
+        int resident = 0;
+        for (Entry entry : entries.values()) {
+            if (entry.pipeline != null) resident++;
+        }
+        return resident;
+    }
+
+    public int residentMemoryMb() {
+        int memory = 0;
+        for (Entry entry : entries.values()) {
+            if (entry.pipeline != null) memory += entry.language.getMemoryMb();
+        }
+        return memory;
+    }
+
+    /**
+     * loads run one at a time on the registry lock, so two languages loading together can't both count on
+     * the same free budget (and don't double the allocation spike). Resident pipelines stay usable meanwhile.
+     */
+    private synchronized Pipeline loadWithinBudget(Language language) {
+        makeRoom(language);
+        long start = System.nanoTime();
+        Pipeline pipeline = loader.apply(language);
+        meterRegistry.counter("nlp.pipelines.loads", "language", language.getCode()).increment();
+        log.info("Loaded the {} NLP pipeline in {} ms", language.getCode(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return pipeline;
+    }
+
+    // evicts least recently used pipelines until the new one fits
+    private void makeRoom(Language language) {
+        if (language.getMemoryMb() > memoryBudgetMb) {
+            throw new RuntimeException("The " + language.getCode() + " NLP pipeline (~" + language.getMemoryMb()
+                    + " MB) doesn't fit in nlp.pipelines.memory-budget-mb=" + memoryBudgetMb);
+        }
+        while (resident() + 1 > maxResident || residentMemoryMb() + language.getMemoryMb() > memoryBudgetMb) {
+            Entry oldest = null;
+            for (Entry entry : entries.values()) {
+                if (entry.pipeline != null && entry.language != language
+                        && (oldest == null || entry.lastUsed < oldest.lastUsed)) {
+                    oldest = entry;
+                }
+            }
+            if (oldest == null) return;
+            evict(oldest, "memory budget");
+        }
+    }
+
+    // on the registry lock, never the entry's: a load holds its entry's lock while it makes room
+    private synchronized void evict(Entry entry, String reason) {
+        if (entry.pipeline == null) return;
+        entry.pipeline = null;
+        meterRegistry.counter("nlp.pipelines.evictions", "language", entry.language.getCode()).increment();
+        log.info("Evicted the {} NLP pipeline ({})", entry.language.getCode(), reason);
+    }
+
+    private static Pipeline load(Language language, String sentenceAnnotators) {
+        Properties defaults = new Properties();
+        try (InputStream in = NlpPipelineRegistry.class.getClassLoader().getResourceAsStream(language.getProperties())) {
+            if (in == null) {
+                throw new RuntimeException("CoreNLP models for " + language.getCode()
+                        + " are not on the classpath (" + language.getProperties() + ")");
+            }
+            defaults.load(in);
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't read " + language.getProperties(), e);
+        }
+
+        Properties split = properties(defaults, language.getSplitAnnotators(), true);
+        Properties sentence = properties(defaults, sentenceAnnotators, false);
+        return new Pipeline(language,
+                new StanfordCoreNLP(split, true, annotatorPool(split)),
+                new StanfordCoreNLP(sentence, false, annotatorPool(sentence)));
+    }
+
+    /**
+     * the annotators of {@code properties}, built on first use and referenced by the pool only, so they go
+     * with the pipeline.
+     */
+    static AnnotatorPool annotatorPool(Properties properties) {
+        AnnotatorImplementations implementations = new AnnotatorImplementations();
+        Map<String, Supplier<Annotator>> factories = Map.of(
+                Annotator.STANFORD_TOKENIZE, () -> implementations.tokenizer(properties),
+                Annotator.STANFORD_SSPLIT, () -> implementations.wordToSentences(properties),
+                Annotator.STANFORD_MWT, () -> implementations.multiWordToken(properties),
+                Annotator.STANFORD_POS, () -> implementations.posTagger(properties),
+                Annotator.STANFORD_LEMMA, () -> implementations.morpha(properties, false),
+                Annotator.STANFORD_NER, () -> implementations.ner(properties),
+                Annotator.STANFORD_PARSE, () -> implementations.parse(properties),
+                Annotator.STANFORD_DEPENDENCIES, () -> implementations.dependencies(properties));
+
+        AnnotatorPool pool = new AnnotatorPool();
+        for (String name : properties.getProperty("annotators").split("\\s*,\\s*")) {
+            Supplier<Annotator> factory = factories.get(name.trim());
+            if (factory == null) throw new RuntimeException("The " + name.trim() + " annotator isn't supported here");
+            pool.register(name.trim(), properties, Lazy.of(factory));
+        }
+        return pool;
+    }
+
+    private static Properties properties(Properties defaults, String annotators, boolean enforceRequirements) {
+        Properties properties = new Properties();
+        properties.putAll(defaults);
+        properties.setProperty("annotators", annotators);
+        properties.setProperty("enforceRequirements", String.valueOf(enforceRequirements));
+        return properties;
+    }
+
+    public void setLimits_OnlyForTesting(int memoryBudgetMb, int maxResident, long idleMinutes) {
+        this.memoryBudgetMb = memoryBudgetMb;
+        this.maxResident = maxResident;
+        this.idleMinutes = idleMinutes;
+    }
+
+    private static final class Entry {
+        private final Language language;
+        private volatile Pipeline pipeline;
+        private volatile long lastUsed;
+
+        private Entry(Language language) {
+            this.language = language;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.example.service.nlp;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.service.VoiceCommandService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * startup finishes without waiting for CoreNLP: the models are loaded (or the NLP workers started, with
+ * nlp.mode=workers) on a background thread, the pipeline and the extraction are then run over
+ * nlp/warmup-corpus.txt a few times (JIT, model caches), and only after that the node reports ready.
+ * Spring marks the app ACCEPTING_TRAFFIC as soon as it has started, so that is turned back into
+ * REFUSING_TRAFFIC until the warmup is done.
+ * --------
+ * the same thread opens connections to the external APIs (DNS, TLS handshake) so the first real call
+ * doesn't pay for them. Those don't gate readiness, an outage elsewhere shouldn't take the node out.
+ */
+@Slf4j
+@Component
+public class NlpWarmup {
+    private final NlpExtractor nlpExtractor;
+    private final VoiceCommandService voiceCommandService;
+    private final HttpClient httpClient;
+    private final ApplicationEventPublisher publisher;
+    private volatile boolean warm;
+
+    @Value("${nlp.warmup.enabled:true}")
+    private boolean enabled = true;
+    @Value("${nlp.warmup.rounds:3}")
+    private int rounds = 3;
+    @Value("${nlp.warmup.corpus:classpath:nlp/warmup-corpus.txt}")
+    private Resource corpus = new ClassPathResource("nlp/warmup-corpus.txt");
+    @Value("${warmup.http.urls:https://api.together.xyz,https://v6.exchangerate-api.com,https://api.assemblyai.com}")
+    private List<String> httpUrls = List.of();
+
+    public NlpWarmup(NlpExtractor nlpExtractor,
+                     VoiceCommandService voiceCommandService,
+                     HttpClient httpClient,
+                     ApplicationEventPublisher publisher) {
+        this.nlpExtractor = nlpExtractor;
+        this.voiceCommandService = voiceCommandService;
+        this.httpClient = httpClient;
+        this.publisher = publisher;
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void start() {
+        if (!enabled) {
+            warm = true;
+            return;
+        }
+        Thread thread = new Thread(this::warmUp, "nlp-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @EventListener
+    public synchronized void onReadiness(AvailabilityChangeEvent<ReadinessState> event) {
+        if (event.getState() == ReadinessState.ACCEPTING_TRAFFIC && !warm) {
+            AvailabilityChangeEvent.publish(publisher, this, ReadinessState.REFUSING_TRAFFIC);
+        }
+    }
+
+    public boolean isWarm() {
+        return warm;
+    }
+
+    void warmUp() {
+        try {
+            long start = System.nanoTime();
+            nlpExtractor.load();
+            long loaded = System.nanoTime();
+
+            List<String> utterances = utterances();
+            for (int round = 0; round < rounds; round++) {
+                for (String utterance : utterances) {
+                    // straight to the CoreNLP path, the fast path would skip most of the corpus
+                    voiceCommandService.extractWithNlp(utterance);
+                }
+            }
+            log.info("NLP models loaded in {} ms, warmed up with {} utterances x {} rounds in {} ms",
+                    (loaded - start) / 1_000_000, utterances.size(), rounds, (System.nanoTime() - loaded) / 1_000_000);
+        } catch (RuntimeException | IOException e) {
+            // readiness must not hang on a broken corpus, the models are loaded by then or load on first use
+            log.warn("NLP warmup failed", e);
+        }
+
+        markWarm();
+        warmUpHttp();
+    }
+
+    private synchronized void markWarm() {
+        warm = true;
+        AvailabilityChangeEvent.publish(publisher, this, ReadinessState.ACCEPTING_TRAFFIC);
+    }
+
+    private List<String> utterances() throws IOException {
+        return corpus.getContentAsString(StandardCharsets.UTF_8).lines()
+                .map(String::trim)
+                .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                .toList();
+    }
+
+    private void warmUpHttp() {
+        for (String url : httpUrls) {
+            if (url.isBlank()) continue;
+            try {
+                httpClient.send(HttpRequest.newBuilder(URI.create(url.trim()))
+                                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                                .timeout(Duration.ofSeconds(5))
+                                .build(),
+                        HttpResponse.BodyHandlers.discarding());
+            } catch (IOException | RuntimeException e) {
+                log.debug("Warmup request to {} failed", url, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    public void setCorpus_OnlyForTesting(Resource corpus) {
+        this.corpus = corpus;
+    }
+}
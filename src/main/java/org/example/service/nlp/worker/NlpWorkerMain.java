@@ -0,0 +1,66 @@
+package org.example.service.nlp.worker;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.service.nlp.InProcessNlpExtractor;
+import org.example.service.nlp.LanguageDetector;
+import org.example.service.nlp.NlpAnnotationService;
+import org.example.service.nlp.NlpPipelineRegistry;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * an NLP worker process, started by {@link NlpWorkerPool}: java ... NlpWorkerMain &lt;socket path&gt;
+ * --------
+ * no Spring context, only CoreNLP and the extraction, so its heap is the models and the annotations.
+ * The models are loaded before the socket is bound: the pool treats a connectable socket as a ready worker.
+ * Settings come as system properties with the web app's names (nlp.sentence-annotators, nlp.languages,
+ * nlp.threads, nlp.workers.batch-size). The process exits when the web JVM does.
+ */
+@Slf4j
+public final class NlpWorkerMain {
+
+    private NlpWorkerMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) throw new IllegalArgumentException("Usage: NlpWorkerMain <socket path>");
+        Path socket = Path.of(args[0]);
+
+        ProcessHandle.current().parent().ifPresent(parent -> parent.onExit().thenRun(() -> {
+            log.info("Web JVM exited, stopping the NLP worker");
+            System.exit(0);
+        }));
+
+        int threads = Integer.getInteger("nlp.threads", 0);
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), NlpWorkerServer.daemon("nlp"));
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        NlpPipelineRegistry registry = new NlpPipelineRegistry(meterRegistry,
+                System.getProperty("nlp.sentence-annotators.other-languages", "pos, depparse"));
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(NlpWorkerServer.daemon("nlp-evict"));
+        scheduler.scheduleWithFixedDelay(registry::evictIdle, 1, 1, TimeUnit.MINUTES);
+
+        NlpAnnotationService nlp = new NlpAnnotationService(executor, meterRegistry,
+                System.getProperty("nlp.sentence-annotators", "pos, lemma, depparse"), registry);
+        InProcessNlpExtractor extractor = new InProcessNlpExtractor(nlp,
+                new LanguageDetector(Arrays.asList(System.getProperty("nlp.languages", "en").split(","))));
+
+        long start = System.nanoTime();
+        extractor.load();
+        log.info("NLP worker loaded the models in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        try (NlpWorkerServer server = new NlpWorkerServer(socket, extractor::extract,
+                Integer.getInteger("nlp.workers.batch-size", 8))) {
+            server.serve();
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package org.example.service.nlp.worker;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.domain.request.ExpenseRequest;
+import org.example.service.nlp.NlpExtractor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * nlp.mode=workers: the CoreNLP extraction runs in nlp.workers.count local processes ({@link NlpWorkerMain})
+ * instead of the web JVM, so the models and the annotation garbage live in their heaps and their GC pauses
+ * don't stop the endpoints that never touch NLP. The web JVM can then run with a small heap.
+ * --------
+ * requests wait in one queue. Every worker has a dispatcher thread that takes what is queued (up to
+ * nlp.workers.batch-size, waiting nlp.workers.batch-wait-ms for more when there is less) and sends it as one
+ * EXTRACT frame over the worker's Unix domain socket ({@link NlpWorkerProtocol}). A free worker takes the
+ * next batch, so load spreads by itself.
+ * --------
+ * a worker that exits, breaks its connection, misses a health check (PING every nlp.workers.health-interval-ms)
+ * or doesn't answer a batch within nlp.workers.timeout-ms is restarted by its dispatcher, with backoff while it
+ * keeps failing; the others go on serving. The batch it was working on is retried once on another worker. A
+ * transcript the worker itself can't extract fails alone.
+ * --------
+ * metrics: nlp.workers.alive, nlp.workers.queue, nlp.workers.heap (last reported heap use of all workers),
+ * nlp.workers.batch (timer), nlp.workers.batch.size, nlp.workers.restarts, nlp.workers.health.failures.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "nlp.mode", havingValue = "workers")
+public class NlpWorkerPool implements NlpExtractor {
+    private static final int MAX_ATTEMPTS = 2;
+    private static final long MIN_BACKOFF_MS = 1_000;
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    private record Pending(String text, CompletableFuture<List<ExpenseRequest>> result, int attempts) {
+    }
+
+    private final NlpWorkerProcess.Launcher launcher;
+    private final MeterRegistry meterRegistry;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final List<NlpWorkerProcess> workers = new CopyOnWriteArrayList<>();
+    private final List<Thread> dispatchers = new CopyOnWriteArrayList<>();
+    private final Timer batchTimer;
+    private final DistributionSummary batchSizes;
+    private volatile boolean started;
+    private volatile boolean stopping;
+
+    @Value("${nlp.workers.count:2}")
+    private int count = 2;
+    @Value("${nlp.workers.batch-size:8}")
+    private int batchSize = 8;
+    @Value("${nlp.workers.batch-wait-ms:2}")
+    private long batchWaitMs = 2;
+    @Value("${nlp.workers.timeout-ms:30000}")
+    private long timeoutMs = 30_000;
+    @Value("${nlp.workers.start-timeout-ms:180000}")
+    private long startTimeoutMs = 180_000;
+    @Value("${nlp.workers.health-timeout-ms:2000}")
+    private long healthTimeoutMs = 2_000;
+    @Value("${nlp.workers.socket-dir:${java.io.tmpdir}}")
+    private String socketDir = System.getProperty("java.io.tmpdir");
+    // empty: this JVM's java and classpath with nlp.workers.jvm-args, otherwise the full command before the socket path
+    @Value("${nlp.workers.command:}")
+    private String command = "";
+    @Value("${nlp.workers.jvm-args:-Xmx1500m -XX:+UseParallelGC}")
+    private String jvmArgs = "-Xmx1500m -XX:+UseParallelGC";
+    @Value("${nlp.workers.threads:0}")
+    private int threads;
+    @Value("${nlp.languages:en}")
+    private String languages = "en";
+    @Value("${nlp.sentence-annotators:pos, lemma, depparse}")
+    private String sentenceAnnotators = "pos, lemma, depparse";
+
+    @Autowired
+    public NlpWorkerPool(MeterRegistry meterRegistry) {
+        this(null, meterRegistry);
+    }
+
+    public NlpWorkerPool(NlpWorkerProcess.Launcher launcher, MeterRegistry meterRegistry) {
+        this.launcher = launcher != null ? launcher : this::launch;
+        this.meterRegistry = meterRegistry;
+        this.batchTimer = Timer.builder("nlp.workers.batch")
+                .description("time an NLP worker took for a batch, socket included")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("nlp.workers.batch.size")
+                .description("transcripts per batch sent to an NLP worker")
+                .register(meterRegistry);
+        Gauge.builder("nlp.workers.alive", this, NlpWorkerPool::alive)
+                .description("NLP worker processes serving requests")
+                .register(meterRegistry);
+        Gauge.builder("nlp.workers.queue", queue, BlockingQueue::size)
+                .description("transcripts waiting for an NLP worker")
+                .register(meterRegistry);
+        Gauge.builder("nlp.workers.heap", this, NlpWorkerPool::usedHeapBytes)
+                .description("heap used by the NLP workers, as of their last health check")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public List<ExpenseRequest> extract(String text) {
+        if (!started) load();
+
+        CompletableFuture<List<ExpenseRequest>> result = new CompletableFuture<>();
+        queue.add(new Pending(text, result, 0));
+        try {
+            return result.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(false);
+            throw new RuntimeException("The NLP workers didn't answer within " + timeoutMs + " ms");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the NLP workers");
+        }
+    }
+
+    /**
+     * starts the workers and waits until each has come up or failed its first start (it keeps retrying then).
+     */
+    @Override
+    public synchronized void load() {
+        if (started) return;
+        CountDownLatch firstStarts = new CountDownLatch(count);
+        long pid = ProcessHandle.current().pid();
+        for (int i = 0; i < count; i++) {
+            NlpWorkerProcess worker = new NlpWorkerProcess(i,
+                    Path.of(socketDir, "spendy-nlp-" + pid + "-" + i + ".sock"), launcher);
+            workers.add(worker);
+            Thread dispatcher = new Thread(() -> dispatch(worker, firstStarts), "nlp-worker-dispatch-" + i);
+            dispatcher.setDaemon(true);
+            dispatchers.add(dispatcher);
+            dispatcher.start();
+        }
+        started = true;
+
+        try {
+            firstStarts.await(startTimeoutMs + 5_000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (alive() == 0) throw new RuntimeException("No NLP worker could be started");
+    }
+
+    @Scheduled(fixedDelayString = "${nlp.workers.health-interval-ms:5000}")
+    public void checkHealth() {
+        for (NlpWorkerProcess worker : workers) {
+            // a worker that isn't alive is being started by its dispatcher
+            if (!worker.isAlive()) continue;
+            try {
+                worker.ping(Duration.ofMillis(healthTimeoutMs));
+            } catch (IOException e) {
+                log.warn("NLP worker {} failed its health check, restarting it", worker.index(), e);
+                meterRegistry.counter("nlp.workers.health.failures").increment();
+                worker.kill();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        stopping = true;
+        for (Thread dispatcher : dispatchers) {
+            dispatcher.interrupt();
+        }
+        for (NlpWorkerProcess worker : workers) {
+            worker.stop();
+        }
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result().completeExceptionally(new RuntimeException("The NLP workers are shutting down"));
+        }
+    }
+
+    public int alive() {
+        int alive = 0;
+        for (NlpWorkerProcess worker : workers) {
+            if (worker.isAlive()) alive++;
+        }
+        return alive;
+    }
+
+    private long usedHeapBytes() {
+        long used = 0;
+        for (NlpWorkerProcess worker : workers) {
+            used += worker.usedHeapBytes();
+        }
+        return used;
+    }
+
+    private void dispatch(NlpWorkerProcess worker, CountDownLatch firstStarts) {
+        boolean firstStart = true;
+        long backoffMs = MIN_BACKOFF_MS;
+        try {
+            while (!stopping) {
+                if (!worker.isAlive()) {
+                    boolean up = start(worker, !firstStart);
+                    if (firstStart) {
+                        firstStarts.countDown();
+                        firstStart = false;
+                    }
+                    if (!up) {
+                        Thread.sleep(backoffMs);
+                        backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+                        continue;
+                    }
+                    backoffMs = MIN_BACKOFF_MS;
+                }
+
+                List<Pending> batch = nextBatch();
+                if (batch.isEmpty()) continue;
+                if (!worker.isAlive()) {
+                    // killed by the health check meanwhile, the batch goes to whichever worker is up first
+                    queue.addAll(batch);
+                    continue;
+                }
+                send(worker, batch);
+            }
+        } catch (InterruptedException e) {
+            // stopping
+        }
+    }
+
+    private boolean start(NlpWorkerProcess worker, boolean restart) throws InterruptedException {
+        if (restart) meterRegistry.counter("nlp.workers.restarts").increment();
+        long start = System.nanoTime();
+        try {
+            worker.start(Duration.ofMillis(startTimeoutMs));
+            log.info("NLP worker {} {} in {} ms", worker.index(), restart ? "restarted" : "started",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return true;
+        } catch (IOException e) {
+            log.warn("NLP worker {} couldn't be started", worker.index(), e);
+            return false;
+        }
+    }
+
+    /**
+     * what is queued, up to the batch size; empty when nothing came within a second (the dispatcher then
+     * checks its worker again).
+     */
+    private List<Pending> nextBatch() throws InterruptedException {
+        Pending first = queue.poll(1, TimeUnit.SECONDS);
+        if (first == null) return List.of();
+
+        List<Pending> batch = new ArrayList<>(batchSize);
+        batch.add(first);
+        queue.drainTo(batch, batchSize - 1);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchWaitMs);
+        while (batch.size() < batchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) break;
+            Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) break;
+            batch.add(next);
+        }
+        // callers that timed out don't need an answer
+        batch.removeIf(pending -> pending.result().isDone());
+        return batch;
+    }
+
+    private void send(NlpWorkerProcess worker, List<Pending> batch) {
+        List<String> texts = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            texts.add(pending.text());
+        }
+
+        long start = System.nanoTime();
+        List<NlpWorkerProtocol.Result> results;
+        try {
+            results = worker.extract(texts, Duration.ofMillis(timeoutMs));
+        } catch (IOException e) {
+            log.warn("NLP worker {} failed during a batch of {}, restarting it", worker.index(), batch.size(), e);
+            worker.stop();
+            for (Pending pending : batch) {
+                retry(pending, e);
+            }
+            return;
+        }
+        batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        batchSizes.record(batch.size());
+
+        for (int i = 0; i < batch.size(); i++) {
+            NlpWorkerProtocol.Result result = results.get(i);
+            if (result.isOk()) {
+                batch.get(i).result().complete(result.expenses());
+            } else {
+                batch.get(i).result().completeExceptionally(new RuntimeException(result.error()));
+            }
+        }
+    }
+
+    // a transcript that takes its worker down twice isn't tried on a third
+    private void retry(Pending pending, IOException cause) {
+        if (pending.attempts() + 1 < MAX_ATTEMPTS && !stopping) {
+            queue.add(new Pending(pending.text(), pending.result(), pending.attempts() + 1));
+        } else {
+            pending.result().completeExceptionally(new RuntimeException("The NLP worker failed: " + cause.getMessage()));
+        }
+    }
+
+    private Process launch(Path socket) throws IOException {
+        List<String> commandLine = new ArrayList<>();
+        if (command.isBlank()) {
+            commandLine.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+            commandLine.addAll(words(jvmArgs));
+            commandLine.add("-Dnlp.languages=" + languages);
+            commandLine.add("-Dnlp.sentence-annotators=" + sentenceAnnotators);
+            commandLine.add("-Dnlp.threads=" + threads);
+            commandLine.add("-Dnlp.workers.batch-size=" + batchSize);
+            commandLine.add("-cp");
+            commandLine.add(System.getProperty("java.class.path"));
+            commandLine.add(NlpWorkerMain.class.getName());
+        } else {
+            commandLine.addAll(words(command));
+        }
+        commandLine.add(socket.toString());
+
+        return new ProcessBuilder(commandLine)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+                .start();
+    }
+
+    private static List<String> words(String line) {
+        return Arrays.stream(line.trim().split("\\s+")).filter(word -> !word.isEmpty()).toList();
+    }
+
+    public void setConfig_OnlyForTesting(int count, int batchSize, long batchWaitMs, long timeoutMs) {
+        this.count = count;
+        this.batchSize = batchSize;
+        this.batchWaitMs = batchWaitMs;
+        this.timeoutMs = timeoutMs;
+    }
+}
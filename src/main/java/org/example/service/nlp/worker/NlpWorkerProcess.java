@@ -0,0 +1,185 @@
+package org.example.service.nlp.worker;
+
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * one worker process, seen from the web JVM: the process and the connection batches go over.
+ * --------
+ * start, extract and stop are called by the worker's dispatcher thread only ({@link NlpWorkerPool}).
+ * The health check pings on a connection of its own and kills the process when it doesn't answer,
+ * the dispatcher notices and starts a new one.
+ */
+public class NlpWorkerProcess {
+    /**
+     * starts the process that serves {@code socket}.
+     */
+    public interface Launcher {
+        Process launch(Path socket) throws IOException;
+    }
+
+    private static final long CONNECT_RETRY_MS = 200;
+
+    private final int index;
+    private final Path socket;
+    private final Launcher launcher;
+    private volatile Process process;
+    private volatile boolean ready;
+    private volatile long usedHeapBytes;
+    private SocketChannel channel;
+    private DataInputStream in;
+    private DataOutputStream out;
+
+    public NlpWorkerProcess(int index, Path socket, Launcher launcher) {
+        this.index = index;
+        this.socket = socket;
+        this.launcher = launcher;
+    }
+
+    /**
+     * launches the process and waits until its socket accepts a connection (models loaded).
+     */
+    public void start(Duration timeout) throws IOException, InterruptedException {
+        stop();
+        Files.deleteIfExists(socket);
+        process = launcher.launch(socket);
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (true) {
+            if (!process.isAlive()) {
+                throw new IOException("NLP worker " + index + " exited while starting (" + process.exitValue() + ")");
+            }
+            try {
+                channel = connect();
+                break;
+            } catch (IOException e) {
+                if (System.nanoTime() > deadline) {
+                    stop();
+                    throw new IOException("NLP worker " + index + " didn't start within " + timeout.toSeconds() + " s");
+                }
+                Thread.sleep(CONNECT_RETRY_MS);
+            }
+        }
+        in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+        ready = true;
+    }
+
+    /**
+     * one result per text, in order. A worker that doesn't answer within {@code timeout} is killed and its
+     * connection closed, like {@link #ping} does, so the dispatcher isn't stuck on it and can retry the batch.
+     */
+    public List<NlpWorkerProtocol.Result> extract(List<String> texts, Duration timeout) throws IOException {
+        if (!ready) throw new IOException("NLP worker " + index + " is not running");
+        SocketChannel connection = channel;
+        CompletableFuture<Void> watchdog = CompletableFuture.runAsync(() -> {
+            kill();
+            closeQuietly(connection);
+        }, CompletableFuture.delayedExecutor(timeout.toMillis(), TimeUnit.MILLISECONDS));
+        List<NlpWorkerProtocol.Result> results;
+        try {
+            NlpWorkerProtocol.writeExtract(out, texts);
+            results = NlpWorkerProtocol.readResults(NlpWorkerProtocol.read(in, NlpWorkerProtocol.RESULT));
+        } catch (IOException e) {
+            if (watchdog.isDone()) {
+                throw new IOException("NLP worker " + index + " didn't answer within " + timeout.toMillis() + " ms", e);
+            }
+            throw e;
+        } finally {
+            watchdog.cancel(false);
+        }
+        if (results.size() != texts.size()) {
+            throw new IOException("NLP worker " + index + " answered " + results.size() + " of " + texts.size() + " texts");
+        }
+        return results;
+    }
+
+    /**
+     * a PING on a fresh connection, closed after {@code timeout} if the worker doesn't answer.
+     */
+    public void ping(Duration timeout) throws IOException {
+        try (SocketChannel connection = connect()) {
+            CompletableFuture<Void> watchdog = CompletableFuture.runAsync(() -> closeQuietly(connection),
+                    CompletableFuture.delayedExecutor(timeout.toMillis(), TimeUnit.MILLISECONDS));
+            try {
+                DataOutputStream pingOut = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(connection)));
+                DataInputStream pingIn = new DataInputStream(new BufferedInputStream(Channels.newInputStream(connection)));
+                NlpWorkerProtocol.writePing(pingOut);
+                usedHeapBytes = NlpWorkerProtocol.readPong(NlpWorkerProtocol.read(pingIn, NlpWorkerProtocol.PONG));
+            } finally {
+                watchdog.cancel(false);
+            }
+        }
+    }
+
+    public boolean isAlive() {
+        Process current = process;
+        return ready && current != null && current.isAlive();
+    }
+
+    /**
+     * the health check's way out: the dispatcher sees a dead worker and restarts it.
+     */
+    public void kill() {
+        ready = false;
+        Process current = process;
+        if (current != null) current.destroyForcibly();
+    }
+
+    public void stop() {
+        ready = false;
+        if (channel != null) closeQuietly(channel);
+        channel = null;
+        Process current = process;
+        if (current != null) {
+            current.destroy();
+            try {
+                if (!current.waitFor(5, TimeUnit.SECONDS)) current.destroyForcibly();
+            } catch (InterruptedException e) {
+                current.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            Files.deleteIfExists(socket);
+        } catch (IOException e) {
+            // the next start replaces it
+        }
+    }
+
+    public int index() {
+        return index;
+    }
+
+    public long usedHeapBytes() {
+        return isAlive() ? usedHeapBytes : 0;
+    }
+
+    private SocketChannel connect() throws IOException {
+        SocketChannel connection = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            connection.connect(UnixDomainSocketAddress.of(socket));
+            return connection;
+        } catch (IOException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // closing anyway
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package org.example.service.nlp.worker;
+
+import org.example.domain.request.ExpenseRequest;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * the messages between the web JVM and an NLP worker, over a Unix domain socket.
+ * --------
+ * a frame is {@code int length, byte type, payload}, big-endian, strings as {@code int byteLength} (-1 for
+ * null) and UTF-8 bytes:
+ * PING    -> (nothing)
+ * PONG    -> long usedHeapBytes
+ * EXTRACT -> int count, count x string transcript
+ * RESULT  -> int count, count x (byte ok, ok ? int n, n x (product, price, quantity) : string error)
+ * A RESULT answers the EXTRACT before it on the same connection, item by item in the same order.
+ * Frames are read whole (bounded by MAX_FRAME) before decoding, a broken peer can't leave half a message.
+ */
+public final class NlpWorkerProtocol {
+    public static final byte PING = 1;
+    public static final byte PONG = 2;
+    public static final byte EXTRACT = 3;
+    public static final byte RESULT = 4;
+
+    static final int MAX_FRAME = 16 * 1024 * 1024;
+
+    /**
+     * one transcript's outcome: the expenses, or why the worker couldn't extract them.
+     */
+    public record Result(List<ExpenseRequest> expenses, String error) {
+        public static Result ok(List<ExpenseRequest> expenses) {
+            return new Result(expenses, null);
+        }
+
+        public static Result failed(String error) {
+            return new Result(null, error == null ? "extraction failed" : error);
+        }
+
+        public boolean isOk() {
+            return error == null;
+        }
+    }
+
+    /**
+     * a frame as read: its type and a stream over its payload.
+     */
+    public record Frame(byte type, DataInputStream payload) {
+    }
+
+    private NlpWorkerProtocol() {
+    }
+
+    public static void writePing(DataOutputStream out) throws IOException {
+        writeFrame(out, PING, new ByteArrayOutputStream(0));
+    }
+
+    public static void writePong(DataOutputStream out, long usedHeapBytes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8);
+        new DataOutputStream(bytes).writeLong(usedHeapBytes);
+        writeFrame(out, PONG, bytes);
+    }
+
+    public static void writeExtract(DataOutputStream out, List<String> texts) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * texts.size());
+        DataOutputStream payload = new DataOutputStream(bytes);
+        payload.writeInt(texts.size());
+        for (String text : texts) {
+            writeString(payload, text);
+        }
+        writeFrame(out, EXTRACT, bytes);
+    }
+
+    public static void writeResults(DataOutputStream out, List<Result> results) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * results.size());
+        DataOutputStream payload = new DataOutputStream(bytes);
+        payload.writeInt(results.size());
+        for (Result result : results) {
+            payload.writeBoolean(result.isOk());
+            if (!result.isOk()) {
+                writeString(payload, result.error());
+                continue;
+            }
+            payload.writeInt(result.expenses().size());
+            for (ExpenseRequest expense : result.expenses()) {
+                writeString(payload, expense.getProduct());
+                writeString(payload, expense.getPrice());
+                writeString(payload, expense.getQuantity());
+            }
+        }
+        writeFrame(out, RESULT, bytes);
+    }
+
+    /**
+     * @throws EOFException when the peer closed the connection
+     */
+    public static Frame read(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 1 || length > MAX_FRAME) throw new IOException("Bad NLP worker frame length " + length);
+        byte[] frame = new byte[length];
+        in.readFully(frame);
+        return new Frame(frame[0], new DataInputStream(new ByteArrayInputStream(frame, 1, length - 1)));
+    }
+
+    public static Frame read(DataInputStream in, byte expectedType) throws IOException {
+        Frame frame = read(in);
+        if (frame.type() != expectedType) {
+            throw new IOException("Expected NLP worker frame " + expectedType + ", got " + frame.type());
+        }
+        return frame;
+    }
+
+    public static long readPong(Frame frame) throws IOException {
+        return frame.payload().readLong();
+    }
+
+    public static List<String> readTexts(Frame frame) throws IOException {
+        DataInputStream payload = frame.payload();
+        int count = readCount(payload);
+        List<String> texts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            texts.add(readString(payload));
+        }
+        return texts;
+    }
+
+    public static List<Result> readResults(Frame frame) throws IOException {
+        DataInputStream payload = frame.payload();
+        int count = readCount(payload);
+        List<Result> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (!payload.readBoolean()) {
+                results.add(Result.failed(readString(payload)));
+                continue;
+            }
+            int expenses = readCount(payload);
+            List<ExpenseRequest> list = new ArrayList<>(expenses);
+            for (int j = 0; j < expenses; j++) {
+                list.add(new ExpenseRequest(readString(payload), readString(payload), readString(payload)));
+            }
+            results.add(Result.ok(list));
+        }
+        return results;
+    }
+
+    private static void writeFrame(DataOutputStream out, byte type, ByteArrayOutputStream payload) throws IOException {
+        out.writeInt(payload.size() + 1);
+        out.writeByte(type);
+        payload.writeTo(out);
+        out.flush();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) return null;
+        if (length > in.available()) throw new IOException("Bad NLP worker string length " + length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int readCount(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > in.available()) throw new IOException("Bad NLP worker count " + count);
+        return count;
+    }
+}
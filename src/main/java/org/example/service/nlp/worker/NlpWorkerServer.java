@@ -0,0 +1,133 @@
+package org.example.service.nlp.worker;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.domain.request.ExpenseRequest;
+
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Function;
+
+/**
+ * the worker side of the socket: answers PING and EXTRACT frames ({@link NlpWorkerProtocol}).
+ * --------
+ * every connection gets its own thread, so the web JVM's health check (its own connection) is answered
+ * while a batch is being extracted. The transcripts of a batch are extracted concurrently, each of them
+ * spreads its sentences over the NLP executor as in the web JVM.
+ */
+@Slf4j
+public class NlpWorkerServer implements Closeable {
+    private final Path socket;
+    private final Function<String, List<ExpenseRequest>> extractor;
+    private final ExecutorService batchExecutor;
+    private final ServerSocketChannel server;
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+
+    public NlpWorkerServer(Path socket, Function<String, List<ExpenseRequest>> extractor, int parallelism)
+            throws IOException {
+        this.socket = socket;
+        this.extractor = extractor;
+        this.batchExecutor = Executors.newFixedThreadPool(parallelism, daemon("nlp-worker-batch"));
+        Files.deleteIfExists(socket);
+        this.server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        this.server.bind(UnixDomainSocketAddress.of(socket));
+    }
+
+    /**
+     * accepts connections until {@link #close()}.
+     */
+    public void serve() throws IOException {
+        while (true) {
+            SocketChannel connection;
+            try {
+                connection = server.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            }
+            connections.add(connection);
+            Thread thread = new Thread(() -> handle(connection), "nlp-worker-connection");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        for (SocketChannel connection : connections) {
+            connection.close();
+        }
+        batchExecutor.shutdownNow();
+        Files.deleteIfExists(socket);
+    }
+
+    private void handle(SocketChannel connection) {
+        try (connection;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(connection)));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(connection)))) {
+            while (true) {
+                NlpWorkerProtocol.Frame frame = NlpWorkerProtocol.read(in);
+                switch (frame.type()) {
+                    case NlpWorkerProtocol.PING -> NlpWorkerProtocol.writePong(out, usedHeap());
+                    case NlpWorkerProtocol.EXTRACT -> NlpWorkerProtocol.writeResults(out, extract(NlpWorkerProtocol.readTexts(frame)));
+                    default -> throw new IOException("Unexpected NLP worker frame " + frame.type());
+                }
+            }
+        } catch (EOFException e) {
+            // the web JVM closed the connection
+        } catch (IOException e) {
+            if (server.isOpen()) log.warn("NLP worker connection failed", e);
+        } finally {
+            connections.remove(connection);
+        }
+    }
+
+    List<NlpWorkerProtocol.Result> extract(List<String> texts) {
+        List<CompletableFuture<NlpWorkerProtocol.Result>> futures = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            futures.add(CompletableFuture.supplyAsync(() -> extractOne(text), batchExecutor));
+        }
+        List<NlpWorkerProtocol.Result> results = new ArrayList<>(texts.size());
+        for (CompletableFuture<NlpWorkerProtocol.Result> future : futures) {
+            results.add(future.join());
+        }
+        return results;
+    }
+
+    // one bad transcript fails alone, not the batch
+    private NlpWorkerProtocol.Result extractOne(String text) {
+        try {
+            return NlpWorkerProtocol.Result.ok(extractor.apply(text));
+        } catch (RuntimeException e) {
+            log.warn("Extraction failed in the NLP worker", e);
+            return NlpWorkerProtocol.Result.failed(e.getMessage());
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
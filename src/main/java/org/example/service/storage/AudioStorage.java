@@ -0,0 +1,42 @@
+package org.example.service.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+
+/**
+ * the bucket that holds uploaded audio. GCS in production, a local directory for tests and development
+ * (storage.provider=local).
+ */
+public interface AudioStorage {
+
+    /**
+     * a short-lived URL the client can PUT the object to directly, without passing through our servers.
+     * Storage refuses an upload larger than {@code maxBytes} where it can check it.
+     */
+    SignedUpload signUpload(String objectName, String contentType, long maxBytes, Duration ttl);
+
+    boolean exists(String objectName);
+
+    /**
+     * @return the size in bytes, or -1 when the object doesn't exist
+     */
+    long sizeOf(String objectName);
+
+    InputStream open(String objectName) throws IOException;
+
+    /**
+     * streams the input into the object, memory use doesn't depend on its size.
+     */
+    void write(String objectName, String contentType, InputStream in) throws IOException;
+
+    /**
+     * nothing happens when the object doesn't exist.
+     */
+    void delete(String objectName);
+
+    /**
+     * the URL remote services (AssemblyAI) read the object from.
+     */
+    String publicUrl(String objectName);
+}
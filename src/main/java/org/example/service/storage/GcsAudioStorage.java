@@ -0,0 +1,102 @@
+package org.example.service.storage;
+
+import com.google.cloud.WriteChannel;
+import com.google.cloud.storage.*;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "storage.provider", havingValue = "gcs", matchIfMissing = true)
+public class GcsAudioStorage implements AudioStorage {
+    private final Storage storage;
+
+    @Value("${google.cloud.bucket.name}")
+    private String BUCKET_NAME;
+    @Value("${audio.upload.buffer-size:65536}")
+    private int bufferSize = 64 * 1024;
+    @Value("${audio.upload.chunk-size:1048576}")
+    private int chunkSize = 1024 * 1024;
+
+    /**
+     * V4 signed PUT, the client has to send the same Content-Type it was signed for and the
+     * x-goog-content-length-range header, so GCS itself rejects anything bigger than maxBytes.
+     */
+    @Override
+    public SignedUpload signUpload(String objectName, String contentType, long maxBytes, Duration ttl) {
+        BlobInfo blobInfo = BlobInfo.newBuilder(BlobId.of(BUCKET_NAME, objectName))
+                .setContentType(contentType)
+                .build();
+        Map<String, String> headers = Map.of("x-goog-content-length-range", "0," + maxBytes);
+        URL url = storage.signUrl(blobInfo, ttl.getSeconds(), TimeUnit.SECONDS,
+                Storage.SignUrlOption.httpMethod(HttpMethod.PUT),
+                Storage.SignUrlOption.withContentType(),
+                Storage.SignUrlOption.withExtHeaders(headers),
+                Storage.SignUrlOption.withV4Signature());
+
+        return new SignedUpload(url.toString(), "PUT", contentType, headers, Instant.now().plus(ttl));
+    }
+
+    @Override
+    public boolean exists(String objectName) {
+        return storage.get(BlobId.of(BUCKET_NAME, objectName)) != null;
+    }
+
+    @Override
+    public long sizeOf(String objectName) {
+        Blob blob = storage.get(BlobId.of(BUCKET_NAME, objectName));
+        return blob == null ? -1 : blob.getSize();
+    }
+
+    @Override
+    public InputStream open(String objectName) {
+        return Channels.newInputStream(storage.reader(BlobId.of(BUCKET_NAME, objectName)));
+    }
+
+    /**
+     * the audio is streamed into the bucket through a resumable write channel with one fixed buffer,
+     * so memory per upload doesn't depend on the length of the recording.
+     * chunkSize is how much the channel sends per request to GCS (it must be a multiple of 256KB).
+     */
+    @Override
+    public void write(String objectName, String contentType, InputStream in) throws IOException {
+        BlobInfo blobInfo = BlobInfo.newBuilder(BlobId.of(BUCKET_NAME, objectName)).setContentType(contentType).build();
+        try (WriteChannel writer = storage.writer(blobInfo)) {
+            writer.setChunkSize(chunkSize);
+            byte[] buffer = new byte[bufferSize];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                while (chunk.hasRemaining()) {
+                    writer.write(chunk);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void delete(String objectName) {
+        storage.delete(BlobId.of(BUCKET_NAME, objectName));
+    }
+
+    @Override
+    public String publicUrl(String objectName) {
+        return String.format("https://storage.googleapis.com/%s/%s", BUCKET_NAME, objectName);
+    }
+
+    public void setBUCKET_NAME_OnlyForTesting(String BUCKET_NAME) {
+        this.BUCKET_NAME = BUCKET_NAME;
+    }
+}
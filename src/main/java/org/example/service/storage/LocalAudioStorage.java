@@ -0,0 +1,86 @@
+package org.example.service.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * keeps objects as files under storage.local.root. The "signed" upload URL is a file: URL,
+ * clients in tests write the file themselves.
+ */
+@Component
+@ConditionalOnProperty(name = "storage.provider", havingValue = "local")
+public class LocalAudioStorage implements AudioStorage {
+    private final Path root;
+
+    public LocalAudioStorage(@Value("${storage.local.root:${java.io.tmpdir}/spendy-audio}") Path root) {
+        this.root = root;
+    }
+
+    @Override
+    public SignedUpload signUpload(String objectName, String contentType, long maxBytes, Duration ttl) {
+        Path target = resolve(objectName);
+        try {
+            Files.createDirectories(target.getParent());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new SignedUpload(target.toUri().toString(), "PUT", contentType, Map.of(), Instant.now().plus(ttl));
+    }
+
+    @Override
+    public boolean exists(String objectName) {
+        return Files.isRegularFile(resolve(objectName));
+    }
+
+    @Override
+    public long sizeOf(String objectName) {
+        try {
+            return exists(objectName) ? Files.size(resolve(objectName)) : -1;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public InputStream open(String objectName) throws IOException {
+        return Files.newInputStream(resolve(objectName));
+    }
+
+    @Override
+    public void write(String objectName, String contentType, InputStream in) throws IOException {
+        Path target = resolve(objectName);
+        Files.createDirectories(target.getParent());
+        Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public void delete(String objectName) {
+        try {
+            Files.deleteIfExists(resolve(objectName));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public String publicUrl(String objectName) {
+        return resolve(objectName).toUri().toString();
+    }
+
+    private Path resolve(String objectName) {
+        Path path = root.resolve(objectName).normalize();
+        if (!path.startsWith(root.normalize())) throw new IllegalArgumentException("Invalid object name");
+        return path;
+    }
+}
@@ -0,0 +1,12 @@
+package org.example.service.storage;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * where and how a client may upload one object itself, valid until expiresAt. The headers are part of
+ * the signature, the client has to send them as they are.
+ */
+public record SignedUpload(String url, String method, String contentType, Map<String, String> headers,
+                           Instant expiresAt) {
+}
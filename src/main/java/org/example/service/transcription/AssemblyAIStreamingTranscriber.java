@@ -0,0 +1,39 @@
+package org.example.service.transcription;
+
+import com.assemblyai.api.RealtimeTranscriber;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Consumer;
+
+@Component
+public class AssemblyAIStreamingTranscriber implements StreamingTranscriber {
+    @Value("${assemblyai.api.key}")
+    private String API_KEY;
+
+    @Override
+    public Session open(int sampleRate, Consumer<String> onFinal, Consumer<Throwable> onError) {
+        RealtimeTranscriber transcriber = RealtimeTranscriber.builder()
+                .apiKey(API_KEY)
+                .sampleRate(sampleRate)
+                .onFinalTranscript(transcript -> {
+                    String text = transcript.getText();
+                    if (text != null && !text.isBlank()) onFinal.accept(text);
+                })
+                .onError(onError::accept)
+                .build();
+        transcriber.connect();
+
+        return new Session() {
+            @Override
+            public void sendAudio(byte[] pcm) {
+                transcriber.sendAudio(pcm);
+            }
+
+            @Override
+            public void close() {
+                transcriber.close();
+            }
+        };
+    }
+}
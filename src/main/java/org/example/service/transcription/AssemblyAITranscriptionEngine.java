@@ -0,0 +1,61 @@
+package org.example.service.transcription;
+
+import com.assemblyai.api.AssemblyAI;
+import com.assemblyai.api.resources.transcripts.requests.TranscriptOptionalParams;
+import com.assemblyai.api.resources.transcripts.types.Transcript;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * submits the audio URL and returns right away; {@link PendingTranscripts} completes the future once
+ * AssemblyAI is done (webhook or shared poller). The SDK's transcribe() would block the caller while
+ * it polls.
+ */
+@Component
+@RequiredArgsConstructor
+public class AssemblyAITranscriptionEngine implements TranscriptionEngine {
+    public static final String WEBHOOK_SECRET_HEADER = "X-Webhook-Secret";
+
+    private final AssemblyAI assembly;
+    private final PendingTranscripts pendingTranscripts;
+
+    @Override
+    public String name() {
+        return "assemblyai";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public boolean requiresUrl() {
+        return true;
+    }
+
+    @Override
+    public CompletableFuture<String> transcribe(AudioSource audio) {
+        Transcript submitted;
+        try {
+            submitted = assembly.transcripts().submit(audio.getUrl(), params());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return pendingTranscripts.register(submitted.getId());
+    }
+
+    private TranscriptOptionalParams params() {
+        if (!pendingTranscripts.webhookEnabled()) return TranscriptOptionalParams.builder().build();
+
+        TranscriptOptionalParams.Builder builder = TranscriptOptionalParams.builder()
+                .webhookUrl(pendingTranscripts.getWebhookUrl());
+        String secret = pendingTranscripts.getWebhookSecret();
+        if (secret != null && !secret.isBlank()) {
+            builder.webhookAuthHeaderName(WEBHOOK_SECRET_HEADER).webhookAuthHeaderValue(secret);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.service.transcription;
+
+import lombok.*;
+import org.springframework.core.io.InputStreamSource;
+
+/**
+ * a recording handed to a {@link TranscriptionEngine}. The content can be re-opened as often as needed
+ * (a spooled multipart part, a temp file, a blob), url is set once the audio is reachable from outside.
+ */
+@Getter
+@Builder(toBuilder = true)
+@AllArgsConstructor
+public class AudioSource {
+    private final InputStreamSource content;
+    private final String name;
+    private final String contentType;
+    private final long size;
+    private final String hash;
+    private final String url;
+    // null when the format doesn't tell us without decoding
+    private final Double durationSeconds;
+}
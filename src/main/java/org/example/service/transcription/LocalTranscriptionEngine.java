@@ -0,0 +1,113 @@
+package org.example.service.transcription;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * offline transcription through a sidecar binary (e.g. whisper.cpp) installed next to the app.
+ * transcription.local.command is split on spaces, "{file}" is replaced with the path of the audio
+ * and whatever the process prints on stdout is the transcript.
+ * --------
+ * e.g. transcription.local.command=whisper-cli -m /opt/models/ggml-base.en.bin -nt -np -f {file}
+ */
+@Component
+public class LocalTranscriptionEngine implements TranscriptionEngine {
+    @Value("${transcription.local.command:}")
+    private String command;
+    @Value("${transcription.local.timeout-seconds:60}")
+    private long timeoutSeconds;
+
+    @Override
+    public String name() {
+        return "local";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return command != null && !command.isBlank();
+    }
+
+    /**
+     * the sidecar runs on its own, completion comes from {@link Process#onExit()} so no pipeline thread
+     * waits on the process.
+     */
+    @Override
+    public CompletableFuture<String> transcribe(AudioSource audio) {
+        Path input = null;
+        Path output = null;
+        Process process;
+        try {
+            input = Files.createTempFile("spendy-audio-", suffix(audio.getName()));
+            output = Files.createTempFile("spendy-transcript-", ".txt");
+            try (InputStream in = audio.getContent().getInputStream()) {
+                Files.copy(in, input, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            List<String> args = new ArrayList<>();
+            for (String part : command.trim().split("\\s+")) {
+                args.add(part.replace("{file}", input.toString()));
+            }
+
+            process = new ProcessBuilder(args)
+                    .redirectOutput(output.toFile())
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+        } catch (IOException e) {
+            deleteQuietly(input);
+            deleteQuietly(output);
+            return CompletableFuture.failedFuture(new RuntimeException("Local transcription failed"));
+        }
+
+        Path inputFile = input;
+        Path outputFile = output;
+        return process.onExit()
+                .orTimeout(timeoutSeconds, TimeUnit.SECONDS)
+                .handle((exited, error) -> {
+                    try {
+                        if (error != null) {
+                            process.destroyForcibly();
+                            throw new RuntimeException("Local transcription timed out");
+                        }
+                        if (exited.exitValue() != 0) {
+                            throw new RuntimeException("Local transcription failed with exit code " + exited.exitValue());
+                        }
+
+                        String text = Files.readString(outputFile, StandardCharsets.UTF_8).trim();
+                        return text.isEmpty() ? null : text;
+                    } catch (IOException e) {
+                        throw new RuntimeException("Local transcription failed");
+                    } finally {
+                        deleteQuietly(inputFile);
+                        deleteQuietly(outputFile);
+                    }
+                });
+    }
+
+    private static String suffix(String name) {
+        if (name == null || name.lastIndexOf('.') < 0) return ".audio";
+        return name.substring(name.lastIndexOf('.'));
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) return;
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+        }
+    }
+
+    public void setCommand_OnlyForTesting(String command) {
+        this.command = command;
+    }
+}
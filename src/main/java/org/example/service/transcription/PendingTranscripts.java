@@ -0,0 +1,209 @@
+package org.example.service.transcription;
+
+import com.assemblyai.api.AssemblyAI;
+import com.assemblyai.api.resources.transcripts.types.Transcript;
+import com.assemblyai.api.resources.transcripts.types.TranscriptStatus;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.domain.response.BaseResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AssemblyAI transcripts that were submitted and haven't finished yet.
+ * --------
+ * a transcript is completed either by the webhook (AssemblyAI calls us when it's done) or by one shared
+ * poller that checks the transcripts that are due, so thousands of pending transcripts cost a map entry
+ * each and not a parked thread. Each check that finds a transcript still running doubles its next delay
+ * (up to max-poll-delay-ms). With a webhook configured the poller only picks up transcripts whose
+ * webhook didn't arrive within webhook-grace-seconds.
+ * The status checks are blocking GETs, they run on the outbound executor with at most poll-batch of them
+ * in flight, so neither the scheduler thread nor the webhook request waits for AssemblyAI. A transcript
+ * isn't due again while its check is running.
+ * Futures are completed on the pipeline executor, so whatever is chained on them never runs on the
+ * poller or on the webhook request thread.
+ */
+@Slf4j
+@Component
+public class PendingTranscripts {
+    private final AssemblyAI assembly;
+    private final ExecutorService executor;
+    private final ExecutorService checks;
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger checking = new AtomicInteger();
+
+    @Value("${transcription.assemblyai.webhook-url:}")
+    private String webhookUrl = "";
+    @Value("${transcription.assemblyai.webhook-secret:}")
+    private String webhookSecret = "";
+    @Value("${transcription.assemblyai.webhook-grace-seconds:60}")
+    private long webhookGraceSeconds = 60;
+    @Value("${transcription.assemblyai.min-poll-delay-ms:1000}")
+    private long minPollDelayMs = 1000;
+    @Value("${transcription.assemblyai.max-poll-delay-ms:30000}")
+    private long maxPollDelayMs = 30000;
+    @Value("${transcription.assemblyai.poll-batch:100}")
+    private int pollBatch = 100;
+    @Value("${transcription.assemblyai.timeout-minutes:15}")
+    private long timeoutMinutes = 15;
+
+    public PendingTranscripts(AssemblyAI assembly,
+                              @Qualifier("pipelineExecutor") ExecutorService executor,
+                              @Qualifier("outboundExecutor") ExecutorService checks,
+                              MeterRegistry meterRegistry) {
+        this.assembly = assembly;
+        this.executor = executor;
+        this.checks = checks;
+        Gauge.builder("transcription.pending", pending, Map::size)
+                .description("AssemblyAI transcripts submitted and not finished yet")
+                .register(meterRegistry);
+    }
+
+    public boolean webhookEnabled() {
+        return webhookUrl != null && !webhookUrl.isBlank();
+    }
+
+    public String getWebhookUrl() {
+        return webhookUrl;
+    }
+
+    public String getWebhookSecret() {
+        return webhookSecret;
+    }
+
+    public CompletableFuture<String> register(String transcriptId) {
+        long now = System.currentTimeMillis();
+        long firstCheck = webhookEnabled() ? now + webhookGraceSeconds * 1000 : now + minPollDelayMs;
+        Pending entry = new Pending(new CompletableFuture<>(), now, firstCheck, minPollDelayMs);
+        pending.put(transcriptId, entry);
+        return entry.future;
+    }
+
+    /**
+     * called by the webhook. The notification only carries the id and status, the text is fetched
+     * asynchronously after the notification is acknowledged.
+     * Notifications for transcripts this node isn't waiting for (already completed, or another node's)
+     * are acknowledged and ignored, the owning node's poller picks those up.
+     */
+    public BaseResponse<String> onWebhook(String secret, String transcriptId) {
+        if (webhookSecret != null && !webhookSecret.isBlank() && (secret == null || !MessageDigest.isEqual(
+                webhookSecret.getBytes(StandardCharsets.UTF_8), secret.getBytes(StandardCharsets.UTF_8)))) {
+            return BaseResponse.<String>builder().message("Invalid webhook secret").status(401).build();
+        }
+        if (transcriptId == null) return BaseResponse.<String>builder()
+                .message("transcript_id is missing").status(400).build();
+
+        if (pending.containsKey(transcriptId)) startCheck(transcriptId);
+        return BaseResponse.<String>builder().message("OK").status(200).data(transcriptId).build();
+    }
+
+    @Scheduled(fixedDelayString = "${transcription.assemblyai.poll-interval-ms:500}")
+    public void poll() {
+        int free = pollBatch - checking.get();
+        if (free <= 0) return;
+
+        long now = System.currentTimeMillis();
+        List<Map.Entry<String, Pending>> due = new ArrayList<>();
+        for (Map.Entry<String, Pending> entry : pending.entrySet()) {
+            if (entry.getValue().nextCheckAt <= now) due.add(entry);
+        }
+        due.sort(Comparator.comparingLong(entry -> entry.getValue().nextCheckAt));
+
+        for (Map.Entry<String, Pending> entry : due.subList(0, Math.min(free, due.size()))) {
+            Pending value = entry.getValue();
+            if (now - value.submittedAt > timeoutMinutes * 60_000) {
+                fail(entry.getKey(), "Transcription timed out");
+            } else {
+                startCheck(entry.getKey());
+            }
+        }
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    private void startCheck(String transcriptId) {
+        // not due again until the check is done, backOff() or the completion replace the entry
+        if (pending.computeIfPresent(transcriptId, (id, entry) -> entry.checking()) == null) return;
+
+        checking.incrementAndGet();
+        try {
+            checks.execute(() -> {
+                try {
+                    check(transcriptId);
+                } finally {
+                    checking.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            checking.decrementAndGet();
+            backOff(transcriptId);
+        }
+    }
+
+    private void check(String transcriptId) {
+        Transcript transcript;
+        try {
+            transcript = assembly.transcripts().get(transcriptId);
+        } catch (RuntimeException e) {
+            log.warn("Failed to check transcript {}", transcriptId, e);
+            backOff(transcriptId);
+            return;
+        }
+
+        TranscriptStatus status = transcript.getStatus();
+        if (TranscriptStatus.COMPLETED.equals(status)) {
+            Pending entry = pending.remove(transcriptId);
+            if (entry == null) return;
+            String text = transcript.getText().filter(t -> !t.isBlank()).orElse(null);
+            executor.execute(() -> entry.future.complete(text));
+        } else if (TranscriptStatus.ERROR.equals(status)) {
+            fail(transcriptId, transcript.getError().orElse("Transcription failed"));
+        } else {
+            backOff(transcriptId);
+        }
+    }
+
+    private void backOff(String transcriptId) {
+        pending.computeIfPresent(transcriptId, (id, entry) -> {
+            long delay = Math.min(entry.delayMs * 2, maxPollDelayMs);
+            return new Pending(entry.future, entry.submittedAt, System.currentTimeMillis() + delay, delay);
+        });
+    }
+
+    private void fail(String transcriptId, String message) {
+        Pending entry = pending.remove(transcriptId);
+        if (entry == null) return;
+        executor.execute(() -> entry.future.completeExceptionally(new RuntimeException(message)));
+    }
+
+    public void setWebhookUrl_OnlyForTesting(String webhookUrl) {
+        this.webhookUrl = webhookUrl;
+    }
+
+    public void setWebhookSecret_OnlyForTesting(String webhookSecret) {
+        this.webhookSecret = webhookSecret;
+    }
+
+    private record Pending(CompletableFuture<String> future, long submittedAt, long nextCheckAt, long delayMs) {
+        Pending checking() {
+            return new Pending(future, submittedAt, Long.MAX_VALUE, delayMs);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.service.transcription;
+
+import java.util.function.Consumer;
+
+/**
+ * speech-to-text on audio that is still being recorded. Each finalized utterance is handed to
+ * onFinal as soon as the engine commits to it, long before the recording ends.
+ */
+public interface StreamingTranscriber {
+
+    /**
+     * @param sampleRate of the raw 16-bit little-endian mono PCM that will be sent
+     */
+    Session open(int sampleRate, Consumer<String> onFinal, Consumer<Throwable> onError);
+
+    interface Session extends AutoCloseable {
+
+        void sendAudio(byte[] pcm);
+
+        /**
+         * flushes what the engine still holds (the last utterance is delivered to onFinal) and disconnects.
+         */
+        @Override
+        void close();
+    }
+}
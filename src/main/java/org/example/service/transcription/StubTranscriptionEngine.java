@@ -0,0 +1,44 @@
+package org.example.service.transcription;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * deterministic engine for tests and benchmarks without network access: the same audio always
+ * maps to the same utterance. Only used when transcription.stub.enabled=true.
+ */
+@Component
+public class StubTranscriptionEngine implements TranscriptionEngine {
+    private static final List<String> UTTERANCES = List.of(
+            "5kg rice for $20",
+            "I bought milk and bread for 3 dollars",
+            "2 big apples for $3",
+            "I purchased a new laptop and a logitech mouse for 1200 euros",
+            "coffee for 3 dollars");
+
+    @Value("${transcription.stub.enabled:false}")
+    private boolean enabled;
+
+    @Override
+    public String name() {
+        return "stub";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return enabled;
+    }
+
+    @Override
+    public CompletableFuture<String> transcribe(AudioSource audio) {
+        String key = audio.getHash() != null ? audio.getHash() : String.valueOf(audio.getSize());
+        return CompletableFuture.completedFuture(UTTERANCES.get(Math.floorMod(key.hashCode(), UTTERANCES.size())));
+    }
+
+    public void setEnabled_OnlyForTesting(boolean enabled) {
+        this.enabled = enabled;
+    }
+}
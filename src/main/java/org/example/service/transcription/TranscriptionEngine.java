@@ -0,0 +1,31 @@
+package org.example.service.transcription;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * a speech-to-text backend. Implementations are Spring beans and are picked per request by
+ * {@link TranscriptionRouter}.
+ */
+public interface TranscriptionEngine {
+
+    String name();
+
+    /**
+     * false when the engine isn't configured on this node (no binary, stub disabled...), the router skips it.
+     */
+    boolean isAvailable();
+
+    /**
+     * engines that download the audio themselves need {@link AudioSource#getUrl()} instead of the bytes.
+     */
+    default boolean requiresUrl() {
+        return false;
+    }
+
+    /**
+     * starts the transcription and returns without waiting for it. {@link AudioSource#getContent()} must be
+     * consumed before this method returns (the caller may delete it afterwards), the result arrives later.
+     * @return completes with the transcript, or null when nothing could be recognized
+     */
+    CompletableFuture<String> transcribe(AudioSource audio);
+}
@@ -0,0 +1,170 @@
+package org.example.service.transcription;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * picks a {@link TranscriptionEngine} per recording.
+ * --------
+ * short utterances ("5kg rice for $20") go to the local engine when it is configured and healthy,
+ * they don't need a cloud round trip. Everything else goes to the healthy engine (error rate below
+ * transcription.router.max-error-rate) with the lowest p95 latency over its last few calls.
+ * Engines with fewer than min-samples calls count as fastest, so each one gets tried.
+ * --------
+ * an unhealthy engine isn't dropped for good: every transcription.router.probe-every-th call it would have
+ * missed goes to it as a probe, and a probe that succeeds clears its history so it is back in the rotation.
+ */
+@Component
+public class TranscriptionRouter {
+    private final List<TranscriptionEngine> engines;
+    private final Map<String, EngineStats> stats = new ConcurrentHashMap<>();
+
+    @Value("${transcription.router.forced:}")
+    private String forced = "";
+    @Value("${transcription.router.short-audio-seconds:8}")
+    private double shortAudioSeconds = 8;
+    // used when the duration can't be read from the container
+    @Value("${transcription.router.short-audio-bytes:262144}")
+    private long shortAudioBytes = 256 * 1024;
+    @Value("${transcription.router.max-error-rate:0.5}")
+    private double maxErrorRate = 0.5;
+    @Value("${transcription.router.min-samples:5}")
+    private int minSamples = 5;
+    @Value("${transcription.router.window:100}")
+    private int window = 100;
+    @Value("${transcription.router.probe-every:20}")
+    private int probeEvery = 20;
+
+    public TranscriptionRouter(List<TranscriptionEngine> engines) {
+        this.engines = engines;
+    }
+
+    public TranscriptionEngine choose(AudioSource audio) {
+        List<TranscriptionEngine> available = engines.stream()
+                .filter(TranscriptionEngine::isAvailable)
+                .toList();
+
+        if (forced != null && !forced.isBlank()) {
+            return available.stream()
+                    .filter(engine -> engine.name().equals(forced))
+                    .findFirst()
+                    .orElseThrow(() -> new RuntimeException("Transcription engine " + forced + " is not available"));
+        }
+
+        Optional<TranscriptionEngine> stub = find(available, "stub");
+        if (stub.isPresent()) return stub.get();
+
+        if (available.isEmpty()) throw new RuntimeException("No transcription engine available");
+
+        for (TranscriptionEngine engine : available) {
+            EngineStats engineStats = statsOf(engine);
+            if (engineStats.errorRate() > maxErrorRate && engineStats.probeDue(probeEvery)) return engine;
+        }
+
+        Optional<TranscriptionEngine> local = find(available, "local");
+        if (local.isPresent() && isShort(audio) && statsOf(local.get()).errorRate() <= maxErrorRate) {
+            return local.get();
+        }
+
+        List<TranscriptionEngine> healthy = available.stream()
+                .filter(engine -> statsOf(engine).errorRate() <= maxErrorRate)
+                .toList();
+        List<TranscriptionEngine> candidates = healthy.isEmpty() ? available : healthy;
+
+        return candidates.stream()
+                .min(Comparator.comparingLong(engine -> {
+                    EngineStats engineStats = statsOf(engine);
+                    return engineStats.samples() < minSamples ? 0L : engineStats.p95Nanos();
+                }))
+                .get();
+    }
+
+    public void record(TranscriptionEngine engine, long latencyNanos, boolean success) {
+        EngineStats engineStats = statsOf(engine);
+        // a success of an unhealthy engine is a probe that went through, its old failures no longer count
+        if (success && engineStats.errorRate() > maxErrorRate) engineStats.reset();
+        engineStats.record(latencyNanos, success);
+    }
+
+    public long p95Nanos(String engineName) {
+        EngineStats engineStats = stats.get(engineName);
+        return engineStats == null ? 0 : engineStats.p95Nanos();
+    }
+
+    public double errorRate(String engineName) {
+        EngineStats engineStats = stats.get(engineName);
+        return engineStats == null ? 0 : engineStats.errorRate();
+    }
+
+    private boolean isShort(AudioSource audio) {
+        if (audio.getDurationSeconds() != null) return audio.getDurationSeconds() <= shortAudioSeconds;
+        return audio.getSize() > 0 && audio.getSize() <= shortAudioBytes;
+    }
+
+    private EngineStats statsOf(TranscriptionEngine engine) {
+        return stats.computeIfAbsent(engine.name(), name -> new EngineStats(window));
+    }
+
+    private static Optional<TranscriptionEngine> find(List<TranscriptionEngine> engines, String name) {
+        return engines.stream().filter(engine -> engine.name().equals(name)).findFirst();
+    }
+
+    /**
+     * ring buffer of the last calls of one engine.
+     */
+    private static class EngineStats {
+        private final long[] latencies;
+        private final boolean[] failures;
+        private int next;
+        private int count;
+        private int skipped;
+
+        EngineStats(int window) {
+            this.latencies = new long[window];
+            this.failures = new boolean[window];
+        }
+
+        synchronized void record(long latencyNanos, boolean success) {
+            latencies[next] = latencyNanos;
+            failures[next] = !success;
+            next = (next + 1) % latencies.length;
+            count = Math.min(count + 1, latencies.length);
+        }
+
+        synchronized void reset() {
+            next = 0;
+            count = 0;
+            skipped = 0;
+        }
+
+        // counts a call that passed this engine by, true (and starts over) on every n-th
+        synchronized boolean probeDue(int n) {
+            if (++skipped < n) return false;
+            skipped = 0;
+            return true;
+        }
+
+        synchronized int samples() {
+            return count;
+        }
+
+        synchronized double errorRate() {
+            if (count == 0) return 0;
+            int failed = 0;
+            for (int i = 0; i < count; i++) {
+                if (failures[i]) failed++;
+            }
+            return (double) failed / count;
+        }
+
+        synchronized long p95Nanos() {
+            if (count == 0) return 0;
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.ceil(0.95 * count) - 1];
+        }
+    }
+}
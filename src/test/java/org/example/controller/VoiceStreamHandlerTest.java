@@ -0,0 +1,119 @@
+package org.example.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.domain.entity.user.UserEntity;
+import org.example.domain.request.ExpenseRequest;
+import org.example.repository.UserRepository;
+import org.example.service.VoiceCommandService;
+import org.example.service.transcription.StreamingTranscriber;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class VoiceStreamHandlerTest {
+    @Mock
+    private VoiceCommandService voiceCommandService;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private StreamingTranscriber transcriber;
+    @Mock
+    private StreamingTranscriber.Session transcription;
+    @Mock
+    private WebSocketSession session;
+
+    private VoiceStreamHandler handler;
+    private UUID userId;
+    private UserEntity user;
+
+    @BeforeEach
+    public void setUp() {
+        handler = new VoiceStreamHandler(voiceCommandService, userRepository, transcriber, new ObjectMapper(), Runnable::run);
+        userId = UUID.randomUUID();
+        user = UserEntity.builder().build();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void finalizedUtterance_PushesExpensesRightAway() throws Exception {
+        connect();
+        ArgumentCaptor<Consumer<String>> onFinal = ArgumentCaptor.forClass(Consumer.class);
+        verify(transcriber).open(eq(8000), onFinal.capture(), any());
+        List<ExpenseRequest> expenses = List.of(ExpenseRequest.builder().product("rice").build());
+        when(voiceCommandService.extractProductInfo("5kg rice for $20")).thenReturn(expenses);
+
+        onFinal.getValue().accept("5kg rice for $20");
+
+        verify(voiceCommandService).save(expenses, user, "5kg rice for $20");
+        ArgumentCaptor<TextMessage> sent = ArgumentCaptor.forClass(TextMessage.class);
+        verify(session).sendMessage(sent.capture());
+        assertTrue(sent.getValue().getPayload().contains("\"type\":\"expenses\""));
+        assertTrue(sent.getValue().getPayload().contains("rice"));
+    }
+
+    @Test
+    public void audioFrames_ForwardedToTranscriber() throws Exception {
+        connect();
+
+        handler.handleMessage(session, new BinaryMessage(new byte[]{1, 2, 3, 4}));
+
+        verify(transcription).sendAudio(new byte[]{1, 2, 3, 4});
+    }
+
+    @Test
+    public void stop_FlushesTranscriberAndSendsDone() throws Exception {
+        connect();
+
+        handler.handleMessage(session, new TextMessage("stop"));
+
+        verify(transcription).close();
+        ArgumentCaptor<TextMessage> sent = ArgumentCaptor.forClass(TextMessage.class);
+        verify(session).sendMessage(sent.capture());
+        assertTrue(sent.getValue().getPayload().contains("\"type\":\"done\""));
+        verify(session).close(CloseStatus.NORMAL);
+    }
+
+    @Test
+    public void unknownUser_ConnectionRefused() throws Exception {
+        when(session.getAttributes()).thenReturn(new HashMap<>());
+
+        handler.afterConnectionEstablished(session);
+
+        verify(session).close(any(CloseStatus.class));
+        verifyNoInteractions(transcriber);
+    }
+
+    private void connect() throws Exception {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("userId", userId);
+        when(session.getAttributes()).thenReturn(attributes);
+        when(session.getId()).thenReturn("ws-1");
+        when(session.getUri()).thenReturn(URI.create("ws://localhost/command/stream?sampleRate=8000"));
+        lenient().when(session.isOpen()).thenReturn(true);
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        when(transcriber.open(anyInt(), any(), any())).thenReturn(transcription);
+
+        handler.afterConnectionEstablished(session);
+    }
+}
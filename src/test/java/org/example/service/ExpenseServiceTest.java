@@ -1,11 +1,15 @@
 package org.example.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.example.domain.entity.VoiceCommandEntity;
+import org.example.domain.entity.category.CategoryStatus;
 import org.example.domain.entity.expense.ExpenseEntity;
 import org.example.domain.entity.user.UserEntity;
+import org.example.domain.request.ExpenseRequest;
 import org.example.domain.response.BaseResponse;
 import org.example.domain.response.ExpenseResponse;
 import org.example.repository.ExpenseRepository;
+import org.example.service.category.CategoryDictionary;
 import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -23,7 +27,9 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -35,12 +41,14 @@ public class ExpenseServiceTest {
     @Mock
     private ExpenseRepository expenseRepository;
     @Mock
-    private MistralAIService mistralAIService;
+    private CategoryDictionary categoryDictionary;
     @Mock
     private HttpClient httpClient;
     @Mock
     private HttpResponse<String> httpResponse;
     @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    @Spy
     @InjectMocks
     private ExpenseService expenseService;
     private ExpenseEntity expense;
@@ -234,4 +242,68 @@ public class ExpenseServiceTest {
         verify(expenseRepository, never()).save(any());
     }
 
+    @Test
+    public void prepare_PriceSplitIntoAmountAndCurrency() {
+        UserEntity user = UserEntity.builder().build();
+        List<ExpenseRequest> requests = List.of(
+                new ExpenseRequest("rice", "3 dollars", "5kg"),
+                new ExpenseRequest("laptop", "2 grand", null),
+                new ExpenseRequest("ramen", "¥500", null),
+                new ExpenseRequest("tea", null, null));
+
+        List<ExpenseEntity> res = expenseService.prepare(requests, user);
+
+        assertEquals("3", res.get(0).getPrice());
+        assertEquals("USD", res.get(0).getCurrency());
+        assertEquals("2000", res.get(1).getPrice());
+        assertEquals("USD", res.get(1).getCurrency());
+        assertEquals("500", res.get(2).getPrice());
+        assertEquals("JPY", res.get(2).getCurrency());
+        assertEquals("not provided", res.get(3).getPrice());
+        assertEquals("not provided", res.get(3).getCurrency());
+    }
+
+    @Test
+    public void prepare_ProductKeyedAsTheCategoryDictionaryKeysIt() {
+        List<ExpenseEntity> res = expenseService.prepare(List.of(
+                new ExpenseRequest("  Oat  \"Milk\" ", "$2", null),
+                new ExpenseRequest(null, "$5", null)), UserEntity.builder().build());
+
+        assertEquals("oat milk", res.get(0).getProductKey());
+        assertNull(res.get(1).getProductKey());
+    }
+
+    @Test
+    public void prepare_CategoryFromTheDictionary() {
+        expenseService.setDeferCategories_OnlyForTesting(false);
+        Map<String, String> categories = new HashMap<>();
+        categories.put("milk", "Food->Dairy->Milk");
+        categories.put("gizmo", null);
+        when(categoryDictionary.findAll(List.of("milk", "gizmo"))).thenReturn(categories);
+
+        List<ExpenseEntity> res = expenseService.prepare(List.of(
+                new ExpenseRequest("milk", "$2", null),
+                new ExpenseRequest("gizmo", null, null),
+                new ExpenseRequest(null, "$5", null)), UserEntity.builder().build());
+
+        assertEquals("Food->Dairy->Milk", res.get(0).getCategory());
+        assertEquals("unknown", res.get(1).getCategory());
+        assertEquals("unknown", res.get(2).getCategory());
+        verify(categoryDictionary, times(1)).findAll(anyCollection());
+        verify(categoryDictionary, never()).find(anyString());
+    }
+
+    @Test
+    public void prepare_Deferred_PendingWithoutLookup() {
+        List<ExpenseEntity> res = expenseService.prepare(List.of(
+                new ExpenseRequest("milk", "$2", null),
+                new ExpenseRequest(null, "$5", null)), UserEntity.builder().build());
+
+        assertNull(res.get(0).getCategory());
+        assertEquals(CategoryStatus.PENDING, res.get(0).getCategoryStatus());
+        assertEquals(0, res.get(0).getCategoryAttempts());
+        assertEquals("unknown", res.get(1).getCategory());
+        assertNull(res.get(1).getCategoryStatus());
+        verifyNoInteractions(categoryDictionary);
+    }
 }
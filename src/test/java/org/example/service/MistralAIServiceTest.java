@@ -1,24 +1,31 @@
 package org.example.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.json.JSONArray;
+import org.json.JSONObject;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
 import java.net.http.HttpClient;
 import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 public class MistralAIServiceTest {
     @Mock
     private HttpClient httpClient;
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
     @InjectMocks
     private MistralAIService mistralAIService;
 
@@ -53,5 +60,58 @@ public class MistralAIServiceTest {
         assertNotNull(res);
     }
 
+    @Test
+    public void findCategories_OnePromptAndFallbackForMissingItems() throws IOException, InterruptedException {
+        HttpResponse batch = answer("""
+                ```json
+                [{"product": "milk", "category": "Food->Dairy->Milk"}, {"product": "bread", "category": "Food->Bakery->Bread"}]
+                ```""");
+        HttpResponse single = answer("Household->Cleaning->Soap");
+        when(httpClient.send(any(), any())).thenReturn(batch, single);
+
+        Map<String, String> res = mistralAIService.findCategories(List.of("milk", "bread", "soap", "milk"));
+
+        assertEquals(Map.of("milk", "Food->Dairy->Milk", "bread", "Food->Bakery->Bread",
+                "soap", "Household->Cleaning->Soap"), res);
+        verify(httpClient, times(2)).send(any(), any());
+    }
+
+    @Test
+    public void findCategories_BatchFails_NothingRetried() throws IOException, InterruptedException {
+        HttpResponse response = mock(HttpResponse.class);
+        when(httpClient.send(any(), any())).thenReturn(response);
+        when(response.statusCode()).thenReturn(500);
+
+        Map<String, String> res = mistralAIService.findCategories(List.of("milk", "bread"));
 
+        assertEquals(2, res.size());
+        assertNull(res.get("milk"));
+        assertNull(res.get("bread"));
+        verify(httpClient, times(1)).send(any(), any());
+    }
+
+    @Test
+    public void parseCategories_ByNameOrPosition() {
+        List<String> products = List.of("Milk", "bread", "gizmo");
+
+        assertEquals(Map.of("Milk", "Food->Dairy->Milk", "bread", "Food->Bakery->Bread"),
+                MistralAIService.parseCategories("""
+                        Here you go: [{"product": "bread", "category": " Food->Bakery->Bread "},
+                        {"product": "milk", "category": "Food->Dairy->Milk"}, {"product": "eggs", "category": "x"}]""", products));
+        assertEquals(Map.of("Milk", "a", "bread", "b", "gizmo", "unknown"),
+                MistralAIService.parseCategories("[\"a\", \"b\", \"unknown\"]", products));
+        assertEquals(Map.of("gizmo", "unknown"),
+                MistralAIService.parseCategories("{\"gizmo\": \"unknown\", \"eggs\": \"x\"}", products));
+        assertEquals(Map.of(), MistralAIService.parseCategories("[{\"product\": \"milk\", \"category\":", products));
+        assertEquals(Map.of(), MistralAIService.parseCategories("Food->Dairy->Milk", products));
+    }
+
+    private HttpResponse answer(String content) {
+        JSONObject message = new JSONObject().put("content", content);
+        JSONObject body = new JSONObject().put("choices", new JSONArray().put(new JSONObject().put("message", message)));
+        HttpResponse response = mock(HttpResponse.class);
+        when(response.statusCode()).thenReturn(200);
+        when(response.body()).thenReturn(body.toString());
+        return response;
+    }
 }
@@ -1,16 +1,35 @@
 package org.example.service;
 
-import com.google.cloud.storage.BlobId;
-import com.google.cloud.storage.BlobInfo;
-import com.google.cloud.storage.Storage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.service.audio.AudioFormat;
+import org.example.service.audio.AudioPreprocessor;
+import org.example.service.audio.PreprocessedAudio;
+import org.example.service.storage.AudioStorage;
+import org.example.service.transcription.AudioSource;
+import org.example.service.transcription.TranscriptionEngine;
+import org.example.service.transcription.TranscriptionRouter;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.mockito.Mockito.times;
@@ -18,12 +37,25 @@ import static org.mockito.Mockito.times;
 @ExtendWith(MockitoExtension.class)
 public class TranscriptAudioServiceTest {
     @Mock
-    private Storage storage;
+    private AudioStorage storage;
+    @Mock
+    private TranscriptionRouter router;
+    @Mock
+    private TranscriptionEngine engine;
+    @Mock
+    private AudioPreprocessor preprocessor;
+    @Mock
+    private TranscriptCacheService transcriptCache;
     @Mock
     private MultipartFile file;
-    @InjectMocks
     private TranscriptAudioService audioService;
 
+    @BeforeEach
+    public void setUp() {
+        audioService = new TranscriptAudioService(storage, transcriptCache, router, preprocessor, Runnable::run,
+                new SimpleMeterRegistry());
+    }
+
 
     @Test
     public void uploadAudioIntoCloud_WhenFileIsNull() throws Exception {
@@ -34,21 +66,176 @@ public class TranscriptAudioServiceTest {
     }
 
     @Test
-    public void uploadAudioIntoCloud_ValidFile_ReturnsValidURL() throws Exception {
-        String BUCKET_NAME = "spendyVoice-bucket";
-        String fileName = "audio/test.mp3";
+    public void uploadAudioIntoCloud_ValidFile_StoresUnderHashAndReturnsURL() throws Exception {
+        byte[] audio = new byte[]{1, 2, 3};
+        String objectName = "audio/" + sha256(audio) + ".mp3";
 
-        audioService.setBUCKET_NAME_OnlyForTesting(BUCKET_NAME);
         when(file.getOriginalFilename()).thenReturn("test.mp3");
-        when(file.getBytes()).thenReturn(new byte[]{1,2,3});
+        when(file.getContentType()).thenReturn("audio/mpeg");
+        when(file.getInputStream()).thenAnswer(inv -> new ByteArrayInputStream(audio));
+        when(storage.exists(objectName)).thenReturn(false);
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        doAnswer(inv -> {
+            ((InputStream) inv.getArgument(2)).transferTo(written);
+            return null;
+        }).when(storage).write(eq(objectName), eq("audio/mpeg"), any(InputStream.class));
+        when(storage.publicUrl(objectName)).thenReturn("https://storage.googleapis.com/bucket/" + objectName);
 
         String result = audioService.uploadAudioIntoCloud(file);
 
-        String url = String.format("https://storage.googleapis.com/%s/%s", BUCKET_NAME, fileName);
-        assertEquals(url, result);
+        assertEquals("https://storage.googleapis.com/bucket/" + objectName, result);
+        verify(file, never()).getBytes();
+        assertArrayEquals(audio, written.toByteArray());
+    }
+
+    @Test
+    public void uploadAudioIntoCloud_ObjectAlreadyExists_SkipsUpload() throws Exception {
+        when(file.getOriginalFilename()).thenReturn("recording.m4a");
+        when(storage.exists("audio/abc.m4a")).thenReturn(true);
+        when(storage.publicUrl("audio/abc.m4a")).thenReturn("https://storage.googleapis.com/bucket/audio/abc.m4a");
+
+        String result = audioService.uploadAudioIntoCloud(file, "abc");
+
+        assertEquals("https://storage.googleapis.com/bucket/audio/abc.m4a", result);
+        verify(storage, never()).write(anyString(), any(), any(InputStream.class));
+    }
+
+    @Test
+    public void getTheText_KnownAudio_ReturnsCachedTranscript() throws Exception {
+        byte[] audio = new byte[]{4, 5, 6};
+        when(file.getOriginalFilename()).thenReturn("recording.m4a");
+        when(file.getInputStream()).thenAnswer(inv -> new ByteArrayInputStream(audio));
+        when(transcriptCache.get(sha256(audio))).thenReturn(Optional.of("5kg rice for $20"));
+
+        String text = audioService.getTheText(file);
+
+        assertEquals("5kg rice for $20", text);
+        verifyNoInteractions(storage, router);
+    }
+
+    @Test
+    public void getTheText_NotAudio_RejectedBeforeUpload() {
+        when(file.getOriginalFilename()).thenReturn("notes.txt");
+        when(preprocessor.sniff(eq(file), anyLong())).thenThrow(new RuntimeException("Unsupported audio format"));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> audioService.getTheText(file));
+
+        assertEquals("Unsupported audio format", e.getMessage());
+        verifyNoInteractions(storage, router, transcriptCache);
+    }
+
+    @Test
+    public void getTheText_EngineWithoutUrl_SkipsUploadAndCachesTranscript() throws Exception {
+        byte[] audio = new byte[]{7, 8, 9};
+        String hash = sha256(audio);
+        when(file.getOriginalFilename()).thenReturn("short.wav");
+        when(file.getInputStream()).thenAnswer(inv -> new ByteArrayInputStream(audio));
+        when(transcriptCache.get(hash)).thenReturn(Optional.empty());
+        when(preprocessor.process(any(AudioSource.class))).thenAnswer(inv ->
+                PreprocessedAudio.passThrough(inv.getArgument(0), AudioFormat.WAV, 1.0, 0));
+        when(router.choose(any(AudioSource.class))).thenReturn(engine);
+        when(engine.requiresUrl()).thenReturn(false);
+        when(engine.transcribe(any(AudioSource.class))).thenReturn(CompletableFuture.completedFuture("coffee for 3 dollars"));
+
+        String text = audioService.getTheText(file);
+
+        assertEquals("coffee for 3 dollars", text);
+        verifyNoInteractions(storage);
+        verify(router).record(eq(engine), anyLong(), eq(true));
+        verify(transcriptCache).put(hash, "coffee for 3 dollars");
+    }
+
+    @Test
+    public void getTheText_EngineNeedsUrl_UploadsBeforeTranscribing() throws Exception {
+        byte[] audio = new byte[]{1, 1, 1};
+        String hash = sha256(audio);
+        when(file.getOriginalFilename()).thenReturn("memo.mp3");
+        when(file.getInputStream()).thenAnswer(inv -> new ByteArrayInputStream(audio));
+        when(transcriptCache.get(hash)).thenReturn(Optional.empty());
+        when(storage.exists("audio/" + hash + ".mp3")).thenReturn(true);
+        when(storage.publicUrl(anyString())).thenAnswer(inv -> "https://storage.googleapis.com/bucket/" + inv.getArgument(0));
+        when(preprocessor.process(any(AudioSource.class))).thenAnswer(inv ->
+                PreprocessedAudio.passThrough(inv.getArgument(0), AudioFormat.MP3, null, 0));
+        when(router.choose(any(AudioSource.class))).thenReturn(engine);
+        when(engine.requiresUrl()).thenReturn(true);
+        when(engine.transcribe(argThat(a -> a != null && a.getUrl() != null))).thenReturn(CompletableFuture.completedFuture("5kg rice for $20"));
+
+        String text = audioService.getTheText(file);
 
-        BlobId expectedBlobId = BlobId.of(BUCKET_NAME, fileName);
-        BlobInfo expectedBlobInfo = BlobInfo.newBuilder(expectedBlobId).build();
-        verify(storage, times(1)).create(eq(expectedBlobInfo), eq(new byte[]{1, 2, 3}));
-      }
+        assertEquals("5kg rice for $20", text);
+        verify(engine).transcribe(argThat(a ->
+                ("https://storage.googleapis.com/bucket/audio/" + hash + ".mp3").equals(a.getUrl())));
+    }
+
+    @Test
+    public void transcribeStored_ReadsFromStorageWithUrl() throws Exception {
+        when(transcriptCache.get("abc")).thenReturn(Optional.empty());
+        when(storage.sizeOf("uploads/1")).thenReturn(3L);
+        when(storage.publicUrl("uploads/1")).thenReturn("https://storage.googleapis.com/bucket/uploads/1");
+        when(preprocessor.process(any(AudioSource.class))).thenAnswer(inv ->
+                PreprocessedAudio.passThrough(inv.getArgument(0), AudioFormat.MP3, null, 0));
+        when(router.choose(any(AudioSource.class))).thenReturn(engine);
+        when(engine.requiresUrl()).thenReturn(true);
+        when(engine.transcribe(any(AudioSource.class))).thenReturn(CompletableFuture.completedFuture("milk 2 dollars"));
+
+        String text = audioService.transcribeStored("abc", "uploads/1").join();
+
+        assertEquals("milk 2 dollars", text);
+        verify(storage, never()).write(anyString(), any(), any(InputStream.class));
+        verify(engine).transcribe(argThat(a -> "https://storage.googleapis.com/bucket/uploads/1".equals(a.getUrl())
+                && a.getSize() == 3L));
+        verify(preprocessor).process(argThat(a -> "uploads/1".equals(a.getName())));
+    }
+
+    @Test
+    public void transcribe_SameAudioInFlight_TranscribedOnce() {
+        CompletableFuture<String> transcript = new CompletableFuture<>();
+        when(transcriptCache.get("abc")).thenReturn(Optional.empty());
+        when(preprocessor.process(any(AudioSource.class))).thenAnswer(inv ->
+                PreprocessedAudio.passThrough(inv.getArgument(0), AudioFormat.WAV, 1.0, 0));
+        when(router.choose(any(AudioSource.class))).thenReturn(engine);
+        when(engine.transcribe(any(AudioSource.class))).thenReturn(transcript);
+        AudioSource audio = AudioSource.builder().hash("abc").name("a.wav").url("https://example.com/a.wav").build();
+
+        CompletableFuture<String> first = audioService.transcribe(audio);
+        CompletableFuture<String> second = audioService.transcribe(audio);
+        transcript.complete("tea 2 dollars");
+
+        assertEquals("tea 2 dollars", first.join());
+        assertEquals("tea 2 dollars", second.join());
+        verify(engine, times(1)).transcribe(any(AudioSource.class));
+        verify(transcriptCache, times(1)).get("abc");
+    }
+
+    @Test
+    public void getTheText_ConvertedAudio_StoredUnderItsOwnHash() throws Exception {
+        byte[] original = new byte[]{1, 1, 1};
+        byte[] converted = new byte[]{2, 2};
+        String hash = sha256(original);
+        String objectName = "audio/" + sha256(converted) + ".wav";
+        Path tempFile = Files.createTempFile("converted-", ".wav");
+        Files.write(tempFile, converted);
+        when(file.getOriginalFilename()).thenReturn("memo.wav");
+        when(file.getInputStream()).thenAnswer(inv -> new ByteArrayInputStream(original));
+        when(transcriptCache.get(hash)).thenReturn(Optional.empty());
+        when(preprocessor.process(any(AudioSource.class))).thenAnswer(inv -> new PreprocessedAudio(
+                ((AudioSource) inv.getArgument(0)).toBuilder().content(new FileSystemResource(tempFile)).hash(null)
+                        .size(converted.length).build(),
+                AudioFormat.WAV, original.length, converted.length, null, null, 0, tempFile));
+        when(storage.exists(objectName)).thenReturn(false);
+        when(storage.publicUrl(objectName)).thenReturn("https://storage.googleapis.com/bucket/" + objectName);
+        when(router.choose(any(AudioSource.class))).thenReturn(engine);
+        when(engine.requiresUrl()).thenReturn(true);
+        when(engine.transcribe(any(AudioSource.class))).thenReturn(CompletableFuture.completedFuture("tea 2 dollars"));
+
+        assertEquals("tea 2 dollars", audioService.getTheText(file));
+
+        verify(storage).write(eq(objectName), any(), any(InputStream.class));
+        verify(storage, never()).write(startsWith("audio/" + hash), any(), any(InputStream.class));
+        verify(transcriptCache).put(hash, "tea 2 dollars");
+    }
+
+    private static String sha256(byte[] bytes) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
 }
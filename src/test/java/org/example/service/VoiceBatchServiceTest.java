@@ -0,0 +1,113 @@
+package org.example.service;
+
+import org.example.domain.entity.expense.ExpenseEntity;
+import org.example.domain.entity.user.UserEntity;
+import org.example.domain.request.ExpenseRequest;
+import org.example.domain.response.BaseResponse;
+import org.example.domain.response.VoiceBatchItemResponse;
+import org.example.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class VoiceBatchServiceTest {
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private TranscriptAudioService transcriptService;
+    @Mock
+    private VoiceCommandService voiceCommandService;
+    @Mock
+    private ExpenseService expenseService;
+    @Mock
+    private MultipartFile first;
+    @Mock
+    private MultipartFile second;
+
+    private ExecutorService executor;
+    private VoiceBatchService batchService;
+    private UUID userId;
+    private UserEntity user;
+
+    @BeforeEach
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+        batchService = new VoiceBatchService(userRepository, transcriptService, voiceCommandService,
+                expenseService, executor, 2);
+        userId = UUID.randomUUID();
+        user = UserEntity.builder().build();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void comprehendBatch_UserNotFound() {
+        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+
+        BaseResponse<List<VoiceBatchItemResponse>> res = batchService.comprehendBatch(userId, List.of(first));
+
+        assertEquals(400, res.getStatus());
+        verifyNoInteractions(transcriptService);
+    }
+
+    @Test
+    public void comprehendBatch_PersistsSuccessfulFilesInOneCall() {
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        when(first.getOriginalFilename()).thenReturn("a.m4a");
+        when(second.getOriginalFilename()).thenReturn("b.m4a");
+        when(transcriptService.getTheTextAsync(first)).thenReturn(CompletableFuture.completedFuture("5kg rice for $20"));
+        when(transcriptService.getTheTextAsync(second)).thenReturn(CompletableFuture.completedFuture(null));
+        List<ExpenseRequest> extracted = List.of(new ExpenseRequest("rice", "$20", "5kg"));
+        when(voiceCommandService.extractProductInfo("5kg rice for $20")).thenReturn(extracted);
+        when(expenseService.prepare(extracted, user)).thenReturn(List.of(ExpenseEntity.builder().product("rice").build()));
+
+        BaseResponse<List<VoiceBatchItemResponse>> res = batchService.comprehendBatch(userId, List.of(first, second));
+
+        assertEquals(200, res.getStatus());
+        assertEquals(2, res.getData().size());
+        assertEquals(200, res.getData().get(0).getStatus());
+        assertEquals(400, res.getData().get(1).getStatus());
+        assertEquals("The audio couldn't be recognized", res.getData().get(1).getMessage());
+
+        ArgumentCaptor<List<PreparedCommand>> captor = ArgumentCaptor.forClass(List.class);
+        verify(voiceCommandService, times(1)).persistBatch(eq(user), captor.capture());
+        assertEquals(1, captor.getValue().size());
+        assertEquals("5kg rice for $20", captor.getValue().get(0).rawText());
+    }
+
+    @Test
+    public void comprehendBatch_PersistFails_AllFilesReportedFailed() {
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        when(first.getOriginalFilename()).thenReturn("a.m4a");
+        when(transcriptService.getTheTextAsync(first)).thenReturn(CompletableFuture.completedFuture("coffee for 3 dollars"));
+        when(voiceCommandService.extractProductInfo(any())).thenReturn(List.of());
+        when(expenseService.prepare(any(), eq(user))).thenReturn(List.of());
+        doThrow(new RuntimeException("db down")).when(voiceCommandService).persistBatch(eq(user), any());
+
+        BaseResponse<List<VoiceBatchItemResponse>> res = batchService.comprehendBatch(userId, List.of(first));
+
+        assertEquals(500, res.getStatus());
+        assertEquals(400, res.getData().get(0).getStatus());
+    }
+}
@@ -4,22 +4,16 @@ import com.assemblyai.api.AssemblyAI;
 import com.assemblyai.api.PollingTranscriptsClient;
 import com.assemblyai.api.resources.transcripts.types.Transcript;
 import com.google.cloud.storage.Storage;
-import edu.stanford.nlp.ling.CoreAnnotations;
-import edu.stanford.nlp.ling.CoreLabel;
-import edu.stanford.nlp.ling.IndexedWord;
-import edu.stanford.nlp.pipeline.CoreSentence;
-import edu.stanford.nlp.pipeline.StanfordCoreNLP;
-import edu.stanford.nlp.semgraph.SemanticGraph;
-import edu.stanford.nlp.semgraph.SemanticGraphEdge;
-import edu.stanford.nlp.trees.GrammaticalRelation;
 import org.example.domain.entity.VoiceCommandEntity;
 import org.example.domain.entity.expense.ExpenseEntity;
 import org.example.domain.entity.user.UserEntity;
-import org.example.domain.request.ExpenseRequest;
 import org.example.domain.response.BaseResponse;
 import org.example.domain.response.VoiceCommandResponse;
 import org.example.repository.UserRepository;
 import org.example.repository.VoiceCommandRepository;
+import org.example.service.extraction.ExtractionCache;
+import org.example.service.extraction.FastPathExtractor;
+import org.example.service.nlp.NlpExtractor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -31,13 +25,18 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -57,13 +56,19 @@ class VoiceCommandServiceTest {
     @Mock
     private TranscriptAudioService audioService;
     @Mock
-    private StanfordCoreNLP pipeline;
+    private NlpExtractor nlpExtractor;
+    @Mock
+    private FastPathExtractor fastPath;
+    @Mock
+    private ExtractionCache extractionCache;
     @Mock
     private AssemblyAI assembly;
     @Mock
     private Storage storage;
     @Mock
     private MultipartFile file;
+    @Mock
+    private ExecutorService commandExecutor;
 
     private VoiceCommandEntity command;
 
@@ -146,244 +151,13 @@ class VoiceCommandServiceTest {
         verify(repository).getAll(userId, pageReq);
     }
 
-    @Test
-    public void getConjoinedNouns_ReturnsSingleNoun_WhenNoConjunctions() {
-        IndexedWord noun = mock(IndexedWord.class);
-        SemanticGraph dependencies = mock(SemanticGraph.class);
-
-        when(dependencies.outgoingEdgeList(noun)).thenReturn(List.of());
-
-        List<IndexedWord> res = voiceCommandService.getConjoinedNouns(noun, dependencies);
-
-        assertEquals(1, res.size());
-        assertTrue(res.contains(noun));
-    }
-
-    @Test
-    public void getConjoinedNouns_AddsConjoinedNouns_WhenRelationExists() {
-        IndexedWord noun = mock(IndexedWord.class);
-        IndexedWord conjoinedNoun = mock(IndexedWord.class);
-        SemanticGraph dependencies = mock(SemanticGraph.class);
-        SemanticGraphEdge edge = mock(SemanticGraphEdge.class);
-
-        GrammaticalRelation relation = mock(GrammaticalRelation.class);
-        when(edge.getRelation()).thenReturn(relation);
-        when(relation.toString()).thenReturn("conj");
-        when(edge.getDependent()).thenReturn(conjoinedNoun);
-        when(conjoinedNoun.tag()).thenReturn("NN");
-        when(dependencies.outgoingEdgeList(noun)).thenReturn(List.of(edge));
-
-        List<IndexedWord> res = voiceCommandService.getConjoinedNouns(noun, dependencies);
-
-        assertEquals(2, res.size());
-        assertTrue(res.contains(noun));
-        assertTrue(res.contains(conjoinedNoun));
-    }
-
-    @Test
-    public void getConjoinedNouns_IgnoresNonNounConjunctions() {
-        IndexedWord noun = mock(IndexedWord.class);
-        IndexedWord nonNoun = mock(IndexedWord.class);
-        SemanticGraph dependencies = mock(SemanticGraph.class);
-
-        SemanticGraphEdge edge = mock(SemanticGraphEdge.class);
-        GrammaticalRelation relation = mock(GrammaticalRelation.class);
-        when(edge.getRelation()).thenReturn(relation);
-        when(relation.toString()).thenReturn("conj");
-        when(edge.getDependent()).thenReturn(nonNoun);
-        when(nonNoun.tag()).thenReturn("VB");
-
-        when(dependencies.outgoingEdgeList(noun)).thenReturn(List.of(edge));
-
-        List<IndexedWord> res = voiceCommandService.getConjoinedNouns(noun, dependencies);
-
-        assertEquals(1, res.size());
-        assertTrue(res.contains(noun));
-        assertFalse(res.contains(nonNoun));
-    }
-
-    @Test
-    public void extractModifiers_NoModifiersFound() {
-        IndexedWord head = mock(IndexedWord.class);
-        SemanticGraph dependencies = mock(SemanticGraph.class);
-
-        when(dependencies.outgoingEdgeList(head)).thenReturn(List.of());
-
-        List<IndexedWord> res = voiceCommandService.extractModifiers(head, dependencies);
-
-        assertEquals(1, res.size());
-        assertTrue(res.contains(head));
-    }
-
-    @Test
-    public void extractModifiers_AddsValidModifiers() {
-        IndexedWord head = mock(IndexedWord.class);
-        IndexedWord modifier = mock(IndexedWord.class);
-        SemanticGraph dependencies = mock(SemanticGraph.class);
-        SemanticGraphEdge edge = mock(SemanticGraphEdge.class);
-        GrammaticalRelation relation = mock(GrammaticalRelation.class);
-
-        when(edge.getRelation()).thenReturn(relation);
-        when(relation.toString()).thenReturn("amod");
-        when(edge.getDependent()).thenReturn(modifier);
-        when(modifier.word()).thenReturn("red");
-        when(dependencies.outgoingEdgeList(head)).thenReturn(List.of(edge));
-
-        List<IndexedWord> res = voiceCommandService.extractModifiers(head, dependencies);
-
-        assertEquals(2, res.size());
-        assertTrue(res.contains(head));
-        assertTrue(res.contains(modifier));
-    }
-
-    @Test
-    public void extractModifiers_ExcludeQuantityWords() {
-        IndexedWord head = mock(IndexedWord.class);
-        IndexedWord modifier = mock(IndexedWord.class);
-        SemanticGraph dependencies = mock(SemanticGraph.class);
-        SemanticGraphEdge edge = mock(SemanticGraphEdge.class);
-        GrammaticalRelation relation = mock(GrammaticalRelation.class);
-
-        when(edge.getRelation()).thenReturn(relation);
-        when(relation.toString()).thenReturn("compound");
-        when(edge.getDependent()).thenReturn(modifier);
-        when(modifier.word()).thenReturn("kg");
-        when(dependencies.outgoingEdgeList(head)).thenReturn(List.of(edge));
-
-        List<IndexedWord> res = voiceCommandService.extractModifiers(head, dependencies);
-
-        assertEquals(1, res.size());
-        assertTrue(res.contains(head));
-        assertFalse(res.contains(modifier));
-    }
-
-    @Test
-    public void extractFromNounPhrase_RootIsNull() {
-        CoreSentence sentence = mock(CoreSentence.class);
-        SemanticGraph dependencies = mock(SemanticGraph.class);
-
-        when(sentence.dependencyParse()).thenReturn(dependencies);
-        when(dependencies.getFirstRoot()).thenReturn(null);
-
-        List<ExpenseRequest> res = voiceCommandService.extractFromNounPhrase(sentence);
-
-        assertEquals(0, res.size());
-    }
-
-    @Test
-    public void extractFromNounPhrase_RootNotNull_ExtractsCorrectly() {
-        CoreSentence sentence = mock(CoreSentence.class);
-        SemanticGraph dependencies = mock(SemanticGraph.class);
-        IndexedWord root = mock(IndexedWord.class);
-        String text = "2 big apples for $3";
-
-        when(sentence.dependencyParse()).thenReturn(dependencies);
-        when(dependencies.getFirstRoot()).thenReturn(root);
-        when(sentence.text()).thenReturn(text);
-
-        IndexedWord head = mock(IndexedWord.class);
-        when(head.word()).thenReturn("apples");
-        when(head.index()).thenReturn(2);
-
-        IndexedWord modifier = mock(IndexedWord.class);
-        when(modifier.word()).thenReturn("big");
-        when(modifier.index()).thenReturn(1);
-
-        /*
-          modifier.index() = 1 -> big
-          head.index() = 2 -> apples
-          index is the position of these words -> big(1) apples(2)
-        */
-
-        doReturn(List.of(head)).when(voiceCommandService).getConjoinedNouns(root, dependencies);
-        doReturn(new ArrayList<>(List.of(modifier, head))).when(voiceCommandService).extractModifiers(head, dependencies);
-        doReturn("2").when(voiceCommandService).extractQuantity(text);
-        doReturn("$3").when(voiceCommandService).extractPrice(text);
-
-        List<ExpenseRequest> res = voiceCommandService.extractFromNounPhrase(sentence);
-
-        assertEquals(1, res.size());
-        ExpenseRequest expenseRequest = res.get(0);
-        assertEquals("big apples", expenseRequest.getProduct());
-        assertEquals("$3", expenseRequest.getPrice());
-        assertEquals("2", expenseRequest.getQuantity());
-    }
-
-    @Test
-    public void extractFromVerbSentence_CorrectlyExtracts() {
-        IndexedWord verb = mock(IndexedWord.class);
-        IndexedWord obj = mock(IndexedWord.class);
-        IndexedWord modifier = mock(IndexedWord.class);
-        CoreSentence sentence = mock(CoreSentence.class);
-        SemanticGraph dependencies = mock(SemanticGraph.class);
-        SemanticGraphEdge edge = mock(SemanticGraphEdge.class);
-        GrammaticalRelation relation = mock(GrammaticalRelation.class);
-        String text = "He bought a Porsche 911 for 500k dollars";
-
-        when(sentence.dependencyParse()).thenReturn(dependencies);
-        when(sentence.text()).thenReturn(text);
-        when(dependencies.edgeListSorted()).thenReturn(List.of(edge));
-
-        when(edge.getRelation()).thenReturn(relation);
-        when(relation.toString()).thenReturn("obj");
-        when(edge.getGovernor()).thenReturn(verb);
-        when(verb.lemma()).thenReturn("buy");
-        when(edge.getDependent()).thenReturn(obj);
-
-        when(obj.word()).thenReturn("Porsche");
-        when(obj.index()).thenReturn(1);
-        when(modifier.word()).thenReturn("911");
-        when(modifier.index()).thenReturn(2);
-
-        doReturn(List.of(obj)).when(voiceCommandService).getConjoinedNouns(obj, dependencies);
-        doReturn(new ArrayList<>(List.of(modifier, obj))).when(voiceCommandService).extractModifiers(obj, dependencies);
-        doReturn("a").when(voiceCommandService).extractQuantity(text);
-        doReturn("500k dollars").when(voiceCommandService).extractPrice(text);
-
-        List<ExpenseRequest> result = voiceCommandService.extractFromVerbSentence(sentence);
-
-        assertEquals(1, result.size());
-        ExpenseRequest expense = result.get(0);
-        assertEquals("Porsche 911", expense.getProduct());
-        assertEquals("a", expense.getQuantity());
-        assertEquals("500k dollars", expense.getPrice());
-    }
-
-
-    @Test
-    void hasVerbs_ReturnsTrue_WhenVerbPresent() {
-        CoreSentence sentence = mock(CoreSentence.class);
-        CoreLabel verbToken = mock(CoreLabel.class);
-
-        when(sentence.tokens()).thenReturn(List.of(verbToken));
-        when(verbToken.get(CoreAnnotations.PartOfSpeechAnnotation.class)).thenReturn("VB ");
-
-        boolean result = voiceCommandService.hasVerbs(sentence);
-
-        assertTrue(result);
-    }
-
-    @Test
-    void hasVerbs_ReturnsFalse_WhenNoVerbs() {
-        CoreSentence sentence = mock(CoreSentence.class);
-        CoreLabel nounToken = mock(CoreLabel.class);
-
-        when(sentence.tokens()).thenReturn(List.of(nounToken));
-        when(nounToken.get(CoreAnnotations.PartOfSpeechAnnotation.class)).thenReturn("NN");
-
-        boolean result = voiceCommandService.hasVerbs(sentence);
-
-        assertFalse(result);
-    }
-
-
     @Test
     public void comprehend_UserIdNotFound() {
         UUID userId = UUID.randomUUID();
 
         when(userRepository.findById(userId)).thenReturn(Optional.empty());
 
-        BaseResponse<VoiceCommandResponse> res = voiceCommandService.comprehend(userId, file);
+        BaseResponse<VoiceCommandResponse> res = voiceCommandService.comprehend(userId, file).join();
 
         assertEquals(400, res.getStatus());
         assertEquals("User not found", res.getMessage());
@@ -393,9 +167,10 @@ class VoiceCommandServiceTest {
     public void comprehend_WhenFileIsNull_ReturnsEmptyString() {
         UUID userId = UUID.randomUUID();
         when(userRepository.findById(userId)).thenReturn(Optional.of(UserEntity.builder().build()));
-        doReturn(null).when(audioService).getTheText(file);
+        doReturn(CompletableFuture.completedFuture(null)).when(audioService).getTheTextAsync(file);
+        runInline();
 
-        BaseResponse<VoiceCommandResponse> res = voiceCommandService.comprehend(userId, file);
+        BaseResponse<VoiceCommandResponse> res = voiceCommandService.comprehend(userId, file).join();
 
         assertEquals(400, res.getStatus());
         assertEquals("The audio couldn't be recognized", res.getMessage());
@@ -405,15 +180,53 @@ class VoiceCommandServiceTest {
     public void comprehend_FailsToGetUrl_ThrowsException() {
         UUID userId = UUID.randomUUID();
         when(userRepository.findById(userId)).thenReturn(Optional.of(UserEntity.builder().build()));
-        doThrow(new RuntimeException("Failed to upload audio")).when(audioService).getTheText(file);
+        doReturn(CompletableFuture.failedFuture(new RuntimeException("Failed to upload audio")))
+                .when(audioService).getTheTextAsync(file);
+        runInline();
 
-        BaseResponse<VoiceCommandResponse> resp = voiceCommandService.comprehend(userId, file);
+        BaseResponse<VoiceCommandResponse> resp = voiceCommandService.comprehend(userId, file).join();
 
         assertEquals("Failed to upload audio", resp.getMessage());
 
         verify(userRepository, times(1)).findById(userId);
-        verify(audioService, times(1)).getTheText(file);
+        verify(audioService, times(1)).getTheTextAsync(file);
         verifyNoInteractions(assembly);
     }
 
+    @Test
+    public void comprehend_TextHandledOnTheCommandExecutorAsTheCaller() {
+        UUID userId = UUID.randomUUID();
+        UserEntity user = UserEntity.builder().build();
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        doReturn(CompletableFuture.completedFuture("milk 2 dollars")).when(audioService).getTheTextAsync(file);
+        AtomicReference<Authentication> seen = new AtomicReference<>();
+        doAnswer(invocation -> {
+            seen.set(SecurityContextHolder.getContext().getAuthentication());
+            return BaseResponse.<VoiceCommandResponse>builder().status(200).build();
+        }).when(voiceCommandService).comprehendText(user, "milk 2 dollars");
+        // another thread, as when the transcript arrives later
+        doAnswer(invocation -> {
+            Thread thread = new Thread(invocation.getArgument(0, Runnable.class));
+            thread.start();
+            thread.join();
+            return null;
+        }).when(commandExecutor).execute(any(Runnable.class));
+        Authentication caller = new TestingAuthenticationToken("user@mail.com", null, "user:create");
+        SecurityContextHolder.getContext().setAuthentication(caller);
+
+        try {
+            assertEquals(200, voiceCommandService.comprehend(userId, file).join().getStatus());
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+
+        assertSame(caller, seen.get());
+    }
+
+    private void runInline() {
+        doAnswer(invocation -> {
+            invocation.getArgument(0, Runnable.class).run();
+            return null;
+        }).when(commandExecutor).execute(any(Runnable.class));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,344 @@
+package org.example.service;
+
+import org.example.domain.entity.expense.ExpenseEntity;
+import org.example.domain.entity.job.JobStatus;
+import org.example.domain.entity.job.VoiceJobEntity;
+import org.example.domain.entity.user.UserEntity;
+import org.example.domain.request.ExpenseRequest;
+import org.example.domain.response.BaseResponse;
+import org.example.domain.response.UploadTicketResponse;
+import org.example.domain.response.VoiceJobResponse;
+import org.example.repository.UserRepository;
+import org.example.repository.VoiceJobRepository;
+import org.example.service.audio.AudioPreprocessor;
+import org.example.service.storage.AudioStorage;
+import org.example.service.storage.SignedUpload;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class VoiceJobServiceTest {
+    @Mock
+    private VoiceJobRepository jobRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private TranscriptAudioService transcriptService;
+    @Mock
+    private VoiceCommandService voiceCommandService;
+    @Mock
+    private AudioPreprocessor preprocessor;
+    @Mock
+    private AudioStorage audioStorage;
+    @Mock
+    private ExpenseService expenseService;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private MultipartFile file;
+    @InjectMocks
+    private VoiceJobService jobService;
+
+    @Test
+    public void submit_UserNotFound() {
+        UUID userId = UUID.randomUUID();
+        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+
+        BaseResponse<VoiceJobResponse> res = jobService.submit(userId, file);
+
+        assertEquals(400, res.getStatus());
+        assertEquals("User not found", res.getMessage());
+        verifyNoInteractions(jobRepository);
+    }
+
+    @Test
+    public void submit_ValidFile_ReturnsAccepted() throws Exception {
+        UUID userId = UUID.randomUUID();
+        when(userRepository.findById(userId)).thenReturn(Optional.of(UserEntity.builder().build()));
+        when(file.getOriginalFilename()).thenReturn("a.mp3");
+        when(transcriptService.hashOf(file)).thenReturn("abc");
+        when(transcriptService.storeAudio(file, "a.mp3", null, "abc")).thenReturn("audio/abc.mp3");
+        when(jobRepository.save(any(VoiceJobEntity.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        BaseResponse<VoiceJobResponse> res = jobService.submit(userId, file);
+
+        assertEquals(202, res.getStatus());
+        assertEquals(JobStatus.PENDING, res.getData().getStatus());
+        verify(transcriptService, never()).transcribeStored(any(), any());
+    }
+
+    @Test
+    public void submit_TooLongAudio_RejectedBeforeStoring() throws Exception {
+        UUID userId = UUID.randomUUID();
+        when(userRepository.findById(userId)).thenReturn(Optional.of(UserEntity.builder().build()));
+        when(file.getOriginalFilename()).thenReturn("a.wav");
+        when(preprocessor.check(any())).thenThrow(new RuntimeException("The audio is too long"));
+
+        BaseResponse<VoiceJobResponse> res = jobService.submit(userId, file);
+
+        assertEquals(400, res.getStatus());
+        assertEquals("The audio is too long", res.getMessage());
+        verify(transcriptService, never()).storeAudio(any(), any(), any(), any());
+        verifyNoInteractions(jobRepository);
+    }
+
+    @Test
+    public void getStatus_JobOfAnotherUser_NotFound() {
+        UUID jobId = UUID.randomUUID();
+        UserEntity owner = UserEntity.builder().build();
+        owner.setId(UUID.randomUUID());
+        VoiceJobEntity job = VoiceJobEntity.builder().user(owner).status(JobStatus.DONE).build();
+        when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+
+        BaseResponse<VoiceJobResponse> res = jobService.getStatus(UUID.randomUUID(), jobId);
+
+        assertEquals(404, res.getStatus());
+    }
+
+    @Test
+    public void claim_MarksJobsAsRunning() {
+        VoiceJobEntity job = VoiceJobEntity.builder().status(JobStatus.PENDING).attempts(0).build();
+        when(jobRepository.claimPending(2)).thenReturn(List.of(job));
+        when(jobRepository.saveAll(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        List<VoiceJobEntity> claimed = jobService.claim("node-1", 2);
+
+        assertEquals(1, claimed.size());
+        assertEquals(JobStatus.RUNNING, job.getStatus());
+        assertEquals("node-1", job.getLockedBy());
+        assertEquals(1, job.getAttempts());
+    }
+
+    @Test
+    public void process_Success_MarksJobDone() {
+        UserEntity user = UserEntity.builder().build();
+        VoiceJobEntity job = VoiceJobEntity.builder().status(JobStatus.RUNNING).audioObject("audio/abc.mp3")
+                .audioHash("abc").attempts(1).lockedBy("node-1").user(user).build();
+        when(transcriptService.transcribeStored("abc", "audio/abc.mp3"))
+                .thenReturn(CompletableFuture.completedFuture("5kg rice for $20"));
+        when(jobRepository.existsByIdAndLockedBy(job.getId(), "node-1")).thenReturn(true);
+        runTransactions();
+        when(jobRepository.finish(any(), any(), any(), any(), any(), any())).thenReturn(1);
+        List<ExpenseRequest> extracted = List.of(ExpenseRequest.builder().product("rice").build());
+        List<ExpenseEntity> expenses = List.of(ExpenseEntity.builder().product("rice").build());
+        when(voiceCommandService.extractProductInfo("5kg rice for $20")).thenReturn(extracted);
+        when(expenseService.prepare(extracted, user)).thenReturn(expenses);
+
+        jobService.process(job).join();
+
+        assertEquals(JobStatus.DONE, job.getStatus());
+        assertNotNull(job.getFinishedAt());
+        assertNull(job.getLockedBy());
+        verify(jobRepository).finish(eq(job.getId()), eq("node-1"), eq(JobStatus.DONE), eq("5kg rice for $20"),
+                eq("Expenses saved successfully"), any());
+        verify(voiceCommandService).persistBatch(user, List.of(new PreparedCommand("5kg rice for $20", expenses)));
+    }
+
+    @Test
+    public void process_SavingFails_RetriedWithNothingSaved() {
+        UserEntity user = UserEntity.builder().build();
+        VoiceJobEntity job = VoiceJobEntity.builder().status(JobStatus.RUNNING).audioObject("audio/abc.mp3")
+                .audioHash("abc").attempts(1).lockedBy("node-1").user(user).build();
+        when(transcriptService.transcribeStored("abc", "audio/abc.mp3"))
+                .thenReturn(CompletableFuture.completedFuture("5kg rice for $20"));
+        when(jobRepository.existsByIdAndLockedBy(job.getId(), "node-1")).thenReturn(true);
+        runTransactions();
+        when(jobRepository.finish(any(), any(), any(), any(), any(), any())).thenReturn(1);
+        when(voiceCommandService.extractProductInfo("5kg rice for $20")).thenReturn(List.of());
+        when(expenseService.prepare(List.of(), user)).thenReturn(List.of());
+        doThrow(new RuntimeException("connection reset")).when(voiceCommandService).persistBatch(any(), any());
+
+        jobService.process(job).join();
+
+        // the DONE update was rolled back with the expenses, the job goes back to the queue as a whole
+        assertEquals(JobStatus.PENDING, job.getStatus());
+        assertNull(job.getFinishedAt());
+        verify(jobRepository).finish(eq(job.getId()), eq("node-1"), eq(JobStatus.PENDING), eq("5kg rice for $20"),
+                eq("connection reset"), isNull());
+    }
+
+    @Test
+    public void process_TranscriptionFails_MarksJobFailed() {
+        VoiceJobEntity job = VoiceJobEntity.builder().status(JobStatus.RUNNING).audioObject("audio/abc.mp3")
+                .audioHash("abc").attempts(3).lockedBy("node-1").build();
+        when(transcriptService.transcribeStored("abc", "audio/abc.mp3"))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("boom")));
+        when(jobRepository.existsByIdAndLockedBy(job.getId(), "node-1")).thenReturn(true);
+        runTransactions();
+
+        jobService.process(job).join();
+
+        assertEquals(JobStatus.FAILED, job.getStatus());
+        assertEquals("boom", job.getMessage());
+        verifyNoInteractions(voiceCommandService);
+        verify(jobRepository).finish(eq(job.getId()), eq("node-1"), eq(JobStatus.FAILED), isNull(), eq("boom"), any());
+    }
+
+    @Test
+    public void process_ReclaimedByAnotherNode_LeftAlone() {
+        VoiceJobEntity job = VoiceJobEntity.builder().status(JobStatus.RUNNING).audioObject("audio/abc.mp3")
+                .audioHash("abc").attempts(1).lockedBy("node-1").build();
+        when(transcriptService.transcribeStored("abc", "audio/abc.mp3"))
+                .thenReturn(CompletableFuture.completedFuture("5kg rice for $20"));
+        when(jobRepository.existsByIdAndLockedBy(job.getId(), "node-1")).thenReturn(false);
+
+        jobService.process(job).join();
+
+        verifyNoInteractions(voiceCommandService, transactionTemplate);
+        verify(jobRepository, never()).finish(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void requestUpload_ReturnsSignedUrlAndAwaitingJob() {
+        UUID userId = UUID.randomUUID();
+        Instant expiresAt = Instant.now().plusSeconds(900);
+        when(userRepository.findById(userId)).thenReturn(Optional.of(UserEntity.builder().build()));
+        Map<String, String> headers = Map.of("x-goog-content-length-range", "0,209715200");
+        when(audioStorage.signUpload(any(), eq("audio/mpeg"), eq(200L * 1024 * 1024), eq(Duration.ofMinutes(15))))
+                .thenReturn(new SignedUpload("https://signed", "PUT", "audio/mpeg", headers, expiresAt));
+        when(jobRepository.save(any(VoiceJobEntity.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        BaseResponse<UploadTicketResponse> res = jobService.requestUpload(userId, "audio/mpeg");
+
+        assertEquals(200, res.getStatus());
+        assertEquals("https://signed", res.getData().getUploadUrl());
+        assertEquals("PUT", res.getData().getMethod());
+        assertEquals(expiresAt, res.getData().getExpiresAt());
+        assertEquals(headers, res.getData().getHeaders());
+        verify(jobRepository).save(argThat(j -> j.getStatus() == JobStatus.AWAITING_UPLOAD
+                && j.getAudioObject().startsWith("uploads/")));
+    }
+
+    @Test
+    public void requestUpload_NotAudioContentType_Rejected() {
+        UUID userId = UUID.randomUUID();
+        when(userRepository.findById(userId)).thenReturn(Optional.of(UserEntity.builder().build()));
+
+        BaseResponse<UploadTicketResponse> res = jobService.requestUpload(userId, "text/plain");
+
+        assertEquals(400, res.getStatus());
+        verifyNoInteractions(audioStorage, jobRepository);
+    }
+
+    @Test
+    public void completeUpload_ObjectVerified_QueuesJob() throws Exception {
+        UUID userId = UUID.randomUUID();
+        UUID jobId = UUID.randomUUID();
+        VoiceJobEntity job = awaitingJob(userId);
+        when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+        when(audioStorage.sizeOf("uploads/1")).thenReturn(1024L);
+        when(transcriptService.hashOf(any())).thenReturn("abc");
+
+        BaseResponse<VoiceJobResponse> res = jobService.completeUpload(userId, jobId);
+
+        assertEquals(202, res.getStatus());
+        assertEquals(JobStatus.PENDING, job.getStatus());
+        assertEquals("abc", job.getAudioHash());
+        verify(preprocessor).check(argThat(audio -> audio.getSize() == 1024L));
+        verify(jobRepository).save(job);
+    }
+
+    @Test
+    public void completeUpload_NothingUploaded_StaysAwaiting() {
+        UUID userId = UUID.randomUUID();
+        UUID jobId = UUID.randomUUID();
+        VoiceJobEntity job = awaitingJob(userId);
+        when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+        when(audioStorage.sizeOf("uploads/1")).thenReturn(-1L);
+
+        BaseResponse<VoiceJobResponse> res = jobService.completeUpload(userId, jobId);
+
+        assertEquals(400, res.getStatus());
+        assertEquals(JobStatus.AWAITING_UPLOAD, job.getStatus());
+        verify(jobRepository, never()).save(any());
+    }
+
+    @Test
+    public void completeUpload_NotAudio_FailsJob() {
+        UUID userId = UUID.randomUUID();
+        UUID jobId = UUID.randomUUID();
+        VoiceJobEntity job = awaitingJob(userId);
+        when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+        when(audioStorage.sizeOf("uploads/1")).thenReturn(10L);
+        when(preprocessor.check(any())).thenThrow(new RuntimeException("Unsupported audio format"));
+
+        BaseResponse<VoiceJobResponse> res = jobService.completeUpload(userId, jobId);
+
+        assertEquals(400, res.getStatus());
+        assertEquals(JobStatus.FAILED, job.getStatus());
+        assertEquals("Unsupported audio format", job.getMessage());
+        verify(audioStorage).delete("uploads/1");
+    }
+
+    @Test
+    public void completeUpload_AlreadyCompleted_Conflict() {
+        UUID userId = UUID.randomUUID();
+        UUID jobId = UUID.randomUUID();
+        VoiceJobEntity job = awaitingJob(userId);
+        job.setStatus(JobStatus.PENDING);
+        when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+
+        BaseResponse<VoiceJobResponse> res = jobService.completeUpload(userId, jobId);
+
+        assertEquals(409, res.getStatus());
+        verifyNoInteractions(audioStorage);
+    }
+
+    @Test
+    public void expireUploads_DeletesObjectsOfExpiredTicketsOnly() {
+        UUID userId = UUID.randomUUID();
+        VoiceJobEntity expired = awaitingJob(userId);
+        expired.setId(UUID.randomUUID());
+        VoiceJobEntity completed = awaitingJob(userId);
+        completed.setId(UUID.randomUUID());
+        completed.setAudioObject("uploads/2");
+        LocalDateTime threshold = LocalDateTime.now().minusMinutes(15);
+        when(jobRepository.findByStatusAndCreatedDateBefore(JobStatus.AWAITING_UPLOAD, threshold))
+                .thenReturn(List.of(expired, completed));
+        when(jobRepository.expireUpload(eq(expired.getId()), eq(JobStatus.EXPIRED), eq(JobStatus.AWAITING_UPLOAD), any()))
+                .thenReturn(1);
+        // completed by the client after it was read
+        when(jobRepository.expireUpload(eq(completed.getId()), eq(JobStatus.EXPIRED), eq(JobStatus.AWAITING_UPLOAD), any()))
+                .thenReturn(0);
+
+        assertEquals(1, jobService.expireUploads(threshold));
+
+        verify(audioStorage).delete("uploads/1");
+        verify(audioStorage, never()).delete("uploads/2");
+    }
+
+    private static VoiceJobEntity awaitingJob(UUID userId) {
+        UserEntity owner = UserEntity.builder().build();
+        owner.setId(userId);
+        return VoiceJobEntity.builder()
+                .status(JobStatus.AWAITING_UPLOAD).audioObject("uploads/1").attempts(0).user(owner).build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void runTransactions() {
+        // a RuntimeException from the callback rolls back, as in TransactionTemplate
+        when(transactionTemplate.execute(any())).thenAnswer(inv -> inv.getArgument(0, TransactionCallback.class)
+                .doInTransaction(mock(TransactionStatus.class)));
+    }
+}
@@ -0,0 +1,181 @@
+package org.example.service.audio;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.service.transcription.AudioSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AudioPreprocessorTest {
+    private AudioPreprocessor preprocessor;
+
+    @BeforeEach
+    public void setUp() {
+        preprocessor = new AudioPreprocessor(new SimpleMeterRegistry());
+    }
+
+    @Test
+    public void sniff_EmptyFile_Rejected() {
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> preprocessor.sniff(new ByteArrayResource(new byte[0]), 0));
+
+        assertEquals("The audio is empty", e.getMessage());
+    }
+
+    @Test
+    public void sniff_NotAudio_Rejected() {
+        byte[] text = "just some text, not audio".getBytes(StandardCharsets.US_ASCII);
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> preprocessor.sniff(new ByteArrayResource(text), text.length));
+
+        assertEquals("Unsupported audio format", e.getMessage());
+    }
+
+    @Test
+    public void process_CompressedAudio_PassedThrough() {
+        byte[] mp3 = new byte[]{'I', 'D', '3', 4, 0, 0, 0, 0, 0, 0, 0, 0, 0};
+        AudioSource audio = source(mp3, "memo.mp3");
+
+        try (PreprocessedAudio result = preprocessor.process(audio)) {
+            assertEquals(AudioFormat.MP3, result.getFormat());
+            assertFalse(result.isConverted());
+            assertSame(audio, result.getAudio());
+        }
+    }
+
+    @Test
+    public void process_StereoWav_DownmixedResampledAndTrimmed() throws IOException {
+        // 0.5s silence, 1s tone, 0.5s silence at 48kHz stereo
+        byte[] wav = wav(48000, 2, 0.5, 1.0, 0.5);
+        AudioSource audio = source(wav, "memo.wav");
+
+        try (PreprocessedAudio result = preprocessor.process(audio)) {
+            assertTrue(result.isConverted());
+            assertEquals(2.0, result.getSecondsIn(), 0.001);
+            // the tone plus 200ms of padding on both sides
+            assertEquals(1.4, result.getSecondsOut(), 0.01);
+            assertTrue(result.getBytesOut() < result.getBytesIn() / 6);
+
+            byte[] header = new byte[44];
+            try (InputStream in = result.getAudio().getContent().getInputStream()) {
+                assertEquals(44, in.readNBytes(header, 0, 44));
+            }
+            assertEquals(1, header[22]);                          // mono
+            assertEquals(16000, (header[24] & 0xFF) | (header[25] & 0xFF) << 8);
+            assertEquals(result.getBytesOut(), result.getAudio().getSize());
+            assertNull(result.getAudio().getHash());
+        }
+    }
+
+    @Test
+    public void process_MonoWavAt8kHz_OnlyTrimmed() throws IOException {
+        byte[] wav = wav(8000, 1, 0.5, 1.0, 0.5);
+        AudioSource audio = source(wav, "call.wav");
+
+        try (PreprocessedAudio result = preprocessor.process(audio)) {
+            assertTrue(result.isConverted());
+            assertEquals(1.4, result.getSecondsOut(), 0.01);
+            assertEquals(44 + 2 * Math.round(1.4 * 8000), result.getBytesOut(), 2 * 2);
+
+            byte[] converted;
+            try (InputStream in = result.getAudio().getContent().getInputStream()) {
+                converted = in.readAllBytes();
+            }
+            assertEquals(8000, (converted[24] & 0xFF) | (converted[25] & 0xFF) << 8);
+            // the recording's own samples from 200ms before the tone's first loud one (its first is a zero crossing)
+            int from = 44 + 2 * (4000 + 1 - 1600);
+            for (int i = 0; i < 2 * 8000; i++) {
+                assertEquals(wav[from + i], converted[44 + i]);
+            }
+        }
+    }
+
+    @Test
+    public void process_MonoWavAt16kHzWithoutSilence_PassedThrough() throws IOException {
+        AudioSource audio = source(wav(16000, 1, 0, 1.0, 0), "memo.wav");
+
+        try (PreprocessedAudio result = preprocessor.process(audio)) {
+            assertFalse(result.isConverted());
+            assertSame(audio, result.getAudio());
+            assertEquals(1.0, result.getSecondsOut(), 0.001);
+        }
+    }
+
+    @Test
+    public void check_WavCheckedWithoutConverting() throws IOException {
+        assertEquals(AudioFormat.WAV, preprocessor.check(source(wav(48000, 2, 0.5, 1.0, 0.5), "memo.wav")));
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> preprocessor.check(source(wav(16000, 1, 1.0, 0, 0), "silence.wav")));
+        assertEquals("The audio is silent", e.getMessage());
+    }
+
+    @Test
+    public void process_SilentWav_Rejected() throws IOException {
+        byte[] wav = wav(16000, 1, 1.0, 0, 0);
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> preprocessor.process(source(wav, "silence.wav")));
+
+        assertEquals("The audio is silent", e.getMessage());
+    }
+
+    @Test
+    public void process_TooShortWav_Rejected() throws IOException {
+        byte[] wav = wav(16000, 1, 0, 0.1, 0);
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> preprocessor.process(source(wav, "blip.wav")));
+
+        assertEquals("The audio is too short", e.getMessage());
+    }
+
+    private static AudioSource source(byte[] bytes, String name) {
+        return AudioSource.builder()
+                .content(new ByteArrayResource(bytes))
+                .name(name)
+                .size(bytes.length)
+                .hash("hash")
+                .build();
+    }
+
+    private static byte[] wav(int rate, int channels, double silenceBefore, double tone, double silenceAfter)
+            throws IOException {
+        int frames = (int) Math.round((silenceBefore + tone + silenceAfter) * rate);
+        int toneStart = (int) Math.round(silenceBefore * rate);
+        int toneEnd = toneStart + (int) Math.round(tone * rate);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        int dataSize = frames * channels * 2;
+        out.writeBytes("RIFF");
+        out.writeInt(Integer.reverseBytes(36 + dataSize));
+        out.writeBytes("WAVEfmt ");
+        out.writeInt(Integer.reverseBytes(16));
+        out.writeShort(Short.reverseBytes((short) 1));
+        out.writeShort(Short.reverseBytes((short) channels));
+        out.writeInt(Integer.reverseBytes(rate));
+        out.writeInt(Integer.reverseBytes(rate * channels * 2));
+        out.writeShort(Short.reverseBytes((short) (channels * 2)));
+        out.writeShort(Short.reverseBytes((short) 16));
+        out.writeBytes("data");
+        out.writeInt(Integer.reverseBytes(dataSize));
+        for (int i = 0; i < frames; i++) {
+            short sample = i >= toneStart && i < toneEnd
+                    ? (short) (Math.sin(2 * Math.PI * 440 * i / rate) * 12000) : 0;
+            for (int c = 0; c < channels; c++) {
+                out.writeShort(Short.reverseBytes(sample));
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,120 @@
+package org.example.service.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+    private SimpleMeterRegistry meterRegistry;
+    private SingleFlight<String, String> singleFlight;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        singleFlight = new SingleFlight<>("test", meterRegistry);
+    }
+
+    @Test
+    public void get_ConcurrentCallersShareOneCall() throws Exception {
+        int callers = 8;
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> singleFlight.get("milk", () -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return "Food->Dairy->Milk";
+                })));
+            }
+            while (singleFlight.calls() + singleFlight.merged() < callers) Thread.sleep(5);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("Food->Dairy->Milk", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(callers - 1, meterRegistry.get("single-flight.merged").tag("name", "test").functionCounter().count());
+    }
+
+    @Test
+    public void get_FailureSharedThenForgotten() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> leader = executor.submit(() -> singleFlight.get("EUR", () -> {
+                started.countDown();
+                await(release);
+                throw new IllegalStateException("rates unavailable");
+            }));
+            started.await();
+            CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> singleFlight.get("EUR", () -> "not called"));
+            while (singleFlight.merged() == 0) Thread.sleep(5);
+            release.countDown();
+
+            ExecutionException e = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+            ExecutionException shared = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, shared.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // nothing is kept, the next call is made again
+        assertEquals("fresh", singleFlight.get("EUR", () -> "fresh"));
+        assertEquals(2, singleFlight.calls());
+    }
+
+    @Test
+    public void getAsync_InFlightUntilTheFutureCompletes() {
+        CompletableFuture<String> transcript = new CompletableFuture<>();
+        AtomicInteger loads = new AtomicInteger();
+
+        CompletableFuture<String> first = singleFlight.getAsync("abc", () -> {
+            loads.incrementAndGet();
+            return transcript;
+        });
+        CompletableFuture<String> second = singleFlight.getAsync("abc", () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+        second.cancel(true);
+        transcript.complete("milk 2 dollars");
+
+        assertEquals("milk 2 dollars", first.join());
+        assertEquals(1, loads.get());
+        assertEquals("other", singleFlight.getAsync("abc", () -> CompletableFuture.completedFuture("other")).join());
+    }
+
+    @Test
+    public void getAsync_LoaderThrows_FailedFuture() {
+        CompletableFuture<String> res = singleFlight.getAsync("abc", () -> {
+            throw new RuntimeException("Failed to upload audio");
+        });
+
+        CompletionException e = assertThrows(CompletionException.class, res::join);
+        assertEquals("Failed to upload audio", e.getCause().getMessage());
+        assertEquals("ok", singleFlight.getAsync("abc", () -> CompletableFuture.completedFuture("ok")).join());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
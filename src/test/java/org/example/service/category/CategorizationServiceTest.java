@@ -0,0 +1,105 @@
+package org.example.service.category;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.domain.entity.category.CategoryStatus;
+import org.example.domain.entity.expense.ExpenseEntity;
+import org.example.repository.ExpenseRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CategorizationServiceTest {
+    @Mock
+    private ExpenseRepository expenseRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private CategorizationService categorizationService;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        categorizationService = new CategorizationService(expenseRepository, meterRegistry);
+        categorizationService.setRetry_OnlyForTesting(3, 30);
+    }
+
+    @Test
+    public void claim_RunningWithAttemptCounted() {
+        ExpenseEntity expense = expense("milk", 0);
+        when(expenseRepository.claimUncategorized(any(LocalDateTime.class), anyInt())).thenReturn(List.of(expense));
+        when(expenseRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+
+        List<ExpenseEntity> res = categorizationService.claim(20);
+
+        assertEquals(CategoryStatus.RUNNING, res.get(0).getCategoryStatus());
+        assertEquals(1, res.get(0).getCategoryAttempts());
+        assertNotNull(res.get(0).getCategoryLockedAt());
+    }
+
+    @Test
+    public void complete_OneUpdatePerCategoryRetryAndDeadLetter() {
+        ExpenseEntity milk = expense("milk", 1);
+        ExpenseEntity milkAgain = expense("milk", 1);
+        ExpenseEntity bread = expense("bread", 1);
+        ExpenseEntity gizmo = expense("gizmo", 1);
+        ExpenseEntity thing = expense("thing", 3);
+        Map<String, String> categories = new HashMap<>();
+        categories.put("milk", "Food->Dairy->Milk");
+        categories.put("bread", "Food->Bakery->Bread");
+        categories.put("gizmo", null);
+
+        categorizationService.complete(List.of(milk, milkAgain, bread, gizmo, thing), categories);
+
+        verify(expenseRepository).finishCategory("Food->Dairy->Milk", CategoryStatus.DONE, List.of(milk.getId(), milkAgain.getId()));
+        verify(expenseRepository).finishCategory("Food->Bakery->Bread", CategoryStatus.DONE, List.of(bread.getId()));
+        verify(expenseRepository).finishCategory("unknown", CategoryStatus.FAILED, List.of(thing.getId()));
+        ArgumentCaptor<LocalDateTime> retryAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(expenseRepository).retryCategory(eq(CategoryStatus.PENDING), retryAt.capture(), eq(List.of(gizmo.getId())));
+        assertTrue(retryAt.getValue().isAfter(LocalDateTime.now().plusSeconds(25)));
+        assertEquals(3.0, meterRegistry.counter("category.async", "outcome", "done").count());
+        assertEquals(1.0, meterRegistry.counter("category.async", "outcome", "retried").count());
+        assertEquals(1.0, meterRegistry.counter("category.async", "outcome", "failed").count());
+    }
+
+    @Test
+    public void complete_BackoffDoublesPerAttempt() {
+        ExpenseEntity expense = expense("gizmo", 2);
+
+        categorizationService.complete(List.of(expense), Map.of());
+
+        ArgumentCaptor<LocalDateTime> retryAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(expenseRepository).retryCategory(eq(CategoryStatus.PENDING), retryAt.capture(), anyCollection());
+        assertTrue(retryAt.getValue().isAfter(LocalDateTime.now().plusSeconds(55)));
+        verify(expenseRepository, never()).finishCategory(any(), any(), anyCollection());
+    }
+
+    @Test
+    public void lagSeconds_SinceOldestPending() {
+        when(expenseRepository.findOldestByCategoryStatus(CategoryStatus.PENDING)).thenReturn(LocalDateTime.now().minusSeconds(90));
+        assertTrue(categorizationService.lagSeconds() >= 89);
+
+        when(expenseRepository.findOldestByCategoryStatus(CategoryStatus.PENDING)).thenReturn(null);
+        assertEquals(0, categorizationService.lagSeconds());
+    }
+
+    private static ExpenseEntity expense(String product, int attempts) {
+        ExpenseEntity expense = ExpenseEntity.builder()
+                .product(product)
+                .categoryStatus(CategoryStatus.RUNNING)
+                .categoryAttempts(attempts)
+                .build();
+        expense.setId(UUID.randomUUID());
+        return expense;
+    }
+}
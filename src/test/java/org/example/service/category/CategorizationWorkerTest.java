@@ -0,0 +1,67 @@
+package org.example.service.category;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.domain.entity.expense.ExpenseEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CategorizationWorkerTest {
+    @Mock
+    private CategorizationService categorizationService;
+    @Mock
+    private CategoryDictionary categoryDictionary;
+
+    private CategorizationWorker worker;
+
+    @BeforeEach
+    public void setUp() {
+        worker = new CategorizationWorker(categorizationService, categoryDictionary, new SimpleMeterRegistry(), 1);
+        worker.setBatchSize_OnlyForTesting(2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        worker.stop();
+    }
+
+    @Test
+    public void drain_ClaimsWhileBatchesAreFull() {
+        List<ExpenseEntity> full = List.of(expense("milk"), expense("bread"));
+        List<ExpenseEntity> last = List.of(expense("tea"));
+        when(categorizationService.claim(2)).thenReturn(full, last);
+        Map<String, String> categories = Map.of("milk", "Food->Dairy->Milk", "bread", "Food->Bakery->Bread");
+        when(categoryDictionary.findAll(List.of("milk", "bread"))).thenReturn(categories);
+        when(categoryDictionary.findAll(List.of("tea"))).thenReturn(Map.of("tea", "Food->Drinks->Tea"));
+
+        worker.drain();
+
+        verify(categorizationService, times(2)).claim(2);
+        verify(categorizationService).complete(full, categories);
+        verify(categorizationService).complete(last, Map.of("tea", "Food->Drinks->Tea"));
+    }
+
+    @Test
+    public void drain_LookupFails_BatchRetried() {
+        List<ExpenseEntity> batch = List.of(expense("milk"));
+        when(categorizationService.claim(2)).thenReturn(batch);
+        when(categoryDictionary.findAll(anyCollection())).thenThrow(new RuntimeException("LLM down"));
+
+        worker.drain();
+
+        verify(categorizationService).complete(batch, Map.of());
+    }
+
+    private static ExpenseEntity expense(String product) {
+        return ExpenseEntity.builder().product(product).build();
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.service.category;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.repository.ExpenseRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CategoryClassifierTest {
+    @Mock
+    private ExpenseRepository expenseRepository;
+
+    private CategoryClassifier classifier;
+    private final List<Runnable> trainings = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        classifier = new CategoryClassifier(expenseRepository, trainings::add, new SimpleMeterRegistry());
+        classifier.setModel_OnlyForTesting(4096, 0.1);
+    }
+
+    @Test
+    public void classify_NoModel_Null() {
+        assertNull(classifier.classify("milk"));
+        assertNull(classifier.report());
+    }
+
+    @Test
+    public void retrain_LearnsCategoryPrefixes() {
+        List<Object[]> rows = new ArrayList<>();
+        for (String product : List.of("milk", "skim milk", "goat milk", "cheese", "cheddar cheese", "yogurt", "butter")) {
+            rows.add(new Object[]{product, "Food->Dairy->" + product});
+        }
+        for (String product : List.of("coffee", "iced coffee", "tea", "green tea", "juice", "orange juice", "water")) {
+            rows.add(new Object[]{product, "Food->Drinks->" + product});
+        }
+        for (String product : List.of("soap", "hand soap", "detergent", "bleach", "sponge")) {
+            rows.add(new Object[]{product, "Household->Cleaning->" + product});
+        }
+        rows.add(new Object[]{"gizmo", "unknown"});
+        when(expenseRepository.findCategorized(any(Pageable.class))).thenReturn(rows);
+
+        classifier.retrain();
+
+        CategoryClassifier.Category milk = classifier.classify(" Almond Milk ");
+        assertEquals("Food->Dairy->Almond Milk", milk.category());
+        assertTrue(milk.confidence() > 0.5 && milk.confidence() <= 1.0);
+        assertEquals("Food->Drinks->black tea", classifier.classify("black tea").category());
+        assertEquals("Household->Cleaning->dish soap", classifier.classify("dish soap").category());
+
+        CategoryClassifier.Report report = classifier.report();
+        assertEquals(19, report.samples());
+        assertEquals(3, report.classes());
+        assertEquals(6, report.thresholds().size());
+        assertTrue(report.accuracy() >= 0 && report.accuracy() <= 1);
+    }
+
+    @Test
+    public void scheduledRetrain_LlmMode_NotTrained() {
+        classifier.scheduledRetrain();
+
+        assertTrue(trainings.isEmpty());
+        verifyNoInteractions(expenseRepository);
+    }
+
+    @Test
+    public void scheduledRetrain_OnTheTrainingExecutorOneAtATime() {
+        classifier.setMode_OnlyForTesting("tiered");
+        when(expenseRepository.findCategorized(any(Pageable.class)))
+                .thenReturn(List.<Object[]>of(new Object[]{"milk", "Food->Dairy->milk"}));
+
+        classifier.scheduledRetrain();
+        classifier.scheduledRetrain();
+
+        assertEquals(1, trainings.size());
+        verifyNoInteractions(expenseRepository);
+        trainings.get(0).run();
+        assertNotNull(classifier.report());
+
+        classifier.scheduledRetrain();
+        assertEquals(2, trainings.size());
+    }
+
+    @Test
+    public void sample_LabelIsTheCategoryPrefix() {
+        assertEquals(new CategoryModel.Sample("red apple", "Food->Fruit"),
+                CategoryClassifier.sample("Red  Apple", "Food->Fruit->Red Apple"));
+        assertNull(CategoryClassifier.sample("gizmo", "unknown"));
+        assertNull(CategoryClassifier.sample(" ", "Food->Fruit->Apple"));
+    }
+
+    @Test
+    public void features_NoSubstringsSameBuckets() {
+        assertArrayEquals(CategoryModel.features("milk", 1024), CategoryModel.features("milk", 1024));
+        for (int bucket : CategoryModel.features("skim milk", 1024)) {
+            assertTrue(bucket >= 0 && bucket < 1024);
+        }
+    }
+}
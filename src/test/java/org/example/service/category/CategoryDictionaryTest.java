@@ -0,0 +1,349 @@
+package org.example.service.category;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.domain.entity.category.CategoryEntity;
+import org.example.domain.entity.category.CategorySource;
+import org.example.repository.CategoryRepository;
+import org.example.repository.ExpenseRepository;
+import org.example.service.MistralAIService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CategoryDictionaryTest {
+    @Mock
+    private CategoryRepository categoryRepository;
+    @Mock
+    private ExpenseRepository expenseRepository;
+    @Mock
+    private MistralAIService mistralAIService;
+    @Mock
+    private CategoryClassifier classifier;
+
+    private SimpleMeterRegistry meterRegistry;
+    private CategoryDictionary dictionary;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        dictionary = new CategoryDictionary(categoryRepository, expenseRepository, mistralAIService, classifier, meterRegistry, 100, 100, 0.7);
+    }
+
+    @Test
+    public void find_TrueMiss_AsksTheLlmOnceThenMemory() {
+        when(categoryRepository.findByProduct("milk")).thenReturn(Optional.empty());
+        when(expenseRepository.findCategoriesByProduct(eq("milk"), any(Pageable.class))).thenReturn(List.of());
+        when(mistralAIService.findCategory("Milk")).thenReturn(" Food->Dairy->Milk\n");
+
+        assertEquals("Food->Dairy->Milk", dictionary.find("Milk"));
+        assertEquals("Food->Dairy->Milk", dictionary.find("  milk "));
+
+        verify(mistralAIService, times(1)).findCategory(anyString());
+        ArgumentCaptor<CategoryEntity> saved = ArgumentCaptor.forClass(CategoryEntity.class);
+        verify(categoryRepository).save(saved.capture());
+        assertEquals("milk", saved.getValue().getProduct());
+        assertEquals(CategorySource.LLM, saved.getValue().getSource());
+        assertNotNull(saved.getValue().getExpiresAt());
+        assertEquals(1.0, meterRegistry.counter("category.lookups", "source", "llm").count());
+        assertEquals(1.0, meterRegistry.counter("category.llm.avoided").count());
+    }
+
+    @Test
+    public void find_InTable_NoLlm() {
+        when(categoryRepository.findByProduct("coffee")).thenReturn(Optional.of(entity("coffee", "Food->Drinks->Coffee",
+                CategorySource.LLM, LocalDateTime.now().plusDays(1))));
+
+        assertEquals("Food->Drinks->Coffee", dictionary.find("Coffee"));
+        assertEquals("Food->Drinks->Coffee", dictionary.find("coffee"));
+
+        verify(categoryRepository, times(1)).findByProduct("coffee");
+        verifyNoInteractions(mistralAIService, expenseRepository);
+        assertEquals(1.0, meterRegistry.counter("category.lookups", "source", "table").count());
+        assertEquals(1.0, meterRegistry.counter("category.lookups", "source", "memory").count());
+    }
+
+    @Test
+    public void find_SavedExpenses_SeedTheDictionary() {
+        when(categoryRepository.findByProduct("rice")).thenReturn(Optional.empty());
+        when(expenseRepository.findCategoriesByProduct(eq("rice"), any(Pageable.class))).thenReturn(List.of("Food->Grains->Rice"));
+
+        assertEquals("Food->Grains->Rice", dictionary.find("rice"));
+
+        verifyNoInteractions(mistralAIService);
+        ArgumentCaptor<CategoryEntity> saved = ArgumentCaptor.forClass(CategoryEntity.class);
+        verify(categoryRepository).save(saved.capture());
+        assertEquals(CategorySource.EXPENSE, saved.getValue().getSource());
+    }
+
+    @Test
+    public void find_ExpiredEntry_LookedUpAgain() {
+        CategoryEntity expired = entity("bread", "Food->Bakery", CategorySource.LLM, LocalDateTime.now().minusDays(1));
+        when(categoryRepository.findByProduct("bread")).thenReturn(Optional.of(expired));
+        when(mistralAIService.findCategory("bread")).thenReturn("Food->Bakery->Bread");
+
+        assertEquals("Food->Bakery->Bread", dictionary.find("bread"));
+
+        verify(categoryRepository).save(expired);
+        assertEquals("Food->Bakery->Bread", expired.getCategory());
+        assertTrue(expired.getExpiresAt().isAfter(LocalDateTime.now()));
+    }
+
+    @Test
+    public void find_ExpiredEntry_NotSeededFromExpensesAgain() {
+        CategoryEntity expired = entity("rice", "Food->Grains", CategorySource.EXPENSE, LocalDateTime.now().minusDays(1));
+        when(categoryRepository.findByProduct("rice")).thenReturn(Optional.of(expired));
+        when(mistralAIService.findCategory("rice")).thenReturn("Food->Grains->Rice");
+
+        assertEquals("Food->Grains->Rice", dictionary.find("rice"));
+
+        verify(expenseRepository, never()).findCategoriesByProduct(anyString(), any(Pageable.class));
+        assertEquals(CategorySource.LLM, expired.getSource());
+    }
+
+    @Test
+    public void find_LlmFails_NothingStored() {
+        when(categoryRepository.findByProduct("tea")).thenReturn(Optional.empty());
+        when(expenseRepository.findCategoriesByProduct(eq("tea"), any(Pageable.class))).thenReturn(List.of());
+        when(mistralAIService.findCategory("tea")).thenReturn(null);
+
+        assertNull(dictionary.find("tea"));
+        assertNull(dictionary.find("tea"));
+
+        verify(mistralAIService, times(2)).findCategory("tea");
+        verify(categoryRepository, never()).save(any());
+        assertEquals(2.0, meterRegistry.counter("category.lookups", "source", "failed").count());
+    }
+
+    @Test
+    public void find_Unknown_ExpiresSooner() {
+        dictionary.setTtl_OnlyForTesting(90, 7);
+        when(categoryRepository.findByProduct("blah")).thenReturn(Optional.empty());
+        when(expenseRepository.findCategoriesByProduct(eq("blah"), any(Pageable.class))).thenReturn(List.of());
+        when(mistralAIService.findCategory("blah")).thenReturn("unknown");
+
+        assertEquals("unknown", dictionary.find("blah"));
+
+        ArgumentCaptor<CategoryEntity> saved = ArgumentCaptor.forClass(CategoryEntity.class);
+        verify(categoryRepository).save(saved.capture());
+        assertTrue(saved.getValue().getExpiresAt().isBefore(LocalDateTime.now().plusDays(8)));
+    }
+
+    @Test
+    public void override_NeverExpiresAndWinsOverTheLlm() {
+        when(categoryRepository.findByProduct("milk")).thenReturn(Optional.empty());
+
+        dictionary.override("Milk", "Groceries->Milk");
+
+        ArgumentCaptor<CategoryEntity> saved = ArgumentCaptor.forClass(CategoryEntity.class);
+        verify(categoryRepository).save(saved.capture());
+        assertEquals(CategorySource.MANUAL, saved.getValue().getSource());
+        assertNull(saved.getValue().getExpiresAt());
+        assertEquals("Groceries->Milk", dictionary.find("milk"));
+        verifyNoInteractions(mistralAIService);
+    }
+
+    @Test
+    public void store_DoesNotReplaceAnOverrideFromAnotherNode() {
+        CategoryEntity manual = entity("milk", "Groceries->Milk", CategorySource.MANUAL, null);
+        // the override lands between this node's lookup and its write
+        when(categoryRepository.findByProduct("milk")).thenReturn(Optional.empty(), Optional.of(manual));
+        when(expenseRepository.findCategoriesByProduct(eq("milk"), any(Pageable.class))).thenReturn(List.of());
+        when(mistralAIService.findCategory("milk")).thenReturn("Food->Dairy->Milk");
+
+        dictionary.find("milk");
+
+        verify(categoryRepository, never()).save(any());
+        assertEquals("Groceries->Milk", dictionary.find("milk"));
+    }
+
+    @Test
+    public void overrideOnAnotherNode_SeenOnceTheMemoryExpires() {
+        dictionary.setMemoryTtl_OnlyForTesting(0);
+        CategoryEntity llm = entity("milk", "Food->Dairy->Milk", CategorySource.LLM, LocalDateTime.now().plusDays(90));
+        CategoryEntity manual = entity("milk", "Groceries->Milk", CategorySource.MANUAL, null);
+        when(categoryRepository.findByProduct("milk")).thenReturn(Optional.of(llm), Optional.of(manual));
+
+        assertEquals("Food->Dairy->Milk", dictionary.find("milk"));
+        assertEquals("Groceries->Milk", dictionary.find("milk"));
+
+        verify(categoryRepository, times(2)).findByProduct("milk");
+        verifyNoInteractions(mistralAIService);
+    }
+
+    @Test
+    public void override_EmptyCategory_Throws() {
+        assertThrows(RuntimeException.class, () -> dictionary.override("milk", " "));
+        verifyNoInteractions(categoryRepository);
+    }
+
+    @Test
+    public void remove_ForgetsTheProduct() {
+        CategoryEntity manual = entity("milk", "Groceries->Milk", CategorySource.MANUAL, null);
+        when(categoryRepository.findByProduct("milk")).thenReturn(Optional.of(manual), Optional.of(manual), Optional.empty());
+        dictionary.override("milk", "Groceries->Milk");
+
+        dictionary.remove("Milk");
+
+        verify(categoryRepository).delete(manual);
+        when(expenseRepository.findCategoriesByProduct(eq("milk"), any(Pageable.class))).thenReturn(List.of());
+        when(mistralAIService.findCategory("milk")).thenReturn("Food->Dairy->Milk");
+        assertEquals("Food->Dairy->Milk", dictionary.find("milk"));
+    }
+
+    @Test
+    public void findAll_MissesGoToTheLlmInOnePrompt() {
+        when(categoryRepository.findByProduct(anyString())).thenReturn(Optional.empty());
+        when(categoryRepository.findByProduct("coffee"))
+                .thenReturn(Optional.of(entity("coffee", "Food->Drinks->Coffee", CategorySource.LLM, LocalDateTime.now().plusDays(1))));
+        when(expenseRepository.findCategoriesByProduct(anyString(), any(Pageable.class))).thenReturn(List.of());
+        Map<String, String> answers = new HashMap<>();
+        answers.put("milk", "Food->Dairy->Milk");
+        answers.put("Bread", "Food->Bakery->Bread");
+        answers.put("gizmo", null);
+        when(mistralAIService.findCategories(List.of("milk", "Bread", "gizmo"))).thenReturn(answers);
+
+        Map<String, String> res = dictionary.findAll(List.of("milk", "coffee", "Bread", "MILK", "gizmo"));
+
+        assertEquals("Food->Dairy->Milk", res.get("milk"));
+        assertEquals("Food->Dairy->Milk", res.get("MILK"));
+        assertEquals("Food->Drinks->Coffee", res.get("coffee"));
+        assertEquals("Food->Bakery->Bread", res.get("Bread"));
+        assertTrue(res.containsKey("gizmo"));
+        assertNull(res.get("gizmo"));
+        verify(mistralAIService, never()).findCategory(anyString());
+        verify(categoryRepository, times(2)).save(any(CategoryEntity.class));
+        assertEquals(2.0, meterRegistry.counter("category.lookups", "source", "llm").count());
+        assertEquals(1.0, meterRegistry.counter("category.lookups", "source", "failed").count());
+    }
+
+    @Test
+    public void findAll_AllKnown_NoLlm() {
+        when(categoryRepository.findByProduct("tea"))
+                .thenReturn(Optional.of(entity("tea", "Food->Drinks->Tea", CategorySource.MANUAL, null)));
+
+        assertEquals(Map.of("tea", "Food->Drinks->Tea", "", "unknown"), dictionary.findAll(List.of("tea", "")));
+
+        verifyNoInteractions(mistralAIService);
+    }
+
+    @Test
+    public void find_Tiered_ConfidentClassifierBeforeTheLlm() {
+        dictionary.setMode_OnlyForTesting("tiered", 0.9);
+        when(categoryRepository.findByProduct(anyString())).thenReturn(Optional.empty());
+        when(expenseRepository.findCategoriesByProduct(anyString(), any(Pageable.class))).thenReturn(List.of());
+        when(classifier.classify("milk")).thenReturn(new CategoryClassifier.Category("Food->Dairy->milk", 0.97));
+        when(classifier.classify("gizmo")).thenReturn(new CategoryClassifier.Category("Food->Dairy->gizmo", 0.4));
+        when(mistralAIService.findCategory("gizmo")).thenReturn("unknown");
+
+        assertEquals("Food->Dairy->milk", dictionary.find("milk"));
+        assertEquals("unknown", dictionary.find("gizmo"));
+
+        verify(mistralAIService, never()).findCategory("milk");
+        verify(categoryRepository, times(1)).save(any(CategoryEntity.class));
+        assertEquals(1.0, meterRegistry.counter("category.lookups", "source", "classifier").count());
+    }
+
+    @Test
+    public void find_Local_NeverTheLlm() {
+        dictionary.setMode_OnlyForTesting("local", 0.9);
+        when(categoryRepository.findByProduct(anyString())).thenReturn(Optional.empty());
+        when(expenseRepository.findCategoriesByProduct(anyString(), any(Pageable.class))).thenReturn(List.of());
+        when(classifier.classify("gizmo")).thenReturn(new CategoryClassifier.Category("Food->Dairy->gizmo", 0.4));
+        when(classifier.classify("tea")).thenReturn(null);
+
+        assertEquals("Food->Dairy->gizmo", dictionary.find("gizmo"));
+        assertNull(dictionary.find("tea"));
+
+        verifyNoInteractions(mistralAIService);
+        assertEquals(1.0, meterRegistry.counter("category.lookups", "source", "failed").count());
+    }
+
+    @Test
+    public void find_SimilarKnownProduct_NoLlm() {
+        when(categoryRepository.findByProduct(anyString())).thenReturn(Optional.empty());
+        when(categoryRepository.findByProduct("apples"))
+                .thenReturn(Optional.of(entity("apples", "Food->Fruit->Apples", CategorySource.LLM, LocalDateTime.now().plusDays(1))));
+        when(expenseRepository.findCategoriesByProduct(anyString(), any(Pageable.class))).thenReturn(List.of());
+        when(mistralAIService.findCategory("gizmo")).thenReturn("unknown");
+
+        assertEquals("Food->Fruit->Apples", dictionary.find("apples"));
+        assertEquals("Food->Fruit->Red apples", dictionary.find("Red apples"));
+        assertEquals("unknown", dictionary.find("gizmo"));
+
+        verify(mistralAIService, never()).findCategory("Red apples");
+        verify(categoryRepository, times(1)).save(any(CategoryEntity.class));
+        assertEquals(1.0, meterRegistry.counter("category.lookups", "source", "fuzzy").count());
+        assertEquals(1.0, meterRegistry.get("category.fuzzy.size").gauge().value());
+    }
+
+    @Test
+    public void find_SimilarProductRemovedOnAnotherNode_NotUsed() {
+        dictionary.setMemoryTtl_OnlyForTesting(0);
+        when(categoryRepository.findByProduct(anyString())).thenReturn(Optional.empty());
+        when(categoryRepository.findByProduct("apples"))
+                .thenReturn(Optional.of(entity("apples", "Food->Fruit->Apples", CategorySource.LLM, LocalDateTime.now().plusDays(1))))
+                .thenReturn(Optional.empty());
+        when(expenseRepository.findCategoriesByProduct(anyString(), any(Pageable.class))).thenReturn(List.of());
+        when(mistralAIService.findCategory("Red apples")).thenReturn("Food->Fruit->Red apples");
+
+        dictionary.find("apples");
+        assertEquals("Food->Fruit->Red apples", dictionary.find("Red apples"));
+
+        verify(mistralAIService).findCategory("Red apples");
+        assertEquals(0.0, meterRegistry.counter("category.lookups", "source", "fuzzy").count());
+    }
+
+    @Test
+    public void find_SimilarProductRecategorizedOnAnotherNode_UsesNewCategory() {
+        dictionary.setMemoryTtl_OnlyForTesting(0);
+        when(categoryRepository.findByProduct(anyString())).thenReturn(Optional.empty());
+        when(categoryRepository.findByProduct("apples"))
+                .thenReturn(Optional.of(entity("apples", "Food->Fruit->Apples", CategorySource.LLM, LocalDateTime.now().plusDays(1))))
+                .thenReturn(Optional.of(entity("apples", "Food->Produce->Apples", CategorySource.MANUAL, null)));
+        when(expenseRepository.findCategoriesByProduct(anyString(), any(Pageable.class))).thenReturn(List.of());
+
+        dictionary.find("apples");
+        assertEquals("Food->Produce->Red apples", dictionary.find("Red apples"));
+
+        verifyNoInteractions(mistralAIService);
+    }
+
+    @Test
+    public void find_FuzzyOff_AsksTheLlm() {
+        dictionary = new CategoryDictionary(categoryRepository, expenseRepository, mistralAIService, classifier, meterRegistry, 100, 0, 0.7);
+        when(categoryRepository.findByProduct(anyString())).thenReturn(Optional.empty());
+        when(categoryRepository.findByProduct("apples"))
+                .thenReturn(Optional.of(entity("apples", "Food->Fruit->Apples", CategorySource.LLM, LocalDateTime.now().plusDays(1))));
+        when(expenseRepository.findCategoriesByProduct(anyString(), any(Pageable.class))).thenReturn(List.of());
+        when(mistralAIService.findCategory("red apples")).thenReturn("Food->Fruit->Red apples");
+
+        dictionary.find("apples");
+        assertEquals("Food->Fruit->Red apples", dictionary.find("red apples"));
+    }
+
+    @Test
+    public void normalize_CaseWhitespaceQuotes() {
+        assertEquals("red apple", CategoryDictionary.normalize("  \"Red   Apple\" "));
+        assertEquals("", CategoryDictionary.normalize(null));
+    }
+
+    private static CategoryEntity entity(String product, String category, CategorySource source, LocalDateTime expiresAt) {
+        return CategoryEntity.builder().product(product).category(category).source(source).expiresAt(expiresAt).build();
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.service.category;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FuzzyCategoryIndexTest {
+    private FuzzyCategoryIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        index = new FuzzyCategoryIndex(100, 0.6);
+        index.put("apples", "Food->Fruit->apples");
+        index.put("chicken breast", "Food->Meat->chicken breast");
+        index.put("dish soap", "Household->Cleaning->dish soap");
+    }
+
+    @Test
+    public void find_ModifierVariant_KnownPrefix() {
+        FuzzyCategoryIndex.Match match = index.find("red apples");
+
+        assertNotNull(match);
+        assertEquals("apples", match.product());
+        assertEquals("Food->Fruit->red apples", match.category("red apples"));
+        assertEquals("Food->Meat", index.find("chicken breasts").prefix());
+    }
+
+    @Test
+    public void find_SameProduct_SimilarityOne() {
+        assertEquals(1.0, index.find("dish soap").similarity());
+    }
+
+    @Test
+    public void find_NothingSimilar_Null() {
+        assertNull(index.find("gasoline"));
+        assertNull(index.find(""));
+        assertNull(new FuzzyCategoryIndex(100, 0.6).find("apples"));
+    }
+
+    @Test
+    public void put_UpdatesKnownProduct_IgnoresCategoryWithoutPrefix() {
+        index.put("apples", "Groceries->apples");
+        index.put("gizmo", "unknown");
+
+        assertEquals("Groceries", index.find("green apples").prefix());
+        assertNull(index.find("gizmo"));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    public void remove_NotFoundAnymore() {
+        index.remove("apples");
+
+        assertNull(index.find("red apples"));
+    }
+
+    @Test
+    public void put_Full_NewProductsDropped() {
+        FuzzyCategoryIndex small = new FuzzyCategoryIndex(1, 0.6);
+        small.put("apples", "Food->Fruit->apples");
+        small.put("bananas", "Food->Fruit->bananas");
+
+        assertEquals(1, small.size());
+        assertNull(small.find("bananas"));
+        assertNotNull(small.find("apples"));
+    }
+
+    @Test
+    public void put_ManyProducts_StillFound() {
+        FuzzyCategoryIndex large = new FuzzyCategoryIndex(10_000, 0.6);
+        for (int i = 0; i < 5_000; i++) large.put("product " + i, "Other->Misc->product " + i);
+        large.put("orange juice", "Food->Drinks->orange juice");
+
+        assertEquals("Food->Drinks", large.find("fresh orange juice").prefix());
+        assertEquals(5_001, large.size());
+    }
+}
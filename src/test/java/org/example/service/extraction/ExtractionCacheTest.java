@@ -0,0 +1,78 @@
+package org.example.service.extraction;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.domain.request.ExpenseRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExtractionCacheTest {
+    private SimpleMeterRegistry meterRegistry;
+    private ExtractionCache cache;
+    private AtomicInteger extractions;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new ExtractionCache(2, meterRegistry);
+        extractions = new AtomicInteger();
+    }
+
+    @Test
+    public void samePhrase_DifferentCaseAndSpacing_ExtractedOnce() {
+        cache.get("Coffee for 3 dollars.", this::extract);
+        List<ExpenseRequest> second = cache.get("  coffee   for 3 DOLLARS ", this::extract);
+
+        assertEquals(1, extractions.get());
+        assertEquals("coffee", second.get(0).getProduct());
+        assertEquals(1, meterRegistry.get("cache.hits").tag("cache", "extraction").functionCounter().count());
+        assertEquals(1, meterRegistry.get("cache.misses").tag("cache", "extraction").functionCounter().count());
+    }
+
+    @Test
+    public void sentenceBoundaries_AreDifferentKeys() {
+        cache.get("I bought rice. Coffee for 3 dollars", this::extract);
+        cache.get("I bought rice coffee for 3 dollars", this::extract);
+
+        assertEquals(2, extractions.get());
+    }
+
+    @Test
+    public void callersGetTheirOwnCopies() {
+        cache.get("coffee for 3 dollars", this::extract).get(0).setProduct("tea");
+
+        assertEquals("coffee", cache.get("coffee for 3 dollars", this::extract).get(0).getProduct());
+    }
+
+    @Test
+    public void bounded_EvictsLeastRecentlyUsed() {
+        cache.get("coffee for 3 dollars", this::extract);
+        cache.get("tea for 2 dollars", this::extract);
+        cache.get("coffee for 3 dollars", this::extract);
+        cache.get("rice for 5 dollars", this::extract);
+        cache.get("coffee for 3 dollars", this::extract);
+
+        assertEquals(3, extractions.get());
+        assertEquals(2, cache.size());
+        assertEquals(1, meterRegistry.get("cache.evictions").tag("cache", "extraction").functionCounter().count());
+    }
+
+    @Test
+    public void lexiconChanged_ClearsEverything() {
+        cache.get("coffee for 3 dollars", this::extract);
+
+        cache.invalidateAll(new LexiconChangedEvent("currency words reloaded"));
+        cache.get("coffee for 3 dollars", this::extract);
+
+        assertEquals(2, extractions.get());
+    }
+
+    private List<ExpenseRequest> extract(String text) {
+        extractions.incrementAndGet();
+        return List.of(new ExpenseRequest(text.trim().split("\\s+")[0].toLowerCase(), "3 dollars", null));
+    }
+}
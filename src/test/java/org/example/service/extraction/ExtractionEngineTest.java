@@ -0,0 +1,203 @@
+package org.example.service.extraction;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.pipeline.CoreSentence;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.trees.GrammaticalRelation;
+import edu.stanford.nlp.trees.UniversalEnglishGrammaticalRelations;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.domain.request.ExpenseRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ExtractionEngineTest {
+    private ExtractionEngine engine;
+
+    @BeforeEach
+    public void setUp() {
+        engine = new ExtractionEngine();
+    }
+
+    @Test
+    public void verbSentence_EachProductTakesTheNearestPrice() {
+        Sentence s = new Sentence("I bought rice for $5 and milk for $3",
+                "I/PRP", "bought/VBD/buy", "rice/NN", "for/IN", "$/$", "5/CD", "and/CC", "milk/NN", "for/IN", "$/$", "3/CD");
+        s.edge(2, 3, UniversalEnglishGrammaticalRelations.DIRECT_OBJECT);
+        // enhanced dependencies, as CoreSentence.dependencyParse() returns them
+        s.edge(3, 8, UniversalEnglishGrammaticalRelations.getConj("and"));
+
+        List<ExpenseRequest> res = extract(s);
+
+        assertEquals(2, res.size());
+        assertEquals("rice", res.get(0).getProduct());
+        assertEquals("$5", res.get(0).getPrice());
+        assertEquals("milk", res.get(1).getProduct());
+        assertEquals("$3", res.get(1).getPrice());
+    }
+
+    @Test
+    public void verbSentence_ModifiersInSentenceOrder() {
+        Sentence s = new Sentence("I bought a new laptop bag for 1200 euros",
+                "I/PRP", "bought/VBD/buy", "a/DT", "new/JJ", "laptop/NN", "bag/NN", "for/IN", "1200/CD", "euros/NNS");
+        s.edge(2, 6, UniversalEnglishGrammaticalRelations.DIRECT_OBJECT);
+        s.edge(6, 5, UniversalEnglishGrammaticalRelations.COMPOUND_MODIFIER);
+        s.edge(6, 4, UniversalEnglishGrammaticalRelations.ADJECTIVAL_MODIFIER);
+
+        List<ExpenseRequest> res = extract(s);
+
+        assertEquals(1, res.size());
+        assertEquals("new laptop bag", res.get(0).getProduct());
+        assertEquals("1200 euros", res.get(0).getPrice());
+        assertNull(res.get(0).getQuantity());
+    }
+
+    @Test
+    public void verbSentence_NotAShoppingVerb_NothingExtracted() {
+        Sentence s = new Sentence("I washed the car", "I/PRP", "washed/VBD/wash", "the/DT", "car/NN");
+        s.edge(2, 4, UniversalEnglishGrammaticalRelations.DIRECT_OBJECT);
+
+        assertTrue(extract(s).isEmpty());
+    }
+
+    @Test
+    public void conjoinedNonNoun_Ignored() {
+        Sentence s = new Sentence("I bought rice and left", "I/PRP", "bought/VBD/buy", "rice/NN", "and/CC", "left/VBD");
+        s.edge(2, 3, UniversalEnglishGrammaticalRelations.DIRECT_OBJECT);
+        s.edge(3, 5, UniversalEnglishGrammaticalRelations.getConj("and"));
+
+        List<ExpenseRequest> res = extract(s);
+
+        assertEquals(1, res.size());
+        assertEquals("rice", res.get(0).getProduct());
+    }
+
+    @Test
+    public void nounPhrase_UnitIsQuantityNotName() {
+        Sentence s = new Sentence("5 kg rice for $20", "5/CD", "kg/NN", "rice/NN", "for/IN", "$/$", "20/CD");
+        s.root(3);
+        s.edge(3, 2, UniversalEnglishGrammaticalRelations.COMPOUND_MODIFIER);
+
+        List<ExpenseRequest> res = extract(s);
+
+        assertEquals(1, res.size());
+        assertEquals("rice", res.get(0).getProduct());
+        assertEquals("5 kg", res.get(0).getQuantity());
+        assertEquals("$20", res.get(0).getPrice());
+    }
+
+    @Test
+    public void nounPhrase_GluedQuantity() {
+        Sentence s = new Sentence("5kg rice for $20", "5kg/CD", "rice/NN", "for/IN", "$/$", "20/CD");
+        s.root(2);
+
+        List<ExpenseRequest> res = extract(s);
+
+        assertEquals("5kg", res.get(0).getQuantity());
+        assertEquals("$20", res.get(0).getPrice());
+    }
+
+    @Test
+    public void verbSentence_SameQuantitiesAsTheFastPath() {
+        String text = "bought 5kg rice and milk and 2 liters water for $20";
+        Sentence s = new Sentence(text, "bought/VBD/buy", "5kg/CD", "rice/NN", "and/CC", "milk/NN", "and/CC",
+                "2/CD", "liters/NNS", "water/NN", "for/IN", "$/$", "20/CD");
+        s.edge(1, 3, UniversalEnglishGrammaticalRelations.DIRECT_OBJECT);
+        s.edge(3, 5, UniversalEnglishGrammaticalRelations.getConj("and"));
+        s.edge(3, 9, UniversalEnglishGrammaticalRelations.getConj("and"));
+
+        List<ExpenseRequest> slow = extract(s);
+        List<ExpenseRequest> fast = new FastPathExtractor(new SimpleMeterRegistry()).tryExtract(text).orElseThrow();
+
+        assertEquals(List.of("5kg", "2 liters", "2 liters"), slow.stream().map(ExpenseRequest::getQuantity).toList());
+        assertEquals(slow.stream().map(ExpenseRequest::getProduct).toList(),
+                fast.stream().map(ExpenseRequest::getProduct).toList());
+        assertEquals(slow.stream().map(ExpenseRequest::getQuantity).toList(),
+                fast.stream().map(ExpenseRequest::getQuantity).toList());
+        assertEquals(slow.stream().map(ExpenseRequest::getPrice).toList(),
+                fast.stream().map(ExpenseRequest::getPrice).toList());
+    }
+
+    @Test
+    public void nounPhrase_RootIsNull() {
+        Sentence s = new Sentence("for", "for/IN");
+
+        assertTrue(extract(s).isEmpty());
+    }
+
+    @Test
+    public void hasVerbs_ReturnsTrue_WhenVerbPresent() {
+        Sentence s = new Sentence("bought rice", "bought/VBD/buy", "rice/NN");
+
+        assertTrue(engine.hasVerbs(s.sentence()));
+    }
+
+    @Test
+    public void hasVerbs_ReturnsFalse_WhenNoVerbs() {
+        Sentence s = new Sentence("rice", "rice/NN");
+
+        assertFalse(engine.hasVerbs(s.sentence()));
+    }
+
+    private List<ExpenseRequest> extract(Sentence s) {
+        List<ExpenseRequest> out = new ArrayList<>();
+        engine.extract(s.sentence(), out);
+        return out;
+    }
+
+    /**
+     * a parsed sentence built by hand: tokens as "word/TAG" or "word/TAG/lemma", character offsets taken from the text.
+     */
+    private static class Sentence {
+        private final String text;
+        private final List<CoreLabel> tokens = new ArrayList<>();
+        private final List<IndexedWord> words = new ArrayList<>();
+        private final SemanticGraph graph = new SemanticGraph();
+
+        Sentence(String text, String... annotated) {
+            this.text = text;
+            int cursor = 0;
+            for (int i = 0; i < annotated.length; i++) {
+                String[] parts = annotated[i].split("/");
+                CoreLabel token = new CoreLabel();
+                token.setWord(parts[0]);
+                token.setValue(parts[0]);
+                token.setTag(parts[1]);
+                token.setLemma(parts.length > 2 ? parts[2] : parts[0].toLowerCase());
+                token.setIndex(i + 1);
+                int begin = text.indexOf(parts[0], cursor);
+                token.setBeginPosition(begin);
+                token.setEndPosition(begin + parts[0].length());
+                cursor = begin + parts[0].length();
+                tokens.add(token);
+
+                IndexedWord word = new IndexedWord(token);
+                words.add(word);
+                graph.addVertex(word);
+            }
+        }
+
+        void edge(int governor, int dependent, GrammaticalRelation relation) {
+            graph.addEdge(words.get(governor - 1), words.get(dependent - 1), relation, 1.0, false);
+        }
+
+        void root(int index) {
+            graph.setRoot(words.get(index - 1));
+        }
+
+        CoreSentence sentence() {
+            CoreSentence sentence = mock(CoreSentence.class);
+            when(sentence.tokens()).thenReturn(tokens);
+            when(sentence.text()).thenReturn(text);
+            when(sentence.dependencyParse()).thenReturn(graph);
+            return sentence;
+        }
+    }
+}
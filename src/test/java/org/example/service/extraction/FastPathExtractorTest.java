@@ -0,0 +1,110 @@
+package org.example.service.extraction;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.domain.request.ExpenseRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FastPathExtractorTest {
+    private SimpleMeterRegistry meterRegistry;
+    private FastPathExtractor extractor;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        extractor = new FastPathExtractor(meterRegistry);
+    }
+
+    @Test
+    public void quantityProductPrice_Extracted() {
+        List<ExpenseRequest> expenses = extractor.tryExtract("5kg rice for $20").orElseThrow();
+
+        assertEquals(1, expenses.size());
+        assertEquals("rice", expenses.get(0).getProduct());
+        assertEquals("5kg", expenses.get(0).getQuantity());
+        assertEquals("$20", expenses.get(0).getPrice());
+    }
+
+    @Test
+    public void conjoinedProducts_ShareThePrice() {
+        List<ExpenseRequest> expenses = extractor.tryExtract("I bought milk and bread for 3 dollars.").orElseThrow();
+
+        assertEquals(List.of("milk", "bread"), expenses.stream().map(ExpenseRequest::getProduct).toList());
+        assertEquals("3 dollars", expenses.get(0).getPrice());
+    }
+
+    @Test
+    public void modifiersAndDeterminers_ProductKeepsModifiers() {
+        List<ExpenseRequest> expenses = extractor
+                .tryExtract("I purchased a new laptop and a Logitech mouse for 1200 euros").orElseThrow();
+
+        assertEquals(List.of("new laptop", "Logitech mouse"), expenses.stream().map(ExpenseRequest::getProduct).toList());
+    }
+
+    @Test
+    public void severalQuantities_EachProductKeepsItsOwn() {
+        List<ExpenseRequest> expenses = extractor.tryExtract("bought 5kg rice and 2 liters milk for $20").orElseThrow();
+
+        assertEquals(List.of("rice", "milk"), expenses.stream().map(ExpenseRequest::getProduct).toList());
+        assertEquals(List.of("5kg", "2 liters"), expenses.stream().map(ExpenseRequest::getQuantity).toList());
+        assertEquals("$20", expenses.get(1).getPrice());
+    }
+
+    @Test
+    public void productWithoutQuantity_TakesTheNearestOne() {
+        List<ExpenseRequest> expenses = extractor
+                .tryExtract("bought 5kg rice and milk and 2 liters water for $20").orElseThrow();
+
+        assertEquals(List.of("rice", "milk", "water"), expenses.stream().map(ExpenseRequest::getProduct).toList());
+        assertEquals(List.of("5kg", "2 liters", "2 liters"), expenses.stream().map(ExpenseRequest::getQuantity).toList());
+    }
+
+    @Test
+    public void serialComma_ThreeProducts() {
+        List<ExpenseRequest> expenses = extractor.tryExtract("bought milk, eggs, and bread for $12").orElseThrow();
+
+        assertEquals(List.of("milk", "eggs", "bread"), expenses.stream().map(ExpenseRequest::getProduct).toList());
+    }
+
+    @Test
+    public void count_NotPartOfProduct() {
+        List<ExpenseRequest> expenses = extractor.tryExtract("2 big apples for $3").orElseThrow();
+
+        assertEquals("big apples", expenses.get(0).getProduct());
+    }
+
+    @Test
+    public void otherShapes_FallThrough() {
+        assertEquals(Optional.empty(), extractor.tryExtract("took a taxi to the airport for 30 pounds"));
+        assertEquals(Optional.empty(), extractor.tryExtract("I bought rice. Then I paid 5 dollars for a coffee"));
+        assertEquals(Optional.empty(), extractor.tryExtract("bought 3 liters of orange juice for 6 dollars"));
+        assertEquals(Optional.empty(), extractor.tryExtract("rice for twenty dollars"));
+        assertEquals(Optional.empty(), extractor.tryExtract("spent $20 on groceries"));
+    }
+
+    @Test
+    public void extract_FallsBackAndTagsThePath() {
+        AtomicInteger fallbacks = new AtomicInteger();
+        List<ExpenseRequest> slow = List.of(ExpenseRequest.builder().product("taxi").build());
+
+        extractor.extract("5kg rice for $20", text -> {
+            fallbacks.incrementAndGet();
+            return List.of();
+        });
+        List<ExpenseRequest> result = extractor.extract("took a taxi to the airport for 30 pounds", text -> {
+            fallbacks.incrementAndGet();
+            return slow;
+        });
+
+        assertSame(slow, result);
+        assertEquals(1, fallbacks.get());
+        assertEquals(1, meterRegistry.get("extraction").tag("path", "fast").timer().count());
+        assertEquals(1, meterRegistry.get("extraction").tag("path", "nlp").timer().count());
+    }
+}
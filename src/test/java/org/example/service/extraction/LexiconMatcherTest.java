@@ -0,0 +1,85 @@
+package org.example.service.extraction;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LexiconMatcherTest {
+    private final LexiconMatcher matcher = ExtractionLexicon.MATCHER;
+
+    @Test
+    public void quantityAndPrice_OnePass() {
+        String text = "I bought 5kg rice and 2 liters of milk for $20";
+
+        List<LexiconMatcher.Span> spans = matcher.scan(text);
+
+        assertEquals(3, spans.size());
+        assertEquals(LexiconMatcher.SpanType.QUANTITY, spans.get(0).type());
+        assertEquals("5kg", spans.get(0).text(text));
+        assertEquals("2 liters", spans.get(1).text(text));
+        assertEquals(LexiconMatcher.SpanType.PRICE, spans.get(2).type());
+        assertEquals("$20", spans.get(2).text(text));
+        assertEquals("20", spans.get(2).amount(text));
+        assertEquals("USD", spans.get(2).entry().value());
+    }
+
+    @Test
+    public void currencyForms() {
+        assertPrice("coffee for 3 dollars", "3 dollars", "3", "USD");
+        assertPrice("coffee for 3 Euros", "3 Euros", "3", "EUR");
+        assertPrice("lunch 20€", "20€", "20", "EUR");
+        assertPrice("rent was USD 1,200.50", "USD 1,200.50", "1,200.50", "USD");
+        assertPrice("sushi for 1500 yen", "1500 yen", "1500", "JPY");
+        assertPrice("sushi for ¥1500", "¥1500", "1500", "JPY");
+        assertPrice("a bike for 2 grand", "2 grand", "2000", "USD");
+        assertPrice("tickets 40 bucks", "40 bucks", "40", "USD");
+    }
+
+    @Test
+    public void wordBoundaries() {
+        // "l" inside "liters", "g" inside "grapes", "usd" inside "usda", a number glued to letters
+        assertTrue(matcher.scan("5 grapes").isEmpty());
+        assertTrue(matcher.scan("usda 5").isEmpty());
+        assertTrue(matcher.scan("mp3 dollars").isEmpty());
+        assertEquals("3 liters", matcher.scan("3 liters").get(0).text("3 liters"));
+        // a currency name can't come before the amount
+        assertTrue(matcher.scan("dollars 5").isEmpty());
+    }
+
+    @Test
+    public void ambiguousTerm_BothTypes() {
+        List<LexiconMatcher.Span> spans = matcher.scan("5 pounds");
+
+        assertEquals(2, spans.size());
+        assertEquals(LexiconMatcher.SpanType.QUANTITY, spans.get(0).type());
+        assertEquals(LexiconMatcher.SpanType.PRICE, spans.get(1).type());
+        assertEquals("GBP", spans.get(1).entry().value());
+    }
+
+    @Test
+    public void dataDriven_NewCurrencyFromLines() {
+        LexiconMatcher custom = new LexiconMatcher(LexiconMatcher.parse("""
+                # kind term value position
+                currency  so'm  UZS  after
+                currency  uzs   UZS  both
+                """));
+
+        String text = "bread for 5000 so'm";
+        LexiconMatcher.Span span = custom.first(text, LexiconMatcher.SpanType.PRICE).orElseThrow();
+
+        assertEquals("5000 so'm", span.text(text));
+        assertEquals("UZS", span.entry().value());
+        assertEquals(BigDecimal.ONE, span.entry().multiplier());
+        assertTrue(custom.first("bread for 5 dollars", LexiconMatcher.SpanType.PRICE).isEmpty());
+    }
+
+    private void assertPrice(String text, String span, String amount, String currency) {
+        LexiconMatcher.Span price = matcher.first(text, LexiconMatcher.SpanType.PRICE).orElseThrow();
+        assertEquals(span, price.text(text));
+        assertEquals(amount, price.amount(text));
+        assertEquals(currency, price.entry().value());
+    }
+}
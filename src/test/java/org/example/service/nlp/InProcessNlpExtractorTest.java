@@ -0,0 +1,59 @@
+package org.example.service.nlp;
+
+import edu.stanford.nlp.pipeline.CoreDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class InProcessNlpExtractorTest {
+    @Mock
+    private NlpAnnotationService nlp;
+    @Mock
+    private LanguageDetector languageDetector;
+    @Mock
+    private CoreDocument document;
+
+    private InProcessNlpExtractor extractor;
+
+    @BeforeEach
+    public void setUp() {
+        extractor = new InProcessNlpExtractor(nlp, languageDetector);
+    }
+
+    @Test
+    public void extract_OtherLanguage_UsesItsPipeline() {
+        when(document.sentences()).thenReturn(List.of());
+        when(languageDetector.detect("compré arroz")).thenReturn(Language.SPANISH);
+        when(nlp.annotate("compré arroz", Language.SPANISH)).thenReturn(document);
+
+        assertTrue(extractor.extract("compré arroz").isEmpty());
+        verify(nlp, never()).annotate("compré arroz");
+    }
+
+    @Test
+    public void extract_English_UsesTheStartupPipeline() {
+        when(document.sentences()).thenReturn(List.of());
+        when(languageDetector.detect("bought rice")).thenReturn(Language.ENGLISH);
+        when(nlp.annotate("bought rice")).thenReturn(document);
+
+        assertTrue(extractor.extract("bought rice").isEmpty());
+        verify(nlp, never()).annotate(anyString(), any(Language.class));
+    }
+
+    @Test
+    public void load_LoadsTheEnglishModels() {
+        extractor.load();
+
+        verify(nlp).load();
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.service.nlp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LanguageDetectorTest {
+    private final LanguageDetector detector = new LanguageDetector(List.of("en", "es", "fr", "de", "it"));
+
+    @Test
+    public void detect_FunctionWords() {
+        assertEquals(Language.ENGLISH, detector.detect("I bought 5kg of rice for $20"));
+        assertEquals(Language.SPANISH, detector.detect("compré dos kilos de arroz y una leche por 3 dólares"));
+        assertEquals(Language.FRENCH, detector.detect("j'ai acheté du pain et une bouteille de lait pour 4 euros"));
+        assertEquals(Language.GERMAN, detector.detect("ich habe einen Kaffee und die Milch für 3 Euro gekauft"));
+        assertEquals(Language.ITALIAN, detector.detect("ho comprato il pane e una bottiglia di latte per 2 euro"));
+    }
+
+    @Test
+    public void detect_NoClearWinner_English() {
+        assertEquals(Language.ENGLISH, detector.detect("coffee 3"));
+        assertEquals(Language.ENGLISH, detector.detect(null));
+    }
+
+    @Test
+    public void detect_EnglishOnly_NeverLooksAtTheText() {
+        LanguageDetector englishOnly = new LanguageDetector(List.of("en"));
+
+        assertEquals(Language.ENGLISH, englishOnly.detect("compré arroz y leche por 3 dólares"));
+    }
+
+    @Test
+    public void detect_OnlyEnabledLanguages() {
+        LanguageDetector spanish = new LanguageDetector(List.of("es"));
+
+        assertEquals(List.of(Language.ENGLISH, Language.SPANISH), spanish.languages());
+        assertEquals(Language.ENGLISH, spanish.detect("ho comprato il pane per 2 euro"));
+    }
+
+    @Test
+    public void unknownLanguage_Throws() {
+        assertThrows(RuntimeException.class, () -> new LanguageDetector(List.of("xx")));
+    }
+}
@@ -0,0 +1,105 @@
+package org.example.service.nlp;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.CoreDocument;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.util.ArrayCoreMap;
+import edu.stanford.nlp.util.CoreMap;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class NlpAnnotationServiceTest {
+    @Mock
+    private StanfordCoreNLP splitter;
+    @Mock
+    private StanfordCoreNLP sentenceAnnotator;
+
+    private ThreadPoolExecutor executor;
+    private SimpleMeterRegistry meterRegistry;
+    private NlpAnnotationService nlp;
+
+    @BeforeEach
+    public void setUp() {
+        executor = new ThreadPoolExecutor(2, 2, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        meterRegistry = new SimpleMeterRegistry();
+        nlp = new NlpAnnotationService(splitter, sentenceAnnotator, executor, meterRegistry, null);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void annotate_EachSentenceAnnotatedOnThePool() {
+        doAnswer(inv -> {
+            Annotation document = inv.getArgument(0);
+            document.set(CoreAnnotations.SentencesAnnotation.class,
+                    List.of(sentence("5kg rice for $20."), sentence("coffee for 3 dollars.")));
+            return null;
+        }).when(splitter).annotate(any(Annotation.class));
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        doAnswer(inv -> {
+            threads.add(Thread.currentThread().getName());
+            Annotation single = inv.getArgument(0);
+            CoreMap sentence = single.get(CoreAnnotations.SentencesAnnotation.class).get(0);
+            sentence.set(CoreAnnotations.SentenceIndexAnnotation.class, 7);
+            return null;
+        }).when(sentenceAnnotator).annotate(any(Annotation.class));
+
+        CoreDocument document = nlp.annotate("5kg rice for $20. coffee for 3 dollars.");
+
+        verify(sentenceAnnotator, times(2)).annotate(any(Annotation.class));
+        assertEquals(2, document.sentences().size());
+        // annotated in place, the document sees what the sentence annotators added
+        assertEquals(7, document.annotation().get(CoreAnnotations.SentencesAnnotation.class).get(1)
+                .get(CoreAnnotations.SentenceIndexAnnotation.class));
+        assertFalse(threads.contains(Thread.currentThread().getName()));
+        assertEquals(2, meterRegistry.get("nlp.annotate.wait").timer().count());
+        assertEquals(1, meterRegistry.get("nlp.annotate").timer().count());
+        assertNotNull(meterRegistry.get("nlp.queue.depth").gauge());
+    }
+
+    @Test
+    public void annotate_AnnotatorFails_ErrorReachesCaller() {
+        doAnswer(inv -> {
+            Annotation document = inv.getArgument(0);
+            document.set(CoreAnnotations.SentencesAnnotation.class, List.of(sentence("rice.")));
+            return null;
+        }).when(splitter).annotate(any(Annotation.class));
+        doThrow(new IllegalStateException("parser failed")).when(sentenceAnnotator).annotate(any(Annotation.class));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> nlp.annotate("rice."));
+
+        assertEquals("parser failed", e.getMessage());
+    }
+
+    private static CoreMap sentence(String text) {
+        CoreMap sentence = new ArrayCoreMap();
+        sentence.set(CoreAnnotations.TextAnnotation.class, text);
+        CoreLabel token = new CoreLabel();
+        token.setWord(text);
+        token.setValue(text);
+        sentence.set(CoreAnnotations.TokensAnnotation.class, List.of(token));
+        return sentence;
+    }
+}
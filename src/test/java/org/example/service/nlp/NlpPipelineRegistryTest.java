@@ -0,0 +1,131 @@
+package org.example.service.nlp;
+
+import edu.stanford.nlp.pipeline.CoreDocument;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+public class NlpPipelineRegistryTest {
+    private SimpleMeterRegistry meterRegistry;
+    private Map<Language, Integer> loads;
+    private NlpPipelineRegistry registry;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        loads = new EnumMap<>(Language.class);
+        registry = new NlpPipelineRegistry(language -> {
+            loads.merge(language, 1, Integer::sum);
+            return new NlpPipelineRegistry.Pipeline(language, mock(StanfordCoreNLP.class), mock(StanfordCoreNLP.class));
+        }, meterRegistry);
+        registry.setLimits_OnlyForTesting(1500, 2, 30);
+    }
+
+    @Test
+    public void acquire_LoadsOnFirstUseOnly() {
+        NlpPipelineRegistry.Pipeline first = registry.acquire(Language.SPANISH);
+        NlpPipelineRegistry.Pipeline second = registry.acquire(Language.SPANISH);
+
+        assertSame(first, second);
+        assertEquals(1, loads.get(Language.SPANISH));
+        assertTrue(registry.isResident(Language.SPANISH));
+        assertEquals(450, registry.residentMemoryMb());
+        assertEquals(1.0, meterRegistry.counter("nlp.pipelines.loads", "language", "es").count());
+    }
+
+    @Test
+    public void acquire_MaxResident_EvictsLeastRecentlyUsed() {
+        registry.acquire(Language.SPANISH);
+        registry.acquire(Language.FRENCH);
+        registry.acquire(Language.SPANISH);
+
+        registry.acquire(Language.GERMAN);
+
+        assertTrue(registry.isResident(Language.SPANISH));
+        assertFalse(registry.isResident(Language.FRENCH));
+        assertTrue(registry.isResident(Language.GERMAN));
+        assertEquals(2, registry.resident());
+        assertEquals(1.0, meterRegistry.counter("nlp.pipelines.evictions", "language", "fr").count());
+    }
+
+    @Test
+    public void acquire_MemoryBudget_EvictsUntilItFits() {
+        registry.setLimits_OnlyForTesting(900, 5, 30);
+        registry.acquire(Language.SPANISH);
+        registry.acquire(Language.ITALIAN);
+
+        registry.acquire(Language.GERMAN);
+
+        assertFalse(registry.isResident(Language.SPANISH));
+        assertTrue(registry.isResident(Language.ITALIAN));
+        assertTrue(registry.isResident(Language.GERMAN));
+        assertEquals(900, registry.residentMemoryMb());
+    }
+
+    @Test
+    public void acquire_EvictedLanguage_LoadedAgain() {
+        registry.setLimits_OnlyForTesting(1500, 1, 30);
+        registry.acquire(Language.SPANISH);
+        registry.acquire(Language.FRENCH);
+        registry.acquire(Language.SPANISH);
+
+        assertEquals(2, loads.get(Language.SPANISH));
+    }
+
+    @Test
+    public void acquire_LargerThanBudget_Throws() {
+        registry.setLimits_OnlyForTesting(300, 2, 30);
+
+        assertThrows(RuntimeException.class, () -> registry.acquire(Language.GERMAN));
+        assertFalse(registry.isResident(Language.GERMAN));
+    }
+
+    @Test
+    public void acquire_English_Throws() {
+        assertThrows(RuntimeException.class, () -> registry.acquire(Language.ENGLISH));
+        assertTrue(loads.isEmpty());
+    }
+
+    @Test
+    public void evictIdle_DropsPipelinesNotUsedWithinIdleTime() {
+        registry.acquire(Language.SPANISH);
+
+        registry.evictIdle();
+        assertTrue(registry.isResident(Language.SPANISH));
+
+        registry.setLimits_OnlyForTesting(1500, 2, 0);
+        registry.evictIdle();
+        assertFalse(registry.isResident(Language.SPANISH));
+        assertEquals(0, registry.residentMemoryMb());
+    }
+
+    @Test
+    public void annotatorPool_KeepsAnnotatorsOutOfTheGlobalCache() {
+        Properties properties = new Properties();
+        properties.setProperty("annotators", "tokenize, ssplit");
+        int cached = StanfordCoreNLP.GLOBAL_ANNOTATOR_CACHE.size();
+
+        StanfordCoreNLP pipeline = new StanfordCoreNLP(properties, true, NlpPipelineRegistry.annotatorPool(properties));
+        CoreDocument document = new CoreDocument("Two apples. One pear.");
+        pipeline.annotate(document);
+
+        assertEquals(2, document.sentences().size());
+        assertEquals(cached, StanfordCoreNLP.GLOBAL_ANNOTATOR_CACHE.size());
+    }
+
+    @Test
+    public void annotatorPool_UnknownAnnotator_Throws() {
+        Properties properties = new Properties();
+        properties.setProperty("annotators", "tokenize, sentiment");
+
+        assertThrows(RuntimeException.class, () -> NlpPipelineRegistry.annotatorPool(properties));
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.service.nlp;
+
+import org.example.service.VoiceCommandService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class NlpWarmupTest {
+    @Mock
+    private NlpExtractor nlpExtractor;
+    @Mock
+    private VoiceCommandService voiceCommandService;
+    @Mock
+    private HttpClient httpClient;
+    @Mock
+    private ApplicationEventPublisher publisher;
+
+    private NlpWarmup warmup;
+
+    @BeforeEach
+    public void setUp() {
+        warmup = new NlpWarmup(nlpExtractor, voiceCommandService, httpClient, publisher);
+        warmup.setCorpus_OnlyForTesting(new ByteArrayResource(
+                "# comment\n5kg rice for $20\n\ncoffee for 3 dollars\n".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void startedButNotWarm_ReadinessTurnedBackToRefusing() {
+        warmup.onReadiness(new AvailabilityChangeEvent<>(this, ReadinessState.ACCEPTING_TRAFFIC));
+
+        ArgumentCaptor<AvailabilityChangeEvent<?>> event = ArgumentCaptor.forClass(AvailabilityChangeEvent.class);
+        verify(publisher).publishEvent(event.capture());
+        assertEquals(ReadinessState.REFUSING_TRAFFIC, event.getValue().getState());
+    }
+
+    @Test
+    public void warmUp_LoadsModelsRunsCorpusThenAcceptsTraffic() {
+        warmup.warmUp();
+
+        verify(nlpExtractor).load();
+        verify(voiceCommandService, times(3)).extractWithNlp("5kg rice for $20");
+        verify(voiceCommandService, times(3)).extractWithNlp("coffee for 3 dollars");
+        verify(voiceCommandService, never()).extractWithNlp("# comment");
+        assertTrue(warmup.isWarm());
+        ArgumentCaptor<AvailabilityChangeEvent<?>> event = ArgumentCaptor.forClass(AvailabilityChangeEvent.class);
+        verify(publisher).publishEvent(event.capture());
+        assertEquals(ReadinessState.ACCEPTING_TRAFFIC, event.getValue().getState());
+        verifyNoInteractions(httpClient);
+    }
+
+    @Test
+    public void warmUp_Fails_StillBecomesReady() {
+        doThrow(new IllegalStateException("model missing")).when(nlpExtractor).load();
+
+        warmup.warmUp();
+
+        assertTrue(warmup.isWarm());
+        verify(publisher).publishEvent(any(AvailabilityChangeEvent.class));
+
+        warmup.onReadiness(new AvailabilityChangeEvent<>(this, ReadinessState.ACCEPTING_TRAFFIC));
+        verifyNoMoreInteractions(publisher);
+    }
+}
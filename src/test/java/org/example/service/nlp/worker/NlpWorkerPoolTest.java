@@ -0,0 +1,225 @@
+package org.example.service.nlp.worker;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.domain.request.ExpenseRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * the pool against workers that are threads in this JVM serving real Unix domain sockets (the launcher starts
+ * an {@link NlpWorkerServer}), a "process" dies by closing its server.
+ */
+public class NlpWorkerPoolTest {
+    private SimpleMeterRegistry meterRegistry;
+    private List<FakeProcess> launched;
+    private Function<String, List<ExpenseRequest>> extractor;
+    private NlpWorkerPool pool;
+    private ExecutorService callers;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        launched = new CopyOnWriteArrayList<>();
+        extractor = text -> List.of(new ExpenseRequest(text, null, null));
+        pool = new NlpWorkerPool(this::launch, meterRegistry);
+        pool.setConfig_OnlyForTesting(1, 8, 200, 10_000);
+        callers = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        pool.stop();
+        callers.shutdownNow();
+    }
+
+    @Test
+    public void extract_ConcurrentRequestsShareABatch() throws Exception {
+        pool.load();
+
+        List<Future<List<ExpenseRequest>>> results = new ArrayList<>();
+        for (String text : List.of("rice", "milk", "bread", "coffee")) {
+            results.add(callers.submit(() -> pool.extract(text)));
+        }
+
+        assertEquals("rice", results.get(0).get().get(0).getProduct());
+        assertEquals("coffee", results.get(3).get().get(0).getProduct());
+        assertTrue(meterRegistry.get("nlp.workers.batch.size").summary().max() > 1);
+        assertEquals(1, launched.size());
+    }
+
+    @Test
+    public void extract_FailingTranscript_FailsAlone() throws Exception {
+        extractor = text -> {
+            if (text.equals("bad")) throw new IllegalStateException("no parse");
+            return List.of(new ExpenseRequest(text, null, null));
+        };
+        pool.load();
+
+        Future<List<ExpenseRequest>> bad = callers.submit(() -> pool.extract("bad"));
+        Future<List<ExpenseRequest>> good = callers.submit(() -> pool.extract("rice"));
+
+        ExecutionException error = assertThrows(ExecutionException.class, bad::get);
+        assertEquals("no parse", error.getCause().getMessage());
+        assertEquals("rice", good.get().get(0).getProduct());
+    }
+
+    @Test
+    public void workerCrashesDuringBatch_RestartedAndRetried() throws Exception {
+        AtomicBoolean crashed = new AtomicBoolean();
+        extractor = text -> {
+            if (crashed.compareAndSet(false, true)) {
+                launched.get(0).destroy();
+                throw new IllegalStateException("crashed");
+            }
+            return List.of(new ExpenseRequest(text, null, null));
+        };
+        pool.load();
+
+        List<ExpenseRequest> result = pool.extract("rice");
+
+        assertEquals("rice", result.get(0).getProduct());
+        assertEquals(2, launched.size());
+        assertEquals(1.0, meterRegistry.counter("nlp.workers.restarts").count());
+    }
+
+    @Test
+    public void workerStuckOnBatch_KilledAndRestarted() throws Exception {
+        CountDownLatch stuck = new CountDownLatch(1);
+        AtomicBoolean hung = new AtomicBoolean();
+        extractor = text -> {
+            if (hung.compareAndSet(false, true)) {
+                try {
+                    stuck.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return List.of(new ExpenseRequest(text, null, null));
+        };
+        pool.setConfig_OnlyForTesting(1, 8, 0, 500);
+        pool.load();
+
+        try {
+            assertThrows(RuntimeException.class, () -> pool.extract("rice"));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while ((launched.size() < 2 || pool.alive() == 0) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertFalse(launched.get(0).isAlive());
+            assertEquals(2, launched.size());
+            pool.setConfig_OnlyForTesting(1, 8, 0, 10_000);
+            assertEquals("milk", pool.extract("milk").get(0).getProduct());
+        } finally {
+            stuck.countDown();
+        }
+    }
+
+    @Test
+    public void checkHealth_UnresponsiveWorkerRestarted() throws Exception {
+        pool.load();
+        launched.get(0).server.close();
+
+        pool.checkHealth();
+
+        assertEquals(1.0, meterRegistry.counter("nlp.workers.health.failures").count());
+        assertEquals("rice", pool.extract("rice").get(0).getProduct());
+        assertEquals(2, launched.size());
+    }
+
+    @Test
+    public void load_NoWorkerStarts_Throws() {
+        NlpWorkerPool broken = new NlpWorkerPool(socket -> {
+            throw new IOException("no java");
+        }, meterRegistry);
+        broken.setConfig_OnlyForTesting(1, 8, 0, 1_000);
+
+        try {
+            assertThrows(RuntimeException.class, broken::load);
+            assertEquals(0, broken.alive());
+        } finally {
+            broken.stop();
+        }
+    }
+
+    private Process launch(Path socket) throws IOException {
+        NlpWorkerServer server = new NlpWorkerServer(socket, text -> extractor.apply(text), 4);
+        FakeProcess process = new FakeProcess(server);
+        Thread thread = new Thread(() -> {
+            try {
+                server.serve();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        launched.add(process);
+        return process;
+    }
+
+    private static class FakeProcess extends Process {
+        private final NlpWorkerServer server;
+        private final CountDownLatch exited = new CountDownLatch(1);
+
+        FakeProcess(NlpWorkerServer server) {
+            this.server = server;
+        }
+
+        @Override
+        public void destroy() {
+            try {
+                server.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            exited.countDown();
+        }
+
+        @Override
+        public boolean isAlive() {
+            return exited.getCount() > 0;
+        }
+
+        @Override
+        public int waitFor() throws InterruptedException {
+            exited.await();
+            return 0;
+        }
+
+        @Override
+        public int exitValue() {
+            if (isAlive()) throw new IllegalThreadStateException();
+            return 0;
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return OutputStream.nullOutputStream();
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return InputStream.nullInputStream();
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            return InputStream.nullInputStream();
+        }
+    }
+}
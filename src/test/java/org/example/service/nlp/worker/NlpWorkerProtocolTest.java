@@ -0,0 +1,89 @@
+package org.example.service.nlp.worker;
+
+import org.example.domain.request.ExpenseRequest;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NlpWorkerProtocolTest {
+
+    @Test
+    public void extract_RoundTrip() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        NlpWorkerProtocol.writeExtract(new DataOutputStream(bytes), List.of("5kg rice for $20", "compré café", ""));
+
+        NlpWorkerProtocol.Frame frame = NlpWorkerProtocol.read(input(bytes));
+
+        assertEquals(NlpWorkerProtocol.EXTRACT, frame.type());
+        assertEquals(List.of("5kg rice for $20", "compré café", ""), NlpWorkerProtocol.readTexts(frame));
+    }
+
+    @Test
+    public void results_RoundTrip_NullsAndErrors() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        NlpWorkerProtocol.writeResults(new DataOutputStream(bytes), List.of(
+                NlpWorkerProtocol.Result.ok(List.of(new ExpenseRequest("rice", "$20", "5kg"),
+                        new ExpenseRequest("milk", null, null))),
+                NlpWorkerProtocol.Result.failed("parse failed"),
+                NlpWorkerProtocol.Result.ok(List.of())));
+
+        List<NlpWorkerProtocol.Result> results = NlpWorkerProtocol.readResults(
+                NlpWorkerProtocol.read(input(bytes), NlpWorkerProtocol.RESULT));
+
+        assertEquals(3, results.size());
+        List<ExpenseRequest> first = results.get(0).expenses();
+        assertEquals("rice", first.get(0).getProduct());
+        assertEquals("$20", first.get(0).getPrice());
+        assertEquals("5kg", first.get(0).getQuantity());
+        assertEquals("milk", first.get(1).getProduct());
+        assertNull(first.get(1).getPrice());
+        assertFalse(results.get(1).isOk());
+        assertEquals("parse failed", results.get(1).error());
+        assertTrue(results.get(2).expenses().isEmpty());
+    }
+
+    @Test
+    public void pingPong() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        NlpWorkerProtocol.writePing(out);
+        NlpWorkerProtocol.writePong(out, 123_456_789L);
+
+        DataInputStream in = input(bytes);
+        assertEquals(NlpWorkerProtocol.PING, NlpWorkerProtocol.read(in).type());
+        assertEquals(123_456_789L, NlpWorkerProtocol.readPong(NlpWorkerProtocol.read(in, NlpWorkerProtocol.PONG)));
+    }
+
+    @Test
+    public void unexpectedType_Throws() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        NlpWorkerProtocol.writePing(new DataOutputStream(bytes));
+
+        assertThrows(IOException.class, () -> NlpWorkerProtocol.read(input(bytes), NlpWorkerProtocol.RESULT));
+    }
+
+    @Test
+    public void badFrameLength_Throws() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new DataOutputStream(bytes).writeInt(Integer.MAX_VALUE);
+
+        assertThrows(IOException.class, () -> NlpWorkerProtocol.read(input(bytes)));
+    }
+
+    @Test
+    public void truncatedFrame_Throws() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        NlpWorkerProtocol.writeExtract(new DataOutputStream(bytes), List.of("5kg rice for $20"));
+        byte[] truncated = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 3);
+
+        assertThrows(EOFException.class, () -> NlpWorkerProtocol.read(new DataInputStream(new ByteArrayInputStream(truncated))));
+    }
+
+    private static DataInputStream input(ByteArrayOutputStream bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.service.storage;
+
+import com.google.cloud.WriteChannel;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Storage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class GcsAudioStorageTest {
+    @Mock
+    private Storage storage;
+    @Mock
+    private WriteChannel writer;
+    @InjectMocks
+    private GcsAudioStorage audioStorage;
+
+    @Test
+    public void write_StreamsThroughWriteChannel() throws Exception {
+        byte[] audio = new byte[]{1, 2, 3};
+        audioStorage.setBUCKET_NAME_OnlyForTesting("spendyVoice-bucket");
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        when(storage.writer(any(BlobInfo.class))).thenReturn(writer);
+        when(writer.write(any(ByteBuffer.class))).thenAnswer(inv -> {
+            ByteBuffer chunk = inv.getArgument(0);
+            int n = chunk.remaining();
+            written.write(chunk.array(), chunk.position(), n);
+            chunk.position(chunk.limit());
+            return n;
+        });
+
+        audioStorage.write("audio/abc.mp3", "audio/mpeg", new ByteArrayInputStream(audio));
+
+        BlobInfo expected = BlobInfo.newBuilder(BlobId.of("spendyVoice-bucket", "audio/abc.mp3"))
+                .setContentType("audio/mpeg").build();
+        verify(storage).writer(eq(expected));
+        verify(storage, never()).create(any(BlobInfo.class), any(byte[].class));
+        verify(writer).close();
+        assertArrayEquals(audio, written.toByteArray());
+    }
+
+    @Test
+    public void signUpload_SignsPutForContentType() throws Exception {
+        audioStorage.setBUCKET_NAME_OnlyForTesting("spendyVoice-bucket");
+        when(storage.signUrl(any(BlobInfo.class), eq(900L), eq(TimeUnit.SECONDS), any(Storage.SignUrlOption[].class)))
+                .thenReturn(new URL("https://storage.googleapis.com/spendyVoice-bucket/uploads/1?X-Goog-Signature=x"));
+
+        SignedUpload signed = audioStorage.signUpload("uploads/1", "audio/mpeg", 1024, Duration.ofMinutes(15));
+
+        assertEquals("PUT", signed.method());
+        assertEquals("0,1024", signed.headers().get("x-goog-content-length-range"));
+        assertEquals("audio/mpeg", signed.contentType());
+        assertEquals("https://storage.googleapis.com/spendyVoice-bucket/uploads/1?X-Goog-Signature=x", signed.url());
+    }
+
+    @Test
+    public void delete_DeletesBlob() {
+        audioStorage.setBUCKET_NAME_OnlyForTesting("spendyVoice-bucket");
+
+        audioStorage.delete("uploads/1");
+
+        verify(storage).delete(BlobId.of("spendyVoice-bucket", "uploads/1"));
+    }
+
+    @Test
+    public void sizeOf_MissingObject() {
+        audioStorage.setBUCKET_NAME_OnlyForTesting("spendyVoice-bucket");
+        when(storage.get(BlobId.of("spendyVoice-bucket", "uploads/1"))).thenReturn(null);
+
+        assertEquals(-1, audioStorage.sizeOf("uploads/1"));
+    }
+}
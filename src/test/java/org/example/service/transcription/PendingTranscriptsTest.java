@@ -0,0 +1,147 @@
+package org.example.service.transcription;
+
+import com.assemblyai.api.AssemblyAI;
+import com.assemblyai.api.resources.transcripts.types.Transcript;
+import com.assemblyai.api.resources.transcripts.types.TranscriptStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.domain.response.BaseResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PendingTranscriptsTest {
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    private AssemblyAI assembly;
+    @Mock
+    private ExecutorService executor;
+    @Mock
+    private Transcript transcript;
+
+    private PendingTranscripts pendingTranscripts;
+
+    @BeforeEach
+    public void setUp() {
+        lenient().doAnswer(inv -> {
+            ((Runnable) inv.getArgument(0)).run();
+            return null;
+        }).when(executor).execute(any(Runnable.class));
+        pendingTranscripts = new PendingTranscripts(assembly, executor, executor, new SimpleMeterRegistry());
+    }
+
+    @Test
+    public void webhook_CompletedTranscript_CompletesFuture() {
+        CompletableFuture<String> future = pendingTranscripts.register("t-1");
+        when(assembly.transcripts().get("t-1")).thenReturn(transcript);
+        when(transcript.getStatus()).thenReturn(TranscriptStatus.COMPLETED);
+        when(transcript.getText()).thenReturn(Optional.of("5kg rice for $20"));
+
+        BaseResponse<String> res = pendingTranscripts.onWebhook(null, "t-1");
+
+        assertEquals(200, res.getStatus());
+        assertEquals("5kg rice for $20", future.join());
+        assertEquals(0, pendingTranscripts.size());
+    }
+
+    @Test
+    public void webhook_WrongSecret_Rejected() {
+        pendingTranscripts.setWebhookSecret_OnlyForTesting("s3cret");
+        CompletableFuture<String> future = pendingTranscripts.register("t-1");
+
+        BaseResponse<String> res = pendingTranscripts.onWebhook("guess", "t-1");
+
+        assertEquals(401, res.getStatus());
+        assertFalse(future.isDone());
+        verify(assembly, never()).transcripts();
+    }
+
+    @Test
+    public void webhook_UnknownTranscript_Ignored() {
+        BaseResponse<String> res = pendingTranscripts.onWebhook(null, "someone-else");
+
+        assertEquals(200, res.getStatus());
+        verify(assembly, never()).transcripts();
+    }
+
+    @Test
+    public void poll_FailedTranscript_FailsFuture() throws Exception {
+        CompletableFuture<String> future = pendingTranscripts.register("t-1");
+        when(assembly.transcripts().get("t-1")).thenReturn(transcript);
+        when(transcript.getStatus()).thenReturn(TranscriptStatus.ERROR);
+        when(transcript.getError()).thenReturn(Optional.of("Audio duration is too short"));
+
+        Thread.sleep(1100);
+        pendingTranscripts.poll();
+
+        CompletionException e = assertThrows(CompletionException.class, future::join);
+        assertEquals("Audio duration is too short", e.getCause().getMessage());
+    }
+
+    @Test
+    public void poll_StillProcessing_StaysPending() throws Exception {
+        CompletableFuture<String> future = pendingTranscripts.register("t-1");
+        when(assembly.transcripts().get("t-1")).thenReturn(transcript);
+        when(transcript.getStatus()).thenReturn(TranscriptStatus.PROCESSING);
+
+        Thread.sleep(1100);
+        pendingTranscripts.poll();
+        pendingTranscripts.poll();
+
+        assertFalse(future.isDone());
+        assertEquals(1, pendingTranscripts.size());
+        // the second poll is within the backed-off delay, so AssemblyAI is asked only once
+        verify(assembly.transcripts(), times(1)).get("t-1");
+    }
+
+    @Test
+    public void poll_ChecksRunOffTheSchedulerAndAreNotRepeatedWhileInFlight() throws Exception {
+        List<Runnable> submitted = new ArrayList<>();
+        ExecutorService checks = mock(ExecutorService.class);
+        doAnswer(inv -> submitted.add(inv.getArgument(0))).when(checks).execute(any(Runnable.class));
+        pendingTranscripts = new PendingTranscripts(assembly, executor, checks, new SimpleMeterRegistry());
+        CompletableFuture<String> future = pendingTranscripts.register("t-1");
+        pendingTranscripts.register("t-2");
+
+        Thread.sleep(1100);
+        pendingTranscripts.poll();
+        pendingTranscripts.poll();
+
+        // nothing was fetched on the polling thread, and each transcript was handed out once
+        verify(assembly, never()).transcripts();
+        assertEquals(2, submitted.size());
+
+        when(assembly.transcripts().get(anyString())).thenReturn(transcript);
+        when(transcript.getStatus()).thenReturn(TranscriptStatus.COMPLETED);
+        when(transcript.getText()).thenReturn(Optional.of("milk"));
+        submitted.forEach(Runnable::run);
+
+        assertEquals("milk", future.join());
+        assertEquals(0, pendingTranscripts.size());
+    }
+
+    @Test
+    public void poll_WithWebhook_WaitsForGracePeriod() {
+        pendingTranscripts.setWebhookUrl_OnlyForTesting("https://spendy.example/transcription/webhook");
+        CompletableFuture<String> future = pendingTranscripts.register("t-1");
+
+        pendingTranscripts.poll();
+
+        assertFalse(future.isDone());
+        verify(assembly, never()).transcripts();
+    }
+}
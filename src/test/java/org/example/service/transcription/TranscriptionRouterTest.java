@@ -0,0 +1,101 @@
+package org.example.service.transcription;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+public class TranscriptionRouterTest {
+    @Mock
+    private TranscriptionEngine cloud;
+    @Mock
+    private TranscriptionEngine local;
+    @Mock
+    private TranscriptionEngine stub;
+
+    private TranscriptionRouter router;
+
+    @BeforeEach
+    public void setUp() {
+        lenient().when(cloud.name()).thenReturn("assemblyai");
+        lenient().when(local.name()).thenReturn("local");
+        lenient().when(stub.name()).thenReturn("stub");
+        lenient().when(cloud.isAvailable()).thenReturn(true);
+        lenient().when(local.isAvailable()).thenReturn(true);
+        lenient().when(stub.isAvailable()).thenReturn(false);
+        router = new TranscriptionRouter(List.of(cloud, local, stub));
+    }
+
+    @Test
+    public void choose_ShortUtterance_GoesToLocalEngine() {
+        AudioSource audio = AudioSource.builder().size(40_000).durationSeconds(3.0).build();
+
+        assertSame(local, router.choose(audio));
+    }
+
+    @Test
+    public void choose_LongAudio_PicksLowestP95() {
+        AudioSource audio = AudioSource.builder().size(5_000_000).durationSeconds(300.0).build();
+        for (int i = 0; i < 10; i++) {
+            router.record(cloud, 2_000_000_000L, true);
+            router.record(local, 9_000_000_000L, true);
+        }
+
+        assertSame(cloud, router.choose(audio));
+    }
+
+    @Test
+    public void choose_FailingEngine_IsAvoided() {
+        AudioSource audio = AudioSource.builder().size(5_000_000).durationSeconds(300.0).build();
+        for (int i = 0; i < 10; i++) {
+            router.record(cloud, 1_000_000L, false);
+            router.record(local, 9_000_000_000L, true);
+        }
+
+        assertSame(local, router.choose(audio));
+    }
+
+    @Test
+    public void choose_FailingEngine_ProbedAndBackOnSuccess() {
+        AudioSource audio = AudioSource.builder().size(5_000_000).durationSeconds(300.0).build();
+        for (int i = 0; i < 10; i++) {
+            router.record(cloud, 1_000_000L, false);
+            router.record(local, 9_000_000_000L, true);
+        }
+
+        for (int i = 0; i < 19; i++) {
+            assertSame(local, router.choose(audio));
+        }
+        assertSame(cloud, router.choose(audio));
+        assertSame(local, router.choose(audio));
+
+        router.record(cloud, 1_000_000L, true);
+
+        assertEquals(0.0, router.errorRate("assemblyai"));
+        assertSame(cloud, router.choose(audio));
+    }
+
+    @Test
+    public void choose_StubEnabled_AlwaysUsesStub() {
+        lenient().when(stub.isAvailable()).thenReturn(true);
+
+        assertSame(stub, router.choose(AudioSource.builder().size(10).build()));
+    }
+
+    @Test
+    public void choose_NothingAvailable_Throws() {
+        lenient().when(cloud.isAvailable()).thenReturn(false);
+        lenient().when(local.isAvailable()).thenReturn(false);
+
+        assertThrows(RuntimeException.class, () -> router.choose(AudioSource.builder().build()));
+    }
+}